@@ -0,0 +1,315 @@
+package com.murveit.tgcontrol;
+
+import android.content.Context;
+import android.os.Process;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audio Arbiter - Algorithmic Overview
+ *
+ * Single owner of every app-side sound during a session: line calls, MPH speech,
+ * in-point beeps and the end-of-point double beep. Three code paths can ask for
+ * the same call -- CommunicationService.tryPlayEarlyAudio() on the socket thread,
+ * and SessionState's POINT_UPDATE_JSON / TRACK_EVENT_JSON handlers on the
+ * SessionProcessor thread. They used to de-duplicate each other with wall-clock
+ * windows (lastEarlyAudioFiredMs checked against 2000 ms and 500 ms) and the
+ * lastInPointCallFired string, which either double-spoke or dropped a call once
+ * message spacing drifted outside the windows. Here every request is an intent
+ * keyed by (point id, stroke index) and each key plays at most once, whatever the
+ * timing.
+ *
+ * 1. INITIALIZATION:
+ * - get(context) creates the process-wide instance and its worker thread
+ *   ("AudioArbiter", THREAD_PRIORITY_URGENT_AUDIO). MainActivity hands it the
+ *   FastSpeechEngine once it exists (setSpeechEngine) and arms beeps
+ *   (setTonesArmed), clearing both in onDestroy -- with no speech engine the
+ *   arbiter is disarmed and the early path stays silent, as before; with tones
+ *   disarmed beeps are dropped, as they were with no ToneGenerator.
+ *
+ * 2. CALLING PROCEDURE:
+ * - stampPoint(tag) on the socket thread for every TRACK_EVENT_JSON /
+ *   POINT_UPDATE_JSON, in arrival order, before anything else looks at the message.
+ *   POINT_UPDATE_JSON belongs to the current point; TRACK_EVENT_JSON ends it (the
+ *   next message starts a new id). In SERVE_PRACTICE every serve is its own "point".
+ *   The returned id travels with the message to both the early path and
+ *   SessionProcessor, so both name the same point no matter which runs first.
+ * - submit(kind, pointId, strokeIndex, call, mph, receiveNs) from any thread.
+ *   strokeIndex is the stroke the call belongs to, or STROKE_ANY when the sender
+ *   only knows "this point's terminal call" (TRACK_EVENT_JSON carries no index).
+ * - execute(task) runs arbitrary audio-side work on the worker -- the socket reader
+ *   hands CommunicationService's early-audio parsing over this way, so all it does
+ *   per message is one enqueue.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Producers never block: submit()/execute() offer a task to a ConcurrentLinkedQueue
+ *   (lock-free CAS) and LockSupport.unpark() the worker. The worker drains the queue,
+ *   runs AudioLatencyMonitor's due polls, then parks until the next poll deadline or
+ *   the next unpark. An unpark that lands before park() leaves a permit, so no wakeup
+ *   is lost. (The previous Handler.post() took the MessageQueue lock and allocated a
+ *   Message on the caller's thread.)
+ * - Intents are decided and played on the arbiter thread only, so the played-key
+ *   table needs no locking. The table is a 16-slot ring indexed by point id; each
+ *   slot holds one bitmask per family (VOICE = CALL/MPH, BEEP, DOUBLE_BEEP) with
+ *   one bit per stroke index plus a top "any" bit.
+ * - Duplicate rule per family: an exact stroke already played is a duplicate; a
+ *   STROKE_ANY intent is a duplicate once anything played for that point; an
+ *   explicit stroke is a duplicate if a STROKE_ANY intent already played. So the
+ *   mid-point call from POINT_UPDATE_JSON and the end-of-point call from
+ *   TRACK_EVENT_JSON collapse into one, in whichever order they arrive.
+ * - A key is marked played only once play() reports a sound actually started
+ *   (path other than none / speech_not_ready: no clip for the call, tone not loaded,
+ *   speech not cached), so a later intent for the same key still gets its chance.
+ * - An intent for a point that has already rotated out of the ring (16+ points
+ *   old) is dropped as stale. SYNTHETIC_POINT intents (the debug trigger, via
+ *   SessionProcessor.submit(tag, payload)) skip the table altogether and never advance
+ *   the point sequence, so they cannot shift the ids of real messages.
+ * - Fastest path per kind: CALL -> CallClipBank (preloaded static AudioTracks);
+ *   MPH -> FastSpeechEngine.speakIfReady, adding "miles per hour" at most once per
+ *   MPH_SUFFIX_COOLDOWN_MS (the bare number if only that is cached yet). A speed
+ *   still being synthesized is skipped and logged as path=speech_not_ready rather
+ *   than handed to dynamic TTS. Each speed also goes to recordSpeed() so the next
+ *   cold cache renders this player's speeds first.
+ * - BEEP/DOUBLE_BEEP -> ToneBank's pre-rendered static tracks, played from this
+ *   thread. The double beep is a single buffer, so its spacing is fixed in samples
+ *   rather than by Handler scheduling.
+ * - PREARM intents (SessionState, on has_pending_hit) bypass the played-key table and
+ *   go to AudioPrearm, which primes the in-flight stroke's likely clips/tones and keeps
+ *   the output stream warm. The next CALL/BEEP for that point reports whether it was
+ *   primed (path=clip_prearmed / tone_prearmed); AudioPrearm keeps the hit rate and the
+ *   latency saved, fed with play() call times and AudioLatencyMonitor's measurements.
+ * - Decision latency (socket receipt -> play call) and queue latency (submit ->
+ *   play call) are measured with nanoTime; running count/duplicates/mean/max ride
+ *   along on every AUDIO_DECISION line.
+ * - Output latency (play call -> first frame at the speaker) is AudioLatencyMonitor's
+ *   job: each play() leaves the AudioTrack it started in lastTrack (null for SoundPool
+ *   and the MediaPlayer fallback), and the monitor polls that track's timestamps on
+ *   this same thread. latencyMonitor() exposes its per-device stats to the UI.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Audio output. One "[LATENCY] AUDIO_DECISION" FileLogger line per played intent
+ *   and one "AUDIO_DUPLICATE" line (AUDIO, DEBUG) per suppressed one, written after the sound has
+ *   been started, then one "[LATENCY] AUDIO_OUTPUT" line once it reaches the speaker.
+ */
+public final class AudioArbiter {
+
+    public static final int CALL = 0;          // "Out" / "Fault" / "Let" clip
+    public static final int MPH = 1;           // spoken serve speed
+    public static final int BEEP = 2;          // single short in-point/in-serve beep
+    public static final int DOUBLE_BEEP = 3;   // end-of-point "happy" double beep
+    public static final int PREARM = 4;        // stroke in flight: warm its likely sounds (no audio)
+
+    public static final int STROKE_ANY = -1;
+    // Point id of locally injected messages (the debug trigger). Real ids start at 1; this
+    // one never enters the played-key table and never advances the sequence.
+    public static final int SYNTHETIC_POINT = 0;
+
+    static final long MPH_SUFFIX_COOLDOWN_MS = 60000;
+
+    private static final int FAMILY_VOICE = 0;
+    private static final int FAMILY_BEEP = 1;
+    private static final int FAMILY_DOUBLE_BEEP = 2;
+    private static final int FAMILY_COUNT = 3;
+    private static final long ANY_BIT = 1L << 63;
+    private static final int RING_SIZE = 16;   // power of two
+
+    private static AudioArbiter instance;
+
+    private final Context appContext;
+    private final Thread worker;
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pointSeq = new AtomicInteger(1);
+    private final AudioLatencyMonitor latencyMonitor;
+    private final AudioPrearm prearm;
+
+    private volatile FastSpeechEngine speechEngine;
+    private volatile boolean tonesArmed;
+
+    // --- Arbiter-thread state ---
+    private final int[] ringPointIds = new int[RING_SIZE];
+    private final long[][] ringPlayed = new long[RING_SIZE][FAMILY_COUNT];
+    private long lastMphSuffixMs = 0;
+    private android.media.AudioTrack lastTrack;   // set by play(); null if untimestampable
+    private long decisions = 0;
+    private long duplicates = 0;
+    private long decisionNsSum = 0;
+    private long decisionNsMax = 0;
+
+    private AudioArbiter(Context context) {
+        appContext = context.getApplicationContext();
+        latencyMonitor = new AudioLatencyMonitor(appContext);
+        prearm = new AudioPrearm(appContext);
+        latencyMonitor.setOutputObserver(prearm::onOutput);
+        worker = new Thread(this::workLoop, "AudioArbiter");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public static synchronized AudioArbiter get(Context context) {
+        if (instance == null) instance = new AudioArbiter(context);
+        return instance;
+    }
+
+    public void setSpeechEngine(FastSpeechEngine engine) {
+        speechEngine = engine;
+    }
+
+    public void setTonesArmed(boolean armed) {
+        tonesArmed = armed;
+    }
+
+    public AudioLatencyMonitor latencyMonitor() {
+        return latencyMonitor;
+    }
+
+    /** False once MainActivity has gone away: no screen, no sound. */
+    public boolean isArmed() {
+        return speechEngine != null;
+    }
+
+    /** Point id for one inbound message, in socket arrival order. */
+    public int stampPoint(String tag) {
+        if ("TRACK_EVENT_JSON".equals(tag)) return pointSeq.getAndIncrement();
+        return pointSeq.get();
+    }
+
+    public void submit(int kind, int pointId, int strokeIndex, String call, double mph, long receiveNs) {
+        final long submitNs = System.nanoTime();
+        execute(() -> decide(kind, pointId, strokeIndex, call, mph, receiveNs, submitNs));
+    }
+
+    /** Runs `task` on the audio worker, in submission order. Never blocks the caller. */
+    public void execute(Runnable task) {
+        queue.offer(task);
+        LockSupport.unpark(worker);
+    }
+
+    private void workLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        while (true) {
+            Runnable task;
+            while ((task = queue.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    FileLogger.log(appContext, "AudioArbiter task failed", e);
+                }
+            }
+            long nextNs = latencyMonitor.pollPending(System.nanoTime());
+            if (!queue.isEmpty()) continue;
+            if (nextNs == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                long waitNs = nextNs - System.nanoTime();
+                if (waitNs > 0) LockSupport.parkNanos(this, waitNs);
+            }
+        }
+    }
+
+    private void decide(int kind, int pointId, int strokeIndex, String call, double mph,
+                        long receiveNs, long submitNs) {
+        if (kind == PREARM) {
+            // Not a sound: nothing to de-duplicate. `call` carries the stroke type.
+            if (isArmed()) prearm.arm(pointId, strokeIndex, call);
+            return;
+        }
+        int family = kind == BEEP ? FAMILY_BEEP : kind == DOUBLE_BEEP ? FAMILY_DOUBLE_BEEP : FAMILY_VOICE;
+        int slot = pointId & (RING_SIZE - 1);
+        long bit = strokeIndex < 0 ? ANY_BIT : 1L << Math.min(strokeIndex, 62);
+        boolean keyed = pointId != SYNTHETIC_POINT;
+        if (keyed) {
+            if (ringPointIds[slot] != pointId) {
+                if (ringPointIds[slot] - pointId > 0) {
+                    FileLogger.log(appContext, FileLogger.Category.AUDIO, FileLogger.DEBUG,
+                            () -> "AUDIO_DUPLICATE stale point=" + pointId + " stroke=" + strokeIndex);
+                    return;
+                }
+                ringPointIds[slot] = pointId;
+                java.util.Arrays.fill(ringPlayed[slot], 0L);
+            }
+            long played = ringPlayed[slot][family];
+            boolean duplicate = played != 0
+                    && (strokeIndex < 0 || (played & ANY_BIT) != 0 || (played & bit) != 0);
+            if (duplicate) {
+                duplicates++;
+                FileLogger.log(appContext, FileLogger.Category.AUDIO, FileLogger.DEBUG, () -> String.format(Locale.US,
+                        "AUDIO_DUPLICATE point=%d stroke=%d kind=%d call=%s", pointId, strokeIndex, kind, call));
+                return;
+            }
+        }
+
+        long playNs = System.nanoTime();
+        lastTrack = null;
+        String path = play(kind, pointId, call, mph);
+        long nowNs = System.nanoTime();
+        // Only a sound that actually started claims the key; a miss leaves the retry open.
+        if (keyed && sounded(path)) ringPlayed[slot][family] |= bit;
+        prearm.onPlayCall(path, nowNs - playNs);
+        long decisionNs = nowNs - receiveNs;
+        decisions++;
+        decisionNsSum += decisionNs;
+        if (decisionNs > decisionNsMax) decisionNsMax = decisionNs;
+        FileLogger.log(appContext, FileLogger.Category.LATENCY, FileLogger.INFO, () -> String.format(Locale.US,
+                "[LATENCY] AUDIO_DECISION point=%d stroke=%d kind=%d path=%s receive_to_play_us=%d queue_us=%d"
+                        + " n=%d dup=%d mean_us=%d max_us=%d",
+                pointId, strokeIndex, kind, path, decisionNs / 1000, (nowNs - submitNs) / 1000,
+                decisions, duplicates, decisionNsSum / decisions / 1000, decisionNsMax / 1000));
+        SessionJournal.recordAt(SessionJournal.AUDIO_FIRED, pointId, playNs, decisionNs, path);
+        if (sounded(path)) {
+            LatencyReport.record(LatencyReport.Stage.AUDIO_RECEIVE_PLAY, decisionNs / 1000, pointId);
+            latencyMonitor.track(lastTrack, path, pointId, receiveNs, playNs);
+        }
+    }
+
+    /** Starts the sound; returns the path name used, for the latency log. */
+    private String play(int kind, int pointId, String call, double mph) {
+        switch (kind) {
+            case CALL: {
+                int clip = CallClipBank.clipForCall(call);
+                if (clip < 0) return "none";
+                boolean primed = prearm.takeClip(pointId, clip);
+                lastTrack = CallClipBank.preload(appContext).play(clip);
+                return primed ? "clip_prearmed" : "clip";
+            }
+            case MPH: {
+                FastSpeechEngine engine = speechEngine;
+                if (engine == null) return "none";
+                int mphInt = (int) Math.round(mph);
+                engine.recordSpeed(mphInt);
+                long now = System.currentTimeMillis();
+                // Cache only: a dynamic-TTS miss would land seconds late, mid-rally.
+                if (now - lastMphSuffixMs > MPH_SUFFIX_COOLDOWN_MS
+                        && engine.speakIfReady(mphInt + " miles per hour")) {
+                    lastMphSuffixMs = now;
+                    lastTrack = engine.lastOutputTrack();
+                    return "speech";
+                }
+                if (!engine.speakIfReady(String.valueOf(mphInt))) return "speech_not_ready";
+                lastTrack = engine.lastOutputTrack();
+                return "speech";
+            }
+            case BEEP:
+                return playTone(ToneBank.TONE_BEEP, pointId);
+            case DOUBLE_BEEP:
+                return playTone(ToneBank.TONE_DOUBLE_BEEP, pointId);
+            default:
+                return "none";
+        }
+    }
+
+    private String playTone(int tone, int pointId) {
+        if (!tonesArmed) return "none";
+        boolean primed = prearm.takeTone(pointId, tone);
+        lastTrack = ToneBank.preload(appContext).play(tone);
+        if (lastTrack == null) return "none";   // not loaded yet, or the replay failed
+        return primed ? "tone_prearmed" : "tone";
+    }
+
+    /** False for the paths that produced no sound. */
+    private static boolean sounded(String path) {
+        return !"none".equals(path) && !"speech_not_ready".equals(path);
+    }
+}
@@ -0,0 +1,310 @@
+package com.murveit.tgcontrol;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.AudioDeviceInfo;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Audio Latency Monitor - Algorithmic Overview
+ *
+ * Measures when AudioArbiter's sounds actually reach the speaker. The [LATENCY]
+ * log lines used to stop at RENDER_DONE for visuals and at the play() call for
+ * audio, so every audio-pipeline change was judged blind. This class follows each
+ * played intent from play() to its first frame's presentation time, per output
+ * device, and keeps rolling stats that survive restarts.
+ *
+ * 1. INITIALIZATION:
+ * - Created by AudioArbiter and driven by its worker thread: polling runs on the
+ *   same URGENT_AUDIO thread that issued the play() and never races it.
+ *
+ * 2. CALLING PROCEDURE:
+ * - track(audioTrack, path, pointId, receiveNs, playNs) right after a play() call.
+ *   audioTrack is the track the sound went to, or null for paths with no timestamp
+ *   (SoundPool, MediaPlayer fallback) -- those get an estimate instead.
+ * - pollPending(nowNs) from the worker loop each time it wakes; returns the nanoTime
+ *   of the next due poll (Long.MAX_VALUE if none), which the worker parks until.
+ * - summary() / setListener() for the debug view (MainActivity, debug-audio only).
+ * - setOutputObserver() for a per-measurement callback on the arbiter thread.
+ * - outputLatencyMs(deviceKey) for the device's rolling median, the per-device
+ *   compensation applied to estimates.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Playback start comes from AudioTrack.getTimestamp(): a (framePosition, nanoTime)
+ *   pair for a frame presented at the output; start = nanoTime - framePosition /
+ *   sampleRate. Polled every POLL_MS until a timestamp with framePosition > 0 appears
+ *   whose start is not before playNs (stale pre-flush/pre-reload timestamps are
+ *   ignored), or TIMEOUT_MS passes ("timeout" in the log).
+ * - Device key = routed device type + product name (getRoutedDevice()), so the
+ *   phone speaker and each Bluetooth headset keep separate stats.
+ * - Per device a WINDOW-sample ring of play->speaker and receive->speaker times;
+ *   p50/p90/max computed on demand from a sorted copy. Every PERSIST_EVERY samples the
+ *   device's p50 is saved in the "audio_latency" SharedPreferences.
+ * - Compensation: a path with no timestamp logs estimated_receive_to_speaker_us =
+ *   receive->play plus the rolling p50 (else the persisted one) of the device the last
+ *   measured play was routed to -- remembered across restarts -- instead of nothing.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - One "[LATENCY] AUDIO_OUTPUT" FileLogger line per tracked play.
+ * - Listener callbacks on the main thread after each measurement.
+ */
+public final class AudioLatencyMonitor {
+
+    public interface Listener {
+        /** Main thread. `summary` is one line per device seen this process. */
+        void onAudioLatency(String summary);
+    }
+
+    /** Arbiter thread, once per measured play (AudioPrearm's cold/prearmed comparison). */
+    interface OutputObserver {
+        void onOutput(String path, long playToSpeakerUs);
+    }
+
+    static final int POLL_MS = 2;
+    static final int TIMEOUT_MS = 500;
+    static final int WINDOW = 64;
+    private static final int PERSIST_EVERY = 8;
+    private static final String PREFS_NAME = "audio_latency";
+    // Not a device key (those are "<type>[:name]"): the route of the last measurement.
+    private static final String KEY_LAST_DEVICE = "#last_device";
+
+    private static final class DeviceStats {
+        final long[] playToSpeakerUs = new long[WINDOW];
+        final long[] receiveToSpeakerUs = new long[WINDOW];
+        int count;          // total samples ever
+        int timeouts;
+
+        void add(long playUs, long receiveUs) {
+            int i = count % WINDOW;
+            playToSpeakerUs[i] = playUs;
+            receiveToSpeakerUs[i] = receiveUs;
+            count++;
+        }
+
+        long percentile(long[] ring, int pct) {
+            int n = Math.min(count, WINDOW);
+            if (n == 0) return -1;
+            long[] sorted = Arrays.copyOf(ring, n);
+            Arrays.sort(sorted);
+            return sorted[Math.min(n - 1, (n * pct) / 100)];
+        }
+    }
+
+    private final Context appContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final SharedPreferences prefs;
+    private volatile Listener listener;
+    // Device the most recent timestamped play was routed to; persisted, so a fresh process
+    // estimates against the current route's saved p50 before its first measurement.
+    private String currentDevice;
+    private OutputObserver outputObserver;
+
+    /** One play() still waiting for its first presented frame. */
+    private static final class Pending {
+        final AudioTrack track;
+        final String path;
+        final int pointId;
+        final long receiveNs;
+        final long playNs;
+        long dueNs;
+
+        Pending(AudioTrack track, String path, int pointId, long receiveNs, long playNs) {
+            this.track = track;
+            this.path = path;
+            this.pointId = pointId;
+            this.receiveNs = receiveNs;
+            this.playNs = playNs;
+        }
+    }
+
+    // Worker-thread state, except `devices`, which summary() also reads (synchronized).
+    private final Map<String, DeviceStats> devices = new LinkedHashMap<>();
+    private final List<Pending> pending = new ArrayList<>();
+    private final AudioTimestamp timestamp = new AudioTimestamp();
+
+    AudioLatencyMonitor(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.currentDevice = prefs.getString(KEY_LAST_DEVICE, null);
+    }
+
+    void setOutputObserver(OutputObserver o) {
+        outputObserver = o;
+    }
+
+    public void setListener(Listener l) {
+        listener = l;
+        if (l != null) publish();
+    }
+
+    /** Rolling (or last persisted) median play->speaker ms for a device; -1 if unknown. */
+    public long outputLatencyMs(String deviceKey) {
+        synchronized (devices) {
+            DeviceStats d = devices.get(deviceKey);
+            if (d != null && d.count > 0) return d.percentile(d.playToSpeakerUs, 50) / 1000;
+        }
+        return prefs.getLong(deviceKey, -1);
+    }
+
+    /** Called on the arbiter thread straight after play(). */
+    void track(AudioTrack track, String path, int pointId, long receiveNs, long playNs) {
+        if (track == null) {
+            logEstimate(path, pointId, receiveNs, playNs);
+            return;
+        }
+        Pending p = new Pending(track, path, pointId, receiveNs, playNs);
+        if (!poll(p, System.nanoTime())) pending.add(p);
+    }
+
+    /** Arbiter thread: polls every due measurement; returns the next due nanoTime. */
+    long pollPending(long nowNs) {
+        long next = Long.MAX_VALUE;
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            Pending p = pending.get(i);
+            if (nowNs - p.dueNs >= 0 && poll(p, nowNs)) {
+                pending.remove(i);
+            } else if (p.dueNs < next) {
+                next = p.dueNs;
+            }
+        }
+        return next;
+    }
+
+    /** True once `p` is finished (measured, timed out, or its track released). */
+    private boolean poll(Pending p, long nowNs) {
+        long startNs = -1;
+        try {
+            if (p.track.getTimestamp(timestamp) && timestamp.framePosition > 0) {
+                long candidate = timestamp.nanoTime
+                        - timestamp.framePosition * 1_000_000_000L / p.track.getSampleRate();
+                if (candidate >= p.playNs) startNs = candidate;
+            }
+        } catch (IllegalStateException e) {
+            return true; // released underneath us
+        }
+        if (startNs < 0) {
+            if (nowNs - p.playNs < TIMEOUT_MS * 1_000_000L) {
+                p.dueNs = nowNs + POLL_MS * 1_000_000L;
+                return false;
+            }
+            String device = deviceKey(p.track);
+            noteRoute(device);
+            synchronized (devices) {
+                stats(device).timeouts++;
+            }
+            FileLogger.log(appContext, FileLogger.Category.LATENCY, FileLogger.INFO, () -> String.format(Locale.US,
+                    "[LATENCY] AUDIO_OUTPUT point=%d path=%s device=%s timeout_ms=%d",
+                    p.pointId, p.path, device, TIMEOUT_MS));
+            return true;
+        }
+
+        String device = deviceKey(p.track);
+        noteRoute(device);
+        long playUs = (startNs - p.playNs) / 1000;
+        long receiveUs = (startNs - p.receiveNs) / 1000;
+        long p50, p90, max;
+        int n;
+        synchronized (devices) {
+            DeviceStats d = stats(device);
+            d.add(playUs, receiveUs);
+            n = d.count;
+            p50 = d.percentile(d.playToSpeakerUs, 50);
+            p90 = d.percentile(d.playToSpeakerUs, 90);
+            max = d.percentile(d.playToSpeakerUs, 100);
+        }
+        if (n % PERSIST_EVERY == 0) prefs.edit().putLong(device, p50 / 1000).apply();
+        FileLogger.log(appContext, FileLogger.Category.LATENCY, FileLogger.INFO, () -> String.format(Locale.US,
+                "[LATENCY] AUDIO_OUTPUT point=%d path=%s device=%s receive_to_speaker_us=%d play_to_speaker_us=%d"
+                        + " n=%d p50_us=%d p90_us=%d max_us=%d",
+                p.pointId, p.path, device, receiveUs, playUs, n, p50, p90, max));
+        SessionJournal.recordAt(SessionJournal.AUDIO_OUTPUT, p.pointId, startNs, playUs * 1000, device);
+        LatencyReport.record(LatencyReport.Stage.AUDIO_PLAY_SPEAKER, playUs, p.pointId);
+        LatencyReport.record(LatencyReport.Stage.AUDIO_RECEIVE_SPEAKER, receiveUs, p.pointId);
+        if (outputObserver != null) outputObserver.onOutput(p.path, playUs);
+        publish();
+        return true;
+    }
+
+    private void logEstimate(String path, int pointId, long receiveNs, long playNs) {
+        // No timestamp for this path: assume the current route's measured output latency.
+        String device = currentDevice;
+        long compMs = device == null ? -1 : outputLatencyMs(device);
+        long receiveToPlayUs = (playNs - receiveNs) / 1000;
+        FileLogger.log(appContext, FileLogger.Category.LATENCY, FileLogger.INFO, () -> String.format(Locale.US,
+                "[LATENCY] AUDIO_OUTPUT point=%d path=%s device=%s play_to_speaker_us=-1 estimated_receive_to_speaker_us=%d",
+                pointId, path, device, compMs < 0 ? -1 : receiveToPlayUs + compMs * 1000));
+    }
+
+    /** One line per device: count, p50/p90/max play->speaker, p50 receive->speaker. */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (devices) {
+            for (Map.Entry<String, DeviceStats> e : devices.entrySet()) {
+                DeviceStats d = e.getValue();
+                if (sb.length() > 0) sb.append('\n');
+                sb.append(String.format(Locale.US, "%s n=%d out p50=%d p90=%d max=%d ms, recv->spk p50=%d ms%s",
+                        e.getKey(), d.count,
+                        d.percentile(d.playToSpeakerUs, 50) / 1000, d.percentile(d.playToSpeakerUs, 90) / 1000,
+                        d.percentile(d.playToSpeakerUs, 100) / 1000, d.percentile(d.receiveToSpeakerUs, 50) / 1000,
+                        d.timeouts > 0 ? " timeouts=" + d.timeouts : ""));
+            }
+        }
+        return sb.length() == 0 ? "audio latency: no samples yet" : sb.toString();
+    }
+
+    private void publish() {
+        Listener l = listener;
+        if (l == null) return;
+        String s = summary();
+        mainHandler.post(() -> {
+            Listener cur = listener;
+            if (cur != null) cur.onAudioLatency(s);
+        });
+    }
+
+    private DeviceStats stats(String device) {
+        DeviceStats d = devices.get(device);
+        if (d == null) {
+            d = new DeviceStats();
+            devices.put(device, d);
+        }
+        return d;
+    }
+
+    private void noteRoute(String device) {
+        if (device.equals(currentDevice)) return;
+        currentDevice = device;
+        prefs.edit().putString(KEY_LAST_DEVICE, device).apply();
+    }
+
+    static String deviceKey(AudioTrack track) {
+        AudioDeviceInfo info = track.getRoutedDevice();
+        if (info == null) return "default";
+        CharSequence name = info.getProductName();
+        return typeName(info.getType()) + (name == null || name.length() == 0 ? "" : ":" + name);
+    }
+
+    private static String typeName(int type) {
+        switch (type) {
+            case AudioDeviceInfo.TYPE_BUILTIN_SPEAKER: return "speaker";
+            case AudioDeviceInfo.TYPE_BUILTIN_EARPIECE: return "earpiece";
+            case AudioDeviceInfo.TYPE_WIRED_HEADPHONES:
+            case AudioDeviceInfo.TYPE_WIRED_HEADSET: return "wired";
+            case AudioDeviceInfo.TYPE_BLUETOOTH_A2DP: return "bt_a2dp";
+            case AudioDeviceInfo.TYPE_BLUETOOTH_SCO: return "bt_sco";
+            case AudioDeviceInfo.TYPE_USB_DEVICE:
+            case AudioDeviceInfo.TYPE_USB_HEADSET: return "usb";
+            default: return "type" + type;
+        }
+    }
+}
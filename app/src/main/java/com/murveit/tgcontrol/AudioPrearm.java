@@ -0,0 +1,212 @@
+package com.murveit.tgcontrol;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+
+import java.util.Locale;
+
+/**
+ * Audio Prearm - Algorithmic Overview
+ *
+ * Speculative warm-up for the call that is about to happen. A POINT_UPDATE_JSON with
+ * has_pending_hit=true means a stroke is in flight and the next update will resolve
+ * it to In, Out, Fault or Let. Between the two updates there is typically several
+ * hundred ms of idle time; this class spends it doing the resolving sound's cold-path
+ * work in advance, so when the call arrives AudioArbiter's play() is a bare
+ * AudioTrack.play() on an output stream that is already running.
+ *
+ * 1. INITIALIZATION:
+ * - Owned by AudioArbiter; every method runs on the arbiter's worker thread.
+ *
+ * 2. CALLING PROCEDURE:
+ * - arm(pointId, strokeIndex, strokeType) for a PREARM intent (SessionState emits one
+ *   per pending stroke). Repeats for the same stroke are ignored.
+ * - takeClip(pointId, clip) / takeTone(pointId, tone) just before the arbiter plays a
+ *   CALL or BEEP: true if that sound was primed for this point, in which case the
+ *   arbiter reports the path as "clip_prearmed" / "tone_prearmed".
+ * - onPlayCall(path, callNs) with the play() call's duration and onOutput(path, us)
+ *   from AudioLatencyMonitor, so prearmed and cold plays can be compared.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Likely sounds by stroke type: a serve resolves to Fault, Let or In (beep); any
+ *   other hit to Out or In (beep). Those clips/tones are primed -- stopped and rewound
+ *   (reloadStaticData) now, so the resolving play() skips both steps -- via
+ *   CallClipBank.prime() / ToneBank.prime(). A track that is still sounding is left
+ *   alone and simply not counted as primed.
+ * - Stream warm-up: the audio HAL puts an idle output into standby after a few
+ *   seconds, and the first sound after that pays the wake-up. arm() (re)starts a
+ *   silent static track looping for WARM_MS, which keeps the output active through a
+ *   rally -- pending hits arrive far more often than that. The keep-alive goes through
+ *   the normal mixer (no PERFORMANCE_MODE_LOW_LATENCY): any active track keeps the
+ *   output out of standby, and the device's few fast-mixer slots stay free for the
+ *   clips and tones that actually sound.
+ * - Audio focus is deliberately not touched: the app never requests it (sounds mix
+ *   over the user's music), and a speculative request would duck that music on every
+ *   pending hit.
+ * - Resolution: the first CALL/BEEP for the armed point consumes the arm -- a hit if
+ *   it was primed, a miss otherwise. An arm replaced or older than ARM_TIMEOUT_MS
+ *   without a sound (e.g. an In with in-point beeps off) counts as unused.
+ * - Latency saved = cold mean - prearmed mean, for both the play() call itself and
+ *   play -> speaker time (AudioLatencyMonitor's measurement).
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - One "[LATENCY] AUDIO_PREARM" FileLogger line per resolved or unused arm.
+ * - A silent looping AudioTrack for up to WARM_MS after each arm.
+ */
+final class AudioPrearm {
+
+    static final long ARM_TIMEOUT_MS = 3000;
+    static final int WARM_MS = 2000;
+    private static final int SILENCE_MS = 100;
+
+    private final Context appContext;
+
+    // --- Arbiter-thread state ---
+    private int armedPoint = -1;
+    private int armedStroke = -1;
+    private int armedClips;        // bit per CallClipBank clip
+    private int armedTones;        // bit per ToneBank tone
+    private long armedAtMs;
+    private AudioTrack warmTrack;
+    private int warmFrames;
+    private boolean warmFailed;
+
+    private long arms, hits, misses, unused;
+    private final long[] callNsSum = new long[2];     // [cold, prearmed]
+    private final long[] callCount = new long[2];
+    private final long[] outputUsSum = new long[2];
+    private final long[] outputCount = new long[2];
+
+    AudioPrearm(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    void arm(int pointId, int strokeIndex, String strokeType) {
+        if (pointId == armedPoint && strokeIndex == armedStroke) return;
+        if (armedPoint >= 0) finishUnused();
+
+        boolean serve = "serve".equalsIgnoreCase(strokeType);
+        CallClipBank clips = CallClipBank.preload(appContext);
+        int clipMask = 0;
+        if (serve) {
+            if (clips.prime(CallClipBank.CLIP_FAULT)) clipMask |= 1 << CallClipBank.CLIP_FAULT;
+            if (clips.prime(CallClipBank.CLIP_LET)) clipMask |= 1 << CallClipBank.CLIP_LET;
+        } else {
+            if (clips.prime(CallClipBank.CLIP_OUT)) clipMask |= 1 << CallClipBank.CLIP_OUT;
+        }
+        int toneMask = ToneBank.preload(appContext).prime(ToneBank.TONE_BEEP) ? 1 << ToneBank.TONE_BEEP : 0;
+        warmOutput();
+
+        armedPoint = pointId;
+        armedStroke = strokeIndex;
+        armedClips = clipMask;
+        armedTones = toneMask;
+        armedAtMs = System.currentTimeMillis();
+        arms++;
+    }
+
+    boolean takeClip(int pointId, int clip) {
+        if (!isArmedFor(pointId)) return false;
+        return resolve(clip >= 0 && (armedClips & (1 << clip)) != 0, "clip" + clip);
+    }
+
+    boolean takeTone(int pointId, int tone) {
+        if (!isArmedFor(pointId)) return false;
+        return resolve((armedTones & (1 << tone)) != 0, "tone" + tone);
+    }
+
+    void onPlayCall(String path, long callNs) {
+        int i = bucket(path);
+        if (i < 0) return;
+        callNsSum[i] += callNs;
+        callCount[i]++;
+    }
+
+    /** AudioLatencyMonitor observer; arbiter thread. */
+    void onOutput(String path, long playToSpeakerUs) {
+        int i = bucket(path);
+        if (i < 0) return;
+        outputUsSum[i] += playToSpeakerUs;
+        outputCount[i]++;
+    }
+
+    String statsLine() {
+        long resolved = hits + misses + unused;
+        return String.format(Locale.US,
+                "arms=%d hits=%d misses=%d unused=%d hit_rate=%.1f%% call_saved_us=%d output_saved_us=%d",
+                arms, hits, misses, unused, resolved == 0 ? 0.0 : 100.0 * hits / resolved,
+                saved(callNsSum, callCount) / 1000, saved(outputUsSum, outputCount));
+    }
+
+    private boolean isArmedFor(int pointId) {
+        if (armedPoint < 0) return false;
+        if (System.currentTimeMillis() - armedAtMs > ARM_TIMEOUT_MS) {
+            finishUnused();
+            return false;
+        }
+        return armedPoint == pointId;
+    }
+
+    private boolean resolve(boolean hit, String sound) {
+        if (hit) hits++;
+        else misses++;
+        FileLogger.log(appContext, FileLogger.Category.LATENCY, FileLogger.INFO, () -> String.format(Locale.US,
+                "[LATENCY] AUDIO_PREARM point=%d stroke=%d result=%s sound=%s %s",
+                armedPoint, armedStroke, hit ? "hit" : "miss", sound, statsLine()));
+        disarm();
+        return hit;
+    }
+
+    private void finishUnused() {
+        unused++;
+        FileLogger.log(appContext, FileLogger.Category.LATENCY, FileLogger.INFO, () -> String.format(Locale.US,
+                "[LATENCY] AUDIO_PREARM point=%d stroke=%d result=unused %s",
+                armedPoint, armedStroke, statsLine()));
+        disarm();
+    }
+
+    private void disarm() {
+        armedPoint = -1;
+        armedStroke = -1;
+        armedClips = 0;
+        armedTones = 0;
+    }
+
+    /** 0 = cold clip/tone play, 1 = prearmed, -1 = other paths (speech). */
+    private static int bucket(String path) {
+        if (path == null) return -1;
+        if (path.endsWith("_prearmed")) return 1;
+        return "clip".equals(path) || "tone".equals(path) ? 0 : -1;
+    }
+
+    private static long saved(long[] sum, long[] count) {
+        if (count[0] == 0 || count[1] == 0) return 0;
+        return sum[0] / count[0] - sum[1] / count[1];
+    }
+
+    /** (Re)starts the silent keep-alive loop for WARM_MS. */
+    private void warmOutput() {
+        if (warmFailed) return;
+        try {
+            if (warmTrack == null) {
+                int rate = AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_MUSIC);
+                if (rate <= 0) rate = 48000;
+                warmFrames = rate * SILENCE_MS / 1000;
+                // Normal mixer, not low-latency: it keeps the output out of standby just
+                // the same without holding one of the device's few fast-mixer slots.
+                warmTrack = StaticTracks.staticTrack(new short[warmFrames], rate, 1,
+                        AudioAttributes.CONTENT_TYPE_SONIFICATION, false);
+            }
+            if (warmTrack.getPlayState() != AudioTrack.PLAYSTATE_STOPPED) warmTrack.stop();
+            warmTrack.reloadStaticData();
+            warmTrack.setLoopPoints(0, warmFrames, WARM_MS / SILENCE_MS - 1);
+            warmTrack.play();
+        } catch (RuntimeException e) {
+            // Priming still works without the keep-alive; don't retry every pending hit.
+            warmFailed = true;
+            FileLogger.log(appContext, "AudioPrearm: output warm-up unavailable", e);
+        }
+    }
+}
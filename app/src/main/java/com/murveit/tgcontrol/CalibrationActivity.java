@@ -136,17 +136,11 @@ public class CalibrationActivity extends AppCompatActivity {
     // see that class's header comment). The server sends the plain photo exactly
     // once (PROCESS_CALIBRATION); everything after that is text.
     private List<CalibrationOverlayView.HandlePoint> currentHandles = new ArrayList<>();
-    private List<float[]> currentWireframeSegments = new ArrayList<>();   // {x1,y1,x2,y2}
-    private List<float[]> currentAnchorPoints = new ArrayList<>();        // {x,y}
-    private float[] currentStrapPoint = null;                            // {x,y}, or null
-    // Names of lines with a manually-locked endpoint this session (parsed from
-    // GET_TOUR_POINTS's "LK:name" entries); drawn pink instead of blue, matching
-    // court_recognition.py's is_locked coloring.
-    private java.util.Set<String> currentLockedLineNames = new java.util.HashSet<>();
-    // Names of lines with a manually-locked midpoint this session ("LKM:name"
-    // entries); that midpoint's own marker draws pink, independent of
-    // currentLockedLineNames -- see CalibrationOverlayView's field comment.
-    private java.util.Set<String> currentLockedMidpointNames = new java.util.HashSet<>();
+    // Wireframe/blue-line/anchor/strap geometry plus the locked-line names
+    // ("LK:name" -> line drawn pink, matching court_recognition.py's is_locked
+    // coloring; "LKM:name" -> that midpoint's own marker drawn pink), packed by
+    // TourPointsGeometry.parse() and handed to the overlay as-is.
+    private TourPointsGeometry currentGeometry = TourPointsGeometry.EMPTY;
     // The handle currently selected (Adjust Lines dragging) or toured (Tour mode).
     private CalibrationOverlayView.HandlePoint selectedHandle = null;
     // Index into currentHandles for Tour mode's Prev/Next navigation.
@@ -503,103 +497,21 @@ public class CalibrationActivity extends AppCompatActivity {
         }
     }
 
-    /** Groups currentHandles' e1/e2 pairs by lineName into drawable segments for
-     *  CalibrationOverlayView. A line missing either endpoint (only possible if
-     *  handle_get_tour_points dropped it as fully out-of-bounds -- see its
-     *  docstring) is simply not drawn. Marks each segment locked/not per
-     *  currentLockedLineNames, so CalibrationOverlayView can draw it pink. */
-    private List<CalibrationOverlayView.LineSegment> deriveBlueLineSegments() {
-        java.util.Map<String, CalibrationOverlayView.HandlePoint> e1s = new java.util.HashMap<>();
-        java.util.Map<String, CalibrationOverlayView.HandlePoint> e2s = new java.util.HashMap<>();
-        java.util.Map<String, CalibrationOverlayView.HandlePoint> mids = new java.util.HashMap<>();
-        for (CalibrationOverlayView.HandlePoint h : currentHandles) {
-            if ("e1".equals(h.pointType)) e1s.put(h.lineName, h);
-            else if ("e2".equals(h.pointType)) e2s.put(h.lineName, h);
-            else if ("mid".equals(h.pointType)) mids.put(h.lineName, h);
-        }
-        List<CalibrationOverlayView.LineSegment> segments = new ArrayList<>();
-        for (String lineName : e1s.keySet()) {
-            CalibrationOverlayView.HandlePoint e1 = e1s.get(lineName);
-            CalibrationOverlayView.HandlePoint e2 = e2s.get(lineName);
-            if (e1 == null || e2 == null) continue;
-            // Deliberate departure from court_recognition.py (endpoint-only):
-            // the line itself draws pink if EITHER an endpoint OR its own
-            // center point has been edited, since editing either one affects
-            // the whole line -- an untouched center point is just the
-            // physical midpoint of the current e1/e2, so once the line is
-            // "touched" at all, all of it reflects that edit.
-            boolean locked = currentLockedLineNames.contains(lineName)
-                    || currentLockedMidpointNames.contains(lineName);
-            // If the center point has been individually edited, draw the line as
-            // two segments through its exact (possibly off-straight-line) locked
-            // position -- e1-to-center and center-to-e2 -- matching
-            // court_recognition.py's rendering for a locked midpoint exactly,
-            // rather than a single straight line that would visibly miss the
-            // center marker once it's been dragged off that line.
-            CalibrationOverlayView.HandlePoint mid = mids.get(lineName);
-            if (mid != null && currentLockedMidpointNames.contains(lineName)) {
-                segments.add(new CalibrationOverlayView.LineSegment(lineName, e1.x, e1.y, mid.x, mid.y, locked));
-                segments.add(new CalibrationOverlayView.LineSegment(lineName, mid.x, mid.y, e2.x, e2.y, locked));
-            } else {
-                segments.add(new CalibrationOverlayView.LineSegment(lineName, e1.x, e1.y, e2.x, e2.y, locked));
-            }
-        }
-        return segments;
-    }
-
     /** Parses a GET_TOUR_POINTS response into currentHandles plus the wireframe/
      *  anchor/strap/locked-line geometry (see handle_get_tour_points's docstring
      *  for the "name:type=x,y" / "WF:x1,y1,x2,y2" / "LK:name" / "LKM:name" /
      *  "AN:x,y" / "ST:x,y" entry formats), updates the overlay, then continues
      *  whatever action was waiting on this fetch. */
     private void handleTourPointsResponse(String payload) {
-        List<CalibrationOverlayView.HandlePoint> parsedHandles = new ArrayList<>();
-        List<float[]> parsedWireframe = new ArrayList<>();
-        List<float[]> parsedAnchors = new ArrayList<>();
-        java.util.Set<String> parsedLocked = new java.util.HashSet<>();
-        java.util.Set<String> parsedLockedMid = new java.util.HashSet<>();
-        float[] parsedStrap = null;
-
-        if (payload != null && !payload.isEmpty()) {
-            for (String entry : payload.split(";")) {
-                try {
-                    if (entry.startsWith("WF:")) {
-                        String[] xy = entry.substring("WF:".length()).split(",");
-                        parsedWireframe.add(new float[]{Float.parseFloat(xy[0]), Float.parseFloat(xy[1]),
-                                Float.parseFloat(xy[2]), Float.parseFloat(xy[3])});
-                        continue;
-                    }
-                    if (entry.startsWith("LKM:")) {
-                        parsedLockedMid.add(entry.substring("LKM:".length()));
-                        continue;
-                    }
-                    if (entry.startsWith("LK:")) {
-                        parsedLocked.add(entry.substring("LK:".length()));
-                        continue;
-                    }
-                    if (entry.startsWith("AN:")) {
-                        String[] xy = entry.substring("AN:".length()).split(",");
-                        parsedAnchors.add(new float[]{Float.parseFloat(xy[0]), Float.parseFloat(xy[1])});
-                        continue;
-                    }
-                    if (entry.startsWith("ST:")) {
-                        String[] xy = entry.substring("ST:".length()).split(",");
-                        parsedStrap = new float[]{Float.parseFloat(xy[0]), Float.parseFloat(xy[1])};
-                        continue;
-                    }
-                    int colonIdx = entry.indexOf(':');
-                    int eqIdx = entry.indexOf('=');
-                    if (colonIdx < 0 || eqIdx < 0 || eqIdx < colonIdx) continue;
-                    String lineName = entry.substring(0, colonIdx);
-                    String pointType = entry.substring(colonIdx + 1, eqIdx);
-                    String[] xy = entry.substring(eqIdx + 1).split(",");
-                    float x = Float.parseFloat(xy[0]);
-                    float y = Float.parseFloat(xy[1]);
-                    parsedHandles.add(new CalibrationOverlayView.HandlePoint(lineName, pointType, x, y));
-                } catch (NumberFormatException | IndexOutOfBoundsException ignored) {
-                    // Skip malformed entries rather than aborting the whole response.
-                }
-            }
+        // Packed single-pass parse (see TourPointsGeometry) -- this runs after
+        // every ADJUST_COMPLETE round trip, so it deliberately avoids split()/
+        // per-coordinate Float.parseFloat/per-segment float[] allocation.
+        // Malformed entries are skipped individually, as before.
+        TourPointsGeometry parsed = TourPointsGeometry.parse(payload);
+        List<CalibrationOverlayView.HandlePoint> parsedHandles = new ArrayList<>(parsed.handleCount());
+        for (int i = 0; i < parsed.handleCount(); i++) {
+            parsedHandles.add(new CalibrationOverlayView.HandlePoint(parsed.handleLineName(i),
+                    parsed.handlePointType(i), parsed.handleX(i), parsed.handleY(i)));
         }
 
         // Preserve position in the sequence across a refresh (e.g. after Accept)
@@ -609,17 +521,9 @@ public class CalibrationActivity extends AppCompatActivity {
         String keepPointType = (selectedHandle != null) ? selectedHandle.pointType : null;
 
         currentHandles = parsedHandles;
-        currentWireframeSegments = parsedWireframe;
-        currentAnchorPoints = parsedAnchors;
-        currentStrapPoint = parsedStrap;
-        currentLockedLineNames = parsedLocked;
-        currentLockedMidpointNames = parsedLockedMid;
-
-        calibrationOverlay.setWireframeSegments(currentWireframeSegments);
-        calibrationOverlay.setBlueLineSegments(deriveBlueLineSegments());
-        calibrationOverlay.setAnchorPoints(currentAnchorPoints);
-        calibrationOverlay.setStrapPoint(currentStrapPoint);
-        calibrationOverlay.setLockedMidpointLineNames(currentLockedMidpointNames);
+        currentGeometry = parsed;
+
+        calibrationOverlay.setGeometry(currentGeometry);
 
         switch (pendingAction) {
             case PENDING_INITIAL_GEOMETRY:
@@ -843,21 +747,13 @@ public class CalibrationActivity extends AppCompatActivity {
         // a fresh START_CALIBRATION means a new photo and pose, so none of it is
         // valid anymore.
         currentHandles = new ArrayList<>();
-        currentWireframeSegments = new ArrayList<>();
-        currentAnchorPoints = new ArrayList<>();
-        currentStrapPoint = null;
-        currentLockedLineNames = new java.util.HashSet<>();
-        currentLockedMidpointNames = new java.util.HashSet<>();
+        currentGeometry = TourPointsGeometry.EMPTY;
         selectedHandle = null;
         editArmed = false;
         pendingAction = PENDING_NONE;
         adjustInFlight = false;
         calibrationOverlay.clearHandles();
-        calibrationOverlay.setWireframeSegments(null);
-        calibrationOverlay.setBlueLineSegments(null);
-        calibrationOverlay.setAnchorPoints(null);
-        calibrationOverlay.setStrapPoint(null);
-        calibrationOverlay.setLockedMidpointLineNames(null);
+        calibrationOverlay.setGeometry(null);
         advanceState(STATE_LOADING);
         
         sendCommand("START_CALIBRATION:" + sensorId + "," + TCP_SCALE_FACTOR + "," + getSettingsPayload());
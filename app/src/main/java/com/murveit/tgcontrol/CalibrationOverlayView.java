@@ -20,8 +20,10 @@ package com.murveit.tgcontrol;
  *   own imageMatrix (pan/zoom), so everything drawn here tracks the underlying image
  *   exactly. CalibrationActivity holds the single source-of-truth Matrix; this view
  *   never modifies it, only reads it to map bitmap-space points to screen space.
- * - setWireframeSegments/setBlueLineSegments/setAnchorPoints/setStrapPoint supply the
- *   static geometry to draw, in bitmap-space, parsed from a GET_TOUR_POINTS response.
+ * - setGeometry(TourPointsGeometry) supplies the static geometry to draw (wireframe,
+ *   blue lines, anchors, strap, locked-line state), in bitmap-space, exactly as
+ *   parsed from a GET_TOUR_POINTS response -- the packed arrays are drawn directly,
+ *   with no per-segment objects in between.
  * - setViewMode("green"/"canny"/"both") selects which of the two line layers render --
  *   a pure local choice with no server round-trip, mirroring the Mac UI's e/E toggle.
  * - setHandles(List<HandlePoint>) supplies the current set of endpoint/midpoint
@@ -43,7 +45,10 @@ package com.murveit.tgcontrol;
  * - All geometry is stored in bitmap-space (the underlying photo's own pixel
  *   coordinates) and mapped to screen space via imageMatrix.mapPoints() at draw
  *   time -- the same transform ivCalibrationImage itself uses, so nothing drawn
- *   here ever drifts from the image during pan/zoom.
+ *   here ever drifts from the image during pan/zoom. Each packed array is mapped
+ *   in ONE mapPoints(dst, src) call into a reusable screen-space buffer (grown
+ *   only when a bigger geometry arrives), and the whole green wireframe is then a
+ *   single drawLines() call.
  * - Every stroke width is fixed in screen pixels (set once on each Paint, never
  *   scaled), so lines stay a constant, narrow width on screen at any zoom level --
  *   the whole point of moving this drawing off the server, where lines were baked
@@ -101,39 +106,19 @@ public class CalibrationOverlayView extends View {
         }
     }
 
-    /** One blue-line segment to draw between two bitmap-space endpoints, tagged
-     *  with its line name so it can be (a) skipped while it's the active edit
-     *  target (see class header: hidden once editing is armed) and (b) drawn pink
-     *  instead of blue if locked -- an endpoint on it has already been manually
-     *  edited this session, matching court_recognition.py's is_locked coloring. */
-    public static class LineSegment {
-        public final String lineName;
-        public final float x1, y1, x2, y2;
-        public final boolean locked;
-
-        public LineSegment(String lineName, float x1, float y1, float x2, float y2, boolean locked) {
-            this.lineName = lineName;
-            this.x1 = x1; this.y1 = y1; this.x2 = x2; this.y2 = y2;
-            this.locked = locked;
-        }
-    }
-
     private Matrix imageMatrix = new Matrix();
     private List<HandlePoint> handles = new ArrayList<>();
     private HandlePoint highlightedHandle = null;
     private String viewMode = VIEW_MODE_BOTH;
 
-    // float[4] = {x1,y1,x2,y2}; the green wireframe has no per-segment identity
-    // worth tracking (never individually hidden/highlighted), unlike blue lines.
-    private List<float[]> wireframeSegments = new ArrayList<>();
-    private List<LineSegment> blueLineSegments = new ArrayList<>();
-    private List<float[]> anchorPoints = new ArrayList<>();   // float[2] = {x,y}
-    private float[] strapPoint = null;                        // {x,y}, or null
-    // Names of lines with a manually-locked midpoint this session; that midpoint's
-    // own marker draws pink (see startDrag's class-header note: a deliberate
+    // Wireframe, blue lines, anchors, strap and locked-line state, all packed (see
+    // TourPointsGeometry). Lines with a manually-locked midpoint draw that
+    // midpoint's own marker pink (see startDrag's class-header note: a deliberate
     // departure from court_recognition.py, which gives no visual feedback for a
     // midpoint-only edit).
-    private java.util.Set<String> lockedMidpointLineNames = new java.util.HashSet<>();
+    private TourPointsGeometry geometry = TourPointsGeometry.EMPTY;
+    // Screen-space scratch for mapPoints(dst, src); grown on demand, never shrunk.
+    private float[] screenBuffer = new float[64];
 
     private boolean dragActive = false;
     // One pivot for an endpoint drag (the line's other, fixed endpoint -- draws one
@@ -232,27 +217,14 @@ public class CalibrationOverlayView extends View {
         invalidate();
     }
 
-    /** segments: bitmap-space (x1,y1,x2,y2) pairs for the projected green court
-     *  wireframe (see CalibrationActivity's WF: entries from GET_TOUR_POINTS). */
-    public void setWireframeSegments(List<float[]> segments) {
-        wireframeSegments = segments != null ? segments : new ArrayList<>();
-        invalidate();
-    }
-
-    public void setBlueLineSegments(List<LineSegment> segments) {
-        blueLineSegments = segments != null ? segments : new ArrayList<>();
-        invalidate();
-    }
-
-    /** points: bitmap-space (x,y) pairs for the original anchor-click positions. */
-    public void setAnchorPoints(List<float[]> points) {
-        anchorPoints = points != null ? points : new ArrayList<>();
-        invalidate();
-    }
-
-    /** point: bitmap-space (x,y), or null if no net strap was used. */
-    public void setStrapPoint(float[] point) {
-        strapPoint = point;
+    /** g: the parsed GET_TOUR_POINTS geometry (wireframe/blue lines/anchors/strap/
+     *  locked state), or null to clear it. Held by reference -- TourPointsGeometry
+     *  is never mutated after parsing. */
+    public void setGeometry(TourPointsGeometry g) {
+        geometry = g != null ? g : TourPointsGeometry.EMPTY;
+        int needed = Math.max(geometry.wireframeCount() * 4,
+                Math.max(geometry.blueSegmentCount() * 4, geometry.anchorCount() * 2));
+        if (needed > screenBuffer.length) screenBuffer = new float[needed];
         invalidate();
     }
 
@@ -263,13 +235,6 @@ public class CalibrationOverlayView extends View {
         invalidate();
     }
 
-    /** names: lines with a manually-locked midpoint this session (see class
-     *  header / handle_get_tour_points's "LKM:name" entries). */
-    public void setLockedMidpointLineNames(java.util.Set<String> names) {
-        lockedMidpointLineNames = names != null ? names : new java.util.HashSet<>();
-        invalidate();
-    }
-
     /** pivotX, pivotY: bitmap-space position of the line's OTHER (fixed) endpoint.
      *  Draws one pivot-to-crosshair line -- the candidate new line, rotated
      *  around this pivot. Convenience overload for the common endpoint-drag case;
@@ -304,13 +269,12 @@ public class CalibrationOverlayView extends View {
         // nothing to drag while looking at the green wireframe alone.
         boolean showHandles = showCanny;
 
-        float[] seg = new float[4];
-        if (showGreen) {
-            for (float[] s : wireframeSegments) {
-                seg[0] = s[0]; seg[1] = s[1]; seg[2] = s[2]; seg[3] = s[3];
-                imageMatrix.mapPoints(seg);
-                canvas.drawLine(seg[0], seg[1], seg[2], seg[3], wireframePaint);
-            }
+        TourPointsGeometry g = geometry;
+        float[] screen = screenBuffer;
+        int wireframeCount = g.wireframeCount();
+        if (showGreen && wireframeCount > 0) {
+            imageMatrix.mapPoints(screen, 0, g.wireframe, 0, wireframeCount * 2);
+            canvas.drawLines(screen, 0, wireframeCount * 4, wireframePaint);
         }
 
         if (showCanny) {
@@ -323,23 +287,29 @@ public class CalibrationOverlayView extends View {
             // start moving its replacement.
             String skipLineName = (dragActive && highlightedHandle != null)
                     ? highlightedHandle.lineName : null;
-            for (LineSegment ls : blueLineSegments) {
-                if (ls.lineName.equals(skipLineName)) continue;
-                seg[0] = ls.x1; seg[1] = ls.y1; seg[2] = ls.x2; seg[3] = ls.y2;
-                imageMatrix.mapPoints(seg);
-                canvas.drawLine(seg[0], seg[1], seg[2], seg[3], ls.locked ? lockedLinePaint : blueLinePaint);
+            int blueCount = g.blueSegmentCount();
+            if (blueCount > 0) {
+                imageMatrix.mapPoints(screen, 0, g.blueSegments, 0, blueCount * 2);
+                for (int i = 0; i < blueCount; i++) {
+                    if (g.blueLineNames[i].equals(skipLineName)) continue;
+                    int o = i * 4;
+                    canvas.drawLine(screen[o], screen[o + 1], screen[o + 2], screen[o + 3],
+                            g.blueLocked[i] ? lockedLinePaint : blueLinePaint);
+                }
             }
 
-            float[] pt2 = new float[2];
-            for (float[] a : anchorPoints) {
-                pt2[0] = a[0]; pt2[1] = a[1];
-                imageMatrix.mapPoints(pt2);
-                canvas.drawCircle(pt2[0], pt2[1], ANCHOR_DOT_RADIUS_PX, anchorDotPaint);
+            int anchorCount = g.anchorCount();
+            if (anchorCount > 0) {
+                imageMatrix.mapPoints(screen, 0, g.anchors, 0, anchorCount);
+                for (int i = 0; i < anchorCount; i++) {
+                    canvas.drawCircle(screen[i * 2], screen[i * 2 + 1], ANCHOR_DOT_RADIUS_PX, anchorDotPaint);
+                }
             }
-            if (strapPoint != null) {
-                pt2[0] = strapPoint[0]; pt2[1] = strapPoint[1];
-                imageMatrix.mapPoints(pt2);
-                canvas.drawCircle(pt2[0], pt2[1], STRAP_DOT_RADIUS_PX, strapDotPaint);
+            if (g.hasStrap()) {
+                screen[0] = g.strapX();
+                screen[1] = g.strapY();
+                imageMatrix.mapPoints(screen, 0, screen, 0, 1);
+                canvas.drawCircle(screen[0], screen[1], STRAP_DOT_RADIUS_PX, strapDotPaint);
             }
         }
 
@@ -356,8 +326,8 @@ public class CalibrationOverlayView extends View {
             // visible confirmation a center-point edit stuck, independent of
             // whether the corresponding endpoint has also been touched.
             boolean isMid = "mid".equals(h.pointType);
-            boolean lineLocked = isMid ? lockedMidpointLineNames.contains(h.lineName)
-                                        : isLineLocked(h.lineName);
+            boolean lineLocked = isMid ? g.isMidpointLocked(h.lineName)
+                                        : g.isBlueLineLocked(h.lineName);
             Paint paint = isHighlighted ? highlightPaint
                     : (lineLocked ? lockedEndpointPaint : (isMid ? midpointPaint : endpointPaint));
             float radius = isHighlighted ? HIGHLIGHT_RADIUS_PX : ENDPOINT_RADIUS_PX;
@@ -420,15 +390,6 @@ public class CalibrationOverlayView extends View {
         return new float[]{anchorX + t * dx, anchorY + t * dy};
     }
 
-    /** Linear scan over blueLineSegments -- fine at this scale (a few dozen lines
-     *  at most), not worth a separate Set kept in sync with blueLineSegments. */
-    private boolean isLineLocked(String lineName) {
-        for (LineSegment ls : blueLineSegments) {
-            if (ls.lineName.equals(lineName)) return ls.locked;
-        }
-        return false;
-    }
-
     private void drawDiamond(Canvas canvas, float cx, float cy, float halfDiagonal, Paint paint) {
         Path path = new Path();
         path.moveTo(cx, cy - halfDiagonal);
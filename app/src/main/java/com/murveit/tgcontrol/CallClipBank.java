@@ -0,0 +1,174 @@
+package com.murveit.tgcontrol;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioTrack;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Call Clip Bank - Algorithmic Overview
+ *
+ * Process-wide bank of the pre-recorded line-call clips (res/raw out/fault/let),
+ * decoded once into static-mode AudioTracks so a call starts in single-digit
+ * milliseconds. Replaces the per-call MediaPlayer.create(), which opened the
+ * resource, spun up a decoder and prepared a fresh player (tens to hundreds of ms,
+ * on the socket reader thread in tryPlayEarlyAudio) before any sound came out.
+ *
+ * 1. INITIALIZATION:
+ * - preload(context) from MainActivity.onCreate() and CommunicationService.onCreate();
+ *   the first call starts one background thread that parses each WAV and builds its
+ *   track. Later calls are no-ops. The bank lives for the process (three short clips,
+ *   ~100 KB of PCM total), so there is no release path.
+ *
+ * 2. CALLING PROCEDURE:
+ * - play(CLIP_OUT / CLIP_FAULT / CLIP_LET) from any thread (socket reader via
+ *   tryPlayEarlyAudio, SessionProcessor for in-point calls). clipForCall() maps a
+ *   call string ("Out", "fault", ...) to an id.
+ * - prime(clip) ahead of a likely call (AudioPrearm, on a pending hit): does the
+ *   stop/rewind now so the next play() of that clip is a bare track.play().
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - WavPcm parses each file (RIFF chunk walk, 16-bit PCM mono or stereo) at the
+ *   file's own rate -- the mixer resamples, nothing is converted here.
+ * - Each clip gets its own MODE_STATIC AudioTrack holding the whole clip, with
+ *   PERFORMANCE_MODE_LOW_LATENCY on API 26+ (fast mixer path when the device has one).
+ * - Replay is stop() -> reloadStaticData() (rewinds to frame 0) -> play(), under the
+ *   track's lock so the two calling threads can't interleave. Replaying a clip that
+ *   is still sounding restarts it, which is what a corrected call should do.
+ *   A primed clip (primed[clip], guarded by the same lock) skips straight to play().
+ * - A clip whose track isn't ready yet (first call raced the preload) or failed to
+ *   build falls back to the old MediaPlayer path for that call only.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Audio output. Logs the preload time and any decode failure via FileLogger.
+ */
+public final class CallClipBank {
+
+    public static final int CLIP_OUT = 0;
+    public static final int CLIP_FAULT = 1;
+    public static final int CLIP_LET = 2;
+    private static final int CLIP_COUNT = 3;
+
+    private static final int[] RES_IDS = {R.raw.out, R.raw.fault, R.raw.let};
+
+    private static CallClipBank instance;
+
+    private final Context appContext;
+    private final AudioTrack[] tracks = new AudioTrack[CLIP_COUNT];
+    private final boolean[] primed = new boolean[CLIP_COUNT];   // guarded by the clip's track
+
+    private CallClipBank(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    /** Starts the one-time background decode. Safe to call repeatedly, from any thread. */
+    public static synchronized CallClipBank preload(Context context) {
+        if (instance == null) {
+            instance = new CallClipBank(context);
+            CallClipBank bank = instance;
+            new Thread(bank::loadAll, "CallClipBank").start();
+        }
+        return instance;
+    }
+
+    /** "Out" / "Fault" / "Let" (any case) -> clip id, or -1. */
+    public static int clipForCall(String callStr) {
+        if ("Out".equalsIgnoreCase(callStr)) return CLIP_OUT;
+        if ("Fault".equalsIgnoreCase(callStr)) return CLIP_FAULT;
+        if ("Let".equalsIgnoreCase(callStr)) return CLIP_LET;
+        return -1;
+    }
+
+    /** Returns the track the clip started on, or null (bad id, or the MediaPlayer fallback). */
+    public AudioTrack play(int clip) {
+        if (clip < 0 || clip >= CLIP_COUNT) return null;
+        AudioTrack track;
+        synchronized (tracks) {
+            track = tracks[clip];
+        }
+        if (track == null) {
+            playWithMediaPlayer(RES_IDS[clip]);
+            return null;
+        }
+        try {
+            synchronized (track) {
+                if (!primed[clip]) {
+                    if (track.getPlayState() != AudioTrack.PLAYSTATE_STOPPED) track.stop();
+                    track.reloadStaticData();
+                }
+                primed[clip] = false;
+                track.play();
+            }
+            return track;
+        } catch (IllegalStateException e) {
+            FileLogger.log(appContext, "CallClipBank replay failed, falling back to MediaPlayer", e);
+            playWithMediaPlayer(RES_IDS[clip]);
+            return null;
+        }
+    }
+
+    /** Stops and rewinds an idle clip so its next play() starts at once; false if not possible now. */
+    public boolean prime(int clip) {
+        if (clip < 0 || clip >= CLIP_COUNT) return false;
+        AudioTrack track;
+        synchronized (tracks) {
+            track = tracks[clip];
+        }
+        if (track == null) return false;
+        try {
+            synchronized (track) {
+                if (primed[clip]) return true;
+                if (track.getPlayState() == AudioTrack.PLAYSTATE_PLAYING
+                        && track.getPlaybackHeadPosition() < track.getBufferSizeInFrames()) {
+                    return false;   // still sounding; leave it be
+                }
+                if (track.getPlayState() != AudioTrack.PLAYSTATE_STOPPED) track.stop();
+                track.reloadStaticData();
+                primed[clip] = true;
+                return true;
+            }
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    private void loadAll() {
+        long startNs = System.nanoTime();
+        for (int i = 0; i < CLIP_COUNT; i++) {
+            try {
+                AudioTrack track = buildTrack(readResource(RES_IDS[i]));
+                synchronized (tracks) {
+                    tracks[i] = track;
+                }
+            } catch (Exception e) {
+                FileLogger.log(appContext, "CallClipBank: failed to load clip " + i + ", using MediaPlayer for it", e);
+            }
+        }
+        FileLogger.log(appContext, "CallClipBank: preloaded in " + (System.nanoTime() - startNs) / 1_000_000 + " ms");
+    }
+
+    private WavPcm readResource(int resId) throws IOException {
+        try (InputStream in = appContext.getResources().openRawResource(resId)) {
+            return WavPcm.read(in);
+        }
+    }
+
+    /** Builds a static AudioTrack holding one whole 16-bit PCM clip. */
+    private static AudioTrack buildTrack(WavPcm wav) {
+        return StaticTracks.staticTrack(wav.bytes, wav.dataOffset, wav.dataLength, wav.sampleRate, wav.channels,
+                AudioAttributes.CONTENT_TYPE_SPEECH, true);
+    }
+
+    private void playWithMediaPlayer(int resId) {
+        try {
+            android.media.MediaPlayer mp = android.media.MediaPlayer.create(appContext, resId);
+            if (mp == null) return;
+            mp.setOnCompletionListener(android.media.MediaPlayer::release);
+            mp.start();
+        } catch (Exception e) {
+            FileLogger.log(appContext, "playRawAudio error", e);
+        }
+    }
+}
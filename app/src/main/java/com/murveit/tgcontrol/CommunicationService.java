@@ -34,13 +34,11 @@ import androidx.lifecycle.MutableLiveData;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
-import java.util.Locale;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -64,27 +62,42 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *   capability requirement to prevent Android from dropping the captive portal AP.
  * - Process Binding: Binds the entire app process to the Jetson's WiFi network (ignoring cellular).
  * - Socket Loop: Opens a TCP socket to port 8000. Continuously reads data chunks utilizing a
- *   persistent ByteArrayOutputStream to safely handle fragmented TCP packets and socket timeouts.
+ *   ProtocolLineReader (persistent line buffer) to safely handle fragmented TCP packets and
+ *   socket timeouts. Line framing and STATUS_FRAMES formatting are pure Java (ProtocolLineReader,
+ *   StatusFrames) so app/src/test can fuzz and benchmark them on the JVM.
  * - Protocol Parsing: Routes string messages ("STATUS:", "STATUS_FRAMES:", "TRACK_EVENT_JSON:",
  *   "POINT_UPDATE_JSON:") and intercepts binary image transfers by reading fixed-length headers.
  *   POINT_UPDATE_JSON carries a mid-point build_point_summary() payload (partial=true) for
  *   real-time court graphics; it is always a full replacement, never a delta.
- * - Early Audio (tryPlayEarlyAudio): Called on the network receive thread when TRACK_EVENT_JSON
- *   arrives, before the LiveData post reaches the main thread. Handles two modes:
+ * - Early Audio (tryPlayEarlyAudio): Enqueued by the network receive thread when TRACK_EVENT_JSON
+ *   arrives (AudioArbiter.execute, a lock-free queue) and run on the arbiter's URGENT_AUDIO
+ *   worker, before the LiveData post reaches the main thread -- JSON parsing and preference
+ *   reads never hold up the next socket read. Handles two modes:
  *     SERVE_PRACTICE: In-serve → speaks MPH if in_serve=mph; Out/Fault → "Fault"; Let → "Let".
  *     SINGLES/DOUBLES: Out → "Out"; Fault → "Fault"; Let → "Let" if voice_calls on.
- *       However, for SINGLES/DOUBLES the preferred path is MainActivity.processInPointUpdate(),
+ *       Clips come from CallClipBank (decoded once into static AudioTracks at onCreate).
+ *       However, for SINGLES/DOUBLES the preferred path is SessionState.onPointUpdateJson(),
  *       which fires audio concurrently with the PointVectorView update (on POINT_UPDATE_JSON,
- *       ~0.5–1.0 s earlier). When that path fires it stamps lastEarlyAudioFiredMs; this method
- *       skips if lastEarlyAudioFiredMs was set within the last 2 s to avoid double-play.
- *       Double-beep for non-Out terminals is deferred to the main thread in MainActivity.
- *   lastEarlyAudioFiredMs is stamped so the main-thread fallback can suppress duplicates.
+ *       ~0.5–1.0 s earlier). Double-beep for non-Out terminals is decided by SessionState on
+ *       the SessionProcessor thread.
+ *   Nothing here plays sound directly: both paths submit intents to AudioArbiter keyed by the
+ *   point id stamped on the message as it comes off the socket (AudioArbiter.stampPoint), and
+ *   the arbiter plays each (point, stroke) once -- no wall-clock suppression windows.
  * - UI Delegation: Posts parsed data and Bitmaps to statically accessible `LiveData` objects.
+ *   Session messages (TRACK_EVENT_JSON, POINT_UPDATE_JSON, CALIBRATION_STATUS, SYSTEM_STATE)
+ *   instead go straight to the registered SessionProcessor's queue, which parses them off
+ *   the main thread and never coalesces (LiveData.postValue keeps only the latest value);
+ *   statusData is the fallback only while no processor is registered.
  * - WiFi Grace Period: When onLost fires, a WIFI_LOSS_GRACE_PERIOD_MS timer starts instead of
  *   immediately disconnecting. If onAvailable fires within the window, the timer is cancelled
  *   and the socket is re-established automatically. If the timer expires, a full disconnect
  *   fires. During the grace period, disconnect() performs a partial teardown (closes socket
  *   only) so the network callback remains registered for the auto-reconnect.
+ * - Receive Logging: each line is logged under FileLogger.Category.PROTOCOL. STATUS_FRAMES
+ *   is sampled to one line per STATUS_FRAMES_LOG_INTERVAL_MS; other lines longer than
+ *   RECV_PREVIEW_CHARS are cut to a preview plus their length unless full payloads are
+ *   enabled in Settings. Nothing is built when the category is off. Lines kept out of the
+ *   file still go to FlightRecorder, so the last seconds before a crash are complete.
  * - Lifecycle Management: onTaskRemoved ensures that swiping the app kills the service and
  *   closes the socket immediately, preventing "Zombie" connections.
  * - Data Invalidation: Explicitly clears imageData LiveData when starting new calibration or
@@ -110,6 +123,10 @@ public class CommunicationService extends Service {
     // Chosen to absorb transient blips (observed at ~12s) without forcing the user
     // through the full reconnect flow.
     private static final long WIFI_LOSS_GRACE_PERIOD_MS = 13000;
+    // RECV logging: STATUS_FRAMES arrives several times a second for a whole session, and
+    // POINT_UPDATE_JSON / TOUR_POINTS lines run to several KB each.
+    private static final long STATUS_FRAMES_LOG_INTERVAL_MS = 10000;
+    private static final int RECV_PREVIEW_CHARS = 200;
 
     private long recordingStartTime = 0;
 
@@ -120,29 +137,35 @@ public class CommunicationService extends Service {
     public static String activeTennisMode = "SINGLES";
     public static String activeTennisTitle = "Singles Match";
 
-    // --- Early audio: fires speech from the socket-reader thread, bypassing the 194ms UI-thread
-    //     scheduling lag. Nulled on Activity destroy so no audio plays with no visible screen. ---
-    private static volatile FastSpeechEngine earlyAudioEngine = null;
-    // Tracks the last time the "miles per hour" suffix was spoken; avoids saying it every serve.
-    // Package-private so the main-thread fallback in MainActivity can share the same tracker.
-    static volatile long lastEarlySpokenMphTimeMs = 0;
-    static final long EARLY_AUDIO_MPH_COOLDOWN_MS = 60000;
-    // Set to currentTimeMillis() when tryPlayEarlyAudio fires so processTrackEventJson() can
-    // detect that early audio already handled the event and skip its fallback speech call.
-    static volatile long lastEarlyAudioFiredMs = 0;
     // True when the Nano is handling audio output directly; app audio is suppressed.
     static volatile boolean nanoAudioActive = false;
 
     // Last AUDIO_STATUS received from the Nano; persists across activity restarts.
     public static volatile String lastAudioStatus = null;
 
-    public static void setEarlyAudioEngine(FastSpeechEngine engine) {
-        earlyAudioEngine = engine;
+    // --- Session processing stage (see SessionProcessor). Registered by MainActivity for
+    //     its lifetime; session messages are handed to it directly from the socket thread. ---
+    private static volatile SessionProcessor sessionProcessor = null;
+
+    public static void setSessionProcessor(SessionProcessor processor) {
+        sessionProcessor = processor;
+    }
+
+    /** Hands a session message to the registered SessionProcessor, falling back to
+     *  statusData (MainActivity's observer forwards it) when none is registered. */
+    private static void dispatchSessionMessage(String tag, String payload, int pointId, long receiveNs) {
+        SessionProcessor processor = sessionProcessor;
+        if (processor == null || !processor.submit(tag, payload, pointId, receiveNs)) {
+            statusData.postValue(new Pair<>(tag, payload));
+        }
     }
 
     // --- LiveData for UI communication ---
     private static final MutableLiveData<Pair<String, String>> statusData = new MutableLiveData<>();
     private static final MutableLiveData<Pair<Bitmap, String>> imageData = new MutableLiveData<>();
+    // End-of-session latency summary: its own channel, so it never coalesces with (and
+    // drops) a status posted just before it, and consumed once it has been shown.
+    private static final MutableLiveData<String> latencyReportData = new MutableLiveData<>();
 
     private Socket socket;
     private OutputStream outputStream;
@@ -155,7 +178,7 @@ public class CommunicationService extends Service {
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
     
     // Algorithmic Fix: Persistent buffer to survive SocketTimeoutExceptions during slow TCP transfers
-    private final ByteArrayOutputStream currentLineBuffer = new ByteArrayOutputStream();
+    private final ProtocolLineReader lineReader = new ProtocolLineReader();
 
     // Thread-safety lock for concurrent command dispatching
     private final Object sendLock = new Object();
@@ -178,6 +201,16 @@ public class CommunicationService extends Service {
         return imageData;
     }
 
+    public static LiveData<String> getLatencyReportData() {
+        return latencyReportData;
+    }
+
+    /** Marks the pending latency report as shown, so a recreated activity doesn't re-show it. */
+    @androidx.annotation.MainThread
+    public static void consumeLatencyReport() {
+        latencyReportData.setValue(null);
+    }
+
     /**
      * Synchronously clears the imageData LiveData on the main thread.
      *
@@ -241,6 +274,10 @@ public class CommunicationService extends Service {
     public void onCreate() {
         super.onCreate();
         createNotificationChannel();
+        // Decode the out/fault/let clips and render the beeps now so the first early call
+        // doesn't pay for it.
+        CallClipBank.preload(this);
+        ToneBank.preload(this);
 
         // 1. Initialize PowerManager WakeLock (CPU stays on)
         PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
@@ -292,6 +329,7 @@ public class CommunicationService extends Service {
         cancelGracePeriod();
         disconnect();
         stopSelf();
+        FileLogger.flush();   // the process may be killed without onDestroy
         super.onTaskRemoved(rootIntent);
     }
 
@@ -433,6 +471,7 @@ public class CommunicationService extends Service {
                 connectivityManager.bindProcessToNetwork(network);
 
                 if (wasInGracePeriod) {
+                    SessionJournal.record(SessionJournal.WIFI_RESTORED, 0, 0, null);
                     // Notify the UI so the disconnect overlay can be dismissed.
                     statusData.postValue(new Pair<>("WIFI_RESTORED", null));
                 }
@@ -461,6 +500,7 @@ public class CommunicationService extends Service {
 
                 // Enter grace period: socket will die via IOException but callback stays registered.
                 isInGracePeriod = true;
+                SessionJournal.record(SessionJournal.WIFI_LOST, 0, 0, null);
                 statusData.postValue(new Pair<>("WIFI_LOST", null));
 
                 // Schedule a full disconnect if WiFi does not return within the grace window.
@@ -484,33 +524,40 @@ public class CommunicationService extends Service {
     private void startCommunicationThread(String serverAddress) {
         communicationThread = new Thread(() -> {
             try {
-                FileLogger.log(CommunicationService.this, "Connecting to " + serverAddress + " on port 8000...");
+                FileLogger.log(CommunicationService.this, FileLogger.Category.TRANSPORT, FileLogger.INFO, "Connecting to " + serverAddress + " on port 8000...");
                 statusData.postValue(new Pair<>("Status", "Connecting..."));
 
                 socket = new Socket();
                 // Because of bindProcessToNetwork, this will use WiFi even without internet
                 socket.connect(new java.net.InetSocketAddress(serverAddress, 8000), 5000);
 
-                FileLogger.log(CommunicationService.this, "Connection successful.");
+                FileLogger.log(CommunicationService.this, FileLogger.Category.TRANSPORT, FileLogger.INFO, "Connection successful.");
                 outputStream = socket.getOutputStream();
                 inputStream = socket.getInputStream();
                 socket.setSoTimeout(500);
                 
                 // Track explicitly that we have fully connected hardware
                 isServerConnected = true;
-                currentLineBuffer.reset(); // Guarantee clean slate on new connection
+                lineReader.reset(); // Guarantee clean slate on new connection
                 statusData.postValue(new Pair<>("Connected", "Ready for command."));
 
                 while (isRunning.get() && socket != null && !socket.isClosed()) {
                     try {
-                        String serverMessage = readLineFromStream(inputStream);
+                        String serverMessage = lineReader.readLine(inputStream, isRunning);
                         if (serverMessage != null && !serverMessage.isEmpty()) {
-                            FileLogger.log(CommunicationService.this, "RECV: " + serverMessage);
+                            logReceived(serverMessage);
+                            if (SessionJournal.isActive()) {
+                                int tagEnd = serverMessage.indexOf(':');
+                                SessionJournal.record(SessionJournal.MSG_RECEIVED, serverMessage.length(), 0,
+                                        tagEnd > 0 ? serverMessage.substring(0, tagEnd) : "");
+                            }
 
                             if (serverMessage.startsWith("SERVER_STOP:")) {
                                 // Server has forced the recording to stop
                                 String reason = serverMessage.substring("SERVER_STOP:".length()).trim();
                                 FileLogger.log(CommunicationService.this, "Server forced recording to stop. Reason: " + reason);
+                                SessionJournal.stop("SERVER_STOP");
+                                finishLatencyReport();
                                 statusData.postValue(new Pair<>("SERVER_STOP", "Server stopped: " + reason));
                             } else if ("STATUS: CAPTURE_DONE; SENDING_IMAGES".equals(serverMessage)) {
                                 statusData.postValue(new Pair<>("Status", "Receiving images..."));
@@ -575,74 +622,56 @@ public class CommunicationService extends Service {
 
                             } else if (serverMessage.startsWith("STATUS_FRAMES:")) {
                                 String data = serverMessage.substring("STATUS_FRAMES:".length()).trim();
-                                String[] parts = data.split(",");
-                                if (parts.length >= 3) {
-                                    try {
-                                        int framesProcessed = Integer.parseInt(parts[0].trim());
-                                        int framesWritten = Integer.parseInt(parts[1].trim());
-                                        float freeSpaceGb = Float.parseFloat(parts[2].trim()) / 1000.0f;
-
-                                        // Note: Architectural Decoupling
-                                        // The client-side MIN_FREE_DISK_GB logic has been removed here.
-                                        // The Orin Nano server now autonomously monitors its own hardware limits.
-
-                                        long elapsedSeconds = 0;
-                                        if (parts.length >= 4) {
-                                            // The server is the definitive source of truth for recording time
-                                            elapsedSeconds = Long.parseLong(parts[3].trim());
-                                        } else {
-                                            // Fallback for older server versions
-                                            long elapsedMillis = System.currentTimeMillis() - recordingStartTime;
-                                            elapsedSeconds = elapsedMillis / 1000;
-                                        }
-
-                                        long seconds = elapsedSeconds % 60;
-                                        long minutes = (elapsedSeconds / 60) % 60;
-                                        long hours = elapsedSeconds / 3600;
-                                        
-                                        String elapsedTime;
-                                        if (hours > 0) {
-                                            elapsedTime = String.format(Locale.US, "%d:%02d:%02d", hours, minutes, seconds);
-                                        } else {
-                                            elapsedTime = String.format(Locale.US, "%02d:%02d", minutes, seconds);
-                                        }
-
-                                        String framesStatus = String.format(Locale.US, "Frames: %5d %5d | Time %s | Free Disk %.1f Gb",
-                                                framesProcessed, framesWritten, elapsedTime, freeSpaceGb);
+                                try {
+                                    // Fallback for older server versions that omit the
+                                    // elapsed-seconds field (server time is authoritative).
+                                    long fallbackElapsedSeconds = (System.currentTimeMillis() - recordingStartTime) / 1000;
+                                    String framesStatus = StatusFrames.formatStatusLine(data, fallbackElapsedSeconds);
+                                    if (framesStatus != null) {
                                         statusData.postValue(new Pair<>(null, framesStatus));
-
-                                    } catch (NumberFormatException e) {
-                                        FileLogger.log(CommunicationService.this, "Failed to parse STATUS_FRAMES data: " + data, e);
-                                        statusData.postValue(new Pair<>(null, "Error parsing frame data"));
                                     }
+                                } catch (NumberFormatException e) {
+                                    FileLogger.log(CommunicationService.this, "Failed to parse STATUS_FRAMES data: " + data, e);
+                                    statusData.postValue(new Pair<>(null, "Error parsing frame data"));
                                 }
                             } else if (serverMessage.startsWith("STATUS:")) {
                                 String status = serverMessage.substring("STATUS:".length()).trim();
                                 statusData.postValue(new Pair<>(null, status));
                             } else if (serverMessage.startsWith("TRACK_EVENT_JSON:")) {
-                                // Fire speech audio immediately on this background thread to bypass
-                                // the ~194ms LiveData→UI-thread scheduling lag.
+                                // Hand early audio straight to the arbiter's URGENT_AUDIO worker to bypass
+                                // the ~194ms LiveData→UI-thread scheduling lag. Parsing and playback run
+                                // there; this thread only enqueues and goes back to reading.
+                                long receiveNs = System.nanoTime();
+                                AudioArbiter arbiter = AudioArbiter.get(CommunicationService.this);
+                                int pointId = arbiter.stampPoint("TRACK_EVENT_JSON");
                                 String jsonStr = serverMessage.substring("TRACK_EVENT_JSON:".length()).trim();
-                                tryPlayEarlyAudio(jsonStr);
-                                statusData.postValue(new Pair<>("TRACK_EVENT_JSON", jsonStr));
+                                String mode = activeTennisMode;
+                                arbiter.execute(() -> tryPlayEarlyAudio(jsonStr, mode, pointId, receiveNs));
+                                dispatchSessionMessage("TRACK_EVENT_JSON", jsonStr, pointId, receiveNs);
                             } else if (serverMessage.startsWith("POINT_UPDATE_JSON:")) {
                                 // Mid-point trajectory update for SINGLES/DOUBLES court graphics.
                                 // Sent whenever a new bounce is resolved; Android always replaces
                                 // prior state (no merge).
+                                long receiveNs = System.nanoTime();
+                                int pointId = AudioArbiter.get(CommunicationService.this).stampPoint("POINT_UPDATE_JSON");
                                 String jsonStr = serverMessage.substring("POINT_UPDATE_JSON:".length()).trim();
-                                statusData.postValue(new Pair<>("POINT_UPDATE_JSON", jsonStr));
+                                dispatchSessionMessage("POINT_UPDATE_JSON", jsonStr, pointId, receiveNs);
                             } else {
                                 // For all other text messages, just post them to the UI
                                 String[] parts = serverMessage.split(":", 2);
                                 String status = parts.length > 1 ? parts[0] : "Server";
                                 String message = parts.length > 1 ? parts[1].trim() : serverMessage;
                                 if ("AUDIO_STATUS".equals(status)) lastAudioStatus = message;
-                                statusData.postValue(new Pair<>(status, message));
+                                if ("CALIBRATION_STATUS".equals(status) || "SYSTEM_STATE".equals(status)) {
+                                    dispatchSessionMessage(status, message, 0, System.nanoTime());
+                                } else {
+                                    statusData.postValue(new Pair<>(status, message));
+                                }
                             }
                         }
                     } catch (java.net.SocketTimeoutException e) {
                         // This allows the loop to check the isRunning flag harmlessly.
-                        // Because currentLineBuffer is now persistent, we don't lose fragmented streams.
+                        // Because lineReader's buffer is persistent, we don't lose fragmented streams.
                         continue;
                     } catch (IOException e) {
                         if (isRunning.get()) {
@@ -674,13 +703,34 @@ public class CommunicationService extends Service {
         communicationThread.start();
     }
 
-    private void tryPlayEarlyAudio(String jsonStr) {
+    /** Socket thread: one PROTOCOL line per received message (sampled / previewed). */
+    private void logReceived(String serverMessage) {
+        if (!FileLogger.isLoggable(FileLogger.Category.PROTOCOL, FileLogger.INFO)) {
+            FlightRecorder.record("RECV: ", serverMessage);
+            return;
+        }
+        if (serverMessage.startsWith("STATUS_FRAMES:")) {
+            // Every frame status reaches the flight recorder; the file gets one per interval.
+            FlightRecorder.record("RECV: ", serverMessage);
+            FileLogger.logSampled(this, FileLogger.Category.PROTOCOL, FileLogger.INFO, "STATUS_FRAMES",
+                    STATUS_FRAMES_LOG_INTERVAL_MS, () -> "RECV: " + serverMessage);
+        } else if (serverMessage.length() <= RECV_PREVIEW_CHARS || FileLogger.logFullPayloads()) {
+            FileLogger.log(this, FileLogger.Category.PROTOCOL, FileLogger.INFO, "RECV: " + serverMessage);
+        } else {
+            FileLogger.log(this, FileLogger.Category.PROTOCOL, FileLogger.INFO,
+                    "RECV: " + serverMessage.substring(0, RECV_PREVIEW_CHARS)
+                            + "... (" + serverMessage.length() + " chars)");
+        }
+    }
+
+    /** AudioArbiter worker thread. `mode` is activeTennisMode as of socket receipt. */
+    private void tryPlayEarlyAudio(String jsonStr, String mode, int pointId, long receiveNs) {
         if (nanoAudioActive) return;  // Nano is speaking; suppress app audio.
-        FastSpeechEngine engine = earlyAudioEngine;
-        if (engine == null) return;
+        AudioArbiter arbiter = AudioArbiter.get(this);
+        if (!arbiter.isArmed()) return;  // MainActivity gone: no screen, no sound.
 
-        boolean isServePractice   = "SERVE_PRACTICE".equals(activeTennisMode);
-        boolean isSinglesDoubles  = "SINGLES".equals(activeTennisMode) || "DOUBLES".equals(activeTennisMode);
+        boolean isServePractice   = "SERVE_PRACTICE".equals(mode);
+        boolean isSinglesDoubles  = "SINGLES".equals(mode) || "DOUBLES".equals(mode);
         if (!isServePractice && !isSinglesDoubles) return;
 
         try {
@@ -691,55 +741,33 @@ public class CommunicationService extends Service {
 
             SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
             boolean playVoice    = prefs.getBoolean(SettingsActivity.KEY_VOICE_CALLS, false);
+            if (!playVoice) return;
 
+            // TRACK_EVENT_JSON names no stroke, so every request here is STROKE_ANY: it is
+            // dropped by the arbiter if SessionState.onPointUpdateJson() already voiced a
+            // call for this point, and SessionState's own fallback for this message is
+            // dropped in turn once this one has played.
             if (isServePractice) {
                 String inServeAudio  = prefs.getString(SettingsActivity.KEY_IN_SERVE_AUDIO, "mute");
                 // Only serves use the In-serve setting; non-serve In calls are always muted.
                 boolean isServeCall  = "Serve".equalsIgnoreCase(strikeType);
 
                 if ("In".equalsIgnoreCase(callStr)) {
-                    if (isServeCall && "mph".equals(inServeAudio) && playVoice) {
-                        int mphInt = (int) Math.round(mph);
-                        String ttsMphStr;
-                        long now = System.currentTimeMillis();
-                        if (now - lastEarlySpokenMphTimeMs > EARLY_AUDIO_MPH_COOLDOWN_MS) {
-                            ttsMphStr = mphInt + " miles per hour";
-                            lastEarlySpokenMphTimeMs = now;
-                        } else {
-                            ttsMphStr = String.valueOf(mphInt);
-                        }
-                        lastEarlyAudioFiredMs = System.currentTimeMillis();
-                        engine.speak(ttsMphStr);
+                    if (isServeCall && "mph".equals(inServeAudio)) {
+                        arbiter.submit(AudioArbiter.MPH, pointId, AudioArbiter.STROKE_ANY, null, mph, receiveNs);
                     }
-                    // Beep mode stays on the main thread via toneGenerator — not handled here
+                    // Beep mode is requested by SessionState (same arbiter, same point id).
                 } else if ("Out".equalsIgnoreCase(callStr) || "Fault".equalsIgnoreCase(callStr)) {
-                    if (playVoice) {
-                        lastEarlyAudioFiredMs = System.currentTimeMillis();
-                        playRawAudio(R.raw.fault);
-                    }
+                    arbiter.submit(AudioArbiter.CALL, pointId, AudioArbiter.STROKE_ANY, "Fault", 0, receiveNs);
                 } else if ("Let".equalsIgnoreCase(callStr)) {
-                    if (playVoice) {
-                        lastEarlyAudioFiredMs = System.currentTimeMillis();
-                        playRawAudio(R.raw.let);
-                    }
+                    arbiter.submit(AudioArbiter.CALL, pointId, AudioArbiter.STROKE_ANY, "Let", 0, receiveNs);
                 }
             } else {
-                // SINGLES/DOUBLES: play pre-recorded WAV for Out/Fault/Let (zero TTS latency).
-                // Double-beep for non-Out terminals stays on the main thread in processTrackEventJson.
-                // Skip if processInPointUpdate already fired audio concurrently with the display
-                // update — it sets lastEarlyAudioFiredMs to suppress this path as well.
-                if (System.currentTimeMillis() - lastEarlyAudioFiredMs < 2000) return;
-                if (playVoice) {
-                    if ("Out".equalsIgnoreCase(callStr)) {
-                        lastEarlyAudioFiredMs = System.currentTimeMillis();
-                        playRawAudio(R.raw.out);
-                    } else if ("Fault".equalsIgnoreCase(callStr)) {
-                        lastEarlyAudioFiredMs = System.currentTimeMillis();
-                        playRawAudio(R.raw.fault);
-                    } else if ("Let".equalsIgnoreCase(callStr)) {
-                        lastEarlyAudioFiredMs = System.currentTimeMillis();
-                        playRawAudio(R.raw.let);
-                    }
+                // SINGLES/DOUBLES: pre-recorded WAV for Out/Fault/Let (zero TTS latency,
+                // preloaded static AudioTracks -- see CallClipBank).
+                int clip = CallClipBank.clipForCall(callStr);
+                if (clip >= 0) {
+                    arbiter.submit(AudioArbiter.CALL, pointId, AudioArbiter.STROKE_ANY, callStr, 0, receiveNs);
                 }
             }
         } catch (Exception e) {
@@ -747,21 +775,21 @@ public class CommunicationService extends Service {
         }
     }
 
-    private void playRawAudio(int resId) {
-        try {
-            android.media.MediaPlayer mp = android.media.MediaPlayer.create(this, resId);
-            if (mp == null) return;
-            mp.setOnCompletionListener(android.media.MediaPlayer::release);
-            mp.start();
-        } catch (Exception e) {
-            FileLogger.log(this, "playRawAudio error", e);
-        }
-    }
-
     private void sendCommand(String command) {
         if (command.startsWith("START_RECORDING")) {
             recordingStartTime = System.currentTimeMillis();
         }
+        if (command.startsWith("START_RECORDING") || command.startsWith("START_TRACKING")) {
+            // One log segment per session, so a session's log is one file.
+            FileLogger.rotateSession(this);
+            SessionJournal.start(this, command.trim());
+            LatencyReport.startSession();
+        }
+        SessionJournal.record(SessionJournal.COMMAND_SENT, 0, 0, command.trim());
+        if (command.startsWith("STOP_RECORDING") || command.startsWith("STOP_TRACKING")) {
+            SessionJournal.stop(command.trim());
+            finishLatencyReport();
+        }
 
         // Clear the image buffer whenever a command that requests a new image
         // is sent. This prevents "Sticky LiveData" from showing a stale bitmap from
@@ -781,15 +809,24 @@ public class CommunicationService extends Service {
                     outputStream.write(command.getBytes(StandardCharsets.UTF_8));
                     outputStream.flush();
                 }
-                FileLogger.log(CommunicationService.this, "Service sent command: " + command.trim());
+                FileLogger.log(CommunicationService.this, FileLogger.Category.TRANSPORT, FileLogger.INFO, "Service sent command: " + command.trim());
             } catch (Exception e) {
                 FileLogger.log(CommunicationService.this, "Service failed to send command", e);
             }
         }).start();
     }
 
+    /** Summarizes the session's latencies off the caller's thread; MainActivity shows it once. */
+    private void finishLatencyReport() {
+        new Thread(() -> {
+            String report = LatencyReport.finishSession(CommunicationService.this);
+            if (report != null) latencyReportData.postValue(report);
+        }, "LatencyReport").start();
+    }
+
     private void disconnect() {
-        FileLogger.log(CommunicationService.this, "Disconnecting... (gracePeriod=" + isInGracePeriod + ")");
+        FileLogger.log(CommunicationService.this, FileLogger.Category.TRANSPORT, FileLogger.INFO, "Disconnecting... (gracePeriod=" + isInGracePeriod + ")");
+        if (!isInGracePeriod) SessionJournal.stop("disconnect");
         isRunning.set(false);
         isServerConnected = false;
 
@@ -833,19 +870,6 @@ public class CommunicationService extends Service {
     }
 
     // --- Data Reading Methods ---
-    private String readLineFromStream(InputStream is) throws IOException {
-        int byteRead;
-        while (isRunning.get()) {
-            byteRead = is.read(); // Can throw SocketTimeoutException
-            if (byteRead == -1) throw new IOException("End of stream");
-            if (byteRead == '\n') break;
-            currentLineBuffer.write(byteRead);
-        }
-        String completeLine = currentLineBuffer.toString(StandardCharsets.UTF_8.name()).trim();
-        currentLineBuffer.reset(); // Wipe buffer only upon confirming a complete newline payload
-        return completeLine;
-    }
-
     private byte[] readFullData(InputStream is, int length) throws IOException {
         byte[] data = new byte[length];
         int bytesRead = 0;
@@ -939,5 +963,6 @@ public class CommunicationService extends Service {
         stopRecordingLocks(); // Safety check
         super.onDestroy();
         disconnect();
+        FileLogger.flush();
     }
 }
@@ -0,0 +1,156 @@
+package com.murveit.tgcontrol;
+
+/**
+ * Court Layer - Algorithmic Overview
+ *
+ * The static court diagram (background, lines, alleys, net) shared by ServeScatterView and
+ * PointVectorView, recorded once per view size into a Picture and replayed each frame, so
+ * onDraw only does the dynamic serve dots and vectors.
+ *
+ * 1. INITIALIZATION:
+ * - new CourtLayer(minX, maxX, minY, maxY, bothHalves) with the owning view's coordinate
+ *   bounds in court meters (X=0 center line, Y=0 net, north positive).
+ *   bothHalves=false: the north half only (serve practice), alleys in full white.
+ *   bothHalves=true: north and south halves, doubles alleys at half opacity.
+ *
+ * 2. CALLING PROCEDURE:
+ * - draw(canvas, w, h) first thing in the view's onDraw().
+ * - mapX / mapY for the view's own dynamic content, so both layers agree on the mapping.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - The Picture is re-recorded only when (w, h) differs from the recorded size; otherwise
+ *   draw() is a single drawPicture. A Picture rather than a bitmap keeps the lines vector
+ *   (crisp at any density) and costs no texture memory; RenderNode would need API 29.
+ * - Line set per half (sign = +1 north, -1 south): baseline, singles and doubles
+ *   sidelines, service line, center service line, center mark. The half-court layout draws
+ *   the net under its lines, the full-court layout over them, as the views always have.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Draws onto the caller's Canvas. Holds one Picture per owning view.
+ */
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.DashPathEffect;
+import android.graphics.Paint;
+import android.graphics.Picture;
+
+final class CourtLayer {
+
+    // --- Court Dimensions (meters) ---
+    static final float COURT_HALF_SINGLES_WIDTH = 4.115f;
+    static final float COURT_HALF_DOUBLES_WIDTH = 5.485f;
+    static final float COURT_SERVICE_LINE_DEPTH = 6.40f;
+    static final float COURT_BASELINE_DEPTH = 11.885f;
+
+    private static final float LINE_STROKE_W = 4f;
+    private static final float CENTER_MARK_LENGTH = 0.2f;
+    private static final float NET_OVERHANG = 0.5f;
+
+    private final float minX, maxX, minY, maxY;
+    private final boolean bothHalves;
+
+    private final Paint courtPaint = new Paint();
+    private final Paint linePaint = new Paint();
+    private final Paint alleyPaint = new Paint();
+    private final Paint netPaint = new Paint();
+
+    private Picture picture;
+    private int recordedW = -1;
+    private int recordedH = -1;
+
+    CourtLayer(float minX, float maxX, float minY, float maxY, boolean bothHalves) {
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.bothHalves = bothHalves;
+
+        courtPaint.setColor(Color.parseColor("#1B3329")); // Deep subdued green
+        courtPaint.setStyle(Paint.Style.FILL);
+
+        linePaint.setColor(Color.WHITE);
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(LINE_STROKE_W);
+        linePaint.setAntiAlias(true);
+
+        // Doubles alleys: secondary on the full court, plain lines on the serve half-court
+        alleyPaint.set(linePaint);
+        if (bothHalves) alleyPaint.setColor(Color.parseColor("#80FFFFFF"));
+
+        // Distinctive net styling (thicker, distinctly colored, dashed)
+        netPaint.setColor(Color.parseColor("#90A4AE")); // Cool metallic grey
+        netPaint.setStyle(Paint.Style.STROKE);
+        netPaint.setStrokeWidth(8f);
+        netPaint.setAntiAlias(true);
+        netPaint.setPathEffect(new DashPathEffect(new float[]{20f, 15f}, 0f));
+    }
+
+    // Mathematical translation from physical meters to screen pixels
+    float mapX(float x, int w) {
+        return (x - minX) / (maxX - minX) * w;
+    }
+
+    // Invert Y so north (positive) is toward the top of the screen
+    float mapY(float y, int h) {
+        return h - ((y - minY) / (maxY - minY) * h);
+    }
+
+    void draw(Canvas canvas, int w, int h) {
+        if (w <= 0 || h <= 0) return;
+        if (picture == null || w != recordedW || h != recordedH) {
+            picture = new Picture();
+            Canvas rec = picture.beginRecording(w, h);
+            record(rec, w, h);
+            picture.endRecording();
+            recordedW = w;
+            recordedH = h;
+        }
+        canvas.drawPicture(picture);
+    }
+
+    private void record(Canvas c, int w, int h) {
+        c.drawRect(0, 0, w, h, courtPaint);
+        if (!bothHalves) {
+            drawNet(c, w, h);
+            drawHalf(c, 1, w, h);
+        } else {
+            drawHalf(c, 1, w, h);
+            drawHalf(c, -1, w, h);
+            drawNet(c, w, h);
+        }
+    }
+
+    private void drawHalf(Canvas c, float sign, int w, int h) {
+        float net = mapY(0, h);
+        float service = mapY(sign * COURT_SERVICE_LINE_DEPTH, h);
+        float baseline = mapY(sign * COURT_BASELINE_DEPTH, h);
+        float singlesL = mapX(-COURT_HALF_SINGLES_WIDTH, w);
+        float singlesR = mapX(COURT_HALF_SINGLES_WIDTH, w);
+        float doublesL = mapX(-COURT_HALF_DOUBLES_WIDTH, w);
+        float doublesR = mapX(COURT_HALF_DOUBLES_WIDTH, w);
+        float center = mapX(0, w);
+
+        // Baseline and center mark
+        c.drawLine(doublesL, baseline, doublesR, baseline, linePaint);
+        c.drawLine(center, baseline, center,
+                mapY(sign * (COURT_BASELINE_DEPTH - CENTER_MARK_LENGTH), h), linePaint);
+
+        // Singles and doubles sidelines
+        c.drawLine(singlesL, net, singlesL, baseline, linePaint);
+        c.drawLine(singlesR, net, singlesR, baseline, linePaint);
+        c.drawLine(doublesL, net, doublesL, baseline, alleyPaint);
+        c.drawLine(doublesR, net, doublesR, baseline, alleyPaint);
+
+        // Service line and center service line
+        c.drawLine(singlesL, service, singlesR, service, linePaint);
+        c.drawLine(center, net, center, service, linePaint);
+    }
+
+    // Net (extends slightly past the doubles lines)
+    private void drawNet(Canvas c, int w, int h) {
+        float y = mapY(0, h);
+        c.drawLine(mapX(-COURT_HALF_DOUBLES_WIDTH - NET_OVERHANG, w), y,
+                mapX(COURT_HALF_DOUBLES_WIDTH + NET_OVERHANG, w), y, netPaint);
+    }
+}
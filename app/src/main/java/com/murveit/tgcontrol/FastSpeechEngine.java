@@ -13,60 +13,128 @@ package com.murveit.tgcontrol;
  * 2. CALLING PROCEDURE:
  * - Instantiate the engine: `FastSpeechEngine engine = new FastSpeechEngine(context, initializedTts);`
  * - Trigger initialization phase: `engine.initializeCache();`
- * - To speak: `engine.speak("Fault");` or `engine.speak("73 miles per hour");`
+ * - To speak: `engine.speakIfReady("Fault")` or `engine.speakIfReady("73 miles per hour")` --
+ * plays only from the cache, returns false (and stays silent) on a miss instead of paying
+ * dynamic-TTS latency mid-rally. The engine never speaks through TTS itself.
+ * - Readiness: `isReady(phrase)`, `readyCount()`/`totalCount()`/`progress()`, and
+ * `setReadinessListener(l)` for a main-thread callback each time another phrase becomes
+ * playable (MainActivity shows "Voice cache N%" from it).
+ * - `recordSpeed(mph)` for each spoken serve speed; feeds the synthesis priority order, the
+ * hot band, and the prefetcher.
+ * - Memory: `setMemoryBudget(bytes)` (default EngineConstants.MEMORY_BUDGET_BYTES) caps the
+ * resident decoded PCM; `cacheStats()` reports hit rate, resident/peak bytes, evictions.
+ * - `lastOutputTrack()` right after a successful speakIfReady(): the AudioTrack it played on
+ * (the StreamingVoice track), or null for SoundPool -- AudioLatencyMonitor's timestamp source.
  *
  * 3. INTERNAL ALGORITHMIC LOGIC (Step-by-step):
- * - Generates a massive target array containing standard calls ("Out", "Fault", "Let") and
- * a loop of MPH integers (e.g., "20 miles per hour" to "140 miles per hour") -- 246 phrases
- * total at the current MPH_MIN/MPH_MAX range.
- * - initializeCache() dispatches the check-and-load pass below to a dedicated background
- * thread and returns immediately, rather than running it inline on the caller's thread.
- * This was added 2026-07-20 after a real ANR ("Input dispatching timed out ... waited
- * 5003ms") whose trace showed the main thread blocked inside SoundPool.load(), called
- * from here via TextToSpeech.onInit()'s callback (which Android always dispatches on the
- * main thread) -- on a warm cache (all 246 .wav files already on disk from a prior
- * launch), that's up to 246 back-to-back native load() calls with no yielding, occasionally
- * slow enough on real hardware to trip Android's 5s input-dispatch watchdog. SoundPool.load()
- * is documented safe to call from any thread (the actual decode already happens on
- * SoundPool's own native thread pool), so there was no correctness reason for this to run
- * on the main thread in the first place -- see the background-thread-safety note on
- * soundMap below.
- * - Interrogates the Android internal storage directory specific to this cache.
- * - For each target phrase, sanitizes the string into a valid filesystem name.
- * - If the physical .wav file exists: Issues an immediate load command to the SoundPool.
- * - If the physical .wav file does NOT exist: Dispatches an asynchronous `synthesizeToFile`
- * command to the TTS engine.
- * - Utilizes an UtteranceProgressListener to intercept synthesis completion callbacks. Once a
- * file is successfully written to disk, it is dynamically loaded into the SoundPool.
- * - Maintains a map linking the exact textual phrase to the generated SoundPool ID.
- * - Upon a `speak(text)` invocation, evaluates the map. If a Sound ID exists, it triggers
- * immediate native playback via SoundPool. If it misses, it falls back to dynamic TTS
- * synthesis -- this existing fallback is also what makes the background-thread cache
- * population above safe: speak() calls made before the background pass finishes just take
- * the slower dynamic-TTS path instead of a cache hit, the same as any other cache miss.
+ * - Target phrases: the standard calls ("Out", "Fault", "Let", "In") plus, in the default
+ * concatenative mode (EngineConstants.CONCATENATIVE_MPH), the 29 SpeechAtoms
+ * ("one".."nineteen", "twenty".."ninety", "one hundred", "miles per hour") -- 33 phrases.
+ * With CONCATENATIVE_MPH off they are instead every MPH integer from MPH_MIN to MPH_MAX,
+ * bare and with "miles per hour" (the original whole-phrase mode, 246 phrases). The list
+ * is stably sorted by expected use: calls, then "miles per hour", then numbers by their
+ * summed MphHistory weight (this player's spoken-speed histogram in the "fast_speech"
+ * SharedPreferences, plus a prior centred on 90 mph). TTS renders in submission order, so
+ * on a cold cache the common speeds are playable within the first few seconds.
+ * - Where a phrase's audio lives:
+ *   a) The phrase bank (PhraseBank, EngineConstants.BANK_FILE_NAME): one packed PCM file,
+ *      memory-mapped at startup, holding every target rendered before the last pack.
+ *   b) The resident cache (ResidentPhraseCache): decoded PCM on the Java heap, a
+ *      byte-budgeted LRU in front of the mapping. The hot set -- calls, "miles per hour",
+ *      and the atoms/phrases for the player's usual band (10th-90th percentile of
+ *      MphHistory once it has 20 speeds, 70-110 mph before that) -- is pinned and copied
+ *      in at startup; other bank entries are admitted on first use and evicted LRU.
+ *   c) Loose .wav files TTS rendered since the last pack. Atoms among them are decoded and
+ *      silence-trimmed straight into the resident cache, pinned until packed (no bank copy
+ *      to fall back to); any other phrase is loaded into the SoundPool.
+ *   d) Dynamic phrases (see below): resident-cache entries under DYNAMIC_KEY_PREFIX, with
+ *      their renderings on disk in EngineConstants.DYNAMIC_DIR_NAME.
+ * - speakIfReady(text), in order; every path only reads memory or the mapping:
+ *   1. An MPH readout in concatenative mode: SpeechAtoms.atomsFor() spells it, each atom
+ *      comes from the resident cache (re-read from the bank on a miss), PcmStitcher joins
+ *      them with ATOM_GAP_MS gaps, and StreamingVoice's MODE_STREAM AudioTrack plays it.
+ *   2. A trusted bank entry: its resident PCM, else its mapped slice handed straight to
+ *      StreamingVoice (and admitted to the resident cache on the prefetch thread).
+ *   3. A SoundPool sample (case c) whose OnLoadCompleteListener has reported success.
+ *   4. A dynamic phrase resident in memory.
+ *   Anything else is a silent miss.
+ * - A phrase is "ready" exactly when one of those paths would play it; an MPH phrase in
+ * concatenative mode once all its atoms are.
+ * - initializeCache() runs the check-and-load pass on a dedicated "FastSpeechEngine-Init"
+ * thread and returns at once. This was added 2026-07-20 after a real ANR ("Input
+ * dispatching timed out ... waited 5003ms"): TextToSpeech.onInit() always calls back on the
+ * main thread, and the pass then made up to 246 back-to-back SoundPool.load() calls. The
+ * pass opens the bank, validates it against the manifest (below), marks every trusted
+ * entry ready, copies the hot set in, and loads any loose .wav files; targets with neither
+ * are queued to TTS synthesizeToFile. An UtteranceProgressListener loads each file as it is
+ * written. Every job finishes through onDone, onError or onStop (a QUEUE_FLUSH from another
+ * TTS client drops queued jobs), so pendingSyntheses always reaches zero.
+ * - Every finished synthesis is checked (parseable WAV, at least MIN_RENDER_MS of audio);
+ * a truncated or empty file is deleted and re-queued up to MAX_RENDER_RETRIES times.
+ * - Packing: once every target is rendered (the last synthesis finished, or a start found
+ * loose .wav files but nothing left to synthesize), a "FastSpeechEngine-Pack" thread reads
+ * each loose .wav (falling back to the current bank's copy), silence-trims it, writes a new
+ * bank via temp file + rename, writes the manifest, maps the bank, swaps it in, unloads
+ * the now-redundant SoundPool samples and deletes the loose files. The next launch is a
+ * single mmap and the SoundPool stays empty.
+ * - Validation (PhraseManifest, manifest.json beside the bank): each bank entry must have a
+ * manifest entry whose sample count and CRC32 match the mapped bytes, else it is corrupt --
+ * never played, re-synthesized. An intact entry rendered under a different TTS profile
+ * (engine package, voice, locale, system speech rate/pitch -- currentProfile()) is stale:
+ * it keeps playing from the bank, so the user is never left silent, while it is
+ * re-synthesized in the background after all truly missing phrases; the next pack swaps
+ * the new rendering in. Atoms switch as a set: a new engine's atoms may come at another
+ * sample rate, so they are held back until the pack and the stitch rate (atomSampleRate)
+ * follows the swapped-in bank. The "Cache check took" log line reports the CRC cost.
+ * - Prefetch: after every spoken speed a "FastSpeechEngine-Prefetch" thread makes the
+ * entries for speeds within PREFETCH_RADIUS_MPH resident, ahead of the next serve. The
+ * same thread does everything a play must not wait for: admitting cold slices, touching
+ * and decoding dynamic renderings, and releasing a StreamingVoice replaced at a new rate.
+ * - Dynamic phrases (anything outside the target set and, in concatenative mode, not a
+ * speakable MPH -- e.g. a speed over 199, or a future status announcement) play only from
+ * the resident cache. A miss hands the phrase to the prefetch thread, which decodes its
+ * rendering if one exists and otherwise queues a background synthesizeToFile (utterance
+ * prefix DYNAMIC_UTT_PREFIX). Memory is bounded by the resident cache's LRU budget (dynamic
+ * entries are never pinned); disk by a file-count and byte cap, trimmed oldest-access-first
+ * (each play touches the file's mtime). Phrases longer than DYNAMIC_MAX_CHARS are never cached.
  *
  * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
- * - Side Effect: Creates a directory in internal storage containing dozens of .wav files.
- * - Side Effect: Allocates several megabytes of uncompressed PCM audio data in the Android Native Heap.
+ * - Side Effect: Creates a directory in internal storage holding one phrases.bank file (plus, only
+ * until the next pack, the loose .wav files TTS has just rendered).
+ * - Side Effect: Allocates uncompressed PCM in the Android Native Heap (SoundPool, only for phrases
+ * rendered since the last pack) and up to the memory budget of resident PCM on the Java heap.
+ * printNativeMemoryFootprint() logs both, plus first-launch synthesis time and the mapped bank
+ * size and the resident-cache stats. With a complete bank the SoundPool holds nothing; the
+ * mapping is clean page cache. shutdown() writes a "[VOICE_CACHE]" stats line via FileLogger.
  * - Output: Auditory playback via the hardware speaker/Bluetooth.
  */
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.media.AudioAttributes;
-import android.media.AudioManager;
 import android.media.SoundPool;
-import android.os.Build;
 import android.os.Bundle;
 import android.os.Debug;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
 import android.speech.tts.TextToSpeech;
 import android.speech.tts.UtteranceProgressListener;
 import android.util.Log;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FastSpeechEngine {
     private static final String TAG = "FastSpeechEngine";
@@ -81,6 +149,47 @@ public class FastSpeechEngine {
         // Minimum and maximum serve speeds for pre-rendering
         public static final int MPH_MIN = 20;
         public static final int MPH_MAX = 140;
+        // Spell MPH readouts from SpeechAtoms at play time instead of pre-rendering
+        // every speed as its own phrase.
+        public static final boolean CONCATENATIVE_MPH = true;
+        // Silence between stitched atoms; TTS inter-word pauses are roughly this long.
+        public static final int ATOM_GAP_MS = 25;
+        // SharedPreferences file/key for the spoken-speed histogram (MphHistory)
+        public static final String PREFS_NAME = "fast_speech";
+        public static final String PREF_MPH_HISTORY = "mph_history";
+        // Persist the histogram every this many recorded speeds (and on shutdown)
+        public static final int HISTORY_PERSIST_EVERY = 10;
+        // Packed, memory-mapped PCM of every rendered phrase (PhraseBank)
+        public static final String BANK_FILE_NAME = "phrases.bank";
+        // Per-entry TTS profile + checksum for the bank (PhraseManifest)
+        public static final String MANIFEST_FILE_NAME = "manifest.json";
+        // A rendering shorter than this is treated as truncated and redone
+        public static final int MIN_RENDER_MS = 50;
+        public static final int MAX_RENDER_RETRIES = 2;
+        // Default ceiling for resident decoded PCM (setMemoryBudget() overrides). Holds all
+        // 33 concatenative-mode phrases; in whole-phrase mode only the hot band fits.
+        public static final long MEMORY_BUDGET_BYTES = 1024 * 1024;
+        // Hot band = central HOT_BAND_PERCENTILE..(100-it) of recorded speeds, once there
+        // are HOT_BAND_MIN_SAMPLES of them; before that, the fallback band below.
+        public static final int HOT_BAND_PERCENTILE = 10;
+        public static final int HOT_BAND_MIN_SAMPLES = 20;
+        public static final int HOT_BAND_FALLBACK_MIN = 70;
+        public static final int HOT_BAND_FALLBACK_MAX = 110;
+        // After each spoken speed, make the phrases for speeds within this many mph resident.
+        public static final int PREFETCH_RADIUS_MPH = 3;
+        // Dynamic (non-target) phrase cache: disk location, TTS utterance prefix (must not
+        // start with UTT_PREFIX), resident-cache key prefix, and bounds.
+        public static final String DYNAMIC_DIR_NAME = "fast_speech_dynamic";
+        public static final String DYNAMIC_UTT_PREFIX = "fast_dynamic_";
+        public static final String DYNAMIC_KEY_PREFIX = "dyn:";
+        public static final int DYNAMIC_MAX_FILES = 64;
+        public static final long DYNAMIC_MAX_BYTES = 4 * 1024 * 1024;
+        public static final int DYNAMIC_MAX_CHARS = 80;
+    }
+
+    public interface ReadinessListener {
+        /** Main thread. Called each time another target phrase becomes playable from cache. */
+        void onVoiceCacheProgress(int ready, int total);
     }
 
     private final Context context;
@@ -93,14 +202,66 @@ public class FastSpeechEngine {
     // initializeCache()'s background thread (see that method) and, separately, from
     // the TTS UtteranceProgressListener's onDone() callback (already off the main
     // thread even before this change -- Android does not guarantee that callback
-    // runs on any particular thread), while speak() reads it from whatever thread
+    // runs on any particular thread), while speakIfReady() reads it from whatever thread
     // the caller uses (normally the main thread). Plain HashMap is not safe under
     // concurrent access from multiple threads; this was a latent risk even before
     // initializeCache() itself moved to a background thread.
     private final Map<String, Integer> soundMap = new ConcurrentHashMap<>();
     private final List<String> targetPhrases = new ArrayList<>();
 
+    // Decoded PCM kept in memory: atoms (concatenative mode) and bank phrases copied out of
+    // the mapping. Byte-budgeted LRU with a pinned hot set; evicted entries are re-read from
+    // the bank. Internally synchronized -- written from the init, TTS-callback, pack and
+    // prefetch threads, read by speakIfReady().
+    private final ResidentPhraseCache resident = new ResidentPhraseCache(EngineConstants.MEMORY_BUDGET_BYTES);
+    // Phrases resident only because no bank copy exists yet (rendered since the last pack);
+    // pinned until packed, since evicting them would lose them.
+    private final Set<String> unbacked = ConcurrentHashMap.newKeySet();
+    private volatile Set<String> hotPhrases = Collections.emptySet();
+    private final HandlerThread prefetchThread;
+    private final Handler prefetchHandler;
+    private volatile int atomSampleRate = 0;
+    private volatile StreamingVoice streamingVoice;
+    private volatile android.media.AudioTrack lastOutputTrack;
+
+    // Current memory-mapped bank, or null before the first pack. Replaced wholesale by
+    // packBank(); readers take one local reference per call.
+    private volatile PhraseBank bank;
+    // Bank entries that passed manifest validation or were packed by this process; only
+    // these are played from (or carried over out of) the mapping.
+    private final Set<String> bankTrusted = ConcurrentHashMap.newKeySet();
+    // Manifest matching `bank`; replaced together with it by packBank().
+    private volatile PhraseManifest manifest;
+    // TTS profile new renderings are made with; sampled at the start of each init pass.
+    private volatile PhraseManifest.Profile renderProfile;
+    // Stale-but-intact entries being re-rendered while the bank keeps serving them.
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> renderRetries = new ConcurrentHashMap<>();
+
+    // Dynamic phrases: on-disk renderings of non-target text, their sample rates once
+    // decoded, renders in flight, and counters for cacheStats().
+    private final File dynamicDir;
+    private final Set<String> targetSet = new HashSet<>();
+    private final Map<String, Integer> dynamicRates = new ConcurrentHashMap<>();
+    private final Set<String> dynamicPending = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger dynamicRenders = new AtomicInteger();
+    private final AtomicInteger dynamicDiskEvictions = new AtomicInteger();
+
     private volatile long initialNativeMemory = 0;
+    // First-launch synthesis timing: phrases still being rendered and when that began.
+    private final AtomicInteger pendingSyntheses = new AtomicInteger();
+    private volatile long synthesisStartMs = 0;
+
+    // Readiness: target phrases playable without TTS, and in-flight SoundPool loads
+    // (sample id -> phrase) awaiting OnLoadCompleteListener.
+    private final Set<String> readyPhrases = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, String> pendingLoads = new ConcurrentHashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile ReadinessListener readinessListener;
+
+    // Guarded by itself; written from AudioArbiter's thread, read at construction.
+    private final MphHistory mphHistory;
+    private int unsavedSpeeds = 0;
 
     public FastSpeechEngine(Context context, TextToSpeech initializedTts) {
         this.context = context.getApplicationContext();
@@ -110,22 +271,33 @@ public class FastSpeechEngine {
         if (!cacheDir.exists()) {
             cacheDir.mkdirs();
         }
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                    .setUsage(AudioAttributes.USAGE_GAME)
-                    .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                    .build();
-            this.soundPool = new SoundPool.Builder()
-                    .setMaxStreams(EngineConstants.MAX_CONCURRENT_STREAMS)
-                    .setAudioAttributes(audioAttributes)
-                    .build();
-        } else {
-            this.soundPool = new SoundPool(EngineConstants.MAX_CONCURRENT_STREAMS, AudioManager.STREAM_MUSIC, 0);
+        this.dynamicDir = new File(this.context.getFilesDir(), EngineConstants.DYNAMIC_DIR_NAME);
+        if (!dynamicDir.exists()) {
+            dynamicDir.mkdirs();
         }
 
+        AudioAttributes audioAttributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_GAME)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        this.soundPool = new SoundPool.Builder()
+                .setMaxStreams(EngineConstants.MAX_CONCURRENT_STREAMS)
+                .setAudioAttributes(audioAttributes)
+                .build();
+
+        SharedPreferences prefs = this.context.getSharedPreferences(EngineConstants.PREFS_NAME, Context.MODE_PRIVATE);
+        this.mphHistory = MphHistory.decode(prefs.getString(EngineConstants.PREF_MPH_HISTORY, ""));
+
+        prefetchThread = new HandlerThread("FastSpeechEngine-Prefetch", android.os.Process.THREAD_PRIORITY_BACKGROUND);
+        prefetchThread.start();
+        prefetchHandler = new Handler(prefetchThread.getLooper());
+
         setupTtsListener();
         buildTargetPhraseList();
+        targetSet.addAll(targetPhrases);
+        sortTargetsByPriority();
+        hotPhrases = computeHotPhrases();
+        updatePins();
     }
 
     private void buildTargetPhraseList() {
@@ -135,6 +307,12 @@ public class FastSpeechEngine {
         targetPhrases.add("Let");
         targetPhrases.add("In");
 
+        if (EngineConstants.CONCATENATIVE_MPH) {
+            // Number words + "miles per hour"; speeds are spelled from these at play time.
+            targetPhrases.addAll(SpeechAtoms.all());
+            return;
+        }
+
         // MPH Range
         for (int i = EngineConstants.MPH_MIN; i <= EngineConstants.MPH_MAX; i++) {
             targetPhrases.add(i + " miles per hour");
@@ -142,6 +320,186 @@ public class FastSpeechEngine {
         }
     }
 
+    /**
+     * Stable sort, highest expected use first. Calls and the units atom keep a fixed
+     * infinite priority; every other phrase is weighted by the speeds that would use it.
+     */
+    private void sortTargetsByPriority() {
+        final Map<String, Double> priority = new HashMap<>();
+        String[] names = new String[SpeechAtoms.MAX_ATOMS_PER_PHRASE];
+        synchronized (mphHistory) {
+            for (int mph = 1; mph <= MphHistory.MAX_MPH; mph++) {
+                double w = mphHistory.weight(mph);
+                if (w <= 0) continue;
+                if (EngineConstants.CONCATENATIVE_MPH) {
+                    int count = SpeechAtoms.atomsFor(mph, false, names);
+                    for (int i = 0; i < count; i++) priority.merge(names[i], w, Double::sum);
+                } else {
+                    // The bare number is spoken far more often than the once-a-minute suffix.
+                    priority.put(String.valueOf(mph), w * 2);
+                    priority.put(mph + " " + SpeechAtoms.UNITS, w);
+                }
+            }
+        }
+        for (String call : new String[]{"Fault", "Out", "Let", "In", SpeechAtoms.UNITS}) {
+            priority.put(call, Double.MAX_VALUE);
+        }
+        Collections.sort(targetPhrases, (a, b) -> Double.compare(
+                priority.getOrDefault(b, 0.0), priority.getOrDefault(a, 0.0)));
+    }
+
+    /**
+     * Called once per spoken serve speed; shapes the next cold-cache synthesis order and
+     * the hot band, and prefetches the neighbouring speeds' phrases into memory.
+     */
+    public void recordSpeed(int mph) {
+        String encoded = null;
+        synchronized (mphHistory) {
+            mphHistory.record(mph);
+            if (++unsavedSpeeds >= EngineConstants.HISTORY_PERSIST_EVERY) {
+                unsavedSpeeds = 0;
+                encoded = mphHistory.encode();
+            }
+        }
+        if (encoded != null) {
+            persistHistory(encoded);
+            hotPhrases = computeHotPhrases();
+            updatePins();
+        }
+        prefetchHandler.post(() -> prefetchAround(mph));
+    }
+
+    /** Calls, units, and the phrases/atoms spelling the player's usual speed band. */
+    private Set<String> computeHotPhrases() {
+        Set<String> hot = new HashSet<>();
+        Collections.addAll(hot, "Fault", "Out", "Let", "In", SpeechAtoms.UNITS);
+        int lo = EngineConstants.HOT_BAND_FALLBACK_MIN;
+        int hi = EngineConstants.HOT_BAND_FALLBACK_MAX;
+        synchronized (mphHistory) {
+            if (mphHistory.total() >= EngineConstants.HOT_BAND_MIN_SAMPLES) {
+                lo = mphHistory.percentile(EngineConstants.HOT_BAND_PERCENTILE);
+                hi = mphHistory.percentile(100 - EngineConstants.HOT_BAND_PERCENTILE);
+            }
+        }
+        for (int mph = lo; mph <= hi; mph++) addPhrasesFor(mph, hot);
+        return hot;
+    }
+
+    /** Adds the cache entries speaking `mph` (with and without units) to `out`. */
+    private void addPhrasesFor(int mph, Set<String> out) {
+        if (EngineConstants.CONCATENATIVE_MPH) {
+            String[] names = new String[SpeechAtoms.MAX_ATOMS_PER_PHRASE];
+            int count = SpeechAtoms.atomsFor(mph, false, names);
+            for (int i = 0; i < count; i++) out.add(names[i]);
+        } else {
+            out.add(String.valueOf(mph));
+            out.add(mph + " " + SpeechAtoms.UNITS);
+        }
+    }
+
+    private void updatePins() {
+        Set<String> pins = new HashSet<>(hotPhrases);
+        pins.addAll(unbacked);
+        resident.setPinned(pins);
+    }
+
+    /** Prefetch thread: makes the phrases for speeds near `mph` resident ahead of use. */
+    private void prefetchAround(int mph) {
+        PhraseBank b = bank;
+        if (b == null) return;
+        Set<String> wanted = new HashSet<>();
+        for (int m = mph - EngineConstants.PREFETCH_RADIUS_MPH; m <= mph + EngineConstants.PREFETCH_RADIUS_MPH; m++) {
+            if (m > 0) addPhrasesFor(m, wanted);
+        }
+        for (String phrase : wanted) {
+            if (resident.contains(phrase) || !bankTrusted.contains(phrase)) continue;
+            short[] pcm = b.read(phrase);
+            if (pcm != null) resident.put(phrase, pcm);
+        }
+    }
+
+    /** Ceiling for resident decoded PCM; shrinks the cache at once if it is over. */
+    public void setMemoryBudget(long bytes) {
+        resident.setBudget(bytes);
+    }
+
+    /** Hit rate, resident/peak bytes, admissions and evictions of the resident cache. */
+    public String cacheStats() {
+        return resident.statsLine() + " dynamic_renders=" + dynamicRenders.get()
+                + " dynamic_disk_evictions=" + dynamicDiskEvictions.get();
+    }
+
+    /** Resident PCM for `phrase`, reloaded from the bank on a miss; null if unavailable. */
+    private short[] pcmFor(String phrase) {
+        short[] pcm = resident.get(phrase);
+        if (pcm != null) return pcm;
+        PhraseBank b = bank;
+        if (b == null || !bankTrusted.contains(phrase)) return null;
+        // Null if a pack swapped bankTrusted ahead of `bank`; the caller falls back.
+        pcm = b.read(phrase);
+        if (pcm != null) resident.put(phrase, pcm);
+        return pcm;
+    }
+
+    private void persistHistory(String encoded) {
+        context.getSharedPreferences(EngineConstants.PREFS_NAME, Context.MODE_PRIVATE)
+                .edit().putString(EngineConstants.PREF_MPH_HISTORY, encoded).apply();
+    }
+
+    public void setReadinessListener(ReadinessListener listener) {
+        readinessListener = listener;
+        if (listener != null) notifyReadiness();
+    }
+
+    /** True if `phrase` would play from cache right now, with no TTS fallback. */
+    public boolean isReady(String phrase) {
+        if (EngineConstants.CONCATENATIVE_MPH) {
+            int mph = SpeechAtoms.parseMph(phrase);
+            if (mph >= 0) {
+                String[] names = new String[SpeechAtoms.MAX_ATOMS_PER_PHRASE];
+                int count = SpeechAtoms.atomsFor(mph, SpeechAtoms.hasUnits(phrase), names);
+                if (count == 0) return false;
+                for (int i = 0; i < count; i++) {
+                    if (!readyPhrases.contains(names[i])) return false;
+                }
+                return true;
+            }
+        }
+        if (readyPhrases.contains(phrase)) return true;
+        return !isCovered(phrase) && resident.contains(EngineConstants.DYNAMIC_KEY_PREFIX + phrase);
+    }
+
+    public int readyCount() {
+        return readyPhrases.size();
+    }
+
+    public int totalCount() {
+        return targetPhrases.size();
+    }
+
+    /** Fraction of target phrases playable from cache, 0..1. */
+    public float progress() {
+        int total = totalCount();
+        return total == 0 ? 1f : Math.min(1f, readyCount() / (float) total);
+    }
+
+    private void markReady(String phrase) {
+        if (readyPhrases.add(phrase)) notifyReadiness();
+    }
+
+    private void notifyReadiness() {
+        final int ready = readyCount();
+        final int total = totalCount();
+        mainHandler.post(() -> {
+            ReadinessListener l = readinessListener;
+            if (l != null) l.onVoiceCacheProgress(ready, total);
+        });
+    }
+
+    private boolean isAtom(String phrase) {
+        return EngineConstants.CONCATENATIVE_MPH && SpeechAtoms.all().contains(phrase);
+    }
+
     public void initializeCache() {
         // Runs the actual check-and-load pass on a dedicated background thread and
         // returns immediately -- see this class's header comment (2026-07-20 ANR note)
@@ -155,16 +513,240 @@ public class FastSpeechEngine {
         initialNativeMemory = Debug.getNativeHeapAllocatedSize();
         Log.d(TAG, "Initializing cache. Checking " + targetPhrases.size() + " phrases.");
 
+        long startMs = System.currentTimeMillis();
+        PhraseManifest.Profile profile = currentProfile();
+        renderProfile = profile;
+        PhraseBank b = openBank();
+        PhraseManifest m = b == null ? null
+                : PhraseManifest.read(new File(cacheDir, EngineConstants.MANIFEST_FILE_NAME));
+        bank = b;
+        manifest = m;
+
+        List<String> missing = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+        int loose = 0;
+        int corrupt = 0;
         for (String phrase : targetPhrases) {
+            if (b != null && b.contains(phrase)) {
+                PhraseManifest.Entry e = m == null ? null : m.get(phrase);
+                if (e != null && e.samples == b.sampleCount(phrase) && e.crc32 == b.crc32(phrase)) {
+                    bankTrusted.add(phrase);
+                    loadFromBank(phrase, b);
+                    if (!profile.equals(e.profile)) stale.add(phrase);
+                    continue;
+                }
+                corrupt++;
+            }
             File targetFile = new File(cacheDir, sanitizeFilename(phrase));
 
             if (targetFile.exists() && targetFile.length() > 0) {
                 // File exists, load directly into memory
-                loadIntoSoundPool(phrase, targetFile);
+                loadPhrase(phrase, targetFile);
+                loose++;
+            } else {
+                missing.add(phrase);
+            }
+        }
+        Log.i(TAG, "Cache check took " + (System.currentTimeMillis() - startMs) + " ms: "
+                + bankTrusted.size() + " from bank (" + stale.size() + " stale, " + corrupt + " corrupt), "
+                + loose + " loose, " + missing.size() + " to synthesize; profile " + profile);
+
+        // File missing, command TTS to synthesize it asynchronously. Stale entries queue
+        // behind them: they already play (in the old voice) while being redone.
+        refreshing.addAll(stale);
+        missing.addAll(stale);
+        if (!missing.isEmpty()) {
+            synthesisStartMs = System.currentTimeMillis();
+            pendingSyntheses.set(missing.size());
+            for (String phrase : missing) {
+                synthesizePhrase(phrase, new File(cacheDir, sanitizeFilename(phrase)));
+            }
+        } else if (loose > 0) {
+            packBank();
+        }
+    }
+
+    private PhraseBank openBank() {
+        File file = new File(cacheDir, EngineConstants.BANK_FILE_NAME);
+        if (!file.exists()) return null;
+        try {
+            return PhraseBank.open(file);
+        } catch (IOException | RuntimeException e) {
+            // Unreadable bank: fall back to loose files / re-synthesis and repack.
+            Log.e(TAG, "Discarding unreadable phrase bank", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /** The TTS setup a rendering made now would reflect. */
+    private PhraseManifest.Profile currentProfile() {
+        String voiceName = null;
+        String locale = null;
+        try {
+            android.speech.tts.Voice voice = tts.getVoice();
+            if (voice != null) {
+                voiceName = voice.getName();
+                locale = voice.getLocale().toLanguageTag();
             } else {
-                // File missing, command TTS to synthesize it asynchronously
-                synthesizePhrase(phrase, targetFile);
+                // No voice chosen yet: synthesis would use the engine's default voice.
+                android.speech.tts.Voice fallback = tts.getDefaultVoice();
+                if (fallback != null) locale = fallback.getLocale().toLanguageTag();
             }
+        } catch (RuntimeException e) {
+            // Some engines throw instead of returning null before a voice is set.
+            Log.w(TAG, "TTS voice query failed", e);
+        }
+        android.content.ContentResolver cr = context.getContentResolver();
+        int rate = android.provider.Settings.Secure.getInt(cr, android.provider.Settings.Secure.TTS_DEFAULT_RATE, 100);
+        int pitch = android.provider.Settings.Secure.getInt(cr, android.provider.Settings.Secure.TTS_DEFAULT_PITCH, 100);
+        return new PhraseManifest.Profile(tts.getDefaultEngine(), voiceName, locale, rate, pitch);
+    }
+
+    /** False for a missing, unparseable or near-empty synthesis output. */
+    private boolean isValidRendering(File file) {
+        if (!file.exists() || file.length() == 0) return false;
+        try {
+            WavPcm wav = WavPcm.read(file);
+            return wav.frameCount() >= (long) wav.sampleRate * EngineConstants.MIN_RENDER_MS / 1000;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void loadFromBank(String phrase, PhraseBank b) {
+        if (isAtom(phrase)) {
+            if (atomSampleRate == 0) atomSampleRate = b.sampleRate();
+            if (b.sampleRate() != atomSampleRate) return;
+        }
+        // Only the hot set is copied out now; the rest stays in the mapping until used.
+        if (hotPhrases.contains(phrase)) resident.put(phrase, b.read(phrase));
+        markReady(phrase);
+    }
+
+    /**
+     * Background: rebuilds the bank from loose .wav files plus the current bank, swaps it
+     * in, and retires the SoundPool samples and files it supersedes.
+     */
+    private void packBank() {
+        new Thread(() -> {
+            long startMs = System.currentTimeMillis();
+            PhraseBank old = bank;
+            PhraseManifest oldManifest = manifest;
+            PhraseManifest.Profile profile = renderProfile;
+            PhraseManifest newManifest = new PhraseManifest();
+            Map<String, short[]> entries = new LinkedHashMap<>();
+            List<File> packedFiles = new ArrayList<>();
+            int rate = 0;
+            for (String phrase : targetPhrases) {
+                File file = new File(cacheDir, sanitizeFilename(phrase));
+                short[] pcm;
+                int r;
+                PhraseManifest.Entry carried = null;
+                if (file.exists() && file.length() > 0) {
+                    try {
+                        WavPcm wav = WavPcm.read(file);
+                        pcm = PcmStitcher.trim(wav.toMonoSamples(), wav.sampleRate);
+                        r = wav.sampleRate;
+                    } catch (IOException e) {
+                        Log.e(TAG, "Skipping unreadable phrase file: " + file.getName(), e);
+                        continue;
+                    }
+                    packedFiles.add(file);
+                } else if (old != null && bankTrusted.contains(phrase)
+                        && oldManifest != null && (carried = oldManifest.get(phrase)) != null) {
+                    pcm = old.read(phrase);
+                    r = old.sampleRate();
+                } else {
+                    continue;
+                }
+                if (rate == 0) rate = r;
+                if (r != rate) {
+                    Log.e(TAG, "Not packing '" + phrase + "': " + r + " Hz, bank is " + rate + " Hz");
+                    packedFiles.remove(file);
+                    continue;
+                }
+                entries.put(phrase, pcm);
+                newManifest.put(phrase, carried != null ? carried
+                        : new PhraseManifest.Entry(profile, PhraseBank.crc32(pcm), pcm.length));
+            }
+            if (entries.isEmpty()) return;
+
+            File bankFile = new File(cacheDir, EngineConstants.BANK_FILE_NAME);
+            PhraseBank packed;
+            try {
+                PhraseBank.write(bankFile, rate, entries);
+                newManifest.write(new File(cacheDir, EngineConstants.MANIFEST_FILE_NAME));
+                packed = PhraseBank.open(bankFile);
+            } catch (IOException e) {
+                Log.e(TAG, "Phrase bank pack failed", e);
+                return;
+            }
+            // Exactly the new bank's entries: a trusted phrase the pack skipped (unreadable
+            // loose file, rate mismatch) is no longer in any bank.
+            bankTrusted.retainAll(packed.names());
+            bankTrusted.addAll(packed.names());
+            manifest = newManifest;
+            // A voice/engine change re-renders the atoms at that engine's rate; they switch
+            // as a set with this bank, so stitching follows the bank's rate from here on.
+            for (String phrase : packed.names()) {
+                if (isAtom(phrase)) {
+                    atomSampleRate = packed.sampleRate();
+                    break;
+                }
+            }
+            bank = packed;
+            for (String phrase : packed.names()) {
+                Integer soundId = soundMap.remove(phrase);
+                if (soundId != null) soundPool.unload(soundId);
+                // Drop the pre-pack copy: re-rendered atoms then switch voice together, not one
+                // by one as they finished. Hot entries are copied straight back in.
+                unbacked.remove(phrase);
+                resident.remove(phrase);
+                if (hotPhrases.contains(phrase)) resident.put(phrase, packed.read(phrase));
+                refreshing.remove(phrase);
+                markReady(phrase);
+            }
+            updatePins();
+            for (File f : packedFiles) f.delete();
+            Log.i(TAG, "Packed " + entries.size() + " phrases (" + packed.sizeBytes() / 1024 + " KB) in "
+                    + (System.currentTimeMillis() - startMs) + " ms");
+        }, "FastSpeechEngine-Pack").start();
+    }
+
+    /** Atoms become resident trimmed PCM (pinned until packed); everything else a SoundPool sample. */
+    private void loadPhrase(String phrase, File file) {
+        if (!isAtom(phrase)) {
+            loadIntoSoundPool(phrase, file);
+            return;
+        }
+        try {
+            WavPcm wav = WavPcm.read(file);
+            if (atomSampleRate == 0) atomSampleRate = wav.sampleRate;
+            if (wav.sampleRate != atomSampleRate) {
+                // Mixed rates can't be stitched sample-accurately. A re-rendered atom at a new
+                // engine's rate waits for packBank, which switches the whole set and the rate.
+                if (refreshing.contains(phrase)) {
+                    Log.d(TAG, "Atom '" + phrase + "' re-rendered at " + wav.sampleRate + " Hz; held until pack");
+                } else {
+                    Log.e(TAG, "Atom '" + phrase + "' is " + wav.sampleRate + " Hz, expected " + atomSampleRate);
+                }
+                return;
+            }
+            unbacked.add(phrase);
+            updatePins();
+            resident.put(phrase, PcmStitcher.trim(wav.toMonoSamples(), wav.sampleRate));
+            markReady(phrase);
+        } catch (java.io.IOException e) {
+            Log.e(TAG, "Failed to decode atom: " + phrase, e);
+        }
+    }
+
+    private void onSynthesisFinished() {
+        if (pendingSyntheses.get() > 0 && pendingSyntheses.decrementAndGet() == 0) {
+            Log.i(TAG, "Synthesized missing phrases in " + (System.currentTimeMillis() - synthesisStartMs) + " ms");
+            printNativeMemoryFootprint();
+            packBank();
         }
     }
 
@@ -186,26 +768,61 @@ public class FastSpeechEngine {
 
             @Override
             public void onDone(String utteranceId) {
+                if (utteranceId != null && utteranceId.startsWith(EngineConstants.DYNAMIC_UTT_PREFIX)) {
+                    onDynamicRendered(utteranceId.substring(EngineConstants.DYNAMIC_UTT_PREFIX.length()));
+                    return;
+                }
                 if (utteranceId != null && utteranceId.startsWith(EngineConstants.UTT_PREFIX)) {
                     String phrase = utteranceId.substring(EngineConstants.UTT_PREFIX.length());
                     File completedFile = new File(cacheDir, sanitizeFilename(phrase));
 
-                    if (completedFile.exists()) {
-                        // Load the newly minted file. SoundPool handles file I/O on its own background thread.
-                        loadIntoSoundPool(phrase, completedFile);
+                    if (!isValidRendering(completedFile)) {
+                        completedFile.delete();
+                        int attempt = renderRetries.merge(phrase, 1, Integer::sum);
+                        if (attempt <= EngineConstants.MAX_RENDER_RETRIES) {
+                            Log.w(TAG, "Truncated rendering of '" + phrase + "', retry " + attempt);
+                            synthesizePhrase(phrase, completedFile);
+                            return;
+                        }
+                        Log.e(TAG, "Giving up on rendering '" + phrase + "'");
+                    } else if (!refreshing.contains(phrase)) {
+                        // Load the newly minted file. SoundPool handles file I/O on its own background
+                        // thread; an atom is a few KB of PCM decoded right here. A refreshed
+                        // (stale-voice) entry keeps playing from the bank until the next pack.
+                        loadPhrase(phrase, completedFile);
                     }
+                    onSynthesisFinished();
                 }
             }
 
+            // Deprecated, but abstract: engines that predate the error-code overload call it.
             @Override
+            @SuppressWarnings("deprecation")
             public void onError(String utteranceId) {
                 Log.e(TAG, "TTS Synthesis failed for utterance: " + utteranceId);
+                onSynthesisAbandoned(utteranceId);
+            }
+
+            @Override
+            public void onError(String utteranceId, int errorCode) {
+                Log.e(TAG, "TTS Synthesis failed for utterance: " + utteranceId + " (error " + errorCode + ")");
+                onSynthesisAbandoned(utteranceId);
+            }
+
+            @Override
+            public void onStop(String utteranceId, boolean interrupted) {
+                // Flushed from the queue (another TTS client's QUEUE_FLUSH) or stopped: it
+                // will never report onDone, so count it as finished or packing never runs.
+                Log.w(TAG, "TTS synthesis stopped for utterance: " + utteranceId);
+                onSynthesisAbandoned(utteranceId);
             }
         });
 
         // Setup listener to track when SoundPool finishes decoding the PCM buffer
         soundPool.setOnLoadCompleteListener((soundPool, sampleId, status) -> {
+            String phrase = pendingLoads.remove(sampleId);
             if (status == 0) {
+                if (phrase != null) markReady(phrase);
                 // Periodically check memory growth as files load
                 printNativeMemoryFootprint();
             } else {
@@ -214,26 +831,215 @@ public class FastSpeechEngine {
         });
     }
 
+    /** A synthesis that will never complete: forget a dynamic one, count a target one as done. */
+    private void onSynthesisAbandoned(String utteranceId) {
+        if (utteranceId != null && utteranceId.startsWith(EngineConstants.DYNAMIC_UTT_PREFIX)) {
+            String phrase = utteranceId.substring(EngineConstants.DYNAMIC_UTT_PREFIX.length());
+            dynamicPending.remove(phrase);
+            dynamicFile(phrase).delete();
+        }
+        if (utteranceId != null && utteranceId.startsWith(EngineConstants.UTT_PREFIX)) {
+            onSynthesisFinished();
+        }
+    }
+
     private void loadIntoSoundPool(String phrase, File file) {
         // The '1' is the priority parameter, maintained for future Android compatibility
         int soundId = soundPool.load(file.getAbsolutePath(), 1);
+        pendingLoads.put(soundId, phrase);
         soundMap.put(phrase, soundId);
     }
 
-    public void speak(String text) {
-        if (soundMap.containsKey(text)) {
-            Integer soundId = soundMap.get(text);
-            if (soundId != null) {
-                // Play immediately from native RAM
-                // play(soundID, leftVolume, rightVolume, priority, loop, rate)
-                soundPool.play(soundId, 1.0f, 1.0f, 1, 0, 1.0f);
-                return;
+    /** Plays `text` from the cache; false (and silent) if it isn't ready yet. */
+    public boolean speakIfReady(String text) {
+        if (EngineConstants.CONCATENATIVE_MPH && speakConcatenated(text)) return true;
+
+        PhraseBank b = bank;
+        if (b != null && bankTrusted.contains(text)) {
+            short[] pcm = resident.get(text);
+            if (pcm != null) {
+                voiceFor(b.sampleRate()).play(pcm);
+                return true;
+            }
+            ShortBuffer slice = b.slice(text);
+            if (slice != null) {
+                // Cold: play straight from the mapping, and make it resident for next time.
+                voiceFor(b.sampleRate()).play(slice);
+                prefetchHandler.post(() -> {
+                    if (!resident.contains(text)) resident.put(text, b.read(text));
+                });
+                return true;
+            }
+        }
+
+        Integer soundId = soundMap.get(text);
+        if (soundId != null && readyPhrases.contains(text)) {
+            // Play immediately from native RAM
+            // play(soundID, leftVolume, rightVolume, priority, loop, rate)
+            soundPool.play(soundId, 1.0f, 1.0f, 1, 0, 1.0f);
+            lastOutputTrack = null;   // SoundPool exposes no timestamps
+            return true;
+        }
+
+        return !isCovered(text) && speakDynamic(text);
+    }
+
+    /** True if `text` is (or will be) served by the pre-rendered set rather than the dynamic cache. */
+    private boolean isCovered(String text) {
+        if (targetSet.contains(text)) return true;
+        if (!EngineConstants.CONCATENATIVE_MPH) return false;
+        int mph = SpeechAtoms.parseMph(text);
+        return mph >= 0 && SpeechAtoms.atomsFor(mph, SpeechAtoms.hasUnits(text),
+                new String[SpeechAtoms.MAX_ATOMS_PER_PHRASE]) > 0;
+    }
+
+    /**
+     * Plays a dynamic phrase from memory only. On a miss the prefetch thread loads its disk
+     * rendering (or queues one) for next time, so the caller's thread never touches storage.
+     */
+    private boolean speakDynamic(String text) {
+        if (text == null || text.isEmpty() || text.length() > EngineConstants.DYNAMIC_MAX_CHARS) return false;
+        short[] pcm = resident.get(EngineConstants.DYNAMIC_KEY_PREFIX + text);
+        Integer rate = dynamicRates.get(text);
+        if (pcm == null || rate == null) {
+            prefetchHandler.post(() -> loadDynamic(text));
+            return false;
+        }
+        voiceFor(rate).play(pcm);
+        prefetchHandler.post(() -> dynamicFile(text).setLastModified(System.currentTimeMillis()));
+        return true;
+    }
+
+    /** Prefetch thread: makes a dynamic phrase resident from disk, or queues its rendering. */
+    private void loadDynamic(String text) {
+        String key = EngineConstants.DYNAMIC_KEY_PREFIX + text;
+        if (resident.contains(key) && dynamicRates.containsKey(text)) return;
+        File file = dynamicFile(text);
+        if (!file.exists()) {
+            requestDynamic(text);
+            return;
+        }
+        try {
+            WavPcm wav = WavPcm.read(file);
+            dynamicRates.put(text, wav.sampleRate);
+            resident.put(key, PcmStitcher.trim(wav.toMonoSamples(), wav.sampleRate));
+        } catch (IOException e) {
+            Log.e(TAG, "Dropping unreadable dynamic phrase: " + file.getName(), e);
+            file.delete();
+        }
+    }
+
+    /** Queues a background rendering of a non-target phrase, once. */
+    private void requestDynamic(String text) {
+        if (text == null || text.isEmpty() || text.length() > EngineConstants.DYNAMIC_MAX_CHARS) return;
+        if (isCovered(text) || !dynamicPending.add(text)) return;
+        if (dynamicFile(text).exists()) {
+            dynamicPending.remove(text);
+            return;
+        }
+        Bundle params = new Bundle();
+        String utteranceId = EngineConstants.DYNAMIC_UTT_PREFIX + text;
+        params.putString(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, utteranceId);
+        if (tts.synthesizeToFile(text, params, dynamicFile(text), utteranceId) == TextToSpeech.ERROR) {
+            Log.e(TAG, "Failed to queue dynamic synthesis for: " + text);
+            dynamicPending.remove(text);
+        }
+    }
+
+    /** TTS callback thread: validates, admits to memory, then trims the disk cache. */
+    private void onDynamicRendered(String text) {
+        dynamicPending.remove(text);
+        File file = dynamicFile(text);
+        if (!isValidRendering(file)) {
+            Log.w(TAG, "Discarding truncated dynamic rendering of '" + text + "'");
+            file.delete();
+            return;
+        }
+        try {
+            WavPcm wav = WavPcm.read(file);
+            dynamicRates.put(text, wav.sampleRate);
+            resident.put(EngineConstants.DYNAMIC_KEY_PREFIX + text, PcmStitcher.trim(wav.toMonoSamples(), wav.sampleRate));
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to decode dynamic phrase: " + text, e);
+        }
+        dynamicRenders.incrementAndGet();
+        trimDynamicDir();
+    }
+
+    /** Deletes least-recently-played dynamic renderings beyond the file and byte caps. */
+    private void trimDynamicDir() {
+        File[] files = dynamicDir.listFiles();
+        if (files == null) return;
+        long bytes = 0;
+        for (File f : files) bytes += f.length();
+        if (files.length <= EngineConstants.DYNAMIC_MAX_FILES && bytes <= EngineConstants.DYNAMIC_MAX_BYTES) return;
+        java.util.Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        int count = files.length;
+        for (File f : files) {
+            if (count <= EngineConstants.DYNAMIC_MAX_FILES && bytes <= EngineConstants.DYNAMIC_MAX_BYTES) break;
+            bytes -= f.length();
+            if (f.delete()) {
+                count--;
+                dynamicDiskEvictions.incrementAndGet();
             }
         }
+    }
+
+    /** Filesystem-safe, collision-resistant name for arbitrary phrase text. */
+    private File dynamicFile(String text) {
+        String stem = text.toLowerCase(java.util.Locale.US).replaceAll("[^a-z0-9]+", "_");
+        if (stem.length() > 40) stem = stem.substring(0, 40);
+        java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        crc.update(text.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        return new File(dynamicDir, stem + "_" + Long.toHexString(crc.getValue()) + ".wav");
+    }
+
+    /** Spells an MPH phrase from atoms; false if it isn't one or an atom is missing. */
+    private boolean speakConcatenated(String text) {
+        int mph = SpeechAtoms.parseMph(text);
+        if (mph < 0) return false;
+        String[] names = new String[SpeechAtoms.MAX_ATOMS_PER_PHRASE];
+        int count = SpeechAtoms.atomsFor(mph, SpeechAtoms.hasUnits(text), names);
+        if (count == 0) return false;
+        int rate = atomSampleRate;
+        short[][] parts = new short[count][];
+        for (int i = 0; i < count; i++) {
+            parts[i] = pcmFor(names[i]);
+            if (parts[i] == null) return false;
+        }
+        // A pack at a new rate swapped in mid-collection: parts may mix rates.
+        if (rate != atomSampleRate) return false;
+        voiceFor(rate).play(PcmStitcher.stitch(parts, count, rate, EngineConstants.ATOM_GAP_MS));
+        return true;
+    }
+
+    /** Track the most recent successful speakIfReady() played on; null if SoundPool. */
+    public android.media.AudioTrack lastOutputTrack() {
+        return lastOutputTrack;
+    }
 
-        // Algorithmic Fallback: Phrase not in cache or still synthesizing
-        Log.w(TAG, "Cache miss for: '" + text + "'. Falling back to dynamic TTS.");
-        tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, null);
+    /**
+     * The shared streaming track, (re)created lazily at `rate`; every caller plays on it next.
+     * A voice replaced at a new rate is released on the prefetch thread once the new one is
+     * published: release() joins its feeder (up to 200 ms), which the audio thread must not
+     * wait for, and a caller that read the old voice just before the swap can still play.
+     */
+    private StreamingVoice voiceFor(int rate) {
+        StreamingVoice voice = streamingVoice;
+        if (voice == null || voice.sampleRate != rate) {
+            StreamingVoice retired = null;
+            synchronized (this) {
+                voice = streamingVoice;
+                if (voice == null || voice.sampleRate != rate) {
+                    retired = voice;
+                    voice = new StreamingVoice(rate);
+                    streamingVoice = voice;
+                }
+            }
+            if (retired != null) prefetchHandler.post(retired::release);
+        }
+        lastOutputTrack = voice.track();
+        return voice;
     }
 
     private String sanitizeFilename(String phrase) {
@@ -244,11 +1050,30 @@ public class FastSpeechEngine {
         long currentNativeMemory = Debug.getNativeHeapAllocatedSize();
         long diffBytes = currentNativeMemory - initialNativeMemory;
         double diffMb = diffBytes / (1024.0 * 1024.0);
-        Log.i(TAG, String.format("Native Heap Audio Overhead: %.2f MB", diffMb));
+        PhraseBank b = bank;
+        Log.i(TAG, String.format("Native Heap Audio Overhead: %.2f MB (%d SoundPool samples), bank %.2f MB mapped, %s",
+                diffMb, soundMap.size(), b == null ? 0.0 : b.sizeBytes() / (1024.0 * 1024.0), resident.statsLine()));
     }
 
     public void shutdown() {
+        readinessListener = null;
+        synchronized (mphHistory) {
+            if (unsavedSpeeds > 0) {
+                unsavedSpeeds = 0;
+                persistHistory(mphHistory.encode());
+            }
+        }
         soundPool.release();
         soundMap.clear();
+        pendingLoads.clear();
+        readyPhrases.clear();
+        StreamingVoice voice = streamingVoice;
+        streamingVoice = null;
+        if (voice != null) voice.release();
+        prefetchThread.quitSafely();
+        FileLogger.log(context, "[VOICE_CACHE] " + resident.statsLine());
+        resident.clear();
+        bank = null;
+        bankTrusted.clear();
     }
 }
\ No newline at end of file
@@ -13,48 +13,492 @@ What you are looking for in that log:
 •If you see SENT COMMAND: START_RECORDING followed immediately by IO Error
 or Connection dropped, the Orin is likely crashing.
 
-•If you see a long gap of RECV: STATUS_FRAMES... and then nothing,
+•If you see a long gap of RECV: STATUS_FRAMES... (one line per 10 s) and then nothing,
 but the phone still thinks it's recording, then Android's power management might
 be "sleeping" your background thread despite the locks.
  *******************************************************************/
 
 import android.content.Context;
+import android.os.Process;
 import android.util.Log;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
+/**
+ * File Logger - Algorithmic Overview
+ *
+ * Persistent app log (tgcontrol_logs.txt) written off the caller's thread. log() used
+ * to build a SimpleDateFormat, open a FileWriter in append mode, write one line and
+ * close the file on every call -- on the socket reader (every RECV: line) and the main
+ * thread. Now a call only captures the time and enqueues a record; one long-lived
+ * writer thread formats and writes them in batches to a file it keeps open.
+ *
+ * 1. INITIALIZATION:
+ * - Implicit: the first log() starts the "FileLogger" writer thread
+ *   (THREAD_PRIORITY_BACKGROUND) and installs a default uncaught-exception handler
+ *   that logs the crash with its stack trace, flush()es, then hands over to the
+ *   previous handler. It also starts the FlightRecorder, which dumps the previous
+ *   process's last activity.
+ *
+ * 2. CALLING PROCEDURE:
+ * - log(context, message[, throwable]) from any thread; never blocks, never does I/O
+ *   beyond the logcat echo.
+ * - flush() drains everything queued and forces it to the file, synchronously. Used
+ *   by the crash handler, before the log is shared, and from onDestroy().
+ * - clear(context) deletes the log (and every closed segment) through the writer, so
+ *   the open file handle is never left pointing at an unlinked file.
+ * - rotateSession(context) when a recording/tracking session starts: enqueues a marker,
+ *   so the active file is closed exactly between the records before and after it.
+ * - Categorized logging for the hot paths: log(context, category, level, message) and
+ *   the lazy log(context, category, level, () -> message), which builds the string only
+ *   if the category's threshold lets the line through. logSampled(..., key, intervalMs,
+ *   ...) additionally keeps at most one line per key per interval (STATUS_FRAMES).
+ *   isLoggable() guards anything costlier than a lambda. Plain log(context, message) is
+ *   category GENERAL at INFO, log(context, message, throwable) GENERAL at WARN. DEBUG is
+ *   for routine noise (AUDIO_DUPLICATE), hidden at the default INFO threshold.
+ * - Thresholds (DEBUG / INFO / WARN / OFF per category) and the full-payload switch are
+ *   read from SharedPreferences when the writer starts and changed at runtime by
+ *   SettingsActivity through setThreshold() / setFullPayloads(). Full payloads are off
+ *   by default: callers log a preview of multi-KB protocol lines unless
+ *   logFullPayloads() is true.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Bounded lock-free ring (CAPACITY records, power of two): each slot carries a
+ *   sequence number (AtomicLongArray) and producers claim slots by CAS on the enqueue
+ *   counter -- the classic bounded MPMC queue, so producers never take a lock. A full
+ *   ring drops the record and counts it; the writer logs "dropped N" when it catches up.
+ * - Producers wake the writer only when the ring is half full or the record carries
+ *   an error; otherwise it wakes every DRAIN_INTERVAL_MS, drains the whole ring into a
+ *   64 KB BufferedWriter, and flushes at most every FLUSH_INTERVAL_MS (immediately
+ *   after an error record). Worst case on a hard kill: about one flush interval lost.
+ * - Every line also goes to FlightRecorder, including String lines a threshold filters
+ *   out of the file (already built, so recording them costs only the copy); lazy lines
+ *   that are filtered out are never built, so they are not recorded.
+ * - Filtering happens on the caller's thread before anything is allocated or echoed:
+ *   one AtomicIntegerArray read. Sampling is a CAS on the key's next-allowed time; the
+ *   line that gets through carries the number suppressed since the previous one.
+ * - Timestamps are captured at log() time (currentTimeMillis) and formatted on the
+ *   writer with one cached SimpleDateFormat: the "yyyy-MM-dd HH:mm:ss." prefix is
+ *   reformatted once per second and the milliseconds appended -- same text as before.
+ * - Draining and writing happen under writeLock, which only consumers take (writer
+ *   thread, flush(), clear()); producers never see it.
+ * - Rotation: tgcontrol_logs.txt is always the active segment (so the Device Explorer
+ *   path below keeps working). At SEGMENT_MAX_BYTES or a session marker it is closed and
+ *   handed to LogSegments, which renames it into logs/ by time range, gzips it in the
+ *   background, applies retention and maintains logs/index.tsv.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Appends to <external files>/tgcontrol_logs.txt, in the original line format; closed
+ *   segments under <external files>/logs/.
+ *   Echoes every message that passes its category's threshold to logcat on the
+ *   caller's thread, as before.
+ */
 public class FileLogger {
     private static final String LOG_FILE_NAME = "tgcontrol_logs.txt";
+    private static final String TAG = "TGControl_Persistent";
 
-    // Standard log
+    static final int CAPACITY = 4096;           // power of two
+    private static final int MASK = CAPACITY - 1;
+    static final long DRAIN_INTERVAL_MS = 100;
+    static final long FLUSH_INTERVAL_MS = 1000;
+    private static final int WRITE_BUFFER_CHARS = 64 * 1024;
+    static final long SEGMENT_MAX_BYTES = 4L * 1024 * 1024;
+
+    public enum Category { GENERAL, TRANSPORT, PROTOCOL, AUDIO, UI, LATENCY }
+
+    public static final int DEBUG = 0;
+    public static final int INFO = 1;
+    public static final int WARN = 2;
+    public static final int OFF = 3;
+    static final String[] LEVEL_NAMES = {"Debug", "Info", "Warn", "Off"};
+    private static final int DEFAULT_THRESHOLD = INFO;
+
+    // Per-category threshold, indexed by ordinal; lines below it are dropped unbuilt.
+    private static final AtomicIntegerArray thresholds = new AtomicIntegerArray(Category.values().length);
+    private static volatile boolean fullPayloads;
+
+    private static final class Sampler {
+        final AtomicLong nextMs = new AtomicLong();
+        final AtomicInteger suppressed = new AtomicInteger();
+    }
+
+    private static final ConcurrentHashMap<String, Sampler> samplers = new ConcurrentHashMap<>();
+
+    private static final class Record {
+        final long timeMs;
+        final String message;   // for a rotation marker: the reason
+        final String error;     // throwable text, or null
+        final boolean rotate;   // marker: close the active segment here
+
+        Record(long timeMs, String message, String error) {
+            this(timeMs, message, error, false);
+        }
+
+        Record(long timeMs, String message, String error, boolean rotate) {
+            this.timeMs = timeMs;
+            this.message = message;
+            this.error = error;
+            this.rotate = rotate;
+        }
+    }
+
+    // --- Ring (lock-free, any thread) ---
+    private static final Record[] slots = new Record[CAPACITY];
+    private static final AtomicLongArray sequence = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong enqueuePos = new AtomicLong();
+    private static final AtomicLong dequeuePos = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) sequence.set(i, i);
+        for (int i = 0; i < thresholds.length(); i++) thresholds.set(i, DEFAULT_THRESHOLD);
+    }
+
+    private static volatile Context appContext;
+    private static volatile Thread writerThread;
+
+    // --- Consumer state, guarded by writeLock ---
+    private static final Object writeLock = new Object();
+    private static BufferedWriter writer;
+    private static long lastFlushMs;
+    private static long activeBytes;           // approximate: one byte per char
+    private static long activeStartMs = -1;    // first record in the active file
+    private static long activeEndMs = -1;      // last record written to it
+    private static final SimpleDateFormat secondFormat =
+            new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.", Locale.getDefault());
+    private static long cachedSecond = Long.MIN_VALUE;
+    private static String cachedPrefix = "";
+
+    // Standard log: category GENERAL, INFO (WARN with a throwable)
     public static void log(Context context, String message) {
         log(context, message, null);
     }
 
     public static void log(Context context, String message, Throwable throwable) {
-        String tag = "TGControl_Persistent";
+        if (isLoggable(Category.GENERAL, throwable == null ? INFO : WARN)) {
+            write(context, message, throwable);
+        } else {
+            FlightRecorder.record(message, throwable == null ? null : " -- " + throwable);
+        }
+    }
+
+    private static void write(Context context, String message, Throwable throwable) {
+        FlightRecorder.record(message, throwable == null ? null : " -- " + throwable);
         if (throwable != null) {
-            Log.e(tag, message, throwable);
+            Log.e(TAG, message, throwable);
         } else {
-            Log.d(tag, message);
+            Log.d(TAG, message);
+        }
+        if (writerThread == null) start(context);
+        enqueue(new Record(System.currentTimeMillis(), message,
+                throwable == null ? null : throwable.toString()));
+    }
+
+    public static boolean isLoggable(Category category, int level) {
+        return level >= thresholds.get(category.ordinal());
+    }
+
+    public static void log(Context context, Category category, int level, String message) {
+        if (isLoggable(category, level)) write(context, message, null);
+        else FlightRecorder.record(message);
+    }
+
+    /** Lazy form: {@code message} is only invoked if the line will be written. */
+    public static void log(Context context, Category category, int level, Supplier<String> message) {
+        if (isLoggable(category, level)) write(context, message.get(), null);
+    }
+
+    /**
+     * At most one line per {@code key} every {@code intervalMs}; the rest are counted, not
+     * built. The line that passes is suffixed with the count suppressed before it.
+     */
+    public static void logSampled(Context context, Category category, int level, String key,
+                                  long intervalMs, Supplier<String> message) {
+        if (!isLoggable(category, level)) return;
+        Sampler s = samplers.computeIfAbsent(key, k -> new Sampler());
+        long now = System.currentTimeMillis();
+        long next = s.nextMs.get();
+        if (now < next || !s.nextMs.compareAndSet(next, now + intervalMs)) {
+            s.suppressed.incrementAndGet();
+            return;
+        }
+        int skipped = s.suppressed.getAndSet(0);
+        String text = message.get();
+        write(context, skipped == 0 ? text : text + " (+" + skipped + " suppressed)", null);
+    }
+
+    /** Whether callers should log protocol payloads in full rather than a preview. */
+    public static boolean logFullPayloads() {
+        return fullPayloads;
+    }
+
+    public static void setThreshold(Category category, int level) {
+        thresholds.set(category.ordinal(), Math.max(DEBUG, Math.min(OFF, level)));
+    }
+
+    public static int threshold(Category category) {
+        return thresholds.get(category.ordinal());
+    }
+
+    public static void setFullPayloads(boolean enabled) {
+        fullPayloads = enabled;
+    }
+
+    static String thresholdKey(Category category) {
+        return SettingsActivity.KEY_LOG_LEVEL_PREFIX + category.name().toLowerCase(Locale.US);
+    }
+
+    private static void loadSettings(Context context) {
+        // The default preferences file SettingsActivity writes, opened by name: the
+        // android.preference.PreferenceManager accessor is deprecated.
+        android.content.SharedPreferences prefs = context.getSharedPreferences(
+                context.getPackageName() + "_preferences", Context.MODE_PRIVATE);
+        for (Category c : Category.values()) {
+            setThreshold(c, prefs.getInt(thresholdKey(c), DEFAULT_THRESHOLD));
         }
+        fullPayloads = prefs.getBoolean(SettingsActivity.KEY_LOG_FULL_PAYLOADS, false);
+    }
 
-        File logFile = new File(context.getExternalFilesDir(null), LOG_FILE_NAME);
-        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault()).format(new Date());
+    /** Drains the ring and forces everything to the file, on the calling thread. */
+    public static void flush() {
+        if (writerThread == null) return;
+        synchronized (writeLock) {
+            drainLocked(true);
+            flushLocked();
+        }
+    }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(logFile, true))) {
-            writer.append(timestamp).append(" : ").append(message);
-            if (throwable != null) {
-                writer.append(" | Error: ").append(throwable.toString());
+    /** Closes the active segment at this point in the log (a new session is starting). */
+    public static void rotateSession(Context context) {
+        if (writerThread == null) start(context);
+        enqueue(new Record(System.currentTimeMillis(), "session", null, true));
+    }
+
+    /** Deletes the log file, every closed segment, and anything still queued. */
+    public static void clear(Context context) {
+        if (writerThread == null) start(context);
+        synchronized (writeLock) {
+            drainLocked(false);
+            closeLocked();
+            File file = logFile();
+            if (file != null && file.exists() && !file.delete()) {
+                Log.e("FileLogger", "Failed to delete " + file);
+            }
+            activeBytes = 0;
+            activeStartMs = -1;
+            activeEndMs = -1;
+            if (file != null) LogSegments.deleteAll(file.getParentFile());
+        }
+    }
+
+    private static synchronized void start(Context context) {
+        if (writerThread != null) return;
+        appContext = context.getApplicationContext();
+        loadSettings(appContext);
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((t, e) -> {
+            FlightRecorder.record("FATAL: uncaught exception on thread " + t.getName() + " -- ", e.toString());
+            enqueue(new Record(System.currentTimeMillis(), "FATAL: uncaught exception on thread " + t.getName(),
+                    Log.getStackTraceString(e)));
+            flush();
+            if (previous != null) previous.uncaughtException(t, e);
+        });
+        Thread thread = new Thread(FileLogger::writeLoop, "FileLogger");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+        FlightRecorder.start(appContext);
+    }
+
+    private static void enqueue(Record r) {
+        long pos = enqueuePos.get();
+        int idx;
+        while (true) {
+            idx = (int) (pos & MASK);
+            long diff = sequence.get(idx) - pos;
+            if (diff == 0) {
+                if (enqueuePos.compareAndSet(pos, pos + 1)) break;
+            } else if (diff < 0) {
+                dropped.incrementAndGet();   // full: the writer is far behind
+                return;
+            } else {
+                pos = enqueuePos.get();
+            }
+        }
+        slots[idx] = r;
+        sequence.set(idx, pos + 1);           // publishes the slot
+        Thread w = writerThread;
+        if (w != null && (r.error != null || pos + 1 - dequeuePos.get() >= CAPACITY / 2)) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    private static Record poll() {
+        long pos = dequeuePos.get();
+        int idx;
+        while (true) {
+            idx = (int) (pos & MASK);
+            long diff = sequence.get(idx) - (pos + 1);
+            if (diff == 0) {
+                if (dequeuePos.compareAndSet(pos, pos + 1)) break;
+            } else if (diff < 0) {
+                return null;                  // empty
+            } else {
+                pos = dequeuePos.get();
             }
-            writer.newLine();
+        }
+        Record r = slots[idx];
+        slots[idx] = null;
+        sequence.set(idx, pos + CAPACITY);    // frees the slot for the next lap
+        return r;
+    }
+
+    private static void writeLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        File file = logFile();
+        if (file != null) LogSegments.compressPending(file.getParentFile());
+        while (true) {
+            synchronized (writeLock) {
+                boolean sawError = drainLocked(true);
+                if (sawError || System.currentTimeMillis() - lastFlushMs >= FLUSH_INTERVAL_MS) flushLocked();
+            }
+            LockSupport.parkNanos(DRAIN_INTERVAL_MS * 1_000_000L);
+        }
+    }
+
+    /** Moves every queued record into the writer (or discards it); true if one had an error. */
+    private static boolean drainLocked(boolean write) {
+        boolean sawError = false;
+        long lost = dropped.getAndSet(0);
+        if (lost > 0 && write) {
+            append(new Record(System.currentTimeMillis(), "FileLogger: dropped " + lost + " records (ring full)", null));
+        }
+        Record r;
+        while ((r = poll()) != null) {
+            if (!write) continue;
+            append(r);
+            if (r.error != null) sawError = true;
+        }
+        return sawError;
+    }
+
+    private static void append(Record r) {
+        if (r.rotate) {
+            rotateLocked(r.message);
+            return;
+        }
+        BufferedWriter w = openLocked();
+        if (w == null) return;
+        try {
+            String ts = timestamp(r.timeMs);
+            w.append(ts).append(" : ").append(r.message);
+            activeBytes += ts.length() + 3 + r.message.length() + 1;
+            if (r.error != null) {
+                w.append(" | Error: ").append(r.error);
+                activeBytes += 10 + r.error.length();
+            }
+            w.newLine();
+            if (activeStartMs < 0) activeStartMs = r.timeMs;
+            activeEndMs = r.timeMs;
         } catch (IOException e) {
             Log.e("FileLogger", "Failed to write log to file", e);
+            closeLocked();
+        }
+        if (activeBytes >= SEGMENT_MAX_BYTES) rotateLocked("size");
+    }
+
+    /** Closes the active file into a LogSegments segment; the next record starts a new one. */
+    private static void rotateLocked(String reason) {
+        File file = logFile();
+        if (file == null) return;
+        if (writer == null && (!file.exists() || file.length() == 0)) return;
+        flushLocked();
+        closeLocked();
+        long now = System.currentTimeMillis();
+        LogSegments.close(file, file.getParentFile(),
+                activeStartMs >= 0 ? activeStartMs : file.lastModified(), activeEndMs >= 0 ? activeEndMs : now);
+        activeBytes = 0;
+        activeStartMs = -1;
+        activeEndMs = -1;
+        append(new Record(now, "FileLogger: new segment (" + reason + ")", null));
+    }
+
+    private static String timestamp(long timeMs) {
+        long second = timeMs / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedPrefix = secondFormat.format(new Date(second * 1000));
         }
+        int millis = (int) (timeMs % 1000);
+        return cachedPrefix + (millis < 10 ? "00" : millis < 100 ? "0" : "") + millis;
+    }
+
+    private static BufferedWriter openLocked() {
+        if (writer != null) return writer;
+        File file = logFile();
+        if (file == null) return null;   // external storage unavailable; retried next record
+        try {
+            activeBytes = file.length();
+            activeStartMs = activeBytes > 0 ? firstTimestamp(file) : -1;
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file, true), StandardCharsets.UTF_8), WRITE_BUFFER_CHARS);
+        } catch (IOException e) {
+            Log.e("FileLogger", "Failed to open log file", e);
+        }
+        return writer;
+    }
+
+    /** Time of an existing file's first line (as written by timestamp()); -1 if unreadable. */
+    private static long firstTimestamp(File file) {
+        try (java.io.BufferedReader r = new java.io.BufferedReader(new java.io.FileReader(file))) {
+            String line = r.readLine();
+            if (line == null || line.length() < 23) return -1;
+            Date d = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault()).parse(line.substring(0, 23));
+            return d == null ? -1 : d.getTime();
+        } catch (IOException | java.text.ParseException e) {
+            return -1;
+        }
+    }
+
+    private static void flushLocked() {
+        lastFlushMs = System.currentTimeMillis();
+        if (writer == null) return;
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            Log.e("FileLogger", "Failed to flush log file", e);
+            closeLocked();
+        }
+    }
+
+    private static void closeLocked() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            Log.e("FileLogger", "Failed to close log file", e);
+        }
+        writer = null;
+    }
+
+    private static File logFile() {
+        Context ctx = appContext;
+        if (ctx == null) return null;
+        File dir = ctx.getExternalFilesDir(null);
+        return dir == null ? null : new File(dir, LOG_FILE_NAME);
     }
 }
@@ -0,0 +1,216 @@
+package com.murveit.tgcontrol;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flight Recorder - Algorithmic Overview
+ *
+ * Always-on, fixed-size circular record of the most recent log activity, kept in a
+ * memory-mapped file. The text log is filtered (FileLogger levels, STATUS_FRAMES
+ * sampling, payload previews) and batched, so the seconds before a crash, an ANR or a
+ * silent hang are exactly what it is least likely to hold. The recorder keeps those
+ * seconds at full fidelity: every FileLogger line, whatever its level, and every raw
+ * RECV line. Because the mapping is MAP_SHARED, what was written is in the kernel's
+ * page cache the moment the put returns and survives the process being killed.
+ *
+ * 1. INITIALIZATION:
+ * - start(context), called once per process by FileLogger when its writer starts. If a
+ *   previous process left a recording, it is renamed aside and dumped to text on a
+ *   background thread; a fresh SLOT_COUNT * SLOT_BYTES file is mapped for this process.
+ *
+ * 2. CALLING PROCEDURE:
+ * - record(text) / record(prefix, text) from any thread. A no-op before start().
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Slot layout (SLOT_BYTES, little-endian): long seq | long wallMs | u16 textLen |
+ *   u8 nameLen | pad | thread name (NAME_BYTES) | text (TEXT_BYTES, truncated).
+ * - A writer claims a sequence number with one getAndIncrement on an AtomicLong; the
+ *   slot is seq & (SLOT_COUNT - 1). No lock: two writers only meet in a slot if one
+ *   stalls for a whole lap of the ring.
+ * - seq is first set to -1 (slot invalid), then the fields are written, then seq --
+ *   so a slot torn by a crash mid-write is skipped by the dump, not misread.
+ * - Text is written char by char as bytes (non-ASCII becomes '?'): no encoder, no
+ *   allocation on the calling thread.
+ * - Dump: valid slots sorted by seq, one "time [thread] text" line each, into
+ *   <external files>/flight/flight_<time>.txt; the newest MAX_DUMPS are kept and
+ *   FileLogger gets a pointer line. A process that exits normally leaves its recording
+ *   too -- the next launch dumps it regardless; the files are small.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - <external files>/flight_recorder.bin (always SLOT_COUNT * SLOT_BYTES bytes) and
+ *   dumps under <external files>/flight/. Survives process death, not a kernel crash
+ *   or power loss (nothing is ever msync'd). Errors go to logcat.
+ */
+final class FlightRecorder {
+    private static final String TAG = "FlightRecorder";
+
+    static final int SLOT_BYTES = 256;
+    static final int SLOT_COUNT = 4096;       // power of two; 1 MB in total
+    private static final int MASK = SLOT_COUNT - 1;
+    static final int HEADER_BYTES = 24;
+    static final int NAME_BYTES = 16;
+    static final int TEXT_BYTES = SLOT_BYTES - HEADER_BYTES - NAME_BYTES;
+    static final String FILE_NAME = "flight_recorder.bin";
+    static final String DUMP_DIR = "flight";
+    private static final int MAX_DUMPS = 10;
+
+    private static volatile MappedByteBuffer map;
+    private static final AtomicLong nextSeq = new AtomicLong();
+
+    private FlightRecorder() {}
+
+    static synchronized void start(Context context) {
+        if (map != null) return;
+        File base = context.getExternalFilesDir(null);
+        if (base == null) base = context.getFilesDir();
+        File file = new File(base, FILE_NAME);
+        File previous = new File(base, FILE_NAME + ".prev");
+        if (file.exists() && (!previous.exists() || previous.delete()) && !file.renameTo(previous)) {
+            Log.e(TAG, "Cannot set aside " + file);
+        }
+        try {
+            map = mapFresh(file);
+        } catch (IOException e) {
+            Log.e(TAG, "Flight recorder unavailable", e);
+        }
+        if (previous.exists()) {
+            File dumpDir = new File(base, DUMP_DIR);
+            Thread t = new Thread(() -> {
+                File out = dumpPrevious(previous, dumpDir);
+                if (out != null) {
+                    FileLogger.log(context, "FlightRecorder: previous run's last activity saved to " + out.getName());
+                }
+            }, TAG);
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            t.start();
+        }
+    }
+
+    static void record(String text) {
+        record(null, text);
+    }
+
+    static void record(String prefix, String text) {
+        MappedByteBuffer m = map;
+        if (m != null) write(m, nextSeq.getAndIncrement(), System.currentTimeMillis(),
+                Thread.currentThread().getName(), prefix, text);
+    }
+
+    static MappedByteBuffer mapFresh(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.setLength((long) SLOT_COUNT * SLOT_BYTES);   // sparse, reads as zeros
+            MappedByteBuffer m = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+            m.order(ByteOrder.LITTLE_ENDIAN);
+            return m;   // the mapping outlives the channel
+        }
+    }
+
+    static void write(MappedByteBuffer m, long seq, long wallMs, String thread, String prefix, String text) {
+        int at = (int) (seq & MASK) * SLOT_BYTES;
+        m.putLong(at, -1L);
+        m.putLong(at + 8, wallMs);
+        int nameLen = putAscii(m, at + HEADER_BYTES, NAME_BYTES, thread, 0);
+        int textAt = at + HEADER_BYTES + NAME_BYTES;
+        int len = putAscii(m, textAt, TEXT_BYTES, prefix, 0);
+        len = putAscii(m, textAt, TEXT_BYTES, text, len);
+        m.putShort(at + 16, (short) len);
+        m.put(at + 18, (byte) nameLen);
+        m.putLong(at, seq);   // last: the slot is now valid
+    }
+
+    /** Writes s as ASCII at base+offset, up to limit bytes; returns the new offset. */
+    private static int putAscii(MappedByteBuffer m, int base, int limit, String s, int offset) {
+        if (s == null) return offset;
+        int n = Math.min(s.length(), limit - offset);
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            m.put(base + offset + i, c < 0x80 ? (byte) c : (byte) '?');
+        }
+        return offset + n;
+    }
+
+    /** Slots of a recording in sequence order, formatted; empty if none are valid. */
+    static List<String> readLines(File file) throws IOException {
+        List<long[]> order = new ArrayList<>();   // {seq, slot offset}
+        byte[] bytes;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            bytes = new byte[(int) Math.min(raf.length(), (long) SLOT_COUNT * SLOT_BYTES)];
+            raf.readFully(bytes);
+        }
+        java.nio.ByteBuffer b = java.nio.ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (int at = 0; at + SLOT_BYTES <= bytes.length; at += SLOT_BYTES) {
+            long seq = b.getLong(at);
+            // Never written (all zeros), torn (-1), or not this slot's sequence.
+            if (b.getLong(at + 8) == 0 || seq < 0 || (seq & MASK) != at / SLOT_BYTES) continue;
+            order.add(new long[]{seq, at});
+        }
+        order.sort((x, y) -> Long.compare(x[0], y[0]));
+        SimpleDateFormat f = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        List<String> lines = new ArrayList<>(order.size());
+        for (long[] o : order) {
+            int at = (int) o[1];
+            int textLen = Math.min(b.getShort(at + 16) & 0xFFFF, TEXT_BYTES);
+            int nameLen = Math.min(b.get(at + 18) & 0xFF, NAME_BYTES);
+            String name = new String(bytes, at + HEADER_BYTES, nameLen, StandardCharsets.US_ASCII);
+            String text = new String(bytes, at + HEADER_BYTES + NAME_BYTES, textLen, StandardCharsets.US_ASCII);
+            lines.add(f.format(new Date(b.getLong(at + 8))) + " [" + name + "] " + text);
+        }
+        return lines;
+    }
+
+    private static File dumpPrevious(File previous, File dumpDir) {
+        try {
+            List<String> lines = readLines(previous);
+            if (lines.isEmpty()) return null;
+            if (!dumpDir.isDirectory() && !dumpDir.mkdirs()) throw new IOException("Cannot create " + dumpDir);
+            String name = "flight_" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US)
+                    .format(new Date(previous.lastModified())) + ".txt";
+            File out = new File(dumpDir, name);
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8))) {
+                w.write("# Last " + lines.size() + " records before the previous process ended, oldest first\n");
+                for (String line : lines) {
+                    w.write(line);
+                    w.write('\n');
+                }
+            }
+            expireDumps(dumpDir);
+            return out;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to dump " + previous, e);
+            return null;
+        } finally {
+            if (!previous.delete()) Log.e(TAG, "Failed to delete " + previous);
+        }
+    }
+
+    private static void expireDumps(File dumpDir) {
+        File[] files = dumpDir.listFiles((d, n) -> n.startsWith("flight_") && n.endsWith(".txt"));
+        if (files == null || files.length <= MAX_DUMPS) return;
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        for (int i = 0; i < files.length - MAX_DUMPS; i++) {
+            if (!files[i].delete()) Log.e(TAG, "Failed to expire " + files[i]);
+        }
+    }
+}
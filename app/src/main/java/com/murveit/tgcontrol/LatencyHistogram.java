@@ -0,0 +1,103 @@
+package com.murveit.tgcontrol;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency Histogram - Algorithmic Overview
+ *
+ * Fixed-size, lock-free streaming histogram of microsecond latencies, in the style of
+ * HdrHistogram: constant memory and O(1) record() however many samples arrive, with
+ * percentiles accurate to a bounded relative error.
+ *
+ * 1. INITIALIZATION:
+ * - new LatencyHistogram(); one per stage per session (LatencyReport).
+ *
+ * 2. CALLING PROCEDURE:
+ * - record(us) from any thread; negative values (an unknown measurement) are ignored.
+ * - count(), percentileUs(p), maxUs(), meanUs() at any time; they see a consistent-enough
+ *   snapshot for reporting (each bucket is read once).
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Log-linear buckets: values below 2 * SUB_BUCKETS are exact; above that each power of
+ *   two is split into SUB_BUCKETS equal sub-buckets, so a bucket's width is at most
+ *   1/SUB_BUCKETS of its value (~3%). BUCKETS covers 0 .. 2^MAX_EXPONENT us (~19 h);
+ *   larger values land in the last bucket. Max, sum and count are tracked exactly.
+ * - index(v) = v for v < 64, else (e - 5) * 32 + (v >> (e - 5)) with e = floor(log2 v):
+ *   one numberOfLeadingZeros and a shift, no floating point.
+ * - percentileUs(p) walks the buckets to the p-th sample and reports that bucket's
+ *   midpoint (never above the exact max).
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - None. About 9 KB per histogram.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong(-1);
+
+    void record(long us) {
+        if (us < 0) return;
+        counts.incrementAndGet(index(us));
+        count.incrementAndGet();
+        sum.addAndGet(us);
+        long m;
+        while (us > (m = max.get()) && !max.compareAndSet(m, us)) {
+            // retry
+        }
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    long maxUs() {
+        return Math.max(0, max.get());
+    }
+
+    long meanUs() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    long percentileUs(double pct) {
+        long n = count.get();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(pct / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(midpoint(i), maxUs());
+        }
+        return maxUs();
+    }
+
+    static int index(long v) {
+        if (v < 2 * SUB_BUCKETS) return (int) v;
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        if (e > MAX_EXPONENT) return BUCKETS - 1;
+        int shift = e - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (v >> shift);
+    }
+
+    static long lowerBound(int index) {
+        if (index < 2 * SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index - (long) shift * SUB_BUCKETS;
+        return mantissa << shift;
+    }
+
+    private static long midpoint(int index) {
+        if (index < 2 * SUB_BUCKETS) return index;
+        long lo = lowerBound(index);
+        long width = 1L << (index / SUB_BUCKETS - 1);
+        return lo + width / 2;
+    }
+}
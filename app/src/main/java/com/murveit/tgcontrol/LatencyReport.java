@@ -0,0 +1,299 @@
+package com.murveit.tgcontrol;
+
+import android.content.Context;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Latency Report - Algorithmic Overview
+ *
+ * In-process aggregation of the latencies the [LATENCY] log lines describe one at a time:
+ * per stage, per session, a LatencyHistogram plus the worst samples. At the end of a
+ * session it renders a summary, compares it with earlier sessions of other app versions,
+ * and appends it to a history file, so a latency regression shows up as a flagged delta
+ * on the phone rather than in a log diff.
+ *
+ * 1. INITIALIZATION:
+ * - startSession() when recording/tracking starts (CommunicationService, alongside
+ *   SessionJournal). Samples recorded with no session open are dropped.
+ *
+ * 2. CALLING PROCEDURE:
+ * - record(stage, us, pointId) from the instrumentation points, any thread:
+ *     TRANSPORT           SessionState, JSON_RECEIVED transport_ms (server clock -> phone),
+ *                         keyed by bounce frame
+ *     AUDIO_RECEIVE_PLAY  AudioArbiter, socket receive -> play() returned
+ *     AUDIO_PLAY_SPEAKER  AudioLatencyMonitor, play() -> first frame presented
+ *     AUDIO_RECEIVE_SPEAKER
+ *     RENDER_RECEIVE_COLOR / RENDER_COLOR_VSYNC / RENDER_RECEIVE_VSYNC  MainActivity
+ * - finishSession(context) when the session ends: returns the summary text (null if
+ *   nothing was recorded) and writes history. export(context, text) writes the text to a
+ *   file for sharing.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - record() is a histogram update (lock-free) and a volatile read of the stage's outlier
+ *   floor; only a sample above the floor takes the stage's lock to enter the top
+ *   OUTLIER_COUNT, with its point id and wall time.
+ * - History: <external files>/latency/history.tsv, one "time version stage n p50 p90 p99
+ *   max" line per stage per session. The comparison baseline is the most recent
+ *   BASELINE_SESSIONS sessions of the newest *other* version, stage by stage; their median
+ *   p50 / p99 against this session's. A p50 or p99 worse by more than REGRESSION_PCT and
+ *   REGRESSION_MIN_US is marked "!".
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Files under <external files>/latency/. Summary shown once by MainActivity
+ *   (CommunicationService.getLatencyReportData()).
+ */
+final class LatencyReport {
+
+    enum Stage {
+        TRANSPORT("transport"),
+        AUDIO_RECEIVE_PLAY("audio receive->play"),
+        AUDIO_PLAY_SPEAKER("audio play->speaker"),
+        AUDIO_RECEIVE_SPEAKER("audio receive->speaker"),
+        RENDER_RECEIVE_COLOR("render receive->color"),
+        RENDER_COLOR_VSYNC("render color->vsync"),
+        RENDER_RECEIVE_VSYNC("render receive->vsync");
+
+        final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    static final String DIR_NAME = "latency";
+    static final String HISTORY_NAME = "history.tsv";
+    private static final int OUTLIER_COUNT = 5;
+    private static final int BASELINE_SESSIONS = 5;
+    private static final double REGRESSION_PCT = 20;
+    private static final long REGRESSION_MIN_US = 2000;
+
+    private static final class Outlier {
+        final long us;
+        final int pointId;
+        final long wallMs;
+
+        Outlier(long us, int pointId, long wallMs) {
+            this.us = us;
+            this.pointId = pointId;
+            this.wallMs = wallMs;
+        }
+    }
+
+    private static final class StageData {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final Outlier[] outliers = new Outlier[OUTLIER_COUNT];   // guarded by this, sorted desc
+        volatile long outlierFloor = -1;
+    }
+
+    private static final class Session {
+        final long startMs = System.currentTimeMillis();
+        final StageData[] stages = new StageData[Stage.values().length];
+
+        Session() {
+            for (int i = 0; i < stages.length; i++) stages[i] = new StageData();
+        }
+    }
+
+    private static volatile Session current;
+
+    private LatencyReport() {}
+
+    static void startSession() {
+        current = new Session();
+    }
+
+    /** pointId: the point / bounce frame the sample belongs to, or -1. */
+    static void record(Stage stage, long us, int pointId) {
+        Session s = current;
+        if (s == null || us < 0) return;
+        StageData d = s.stages[stage.ordinal()];
+        d.histogram.record(us);
+        if (us <= d.outlierFloor) return;
+        synchronized (d) {
+            Outlier[] o = d.outliers;
+            int i = OUTLIER_COUNT - 1;
+            if (o[i] != null && o[i].us >= us) return;
+            while (i > 0 && (o[i - 1] == null || o[i - 1].us < us)) {
+                o[i] = o[i - 1];
+                i--;
+            }
+            o[i] = new Outlier(us, pointId, System.currentTimeMillis());
+            if (o[OUTLIER_COUNT - 1] != null) d.outlierFloor = o[OUTLIER_COUNT - 1].us;
+        }
+    }
+
+    /** Ends the session: summary text, or null if nothing was recorded. Does file I/O. */
+    static String finishSession(Context context) {
+        Session s = current;
+        current = null;
+        if (s == null) return null;
+        boolean any = false;
+        for (StageData d : s.stages) any |= d.histogram.count() > 0;
+        if (!any) return null;
+
+        String version = appVersion(context);
+        File dir = dir(context);
+        List<String[]> history = dir == null ? new ArrayList<>() : readHistory(new File(dir, HISTORY_NAME));
+        String text = render(s, version, history);
+        if (dir != null) appendHistory(new File(dir, HISTORY_NAME), s, version);
+        FileLogger.log(context, FileLogger.Category.LATENCY, FileLogger.INFO, "[LATENCY] SESSION_REPORT\n" + text);
+        return text;
+    }
+
+    /** Writes a summary to latency/latency_<time>.txt; null on failure. */
+    static File export(Context context, String text) {
+        File dir = dir(context);
+        if (dir == null) return null;
+        String name = "latency_" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".txt";
+        File out = new File(dir, name);
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8)) {
+            w.write(text);
+            return out;
+        } catch (IOException e) {
+            FileLogger.log(context, "LatencyReport: export failed", e);
+            return null;
+        }
+    }
+
+    private static String render(Session s, String version, List<String[]> history) {
+        StringBuilder sb = new StringBuilder();
+        long now = System.currentTimeMillis();
+        sb.append(String.format(Locale.US, "Session %s, %.1f min, app %s%n",
+                new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US).format(new Date(s.startMs)),
+                (now - s.startMs) / 60000.0, version));
+        sb.append(String.format(Locale.US, "%-24s %6s %7s %7s %7s %7s  (ms)%n", "stage", "n", "p50", "p90", "p99", "max"));
+        String baselineVersion = baselineVersion(history, version);
+        StringBuilder deltas = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = s.stages[stage.ordinal()].histogram;
+            if (h.count() == 0) continue;
+            long p50 = h.percentileUs(50);
+            long p99 = h.percentileUs(99);
+            sb.append(String.format(Locale.US, "%-24s %6d %7.1f %7.1f %7.1f %7.1f%n", stage.label, h.count(),
+                    p50 / 1000.0, h.percentileUs(90) / 1000.0, p99 / 1000.0, h.maxUs() / 1000.0));
+            if (baselineVersion == null) continue;
+            long[] base = baseline(history, baselineVersion, stage);
+            if (base == null) continue;
+            deltas.append(delta(stage.label + " p50", p50, base[0]));
+            deltas.append(delta(stage.label + " p99", p99, base[1]));
+        }
+        if (deltas.length() > 0) {
+            sb.append("vs ").append(baselineVersion).append(" (median of last ")
+                    .append(BASELINE_SESSIONS).append(" sessions):\n").append(deltas);
+        }
+        SimpleDateFormat clock = new SimpleDateFormat("HH:mm:ss", Locale.US);
+        sb.append("Outliers:\n");
+        for (Stage stage : Stage.values()) {
+            StageData d = s.stages[stage.ordinal()];
+            synchronized (d) {
+                for (Outlier o : d.outliers) {
+                    if (o == null) break;
+                    sb.append(String.format(Locale.US, "  %-24s %8.1f ms at %s%s%n",
+                            stage.label, o.us / 1000.0, clock.format(new Date(o.wallMs)),
+                            o.pointId >= 0 ? " id=" + o.pointId : ""));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String delta(String label, long us, long baseUs) {
+        long diff = us - baseUs;
+        double pct = baseUs == 0 ? 0 : 100.0 * diff / baseUs;
+        boolean regression = diff > REGRESSION_MIN_US && pct > REGRESSION_PCT;
+        return String.format(Locale.US, "  %-28s %+7.1f ms (%+.0f%%)%s%n",
+                label, diff / 1000.0, pct, regression ? " !" : "");
+    }
+
+    /** Newest version in history other than this one, or null. */
+    private static String baselineVersion(List<String[]> history, String version) {
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (!history.get(i)[1].equals(version)) return history.get(i)[1];
+        }
+        return null;
+    }
+
+    /** {median p50, median p99} over that version's last BASELINE_SESSIONS sessions. */
+    private static long[] baseline(List<String[]> history, String version, Stage stage) {
+        long[] p50 = new long[BASELINE_SESSIONS];
+        long[] p99 = new long[BASELINE_SESSIONS];
+        int n = 0;
+        for (int i = history.size() - 1; i >= 0 && n < BASELINE_SESSIONS; i--) {
+            String[] row = history.get(i);
+            if (!row[1].equals(version) || !row[2].equals(stage.name())) continue;
+            try {
+                p50[n] = Long.parseLong(row[4]);
+                p99[n] = Long.parseLong(row[6]);
+                n++;
+            } catch (NumberFormatException ignored) {
+                // Damaged line.
+            }
+        }
+        if (n == 0) return null;
+        Arrays.sort(p50, 0, n);
+        Arrays.sort(p99, 0, n);
+        return new long[]{p50[n / 2], p99[n / 2]};
+    }
+
+    private static List<String[]> readHistory(File file) {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("#")) continue;
+                String[] cols = line.split("\t");
+                if (cols.length >= 8) rows.add(cols);
+            }
+        } catch (IOException e) {
+            // No history yet.
+        }
+        return rows;
+    }
+
+    private static void appendHistory(File file, Session s, String version) {
+        boolean fresh = !file.exists();
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            if (fresh) w.write("# start_ms\tversion\tstage\tn\tp50_us\tp90_us\tp99_us\tmax_us\n");
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram h = s.stages[stage.ordinal()].histogram;
+                if (h.count() == 0) continue;
+                w.write(s.startMs + "\t" + version + "\t" + stage.name() + "\t" + h.count()
+                        + "\t" + h.percentileUs(50) + "\t" + h.percentileUs(90) + "\t" + h.percentileUs(99)
+                        + "\t" + h.maxUs() + "\n");
+            }
+        } catch (IOException e) {
+            android.util.Log.e("LatencyReport", "Failed to append " + file, e);
+        }
+    }
+
+    private static File dir(Context context) {
+        File base = context.getExternalFilesDir(null);
+        if (base == null) return null;
+        File dir = new File(base, DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs()) return null;
+        return dir;
+    }
+
+    private static String appVersion(Context context) {
+        try {
+            String v = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionName;
+            return v == null ? "unknown" : v.replace('\t', ' ');
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
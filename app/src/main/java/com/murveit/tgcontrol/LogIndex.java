@@ -0,0 +1,270 @@
+package com.murveit.tgcontrol;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Log Index - Algorithmic Overview
+ *
+ * Random access by line number into a FileLogger text log of any size up to 2 GB,
+ * without reading it into the heap. Backs LogViewerActivity; no Android dependencies.
+ *
+ * 1. INITIALIZATION:
+ * - new LogIndex(file) maps the file read-only at its current size. Lines appended
+ *   later are not seen; open a new index to pick them up.
+ *
+ * 2. CALLING PROCEDURE:
+ * - build(cancel) on a worker thread. lineCount() grows while it runs, and line(i) /
+ *   timeKey(i) may be called from any thread for any i < lineCount() meanwhile.
+ * - firstAtOrAfter(timeKey) after build(): binary search for a time-range bound;
+ *   parseTimeInput() turns what the user typed into such a key.
+ * - search(needle, from, to, cancel, sink) on a worker: reports matching line numbers
+ *   in order, in batches.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Index = int[] of line-end offsets (the '\n' positions): line i is
+ *   [ends[i-1] + 1, ends[i]). Found by scanning the mapping in SCAN_CHUNK bulk copies;
+ *   4 bytes per line, ~12 MB for a 300 MB log. The array is published before the
+ *   count, so a reader that sees a count also sees the offsets behind it.
+ * - Time keys: FileLogger lines start "yyyy-MM-dd HH:mm:ss.SSS". The digits are read
+ *   straight from the mapping into a yyyyMMddHHmmssSSS long (no date parsing, no
+ *   time zone), which sorts chronologically. Lines without a timestamp take the key of
+ *   the nearest earlier line that has one, however far back, so the keys never decrease
+ *   and binary search is valid. build() records where each run of untimestamped lines
+ *   starts (a sparse int[], usually tiny: stack traces and wrapped messages); such a
+ *   line's key is that of the line just before its run, found by binary search.
+ * - Search: ASCII case-insensitive byte comparison within each line, straight on the
+ *   mapping; nothing is decoded unless it is displayed.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - None beyond the read-only mapping, released with the index by GC.
+ */
+final class LogIndex {
+
+    static final int MAX_LINE_BYTES = 4096;     // longer lines are cut for display
+    private static final int SCAN_CHUNK = 256 * 1024;
+    private static final int TIME_PREFIX = 23;  // "yyyy-MM-dd HH:mm:ss.SSS"
+    private static final Pattern TIME_INPUT =
+            Pattern.compile("\\s*(?:(\\d{4})-(\\d{2})-(\\d{2})\\s+)?(\\d{1,2}):(\\d{2})(?::(\\d{2}))?\\s*");
+
+    interface Cancel {
+        boolean isCancelled();
+    }
+
+    interface Sink {
+        void onMatches(int[] lines, int count, boolean done);
+    }
+
+    private final MappedByteBuffer map;
+    private final int size;
+    private volatile int[] ends = new int[1024];
+    private volatile int[] gaps = new int[16];  // first line of each untimestamped run
+    private volatile int gapCount;
+    private volatile int count;
+
+    LogIndex(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) throw new IOException("Log too large to map: " + length);
+            size = (int) length;
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    int sizeBytes() {
+        return size;
+    }
+
+    int lineCount() {
+        return count;
+    }
+
+    /** Indexes every line; false if cancelled first. */
+    boolean build(Cancel cancel) {
+        ByteBuffer in = map.duplicate();
+        byte[] chunk = new byte[SCAN_CHUNK];
+        int[] e = ends;
+        int n = 0;
+        boolean stamped = true;
+        for (int base = 0; base < size; base += SCAN_CHUNK) {
+            if (cancel.isCancelled()) return false;
+            int len = Math.min(SCAN_CHUNK, size - base);
+            in.position(base);
+            in.get(chunk, 0, len);
+            for (int i = 0; i < len; i++) {
+                if (chunk[i] != '\n') continue;
+                if (n == e.length) {
+                    e = Arrays.copyOf(e, e.length + (e.length >> 1));
+                    ends = e;
+                }
+                e[n] = base + i;
+                stamped = noteLine(e, n++, stamped);
+            }
+            count = n;
+        }
+        if (size > 0 && (n == 0 || e[n - 1] < size - 1)) {
+            // Trailing line with no newline (the writer hadn't finished it).
+            if (n == e.length) ends = e = Arrays.copyOf(e, n + 1);
+            e[n] = size;
+            noteLine(e, n++, stamped);
+            count = n;
+        }
+        return true;
+    }
+
+    /** Records line as the start of a gap if it is the first untimestamped one after a stamped one. */
+    private boolean noteLine(int[] e, int line, boolean prevStamped) {
+        boolean stamped = parseTime(start(e, line), e[line]) >= 0;
+        if (!stamped && prevStamped) {
+            int[] g = gaps;
+            int k = gapCount;
+            if (k == g.length) gaps = g = Arrays.copyOf(g, k * 2);
+            g[k] = line;
+            gapCount = k + 1;
+        }
+        return stamped;
+    }
+
+    private int start(int[] e, int line) {
+        return line == 0 ? 0 : e[line - 1] + 1;
+    }
+
+    String line(int line) {
+        int[] e = ends;
+        int from = start(e, line);
+        int to = e[line];
+        if (to > from && map.get(to - 1) == '\r') to--;
+        int len = Math.min(to - from, MAX_LINE_BYTES);
+        byte[] bytes = new byte[Math.max(0, len)];
+        ByteBuffer in = map.duplicate();
+        in.position(from);
+        in.get(bytes);
+        String s = new String(bytes, StandardCharsets.UTF_8);
+        return len < to - from ? s + " ..." : s;
+    }
+
+    /** yyyyMMddHHmmssSSS of the line, or of the nearest earlier timestamped line; -1 if none. */
+    long timeKey(int line) {
+        int[] e = ends;
+        long key = parseTime(start(e, line), e[line]);
+        if (key >= 0) return key;
+        // Untimestamped: the line before its run is the nearest one with a timestamp.
+        int[] g = gaps;
+        int lo = 0;
+        int hi = gapCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (g[mid] <= line) lo = mid + 1;
+            else hi = mid;
+        }
+        int anchor = lo == 0 ? -1 : g[lo - 1] - 1;
+        return anchor < 0 ? -1 : parseTime(start(e, anchor), e[anchor]);
+    }
+
+    /** First line whose time key is >= key (lineCount() if none). Call after build(). */
+    int firstAtOrAfter(long key) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeKey(mid) < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * "HH:mm[:ss]" (on the log's first day) or "yyyy-MM-dd HH:mm[:ss]" as a LogIndex time
+     * key; an end bound is rounded up to the end of its last unit. -1 if blank, -2 if bad.
+     */
+    static long parseTimeInput(String text, long firstKey, boolean end) {
+        if (text.trim().isEmpty()) return -1;
+        Matcher m = TIME_INPUT.matcher(text);
+        if (!m.matches()) return -2;
+        long date;
+        if (m.group(1) != null) {
+            date = Long.parseLong(m.group(1) + m.group(2) + m.group(3));
+        } else if (firstKey >= 0) {
+            date = firstKey / 1_000_000_000L;   // yyyyMMdd of the first line
+        } else {
+            return -2;
+        }
+        int hour = Integer.parseInt(m.group(4));
+        int minute = Integer.parseInt(m.group(5));
+        int second = m.group(6) != null ? Integer.parseInt(m.group(6)) : end ? 59 : 0;
+        int millis = end ? 999 : 0;
+        if (hour > 23 || minute > 59 || second > 59) return -2;
+        return (((date * 100 + hour) * 100 + minute) * 100 + second) * 1000 + millis;
+    }
+
+    /** Digits of "yyyy-MM-dd HH:mm:ss.SSS" at from, as one long; -1 if not a timestamp. */
+    private long parseTime(int from, int to) {
+        if (to - from < TIME_PREFIX) return -1;
+        long key = 0;
+        for (int i = 0; i < TIME_PREFIX; i++) {
+            byte b = map.get(from + i);
+            if (i == 4 || i == 7) {
+                if (b != '-') return -1;
+            } else if (i == 10) {
+                if (b != ' ') return -1;
+            } else if (i == 13 || i == 16) {
+                if (b != ':') return -1;
+            } else if (i == 19) {
+                if (b != '.') return -1;
+            } else {
+                if (b < '0' || b > '9') return -1;
+                key = key * 10 + (b - '0');
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Lines in [fromLine, toLine) containing needle (ASCII case-insensitive), reported to
+     * sink in batches of up to batch; the final call has done=true unless cancelled.
+     */
+    void search(String needle, int fromLine, int toLine, int batch, Cancel cancel, Sink sink) {
+        byte[] pat = needle.toLowerCase(java.util.Locale.US).getBytes(StandardCharsets.UTF_8);
+        int[] e = ends;
+        int[] out = new int[batch];
+        int n = 0;
+        for (int line = fromLine; line < toLine; line++) {
+            if ((line & 0xFFF) == 0 && cancel.isCancelled()) return;
+            if (contains(start(e, line), e[line], pat)) {
+                out[n++] = line;
+                if (n == batch) {
+                    sink.onMatches(out, n, false);
+                    out = new int[batch];
+                    n = 0;
+                }
+            }
+        }
+        if (!cancel.isCancelled()) sink.onMatches(out, n, true);
+    }
+
+    private boolean contains(int from, int to, byte[] pat) {
+        if (pat.length == 0) return true;
+        int last = to - pat.length;
+        byte first = pat[0];
+        for (int i = from; i <= last; i++) {
+            if (lower(map.get(i)) != first) continue;
+            int j = 1;
+            while (j < pat.length && lower(map.get(i + j)) == pat[j]) j++;
+            if (j == pat.length) return true;
+        }
+        return false;
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+}
@@ -0,0 +1,228 @@
+package com.murveit.tgcontrol;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Log Segments - Algorithmic Overview
+ *
+ * Closed pieces of tgcontrol_logs.txt. FileLogger's writer rotates the active file
+ * here by size and at each session start; this class names, compresses, indexes and
+ * expires them, so the log no longer grows without bound and "the log for 3pm today"
+ * is one small .gz found by its name or the index.
+ *
+ * 1. INITIALIZATION:
+ * - None. dir(filesDir) is <external files>/logs, created on first use.
+ *
+ * 2. CALLING PROCEDURE:
+ * - close(active, filesDir, startMs, endMs) on FileLogger's writer thread, with the
+ *   active file already closed: renames it into logs/ and queues compression.
+ * - compressPending(filesDir) once at writer start-up, for segments a crash or kill
+ *   left uncompressed.
+ * - tidy(filesDir): the same work synchronously, on the caller's thread.
+ * - deleteAll(filesDir) from FileLogger.clear().
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Name = "tgcontrol_<start>_<end>.txt[.gz]" in local time (yyyyMMdd-HHmmss), so
+ *   Device Explorer lists segments chronologically and a human can pick one by eye.
+ * - One background thread ("LogSegments", daemon) runs tidy(): gzip each .txt (stream
+ *   into .txt.gz.tmp, rename to .txt.gz, delete the .txt), then retention, then the
+ *   index -- in that order, so the index never names a deleted file.
+ * - Retention: newest segments are kept until RETAIN_MAX_BYTES of compressed data or
+ *   RETAIN_MAX_DAYS of age is exceeded; older ones are deleted.
+ * - index.tsv: one "start_ms<TAB>end_ms<TAB>file<TAB>bytes" line per segment, oldest
+ *   first, rebuilt from the names after every change (tmp + rename). The names
+ *   are the source of truth; the index is for tools reading the pulled directory.
+ * - Directory mutations (compress, retention, index, deleteAll) run under one lock.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Files under <external files>/logs. Errors go to logcat only: FileLogger's own
+ *   writer calls in here, so logging through it could recurse.
+ */
+final class LogSegments {
+    private static final String TAG = "LogSegments";
+    static final String DIR_NAME = "logs";
+    static final String INDEX_NAME = "index.tsv";
+    private static final String PREFIX = "tgcontrol_";
+    private static final String NAME_TIME = "yyyyMMdd-HHmmss";
+
+    static final long RETAIN_MAX_BYTES = 64L * 1024 * 1024;
+    static final int RETAIN_MAX_DAYS = 60;
+
+    private static final Object lock = new Object();
+    private static ExecutorService compressor;
+
+    private LogSegments() {}
+
+    static File dir(File filesDir) {
+        File dir = new File(filesDir, DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs()) Log.e(TAG, "Cannot create " + dir);
+        return dir;
+    }
+
+    /** Moves the (closed) active file into logs/ and queues its compression. */
+    static void close(File active, File filesDir, long startMs, long endMs) {
+        if (!active.exists() || active.length() == 0) return;
+        SimpleDateFormat f = new SimpleDateFormat(NAME_TIME, Locale.US);
+        String name = PREFIX + f.format(new Date(startMs)) + "_" + f.format(new Date(endMs)) + ".txt";
+        File target = new File(dir(filesDir), name);
+        // Two rotations within the same second: keep both rather than overwrite.
+        for (int i = 1; target.exists() || new File(target.getPath() + ".gz").exists(); i++) {
+            target = new File(dir(filesDir), name.replace(".txt", "-" + i + ".txt"));
+        }
+        if (!active.renameTo(target)) {
+            Log.e(TAG, "Failed to rotate " + active + " to " + target);
+            return;
+        }
+        compressPending(filesDir);
+    }
+
+    /** Queues compression of every uncompressed segment, then retention and the index. */
+    static void compressPending(File filesDir) {
+        synchronized (LogSegments.class) {
+            if (compressor == null) {
+                compressor = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "LogSegments");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+            }
+        }
+        compressor.execute(() -> tidy(filesDir));
+    }
+
+    /** Compresses, expires and re-indexes logs/ on the calling thread. */
+    static void tidy(File filesDir) {
+        synchronized (lock) {
+            File dir = dir(filesDir);
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    if (f.getName().startsWith(PREFIX) && f.getName().endsWith(".txt")) gzip(f);
+                }
+            }
+            applyRetention(dir);
+            writeIndex(dir);
+        }
+    }
+
+    static void deleteAll(File filesDir) {
+        synchronized (lock) {
+            File[] files = new File(filesDir, DIR_NAME).listFiles();
+            if (files == null) return;
+            for (File f : files) {
+                if (!f.delete()) Log.e(TAG, "Failed to delete " + f);
+            }
+        }
+    }
+
+    private static void gzip(File txt) {
+        File gz = new File(txt.getPath() + ".gz");
+        File tmp = new File(gz.getPath() + ".tmp");
+        byte[] buffer = new byte[64 * 1024];
+        try (FileInputStream in = new FileInputStream(txt);
+             FileOutputStream fos = new FileOutputStream(tmp);
+             GZIPOutputStream out = new GZIPOutputStream(fos, buffer.length)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) out.write(buffer, 0, n);
+            out.finish();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to compress " + txt, e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(gz)) {
+            Log.e(TAG, "Failed to finish " + gz);
+            tmp.delete();
+            return;
+        }
+        if (!txt.delete()) Log.e(TAG, "Failed to delete " + txt);
+    }
+
+    /** Segments in logs/, oldest first, with their parsed ranges; unparseable names skipped. */
+    private static List<long[]> ranges(File dir, List<File> filesOut) {
+        List<File> files = new ArrayList<>();
+        File[] all = dir.listFiles();
+        if (all != null) {
+            for (File f : all) {
+                String n = f.getName();
+                if (n.startsWith(PREFIX) && (n.endsWith(".txt") || n.endsWith(".txt.gz"))) files.add(f);
+            }
+        }
+        // Compare without the extension, so "x.txt.gz" sorts before its same-second "x-1.txt.gz".
+        Collections.sort(files, (a, b) -> stem(a).compareTo(stem(b)));
+        SimpleDateFormat f = new SimpleDateFormat(NAME_TIME, Locale.US);
+        List<long[]> out = new ArrayList<>();
+        for (File file : files) {
+            String[] parts = file.getName().substring(PREFIX.length()).split("[_.]");
+            if (parts.length < 2 || parts[1].length() < NAME_TIME.length()) continue;
+            try {
+                long start = f.parse(parts[0]).getTime();
+                // parts[1] may carry a "-N" same-second suffix after the time.
+                long end = f.parse(parts[1].substring(0, NAME_TIME.length())).getTime() + 999;
+                out.add(new long[]{start, end});
+                filesOut.add(file);
+            } catch (ParseException e) {
+                // Not one of ours.
+            }
+        }
+        return out;
+    }
+
+    private static String stem(File f) {
+        String n = f.getName();
+        return n.substring(0, n.indexOf(".txt"));
+    }
+
+    private static void applyRetention(File dir) {
+        List<File> files = new ArrayList<>();
+        List<long[]> ranges = ranges(dir, files);
+        long cutoff = System.currentTimeMillis() - RETAIN_MAX_DAYS * 24L * 3600 * 1000;
+        long kept = 0;
+        for (int i = files.size() - 1; i >= 0; i--) {
+            File f = files.get(i);
+            kept += f.length();
+            if (kept > RETAIN_MAX_BYTES || ranges.get(i)[1] < cutoff) {
+                if (!f.delete()) Log.e(TAG, "Failed to expire " + f);
+            }
+        }
+    }
+
+    private static void writeIndex(File dir) {
+        List<File> files = new ArrayList<>();
+        List<long[]> ranges = ranges(dir, files);
+        File index = new File(dir, INDEX_NAME);
+        File tmp = new File(dir, INDEX_NAME + ".tmp");
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            w.write("# start_ms\tend_ms\tfile\tbytes\n");
+            for (int i = 0; i < files.size(); i++) {
+                w.write(ranges.get(i)[0] + "\t" + ranges.get(i)[1] + "\t" + files.get(i).getName()
+                        + "\t" + files.get(i).length() + "\n");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write " + index, e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(index)) Log.e(TAG, "Failed to replace " + index);
+    }
+}
@@ -0,0 +1,351 @@
+package com.murveit.tgcontrol;
+
+/**
+ * Log Viewer Activity - Algorithmic Overview
+ *
+ * Reads the app's logs on the phone, so a problem can be diagnosed court-side without
+ * Android Studio's Device Explorer. Stays responsive on logs of hundreds of MB: nothing is
+ * read into the heap except the lines on screen.
+ *
+ * 1. INITIALIZATION:
+ * - Launched from Settings > View Logs. Flushes FileLogger, lists the current log, the
+ *   closed segments in logs/ (newest first) and flight-recorder dumps, and opens the first.
+ *
+ * 2. CALLING PROCEDURE:
+ * - Pick a file in the spinner; type in Search; enter From / To as HH:mm[:ss] (on the
+ *   log's first day) or yyyy-MM-dd HH:mm[:ss]. Filters apply LOG_FILTER_DEBOUNCE_MS after
+ *   the last keystroke.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - One worker thread does all file work. Opening: a .gz segment is first inflated into
+ *   the cache dir; then LogIndex maps the file and indexes line offsets. The list shows
+ *   lines as the index grows (refreshed every REFRESH_MS), so the head of a huge log is
+ *   readable immediately.
+ * - Time range: two binary searches over the index's timestamp keys -> [fromLine, toLine).
+ * - Search: a scan of [fromLine, toLine) on the worker; matches arrive in batches and are
+ *   appended to the list while the scan continues. A new keystroke or file bumps a
+ *   generation counter, which cancels the scan in flight.
+ * - The list is a ListView over line numbers; getView() decodes just that line from the
+ *   mapping. Rows are recycled, so the view count is bounded by the screen height.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Read-only on the logs. Inflated .gz copies live in the cache dir (one at a time).
+ */
+
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
+import android.widget.EditText;
+import android.widget.ListView;
+import android.widget.Spinner;
+import android.widget.TextView;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+public class LogViewerActivity extends AppCompatActivity {
+
+    private static final long LOG_FILTER_DEBOUNCE_MS = 250;
+    private static final long REFRESH_MS = 200;
+    private static final int MATCH_BATCH = 512;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "LogViewer");
+        t.setDaemon(true);
+        return t;
+    });
+    // Bumped to cancel work in flight: fileGen for an open/index, filterGen for a search.
+    private final AtomicInteger fileGen = new AtomicInteger();
+    private final AtomicInteger filterGen = new AtomicInteger();
+
+    private final List<File> files = new ArrayList<>();
+    private Spinner spnLogFile;
+    private EditText etSearch;
+    private EditText etFrom;
+    private EditText etTo;
+    private TextView tvStatus;
+    private ListView lvLines;
+    private final LinesAdapter adapter = new LinesAdapter();
+
+    // --- Main-thread view state ---
+    private LogIndex index;
+    private boolean indexed;
+    // Lines shown while indexing: a main-thread snapshot of index.lineCount(), since
+    // ListView requires getCount() to change only together with notifyDataSetChanged().
+    private int indexedSoFar;
+    private int fromLine;
+    private int toLine;
+    private String query = "";
+    private int[] matches = new int[0];
+    private int matchCount;
+    private boolean searching;
+
+    private final Runnable applyFilterRunnable = this::applyFilter;
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (index == null || indexed) return;
+            indexedSoFar = index.lineCount();
+            adapter.notifyDataSetChanged();
+            tvStatus.setText(String.format(Locale.US, "Indexing... %,d lines", indexedSoFar));
+            mainHandler.postDelayed(this, REFRESH_MS);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_log_viewer);
+
+        com.google.android.material.appbar.MaterialToolbar toolbar = findViewById(R.id.toolbar);
+        if (toolbar != null) {
+            toolbar.setNavigationOnClickListener(v -> finish());
+        }
+
+        spnLogFile = findViewById(R.id.spnLogFile);
+        etSearch = findViewById(R.id.etLogSearch);
+        etFrom = findViewById(R.id.etLogFrom);
+        etTo = findViewById(R.id.etLogTo);
+        tvStatus = findViewById(R.id.tvLogStatus);
+        lvLines = findViewById(R.id.lvLogLines);
+        lvLines.setAdapter(adapter);
+
+        FileLogger.flush();
+        listFiles();
+        List<String> names = new ArrayList<>();
+        for (File f : files) names.add(f.getName());
+        ArrayAdapter<String> fileAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, names);
+        fileAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spnLogFile.setAdapter(fileAdapter);
+        spnLogFile.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                open(files.get(position));
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+        if (files.isEmpty()) tvStatus.setText("No logs found");
+
+        TextWatcher filterWatcher = new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                mainHandler.removeCallbacks(applyFilterRunnable);
+                mainHandler.postDelayed(applyFilterRunnable, LOG_FILTER_DEBOUNCE_MS);
+            }
+        };
+        etSearch.addTextChangedListener(filterWatcher);
+        etFrom.addTextChangedListener(filterWatcher);
+        etTo.addTextChangedListener(filterWatcher);
+    }
+
+    @Override
+    protected void onDestroy() {
+        fileGen.incrementAndGet();
+        filterGen.incrementAndGet();
+        mainHandler.removeCallbacksAndMessages(null);
+        worker.shutdownNow();
+        super.onDestroy();
+    }
+
+    /** Current log, then closed segments and flight-recorder dumps, newest first. */
+    private void listFiles() {
+        File base = getExternalFilesDir(null);
+        if (base == null) return;
+        File current = new File(base, "tgcontrol_logs.txt");
+        if (current.exists()) files.add(current);
+        for (String dir : new String[]{LogSegments.DIR_NAME, FlightRecorder.DUMP_DIR}) {
+            File[] list = new File(base, dir).listFiles((d, n) -> n.endsWith(".txt") || n.endsWith(".txt.gz"));
+            if (list == null) continue;
+            Arrays.sort(list, (a, b) -> b.getName().compareTo(a.getName()));
+            files.addAll(Arrays.asList(list));
+        }
+    }
+
+    private void open(File file) {
+        int gen = fileGen.incrementAndGet();
+        filterGen.incrementAndGet();
+        index = null;
+        indexed = false;
+        indexedSoFar = 0;
+        resetMatches();
+        adapter.notifyDataSetChanged();
+        tvStatus.setText("Opening " + file.getName() + "...");
+        worker.execute(() -> {
+            try {
+                File source = file.getName().endsWith(".gz") ? inflate(file, gen) : file;
+                if (source == null || fileGen.get() != gen) return;
+                LogIndex idx = new LogIndex(source);
+                mainHandler.post(() -> {
+                    if (fileGen.get() != gen) return;
+                    index = idx;
+                    refreshRunnable.run();
+                });
+                if (!idx.build(() -> fileGen.get() != gen)) return;
+                mainHandler.post(() -> {
+                    if (fileGen.get() != gen) return;
+                    indexed = true;
+                    fromLine = 0;
+                    toLine = idx.lineCount();
+                    applyFilter();
+                });
+            } catch (IOException | RuntimeException e) {
+                FileLogger.log(this, "LogViewer: failed to open " + file.getName(), e);
+                mainHandler.post(() -> {
+                    if (fileGen.get() == gen) tvStatus.setText("Cannot open " + file.getName() + ": " + e.getMessage());
+                });
+            }
+        });
+    }
+
+    /** Inflates a .gz segment into the cache dir (worker thread); null if cancelled. */
+    private File inflate(File gz, int gen) throws IOException {
+        File out = new File(getCacheDir(), "logviewer.txt");
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new GZIPInputStream(new FileInputStream(gz), buffer.length);
+             OutputStream os = new FileOutputStream(out)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                if (fileGen.get() != gen) return null;
+                os.write(buffer, 0, n);
+            }
+        }
+        return out;
+    }
+
+    /** Re-derives the visible lines from the time range and search text. */
+    private void applyFilter() {
+        if (index == null || !indexed) return;
+        final LogIndex idx = index;
+        final String q = etSearch.getText().toString();
+        final String fromText = etFrom.getText().toString();
+        final String toText = etTo.getText().toString();
+        final int gen = filterGen.incrementAndGet();
+        query = q;
+        resetMatches();
+        searching = !q.isEmpty();
+        adapter.notifyDataSetChanged();
+        tvStatus.setText(searching ? "Searching..." : "Filtering...");
+        worker.execute(() -> {
+            long firstKey = idx.lineCount() == 0 ? -1 : idx.timeKey(0);
+            long fromKey = LogIndex.parseTimeInput(fromText, firstKey, false);
+            long toKey = LogIndex.parseTimeInput(toText, firstKey, true);
+            if (fromKey == -2 || toKey == -2) {
+                mainHandler.post(() -> {
+                    if (filterGen.get() == gen) tvStatus.setText("Times are HH:mm[:ss] or yyyy-MM-dd HH:mm[:ss]");
+                });
+                return;
+            }
+            int from = fromKey < 0 ? 0 : idx.firstAtOrAfter(fromKey);
+            int to = toKey < 0 ? idx.lineCount() : idx.firstAtOrAfter(toKey + 1);
+            int toClamped = Math.max(from, to);
+            mainHandler.post(() -> {
+                if (filterGen.get() != gen) return;
+                fromLine = from;
+                toLine = toClamped;
+                adapter.notifyDataSetChanged();
+                if (!searching) showSummary();
+            });
+            if (q.isEmpty()) return;
+            idx.search(q, from, toClamped, MATCH_BATCH, () -> filterGen.get() != gen,
+                    (lines, count, done) -> mainHandler.post(() -> {
+                        if (filterGen.get() != gen) return;
+                        appendMatches(lines, count);
+                        if (done) searching = false;
+                        adapter.notifyDataSetChanged();
+                        showSummary();
+                    }));
+        });
+    }
+
+    private void resetMatches() {
+        matches = new int[0];
+        matchCount = 0;
+        searching = false;
+    }
+
+    private void appendMatches(int[] lines, int count) {
+        if (matchCount + count > matches.length) {
+            matches = Arrays.copyOf(matches, Math.max(matchCount + count, matches.length * 2));
+        }
+        System.arraycopy(lines, 0, matches, matchCount, count);
+        matchCount += count;
+    }
+
+    private void showSummary() {
+        if (index == null) return;
+        int range = toLine - fromLine;
+        if (query.isEmpty()) {
+            tvStatus.setText(String.format(Locale.US, "%,d of %,d lines (%.1f MB)",
+                    range, index.lineCount(), index.sizeBytes() / (1024.0 * 1024.0)));
+        } else {
+            tvStatus.setText(String.format(Locale.US, "%s%,d matches in %,d lines",
+                    searching ? "Searching... " : "", matchCount, range));
+        }
+    }
+
+    /** Rows over line numbers: the range when not searching, else the matches so far. */
+    private final class LinesAdapter extends BaseAdapter {
+        @Override
+        public int getCount() {
+            if (index == null) return 0;
+            if (!query.isEmpty() && indexed) return matchCount;
+            return indexed ? toLine - fromLine : indexedSoFar;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return null;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            TextView tv = (TextView) convertView;
+            if (tv == null) {
+                tv = new TextView(LogViewerActivity.this);
+                tv.setTypeface(Typeface.MONOSPACE);
+                tv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 11);
+                int pad = (int) (2 * getResources().getDisplayMetrics().density);
+                tv.setPadding(pad, pad, pad, pad);
+            }
+            int line = !query.isEmpty() && indexed ? matches[position] : (indexed ? fromLine : 0) + position;
+            tv.setText(index.line(line));
+            return tv;
+        }
+    }
+}
@@ -7,7 +7,7 @@ package com.murveit.tgcontrol;
  *
  * 1. INITIALIZATION:
  * - Binds calibration checkmark ImageViews and mode selection buttons.
- * - Instantiates TextToSpeech and ToneGenerator engines to provide auditory user feedback.
+ * - Instantiates TextToSpeech and preloads the CallClipBank/ToneBank PCM banks to provide auditory user feedback.
  * - On creation or recreation (e.g., orientation changes), checks the persistent `CommunicationService` 
  * to see if an active socket exists. If so, it recovers the UI state seamlessly without dropping the connection.
  * - Sets default UI state to DISCONNECTED if no active connection is found.
@@ -22,23 +22,17 @@ package com.murveit.tgcontrol;
  * - Toggles checkmark visibility and dynamically manages `.setEnabled()` states on the tennis mode buttons, 
  * enforcing the algorithmic requirement that both cameras must be calibrated before play modes unlock.
  * - Intercepts "CALIBRATION_SAVED" to instantly query and update UI when returning from CalibrationActivity.
- * - JSON Interception: processTrackEventJson() handles TRACK_EVENT_JSON messages.
- *     SERVE_PRACTICE: updates scatter plot, stats (total/in count, avg MPH), and audio (MPH
- *       readout, "Fault"/"Let", or ToneGenerator beep for In serves).
- *     SINGLES/DOUBLES: speaks "Out"/"Fault"/"Let" via FastSpeechEngine if Voice Calls is on.
- *       Plays a double-beep (two sequential ToneGenerator tones) when End of Point Beeps is on
- *       and no voice call was spoken (terminal call is "In", or Voice Calls is off).
- *       Early audio from CommunicationService.tryPlayEarlyAudio() fires first on the network
- *       thread; lastEarlyAudioFiredMs timestamp suppresses duplicate speech here.
- * - In-Point Streaming: processInPointUpdate() handles POINT_UPDATE_JSON messages in
- *   SINGLES/DOUBLES mode. The payload is a full build_point_summary() dict (partial=true).
- *   Android always replaces its PointVectorView state (no merge). If stroke_count grew and
- *   In-Point Beeps is on, fires a single ToneGenerator beep for the new bounce.
- *   If the last stroke's call_str is Out/Fault/Let and Voice Calls is on, fires the
- *   pre-recorded WAV immediately — concurrent with the PointVectorView update. This
- *   eliminates the 0.5–1.0 s structural gap that occurs when waiting for TRACK_EVENT_JSON.
- *   lastInPointCallFired tracks whether audio already fired for this point so the
- *   TRACK_EVENT_JSON fallback path does not play the same call twice.
+ * - Session Processing: TRACK_EVENT_JSON, POINT_UPDATE_JSON, CALIBRATION_STATUS and
+ *   SYSTEM_STATE never parse on this thread. CommunicationService hands them straight to
+ *   SessionProcessor (a background HandlerThread running the SessionState machine: JSON
+ *   parsing, preference reads, point/serve derivation, voice/beep decisions and their
+ *   playback, FileLogger writes), which posts back an immutable SessionSnapshot per message.
+ *   bindSnapshot() only copies snapshot fields into views. User actions that change session
+ *   state (Start, Clear, entering a mode) are queued on the same processor so they stay
+ *   ordered with respect to in-flight messages.
+ *     SERVE_PRACTICE: scatter plot, stats (total/in count, avg MPH), "Last:" line + color flash.
+ *     SINGLES/DOUBLES: PointVectorView trajectory (full replacement per POINT_UPDATE_JSON),
+ *       point number and "Waiting for Serve"/"Point Active" status lines.
  * - Error Handling: Intercepts hardware-level watchdog timeouts from the server and displays
  *   blocking Alert Dialogs so the user knows exactly when a Jetson reboot is required.
  * - Visual Plotting: SERVE_PRACTICE uses ServeScatterView (half-court scatter of serve impacts).
@@ -55,8 +49,6 @@ import android.Manifest;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
-import android.media.AudioManager;
-import android.media.ToneGenerator;
 import android.net.ConnectivityManager;
 import android.net.Network;
 import android.net.NetworkCapabilities;
@@ -86,9 +78,7 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
@@ -129,10 +119,6 @@ public class MainActivity extends AppCompatActivity {
     private static final String MODE_SERVE_PRACTICE = "SERVE_PRACTICE";
     private static final String MODE_RALLY_PRACTICE = "RALLY_PRACTICE";
 
-    // --- Algorithmic Constants for Auditory Feedback ---
-    private static final int BEEP_VOLUME_MAX = 100;
-    private static final int HAPPY_BEEP_DURATION_MS = 150;
-
     // --- Algorithmic Constants for Client-Side Histogram Calculation ---
     private static final int HISTOGRAM_PIXEL_STRIDE = 5;
     private static final int HISTOGRAM_COLOR_BINS = 256;
@@ -165,6 +151,8 @@ public class MainActivity extends AppCompatActivity {
     private ImageButton btnPowerOff, btnSettings;
     private LinearLayout llHome, llHomeButtons, llRawRecording, llTennisMenu, llActiveTennis;
     private TextView tvHomeMessage, tvStatusLine1, tvStatusLine2;
+    private TextView tvVoiceCache;
+    private TextView tvAudioLatency;
     private Button btnGoRawRecording, btnGoTennis, btnStartRecording, btnCapturePhotos, btnStartTracking;
     private ImageView ivImage1, ivImage2, ivCheckLeft, ivCheckRight;
     private HistogramView histView1, histView2;
@@ -194,30 +182,11 @@ public class MainActivity extends AppCompatActivity {
     // SINGLES/DOUBLES point status lines
     private TextView tvPointStatus1;
     private TextView tvPointStatus2;
-    // Running point counter for the current session; shown as "N: " prefix on status line 2.
-    private int currentPointNumber = 0;
-    // True after TRACK_EVENT_JSON received; cleared when the next POINT_UPDATE_JSON arrives
-    // (signals the new point has started). Controls what the status lines display.
-    private boolean waitingForServe = false;
-    // Summary text for the "Waiting for Serve" state, built from the last POINT_UPDATE_JSON.
-    private String lastPointSummaryLine = "";
-    // In-point state for the "Point Active" status line.
-    private String inPointServeSide = "";   // "Deuce" or "Ad" from first stroke
-    private int inPointStrokeCount = 0;
-
-    // State Tracking for Serve Plotting
-    private List<ServeScatterView.ServeImpact> serveImpacts = new ArrayList<>();
-    private int totalServeCount = 0;
-    private int inServeCount = 0;
-    private double sumInMph = 0.0;
-    // Stroke count from the last received POINT_UPDATE_JSON; used to detect new bounces for beep.
-    private int lastKnownStrokeCount = 0;
-    // Call string (Out/Fault/Let) for which audio was already fired from processInPointUpdate;
-    // empty string means no audio has fired yet for the current point. Reset per point.
-    private String lastInPointCallFired = "";
-    // terminal_reason from the last POINT_UPDATE_JSON; used by processTrackEventJson to
-    // suppress voice for groundstroke net crashes ("Net Crash") and winners ("Double Bounce").
-    private String lastTerminalReason = "";
+    // Point number, serve side, stroke count, summary line and serve statistics are all
+    // derived off the main thread by sessionProcessor; the latest published snapshot is
+    // kept here for updatePointStatus() (which also runs from the 1 Hz spin-up tick).
+    private SessionProcessor sessionProcessor;
+    private SessionSnapshot lastSnapshot = SessionSnapshot.EMPTY;
     // True from the moment Start is pressed until the server signals it is active
     // (TRACK_EVENT: * Active).  Used to show "Spinning up. Ns" in the point status area.
     private boolean isSpinningUp = false;
@@ -263,7 +232,6 @@ public class MainActivity extends AppCompatActivity {
     
     // Hardware Audio Engines
     private TextToSpeech textToSpeech;
-    private ToneGenerator toneGenerator;
     private FastSpeechEngine fastSpeechEngine;
 
     @Override
@@ -273,22 +241,31 @@ public class MainActivity extends AppCompatActivity {
         
         // Prevent screen sleep to maintain TCP socket integrity during active tracking
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+
+        // Start decoding the line-call clips and rendering the beeps before the service (and
+        // the first call) exists.
+        CallClipBank.preload(this);
+        ToneBank.preload(this);
         
         requestNotificationPermission();
         mainHandler = new Handler(Looper.getMainLooper());
+        sessionProcessor = new SessionProcessor(this, mainHandler, this::bindSnapshot);
+        CommunicationService.setSessionProcessor(sessionProcessor);
         
         // Initialize Audio Engines
-        toneGenerator = new ToneGenerator(AudioManager.STREAM_MUSIC, BEEP_VOLUME_MAX);
+        AudioArbiter.get(this).setTonesArmed(true);
         textToSpeech = new TextToSpeech(this, status -> {
             if (status == TextToSpeech.SUCCESS) {
                 textToSpeech.setLanguage(Locale.US);
 
                 // Initialize the fast speech engine cache
                 fastSpeechEngine = new FastSpeechEngine(MainActivity.this, textToSpeech);
+                fastSpeechEngine.setReadinessListener(this::onVoiceCacheProgress);
                 fastSpeechEngine.initializeCache();
                 // Register for early audio: speech fires from the socket-reader background thread
-                // to bypass the ~194ms LiveData→UI-thread scheduling lag.
-                CommunicationService.setEarlyAudioEngine(fastSpeechEngine);
+                // to bypass the ~194ms LiveData→UI-thread scheduling lag. The arbiter serves the
+                // early path and SessionProcessor's cues alike.
+                AudioArbiter.get(MainActivity.this).setSpeechEngine(fastSpeechEngine);
             }
         });
         
@@ -312,6 +289,17 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /** FastSpeechEngine readiness: "Voice cache N%" until every phrase plays from cache. */
+    private void onVoiceCacheProgress(int ready, int total) {
+        if (tvVoiceCache == null) return;
+        if (total == 0 || ready >= total) {
+            tvVoiceCache.setVisibility(View.GONE);
+            return;
+        }
+        tvVoiceCache.setText("Voice cache " + (ready * 100 / total) + "%");
+        tvVoiceCache.setVisibility(View.VISIBLE);
+    }
+
     private void requestNotificationPermission() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             if (ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
@@ -332,6 +320,8 @@ public class MainActivity extends AppCompatActivity {
         llTennisMenu = findViewById(R.id.llTennisMenu);
         llActiveTennis = findViewById(R.id.llActiveTennis);
         tvHomeMessage = findViewById(R.id.tvHomeMessage);
+        tvVoiceCache = findViewById(R.id.tvVoiceCache);
+        tvAudioLatency = findViewById(R.id.tvAudioLatency);
         btnGoRawRecording = findViewById(R.id.btnGoRawRecording);
         btnGoTennis = findViewById(R.id.btnGoTennis);
         tvStatusLine1 = findViewById(R.id.tvStatus1);
@@ -463,7 +453,7 @@ public class MainActivity extends AppCompatActivity {
                         "{\"wall_clock\": \"Debug\", \"strike_type\": \"Hit\", \"call_str\": \"%s\", \"speed_mph\": %d.0, \"strike_x\": 0.0, \"strike_y\": 11.0, \"bounce_x\": %.1f, \"bounce_y\": %.1f}",
                         call, randomMph, randX, randY);
 
-                processTrackEventJson(fakeJson);
+                sessionProcessor.submit("TRACK_EVENT_JSON", fakeJson);
             });
         }
         
@@ -499,22 +489,9 @@ public class MainActivity extends AppCompatActivity {
 
         if (btnClearServes != null) {
             btnClearServes.setOnClickListener(v -> {
-                boolean isSD = MODE_SINGLES.equals(CommunicationService.activeTennisMode)
-                        || MODE_DOUBLES.equals(CommunicationService.activeTennisMode);
-                if (isSD) {
-                    FileLogger.log(this, "Clearing point vectors from plot");
-                    if (pointVectorView != null) pointVectorView.clearPoint();
-                    lastKnownStrokeCount = 0;
-                } else {
-                    FileLogger.log(this, "Clearing serves from plot");
-                    serveImpacts.clear();
-                    totalServeCount = 0;
-                    inServeCount = 0;
-                    sumInMph = 0.0;
-                    if (tvAvgMph != null) tvAvgMph.setText("0 serves, 0 In, -- MPH avg");
-                    if (serveScatterView != null) serveScatterView.setServes(serveImpacts);
-                    if (tvLastServe != null) tvLastServe.setText("Ready for serves");
-                }
+                // Vectors in SINGLES/DOUBLES, serves + stats otherwise; the cleared views
+                // arrive as a snapshot (see SessionState.clearPlot).
+                sessionProcessor.clearPlot();
                 if (tvTrackingLog != null) tvTrackingLog.setText("");
             });
         }
@@ -533,6 +510,11 @@ public class MainActivity extends AppCompatActivity {
                 SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(MainActivity.this);
                 boolean showDebug = prefs.getBoolean(SettingsActivity.KEY_DEBUG_AUDIO, false);
                 btnDebugAudio.setVisibility((newState == STATE_ACTIVE_TENNIS && showDebug) ? View.VISIBLE : View.GONE);
+                // Measured speaker latency per output device, alongside the debug-audio button.
+                boolean showLatency = newState == STATE_ACTIVE_TENNIS && showDebug && tvAudioLatency != null;
+                AudioArbiter.get(MainActivity.this).latencyMonitor()
+                        .setListener(showLatency ? tvAudioLatency::setText : null);
+                if (tvAudioLatency != null) tvAudioLatency.setVisibility(showLatency ? View.VISIBLE : View.GONE);
             }
 
             // Hide debugging status lines on Tennis pages to keep the UI clean
@@ -579,7 +561,7 @@ public class MainActivity extends AppCompatActivity {
                     else if (svTrackingLog != null) svTrackingLog.setVisibility(View.GONE);
 
                     if (btnToggleView != null) btnToggleView.setText("Log");
-                    lastKnownStrokeCount = 0;
+                    sessionProcessor.resetStrokeCount();
                 } else {
                     // Force the text log for all other modes (RALLY_PRACTICE, etc.)
                     if (btnToggleView != null) btnToggleView.setVisibility(View.GONE);
@@ -635,7 +617,7 @@ public class MainActivity extends AppCompatActivity {
             if ("WIFI_LOST".equals(status)) {
                 // Show overlay only while we have an active connection; ignore spurious callbacks.
                 if (isConnected) {
-                    FileLogger.log(this, "WiFi lost while connected. Showing disconnect overlay.");
+                    FileLogger.log(this, FileLogger.Category.UI, FileLogger.INFO, "WiFi lost while connected. Showing disconnect overlay.");
                     showDisconnectOverlay();
                 }
                 return;
@@ -644,7 +626,7 @@ public class MainActivity extends AppCompatActivity {
             if ("WIFI_RESTORED".equals(status)) {
                 // Reset isConnected so the upcoming "Connected" message from the re-established
                 // socket triggers GET_SYSTEM_STATE and restores the UI to the correct state.
-                FileLogger.log(this, "WiFi restored. Resetting isConnected for state re-query.");
+                FileLogger.log(this, FileLogger.Category.UI, FileLogger.INFO, "WiFi restored. Resetting isConnected for state re-query.");
                 isConnected = false;
                 hideDisconnectOverlay();
                 return;
@@ -664,25 +646,23 @@ public class MainActivity extends AppCompatActivity {
                         });
                     } else if (MODE_SINGLES.equals(CommunicationService.activeTennisMode)
                             || MODE_DOUBLES.equals(CommunicationService.activeTennisMode)) {
-                        // System is live: leave spinning-up state and wait for the first serve.
+                        // System is live: leave spinning-up state and wait for the first serve
+                        // (waitingForServe lives in SessionState; its snapshot redraws the lines).
                         mainHandler.post(() -> {
                             isSpinningUp = false;
                             stopSpinUpTimer();
-                            waitingForServe = true;
-                            updatePointStatus();
+                            sessionProcessor.onServerActive();
                         });
                     }
                 }
                 return;
             }
 
-            if ("TRACK_EVENT_JSON".equals(status)) {
-                processTrackEventJson(message);
-                return;
-            }
-
-            if ("POINT_UPDATE_JSON".equals(status)) {
-                processInPointUpdate(message);
+            // Normally submitted by CommunicationService directly; these only arrive here in
+            // the window before this activity's processor was registered.
+            if ("TRACK_EVENT_JSON".equals(status) || "POINT_UPDATE_JSON".equals(status)
+                    || "CALIBRATION_STATUS".equals(status) || "SYSTEM_STATE".equals(status)) {
+                sessionProcessor.submit(status, message);
                 return;
             }
 
@@ -691,16 +671,6 @@ public class MainActivity extends AppCompatActivity {
                 return;
             }
 
-            if ("CALIBRATION_STATUS".equals(status)) {
-                handleCalibrationStatus(message);
-                return;
-            }
-
-            if ("SYSTEM_STATE".equals(status)) {
-                handleSystemState(message);
-                return;
-            }
-
             if ("AUDIO_STATUS".equals(status)) {
                 // Nano reports whether its USB audio is ready: ok, no_usb_device, missing_files:..., etc.
                 final String audioStatus = message;
@@ -773,6 +743,12 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        CommunicationService.getLatencyReportData().observe(this, report -> {
+            if (report == null) return;
+            CommunicationService.consumeLatencyReport();
+            showLatencyReport(report);
+        });
+
         CommunicationService.getImageData().observe(this, imagePair -> {
             if (imagePair != null) {
                 boolean isLeft = "image1".equals(imagePair.second);
@@ -813,324 +789,120 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private void processTrackEventJson(String message) {
-        // Point ended: reset in-point stroke counter and call tracker so next point starts fresh.
-        // Save prevInPointCall before resetting: used below to suppress duplicate audio when
-        // processInPointUpdate already fired the voice call concurrently with the display update.
-        String prevInPointCall = lastInPointCallFired;
-        lastInPointCallFired = "";
-        lastTerminalReason = "";
-        lastKnownStrokeCount = 0;
-        // Do NOT clear the plot here — keep the last point's trajectory visible until the next
-        // serve is detected (first POINT_UPDATE_JSON of the new point). Transition to "Waiting".
-        waitingForServe = true;
-        mainHandler.post(this::updatePointStatus);
-        final long receiveMs = System.currentTimeMillis();
-        try {
-            org.json.JSONObject json = new org.json.JSONObject(message);
-            String wallClock = json.optString("wall_clock", "");
-            String strikeType = json.optString("strike_type", "Hit");
-
-            // Trim whitespace defensively so matching "In" is bulletproof
-            String callStr = json.optString("call_str", "Unknown").trim();
-
-            double mph = json.optDouble("speed_mph", 0.0);
-            double sX = json.optDouble("strike_x", 0.0);
-            double sY = json.optDouble("strike_y", 0.0);
-            double bX = json.optDouble("bounce_x", 0.0);
-            double bY = json.optDouble("bounce_y", 0.0);
-            String reason = json.optString("reason", "");
-            String sideStr = json.optString("side", "");
-
-            long serverSendMs = json.optLong("server_send_unix_ms", 0L);
-            final long transportMs = (serverSendMs > 0) ? (receiveMs - serverSendMs) : -1L;
-            FileLogger.log(this, String.format(Locale.US,
-                "[LATENCY] JSON_RECEIVED bounce_frame=%d server_send_ms=%d receive_ms=%d transport_ms=%d",
-                json.optInt("bounce_frame", -1), serverSendMs, receiveMs, transportMs));
-
-            FileLogger.log(this, String.format(Locale.US, "processTrackEvent: Type=%s, Call=%s, bX=%.2f, bY=%.2f, MPH=%.1f reason=%s", strikeType, callStr, bX, bY, mph, reason));
+    /** Binds one SessionSnapshot published by sessionProcessor. View updates only --
+     *  everything here was parsed and derived on the processor thread; see
+     *  SessionSnapshot for which sections each CHANGED_* flag covers. */
+    private void bindSnapshot(SessionSnapshot s) {
+        lastSnapshot = s;
+        if (s.changed(SessionSnapshot.CHANGED_TRACKING_LOG) && s.trackingLogLine != null) {
+            appendToTrackingLog(s.trackingLogLine);
+        }
+        if (s.changed(SessionSnapshot.CHANGED_POINT_VECTORS) && pointVectorView != null) {
+            pointVectorView.setPointData(s.pointEvents);
+        }
+        if (s.changed(SessionSnapshot.CHANGED_POINT_STATUS)) {
+            updatePointStatus();
+        }
+        if (s.changed(SessionSnapshot.CHANGED_SERVES)) {
+            bindServes(s);
+        }
+        if (s.changed(SessionSnapshot.CHANGED_CALIBRATION)) {
+            bindCalibrationStatus(s);
+        }
+        if (s.changed(SessionSnapshot.CHANGED_SYSTEM_STATE)) {
+            bindSystemState(s);
+        }
+    }
 
-            
-            if (strikeType.length() > 0) {
-                strikeType = strikeType.substring(0, 1).toUpperCase() + strikeType.substring(1);
-            }
-            
-            String timePrefix = wallClock.isEmpty() ? "" : wallClock + " ";
+    private void bindServes(SessionSnapshot s) {
+        if (serveScatterView != null) serveScatterView.setServes(s.serves);
+        if (tvAvgMph != null && s.servesSummaryText != null) tvAvgMph.setText(s.servesSummaryText);
+        if (tvLastServe == null || s.lastServeText == null) return;
+        tvLastServe.setText(s.lastServeText);
+        if (s.lastServeCall == null) return;
+
+        String callStr = s.lastServeCall;
+        if ("In".equalsIgnoreCase(callStr)) {
+            tvLastServe.setBackgroundColor(android.graphics.Color.parseColor("#00E676"));
+        } else if ("Out".equalsIgnoreCase(callStr) || "Fault".equalsIgnoreCase(callStr)) {
+            tvLastServe.setBackgroundColor(android.graphics.Color.parseColor("#FF1744"));
+        } else if ("Let".equalsIgnoreCase(callStr)) {
+            tvLastServe.setBackgroundColor(android.graphics.Color.parseColor("#FFEA00"));
+        }
 
-            // Customize by mode? Check if mph exists? Plot?
-            String formatted = String.format(Locale.US, "%s%s. %s. %.0fmph", 
-                                             timePrefix, strikeType, callStr, mph);
-            appendToTrackingLog(formatted);
-            
-            // --- SINGLES/DOUBLES AUDIO ---
-            boolean isSinglesDoubles = MODE_SINGLES.equals(CommunicationService.activeTennisMode)
-                    || MODE_DOUBLES.equals(CommunicationService.activeTennisMode);
-            if (isSinglesDoubles) {
-                SharedPreferences sdPrefs = PreferenceManager.getDefaultSharedPreferences(MainActivity.this);
-                boolean sdPlayVoice        = sdPrefs.getBoolean(SettingsActivity.KEY_VOICE_CALLS, false);
-                boolean sdEndOfPointBeeps  = sdPrefs.getBoolean(SettingsActivity.KEY_END_OF_POINT_BEEPS, false);
-
-                // Groundstroke net crash (Net Crash + Out) and winners (Double Bounce) are
-                // silent in SINGLES/DOUBLES — voice suppressed, double-beep only if enabled.
-                // lastTerminalReason was set by processInPointUpdate which arrives just before.
-                // Serve net crashes have call_str=Fault and are NOT suppressed.
-                // null terminal_reason + In call means winner with no confirmed terminal event
-                // (Double Bounce found only by finalize(), or unreturned ball) — also silent.
-                boolean suppressVoice = "Double Bounce".equals(lastTerminalReason)
-                        || ("Net Crash".equals(lastTerminalReason)
-                            && "Out".equalsIgnoreCase(callStr))
-                        || (lastTerminalReason.isEmpty() && "In".equalsIgnoreCase(callStr));
-
-                // Voice calls: Out/Fault/Let spoken if Voice Calls is on.
-                // Skip if processInPointUpdate already fired audio concurrently with the display
-                // update (prevInPointCall non-empty), or if tryPlayEarlyAudio fired on the network
-                // thread (lastEarlyAudioFiredMs within 500 ms). Fall back here only for the debug
-                // button path which bypasses both early-audio paths.
-                boolean earlyFired = !prevInPointCall.isEmpty()
-                        || (System.currentTimeMillis() - CommunicationService.lastEarlyAudioFiredMs) < 500;
-                if (!earlyFired && !suppressVoice && !CommunicationService.nanoAudioActive && fastSpeechEngine != null && sdPlayVoice) {
-                    if ("Out".equalsIgnoreCase(callStr)) {
-                        fastSpeechEngine.speak("Out");
-                    } else if ("Fault".equalsIgnoreCase(callStr)) {
-                        fastSpeechEngine.speak("Fault");
-                    } else if ("Let".equalsIgnoreCase(callStr)) {
-                        fastSpeechEngine.speak("Let");
-                    }
-                }
+        // receiveMs is stamped on the socket thread, so receive_to_color_ms now includes
+        // the processor queue and the main-thread post, not just this method.
+        final long receiveMs = s.receiveMs;
+        final long transportMs = s.transportMs;
+        final long colorSetMs = System.currentTimeMillis();
+        tvLastServe.post(() -> {
+            long vsyncMs = System.currentTimeMillis();
+            sessionProcessor.log(String.format(Locale.US,
+                "[LATENCY] RENDER_DONE transport_ms=%d receive_to_color_ms=%d color_to_vsync_ms=%d total_receive_to_vsync_ms=%d",
+                transportMs, colorSetMs - receiveMs, vsyncMs - colorSetMs, vsyncMs - receiveMs));
+            LatencyReport.record(LatencyReport.Stage.RENDER_RECEIVE_COLOR, (colorSetMs - receiveMs) * 1000, -1);
+            LatencyReport.record(LatencyReport.Stage.RENDER_COLOR_VSYNC, (vsyncMs - colorSetMs) * 1000, -1);
+            LatencyReport.record(LatencyReport.Stage.RENDER_RECEIVE_VSYNC, (vsyncMs - receiveMs) * 1000, -1);
+            SessionJournal.record(SessionJournal.RENDER_DONE, 0,
+                    (System.currentTimeMillis() - receiveMs) * 1_000_000L, "serves");
+        });
 
-                // End of Point Beeps: double-beep when no voice call was spoken.
-                // Fires for winners (In), groundstroke net crashes (suppressed Out),
-                // or when voice is off regardless of call.
-                boolean voiceSpoken = sdPlayVoice && !suppressVoice && ("Out".equalsIgnoreCase(callStr)
-                        || "Fault".equalsIgnoreCase(callStr) || "Let".equalsIgnoreCase(callStr));
-                if (!CommunicationService.nanoAudioActive && sdEndOfPointBeeps && !voiceSpoken
-                        && toneGenerator != null) {
-                    toneGenerator.startTone(ToneGenerator.TONE_PROP_PROMPT, HAPPY_BEEP_DURATION_MS);
-                    mainHandler.postDelayed(() -> {
-                        if (toneGenerator != null) {
-                            toneGenerator.startTone(ToneGenerator.TONE_PROP_PROMPT, HAPPY_BEEP_DURATION_MS);
-                        }
-                    }, HAPPY_BEEP_DURATION_MS + 100);
-                }
+        mainHandler.postDelayed(() -> {
+            if (tvLastServe != null) {
+                tvLastServe.setBackgroundColor(android.graphics.Color.TRANSPARENT);
             }
+        }, 1000);
+    }
 
-            // --- SERVE PRACTICE VISUALIZATION & AUDIO ---
-            if (MODE_SERVE_PRACTICE.equals(CommunicationService.activeTennisMode)) {
-                
-                // 1. Update Spatial Scatter Plot & Summary Text
-                if (bX != 0.0 || bY != 0.0) {
-                    FileLogger.log(this, "PLOTTING DOT AT: X=" + bX + " Y=" + bY);
-                    serveImpacts.add(new ServeScatterView.ServeImpact((float)bX, (float)bY, callStr));
-                    
-                    // Exclude "Let" from mathematical counts completely.
-                    if (!"Let".equalsIgnoreCase(callStr)) {
-                        totalServeCount++;
-                        
-                        // Explicitly isolate "In" averages from Let, Out, and Fault
-                        if ("In".equalsIgnoreCase(callStr)) {
-                            inServeCount++;
-                            if (mph > 0) {
-                                sumInMph += mph;
-                            }
-                        }
-                    }
-                    
-                    if (tvAvgMph != null) {
-                        String avgStr = "--";
-                        String pctStr = "";
-                        if (inServeCount > 0) {
-                            avgStr = String.format(Locale.US, "%.0f", (sumInMph / inServeCount));
-                            // Relying on totalServeCount implicitly being > 0 since inServeCount > 0
-                            pctStr = String.format(Locale.US, " %.0f%%", (inServeCount * 100.0 / totalServeCount));
-                        }
-                        tvAvgMph.setText(String.format(Locale.US, "%d serves, %d In%s, %s MPH avg", totalServeCount, inServeCount, pctStr, avgStr));
-                    }
-
-                    if (serveScatterView != null) {
-                        serveScatterView.setServes(serveImpacts);
-                    }
-                    
-                    // Update single-line summary above the plot
-                    String displaySideStr;
-                    if (!sideStr.isEmpty()) {
-                        displaySideStr = sideStr.endsWith("Court") ? sideStr : sideStr + " Court";
-                    } else {
-                        // Legacy fallback if the Jetson payload is missing the side attribute
-                        displaySideStr = bX > 0 ? "Ad Court" : "Deuce Court";
-                    }
-                    String lastServeStr = String.format(Locale.US, "Last: %s, %s, %.0f mph", displaySideStr, callStr, mph);
-                    if (tvLastServe != null) {
-                        tvLastServe.setText(lastServeStr);
-                        
-                        if ("In".equalsIgnoreCase(callStr)) {
-                            tvLastServe.setBackgroundColor(android.graphics.Color.parseColor("#00E676"));
-                        } else if ("Out".equalsIgnoreCase(callStr) || "Fault".equalsIgnoreCase(callStr)) {
-                            tvLastServe.setBackgroundColor(android.graphics.Color.parseColor("#FF1744"));
-                        } else if ("Let".equalsIgnoreCase(callStr)) {
-                            tvLastServe.setBackgroundColor(android.graphics.Color.parseColor("#FFEA00"));
-                        }
-
-                        final long colorSetMs = System.currentTimeMillis();
-                        tvLastServe.post(() -> FileLogger.log(MainActivity.this, String.format(Locale.US,
-                            "[LATENCY] RENDER_DONE transport_ms=%d receive_to_color_ms=%d color_to_vsync_ms=%d total_receive_to_vsync_ms=%d",
-                            transportMs, colorSetMs - receiveMs, System.currentTimeMillis() - colorSetMs,
-                            System.currentTimeMillis() - receiveMs)));
-
-                        mainHandler.postDelayed(() -> {
-                            if (tvLastServe != null) {
-                                tvLastServe.setBackgroundColor(android.graphics.Color.TRANSPARENT);
-                            }
-                        }, 1000);
-                    }
-                }
-
-                // 2. Audio Feedback
-                SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(MainActivity.this);
-                boolean playVoice = prefs.getBoolean(SettingsActivity.KEY_VOICE_CALLS, false);
-                String inServeAudio = prefs.getString(SettingsActivity.KEY_IN_SERVE_AUDIO, "mute");
-                // Only serves use the In-serve radio setting; non-serve In calls are always muted.
-                // A separate control for rally In calls is planned.
-                boolean isServeCall = "Serve".equalsIgnoreCase(strikeType);
-
-                // Speech is fired early from tryPlayEarlyAudio() on the network background thread.
-                // Fall back to here for the debug button and any path that bypasses the network,
-                // since those never trigger tryPlayEarlyAudio(). Skip if early audio already fired,
-                // or if the Nano is handling audio output directly.
-                boolean earlyAudioHandled =
-                        (System.currentTimeMillis() - CommunicationService.lastEarlyAudioFiredMs) < 500;
-                if (!earlyAudioHandled && !CommunicationService.nanoAudioActive && fastSpeechEngine != null) {
-                    if ("In".equalsIgnoreCase(callStr) && isServeCall && "mph".equals(inServeAudio) && playVoice) {
-                        int mphInt = (int) Math.round(mph);
-                        long now = System.currentTimeMillis();
-                        String ttsMphStr;
-                        if (now - CommunicationService.lastEarlySpokenMphTimeMs > CommunicationService.EARLY_AUDIO_MPH_COOLDOWN_MS) {
-                            ttsMphStr = mphInt + " miles per hour";
-                            CommunicationService.lastEarlySpokenMphTimeMs = now;
-                        } else {
-                            ttsMphStr = String.valueOf(mphInt);
-                        }
-                        fastSpeechEngine.speak(ttsMphStr);
-                    } else if (("Out".equalsIgnoreCase(callStr) || "Fault".equalsIgnoreCase(callStr)) && playVoice) {
-                        fastSpeechEngine.speak("Fault");
-                    } else if ("Let".equalsIgnoreCase(callStr) && playVoice) {
-                        fastSpeechEngine.speak("Let");
-                    }
-                }
-                // Beep for In serves (stays on main thread; mutually exclusive with speech)
-                if (!CommunicationService.nanoAudioActive && "beep".equals(inServeAudio) && playVoice
-                        && toneGenerator != null && "In".equalsIgnoreCase(callStr) && isServeCall) {
-                    toneGenerator.startTone(ToneGenerator.TONE_PROP_PROMPT, HAPPY_BEEP_DURATION_MS);
-                }
-            }
+    private void bindCalibrationStatus(SessionSnapshot s) {
+        isLeftCalibrated = s.leftCalibrated;
+        ivCheckLeft.setVisibility(s.leftCalibrated ? View.VISIBLE : View.GONE);
+        btnCalibrateLeft.setText("Calibrate Left");
+        if (!s.poseLeft.isEmpty()) {
+            tvPoseLeft.setText(s.poseLeft);
+            tvPoseLeft.setVisibility(View.VISIBLE);
+        } else {
+            tvPoseLeft.setVisibility(View.GONE);
+        }
 
-        } catch (Exception e) {
-            FileLogger.log(this, "JSON Parse Error", e);
+        isRightCalibrated = s.rightCalibrated;
+        ivCheckRight.setVisibility(s.rightCalibrated ? View.VISIBLE : View.GONE);
+        btnCalibrateRight.setText("Calibrate Right");
+        if (!s.poseRight.isEmpty()) {
+            tvPoseRight.setText(s.poseRight);
+            tvPoseRight.setVisibility(View.VISIBLE);
+        } else {
+            tvPoseRight.setVisibility(View.GONE);
         }
+        updateTennisModeButtonsState();
     }
 
-    private void handleCalibrationStatus(String data) {
-        // Expected format: "0=1,1=0"
-        mainHandler.post(() -> {
-            String[] parts = data.split(",");
-            for (String part : parts) {
-                String[] pair = part.split("=");
-                if (pair.length == 2) {
-                    String sensorId = pair[0];
-                    String valueAndPose = pair[1];
-                    String[] valParts = valueAndPose.split("\\|");
-                    
-                    boolean active = "1".equals(valParts[0]);
-                    String poseStr = valParts.length > 1 ? valParts[1] : "";
-                    
-                    if (SENSOR_ID_LEFT_STR.equals(sensorId)) {
-                        isLeftCalibrated = active;
-                        ivCheckLeft.setVisibility(active ? View.VISIBLE : View.GONE);
-                        if (active) {
-                            btnCalibrateLeft.setText("Calibrate Left");
-                            if (!poseStr.isEmpty()) {
-                                tvPoseLeft.setText(poseStr);
-                                tvPoseLeft.setVisibility(View.VISIBLE);
-                            } else {
-                                tvPoseLeft.setVisibility(View.GONE);
-                            }
-                        } else {
-                            btnCalibrateLeft.setText("Calibrate Left");
-                            tvPoseLeft.setVisibility(View.GONE);
-                        }
-                    }
-                    if (SENSOR_ID_RIGHT_STR.equals(sensorId)) {
-                        isRightCalibrated = active;
-                        ivCheckRight.setVisibility(active ? View.VISIBLE : View.GONE);
-                        if (active) {
-                            btnCalibrateRight.setText("Calibrate Right");
-                            if (!poseStr.isEmpty()) {
-                                tvPoseRight.setText(poseStr);
-                                tvPoseRight.setVisibility(View.VISIBLE);
-                            } else {
-                                tvPoseRight.setVisibility(View.GONE);
-                            }
-                        } else {
-                            btnCalibrateRight.setText("Calibrate Right");
-                            tvPoseRight.setVisibility(View.GONE);
-                        }
-                    }
-                }
-            }
-            updateTennisModeButtonsState();
-        });
-    }
-    
-    private void handleSystemState(String data) {
-        // Parse synchronously so any button press happening after this call sees correct flags.
-        // This avoids a race where the user presses the Start/Stop button before the
-        // mainHandler.post() below has run and updated isTracking.
-        String[] parts = data.split(",");
-        boolean serverTracking = false;
-        boolean serverRecording = false;
-        String serverMode = "";
-        for (String part : parts) {
-            String[] pair = part.split("=");
-            if (pair.length == 2) {
-                if ("TRACKING".equals(pair[0])) serverTracking = "1".equals(pair[1]);
-                if ("RECORDING".equals(pair[0])) serverRecording = "1".equals(pair[1]);
-                if ("MODE".equals(pair[0])) serverMode = pair[1];
-                if ("NANO_AUDIO".equals(pair[0])) CommunicationService.nanoAudioActive = "on".equals(pair[1]);
+    /** Routes the UI to match the server's physical state. CommunicationService's
+     *  isTracking/isRecording flags were already overwritten on the processor thread
+     *  the moment SYSTEM_STATE was parsed (see SessionProcessor.apply). */
+    private void bindSystemState(SessionSnapshot s) {
+        String serverMode = s.serverMode;
+        if (s.serverTracking && !serverMode.isEmpty() && !"NONE".equals(serverMode)) {
+            CommunicationService.activeTennisMode = serverMode;
+
+            String title = serverMode;
+            if (MODE_SINGLES.equals(serverMode)) title = "Singles Match";
+            else if (MODE_DOUBLES.equals(serverMode)) title = "Doubles Match";
+            else if (MODE_SERVE_PRACTICE.equals(serverMode)) title = "Serve Practice";
+            else if (MODE_RALLY_PRACTICE.equals(serverMode)) title = "Rally Practice";
+
+            startTennisModeUI(serverMode, title);
+            updateTrackingButtons(true);
+        } else if (s.serverRecording) {
+            switchState(STATE_RAW_RECORDING);
+            updateRecordingButtons(true);
+        } else {
+            // If the server is doing nothing, don't automatically force the Tennis Menu.
+            // Only step in and rescue the UI if it falsely thinks it is currently tracking/recording.
+            if (currentState == STATE_ACTIVE_TENNIS || currentState == STATE_RAW_RECORDING || currentState == STATE_DISCONNECTED) {
+                switchState(STATE_HOME);
             }
         }
-        // Overwrite Android local state immediately (we're already on the main thread
-        // via the LiveData observer, so this is safe and takes effect before any pending
-        // button-click handler that may be queued).
-        CommunicationService.isTracking = serverTracking;
-        CommunicationService.isRecording = serverRecording;
-
-        final boolean fServerTracking = serverTracking;
-        final boolean fServerRecording = serverRecording;
-        final String fServerMode = serverMode;
-
-        mainHandler.post(() -> {
-            // Route the UI to match the physical hardware state
-            if (fServerTracking && !fServerMode.isEmpty() && !"NONE".equals(fServerMode)) {
-                CommunicationService.activeTennisMode = fServerMode;
-
-                String title = fServerMode;
-                if (MODE_SINGLES.equals(fServerMode)) title = "Singles Match";
-                else if (MODE_DOUBLES.equals(fServerMode)) title = "Doubles Match";
-                else if (MODE_SERVE_PRACTICE.equals(fServerMode)) title = "Serve Practice";
-                else if (MODE_RALLY_PRACTICE.equals(fServerMode)) title = "Rally Practice";
-
-                startTennisModeUI(fServerMode, title);
-                updateTrackingButtons(true);
-            } else if (fServerRecording) {
-                switchState(STATE_RAW_RECORDING);
-                updateRecordingButtons(true);
-            } else {
-                // If the server is doing nothing, don't automatically force the Tennis Menu.
-                // Only step in and rescue the UI if it falsely thinks it is currently tracking/recording.
-                if (currentState == STATE_ACTIVE_TENNIS || currentState == STATE_RAW_RECORDING || currentState == STATE_DISCONNECTED) {
-                    switchState(STATE_HOME);
-                }
-            }
-        });
     }
 
     private void updateTennisModeButtonsState() {
@@ -1161,32 +933,22 @@ public class MainActivity extends AppCompatActivity {
     private void toggleTracking() {
         if (!CommunicationService.isTracking) {
             sessionRecording = cbRecordSession != null && cbRecordSession.isChecked();
-            FileLogger.log(this, "Start tracking pressed: mode=" + CommunicationService.activeTennisMode
+            FileLogger.log(this, FileLogger.Category.UI, FileLogger.INFO, "Start tracking pressed: mode=" + CommunicationService.activeTennisMode
                     + " recording=" + sessionRecording);
             CommunicationService.isTracking = true;
             updateTrackingButtons(true);
             tvTrackingLog.setText("");
             tvLiveTelemetry.setText(""); // Erase 1s stats line at startup
 
-            // Clear tracking visualization data specific to this session
-            serveImpacts.clear();
-            totalServeCount = 0;
-            inServeCount = 0;
-            sumInMph = 0.0;
+            // Clear serve statistics, the court plot and point-status state for the new
+            // session (on the processor thread; the cleared views arrive as a snapshot).
+            sessionProcessor.resetSession();
             // Show "Spinning up..." immediately in both plot status lines;
             // they will update to real values once the server signals Active.
             if (tvAvgMph != null) tvAvgMph.setText("Spinning up...");
-            if (serveScatterView != null) serveScatterView.setServes(serveImpacts);
             if (tvLastServe != null) tvLastServe.setText("");
-            // Clear the court plot and reset point-status state for the new session.
-            if (pointVectorView != null) pointVectorView.clearPoint();
             isSpinningUp = true;
             startSpinUpTimer();
-            waitingForServe = false;
-            lastPointSummaryLine = "";
-            inPointServeSide = "";
-            inPointStrokeCount = 0;
-            currentPointNumber = 0;
             updatePointStatus();
 
             SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
@@ -1194,7 +956,7 @@ public class MainActivity extends AppCompatActivity {
             sendCommand(buildStartTrackingCommand(CommunicationService.activeTennisMode));
             updateRecordingIndicator();
         } else {
-            FileLogger.log(this, "Stop tracking pressed");
+            FileLogger.log(this, FileLogger.Category.UI, FileLogger.INFO, "Stop tracking pressed");
             CommunicationService.isTracking = false;
             CommunicationService.nanoAudioActive = false;
             sendCommand(CMD_STOP_TRACKING);
@@ -1212,7 +974,7 @@ public class MainActivity extends AppCompatActivity {
             Button btnOverlayDisconnect = llDisconnectOverlay.findViewById(R.id.btnOverlayDisconnect);
             if (btnOverlayDisconnect != null) {
                 btnOverlayDisconnect.setOnClickListener(v -> {
-                    FileLogger.log(MainActivity.this, "User tapped Disconnect on overlay — cancelling grace period.");
+                    FileLogger.log(MainActivity.this, FileLogger.Category.UI, FileLogger.INFO, "User tapped Disconnect on overlay — cancelling grace period.");
                     disconnectFromServer();
                 });
             }
@@ -1246,19 +1008,15 @@ public class MainActivity extends AppCompatActivity {
         switchState(STATE_ACTIVE_TENNIS);
         // Sync button label to actual server tracking state.  This matters when the
         // user navigates here after reconnecting: isTracking was set correctly by
-        // handleSystemState but the button still shows the stale pre-disconnect label.
+        // the SYSTEM_STATE snapshot but the button still shows the stale pre-disconnect label.
         updateTrackingButtons(CommunicationService.isTracking);
         // If the server is not tracking, clear stale court graphics and point status
         // so the screen starts clean.  If it IS tracking we leave the display alone
         // (reconnect mid-point should preserve whatever is visible).
         if (!CommunicationService.isTracking) {
-            if (pointVectorView != null) pointVectorView.clearPoint();
+            sessionProcessor.resetPointState();
             isSpinningUp = false;
             stopSpinUpTimer();
-            waitingForServe = false;
-            lastPointSummaryLine = "";
-            inPointServeSide = "";
-            inPointStrokeCount = 0;
             updatePointStatus();
         }
     }
@@ -1300,7 +1058,7 @@ public class MainActivity extends AppCompatActivity {
             String newLabel = active ? "Stop" : "Start";
             String oldLabel = btnStartTracking.getText().toString();
             if (!newLabel.equals(oldLabel)) {
-                FileLogger.log(MainActivity.this, "Tracking button: '" + oldLabel + "' → '" + newLabel
+                FileLogger.log(MainActivity.this, FileLogger.Category.UI, FileLogger.INFO, "Tracking button: '" + oldLabel + "' → '" + newLabel
                         + "' (active=" + active + " mode=" + CommunicationService.activeTennisMode + ")");
             }
             btnStartTracking.setText(newLabel);
@@ -1350,14 +1108,12 @@ public class MainActivity extends AppCompatActivity {
             String spinText = elapsedSecs == 0 ? "Spinning up..." : "Spinning up. " + elapsedSecs + "s";
             tvPointStatus1.setText(spinText);
             tvPointStatus2.setText("");
-        } else if (waitingForServe) {
+        } else if (lastSnapshot.waitingForServe) {
             tvPointStatus1.setText("Waiting for Serve");
-            String s2 = currentPointNumber > 0 ? currentPointNumber + ": " + lastPointSummaryLine : lastPointSummaryLine;
-            tvPointStatus2.setText(s2);
+            tvPointStatus2.setText(withPointNumber(lastSnapshot.pointSummaryLine));
         } else {
             tvPointStatus1.setText("Point Active");
-            String s2 = currentPointNumber > 0 ? currentPointNumber + ": " + buildInPointStatusText() : buildInPointStatusText();
-            tvPointStatus2.setText(s2);
+            tvPointStatus2.setText(withPointNumber(lastSnapshot.inPointStatusText));
         }
     }
 
@@ -1372,7 +1128,7 @@ public class MainActivity extends AppCompatActivity {
         CommunicationService.isTracking = false;
         isSpinningUp = false;
         stopSpinUpTimer();
-        FileLogger.log(this, "Tracking error: " + line1);
+        FileLogger.log(this, FileLogger.Category.UI, FileLogger.WARN, "Tracking error: " + line1);
         mainHandler.post(() -> {
             updateTrackingButtons(false);
             updateRecordingIndicator();
@@ -1392,211 +1148,10 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    /** Build "Ad serve + 2 hits..." or "3 hits..." for the active-point status line. */
-    private String buildInPointStatusText() {
-        if (inPointStrokeCount == 0) return "";
-        StringBuilder sb = new StringBuilder();
-        if (!inPointServeSide.isEmpty()) {
-            sb.append(inPointServeSide).append(" serve");
-            int returns = inPointStrokeCount - 1;
-            if (returns == 1) sb.append(" + 1 hit");
-            else if (returns > 1) sb.append(" + ").append(returns).append(" hits");
-        } else {
-            sb.append(inPointStrokeCount).append(inPointStrokeCount == 1 ? " hit" : " hits");
-        }
-        sb.append("...");
-        return sb.toString();
-    }
-
-    /**
-     * Build "Deuce serve + N hits, Call, Left/Right wins" from the last POINT_UPDATE_JSON.
-     * Special case: strokeCount==1 (serve only) → "Deuce serve, Call" (no "1 hit").
-     * winner_side "north" → "Left", "south" → "Right".
-     */
-    private String buildPointSummaryLine(org.json.JSONObject json, org.json.JSONArray strokes) {
-        int strokeCount = json.optInt("stroke_count", 0);
-        String finalCall = json.optString("final_call", "");
-        String winnerSide = json.optString("winner_side", "");
-        if (strokeCount == 0) return "";
-
-        // Derive serve side from the first stroke; fall back to inPointServeSide if needed.
-        String serveSide = "";
-        if (strokes != null && strokes.length() > 0) {
-            try {
-                org.json.JSONObject first = strokes.getJSONObject(0);
-                if ("serve".equals(first.optString("type", ""))) {
-                    serveSide = first.optString("serve_side", "");
-                    if (serveSide.isEmpty()) {
-                        double hx = first.optDouble("x", 0.0);
-                        double hy = first.optDouble("y", 0.0);
-                        if (hy > 0) serveSide = hx < 0 ? "Deuce" : "Ad"; // North baseline
-                        else        serveSide = hx > 0 ? "Deuce" : "Ad"; // South baseline
-                    }
-                }
-            } catch (Exception ignored) {}
-        }
-        if (serveSide.isEmpty()) serveSide = inPointServeSide;
-
-        StringBuilder sb = new StringBuilder();
-        if (!serveSide.isEmpty()) {
-            sb.append(serveSide).append(" serve");
-            if (strokeCount > 1) {
-                int hits = strokeCount - 1;
-                sb.append(" + ").append(hits).append(hits == 1 ? " hit" : " hits");
-            }
-        } else {
-            sb.append(strokeCount).append(strokeCount == 1 ? " hit" : " hits");
-        }
-        if (!finalCall.isEmpty()) sb.append(", ").append(finalCall);
-        if ("north".equals(winnerSide)) sb.append(", Left wins");
-        else if ("south".equals(winnerSide)) sb.append(", Right wins");
-        return sb.toString();
-    }
-
-    private void processInPointUpdate(String message) {
-        boolean isSinglesDoubles = MODE_SINGLES.equals(CommunicationService.activeTennisMode)
-                || MODE_DOUBLES.equals(CommunicationService.activeTennisMode);
-        if (!isSinglesDoubles || pointVectorView == null) return;
-
-        try {
-            org.json.JSONObject json = new org.json.JSONObject(message);
-            int strokeCount = json.optInt("stroke_count", 0);
-            boolean hasPendingHit = json.optBoolean("has_pending_hit", false);
-            boolean partial = json.optBoolean("partial", true);
-            org.json.JSONArray strokes = json.optJSONArray("strokes");
-
-            // Always keep the summary line current; used for "Waiting for Serve" display.
-            // The final POINT_UPDATE_JSON (partial=false) from voice_ready has the complete picture.
-            lastPointSummaryLine = buildPointSummaryLine(json, strokes);
-
-            // On the first POINT_UPDATE_JSON after TRACK_EVENT_JSON, the new point has started:
-            // clear the previous point's trajectory and transition to "Point Active".
-            if (waitingForServe) {
-                if (pointVectorView != null) pointVectorView.clearPoint();
-                waitingForServe = false;
-                inPointServeSide = "";
-                inPointStrokeCount = 0;
-                currentPointNumber++;
-            }
-
-            // Extract serve side from the first stroke if it is a serve.
-            // Re-check on every update while still unset, since pending serves lack serve_side
-            // until the first resolved update arrives (or Python now includes it for pending serves).
-            // Fallback: if serve_side is absent from JSON, derive it from the hit x/y position
-            // using the same formula as engine_physics.calculate_metrics().
-            if (inPointServeSide.isEmpty() && strokes != null && strokes.length() > 0) {
-                try {
-                    org.json.JSONObject first = strokes.getJSONObject(0);
-                    if ("serve".equals(first.optString("type", ""))) {
-                        String ss = first.optString("serve_side", "");
-                        if (ss.isEmpty()) {
-                            double hx = first.optDouble("x", 0.0);
-                            double hy = first.optDouble("y", 0.0);
-                            if (hy > 0) ss = hx < 0 ? "Deuce" : "Ad"; // North baseline
-                            else        ss = hx > 0 ? "Deuce" : "Ad"; // South baseline
-                        }
-                        inPointServeSide = ss;
-                    }
-                } catch (Exception ignored) {}
-            }
-            // Include the pending hit in the count so the status matches the visual label shown.
-            inPointStrokeCount = strokeCount + (hasPendingHit ? 1 : 0);
-
-            java.util.List<PointVectorView.PointEvent> eventList = new java.util.ArrayList<>();
-            if (strokes != null) {
-                for (int i = 0; i < strokes.length(); i++) {
-                    org.json.JSONObject s = strokes.getJSONObject(i);
-                    float hx = (float) s.optDouble("x", 0.0);
-                    float hy = (float) s.optDouble("y", 0.0);
-                    boolean isPending = s.optBoolean("pending", false);
-                    float bx = 0f, by = 0f, b2x = 0f, b2y = 0f;
-                    if (!isPending) {
-                        org.json.JSONObject bounce = s.optJSONObject("bounce");
-                        bx = bounce != null ? (float) bounce.optDouble("x", 0.0) : 0f;
-                        by = bounce != null ? (float) bounce.optDouble("y", 0.0) : 0f;
-                        org.json.JSONObject bounce2 = s.optJSONObject("bounce2");
-                        if (bounce2 != null) {
-                            b2x = (float) bounce2.optDouble("x", 0.0);
-                            b2y = (float) bounce2.optDouble("y", 0.0);
-                        }
-                    }
-                    String call = s.optString("call_str", "In");
-                    String type = s.optString("type", "hit");
-                    PointVectorView.PointEvent pe = new PointVectorView.PointEvent(hx, hy, bx, by, call, type);
-                    pe.pending  = isPending;
-                    pe.bounce2X = b2x;
-                    pe.bounce2Y = b2y;
-                    eventList.add(pe);
-                }
-            }
-
-            pointVectorView.setPointData(eventList);
-            mainHandler.post(this::updatePointStatus);
-
-            // Track terminal_reason for use in processTrackEventJson (arrives shortly after).
-            // Groundstroke net crashes ("Net Crash" + call="Out") and winners ("Double Bounce")
-            // are silent in SINGLES/DOUBLES — voice suppressed, double-beep only if enabled.
-            lastTerminalReason = json.optString("terminal_reason", "");
-
-            // Voice audio: fire immediately when the last stroke resolves to a terminal call,
-            // concurrent with the PointVectorView update. This eliminates the structural 0.5–1.0 s
-            // gap that would occur if audio were deferred to TRACK_EVENT_JSON.
-            // Only fires once per point (lastInPointCallFired resets in processTrackEventJson).
-            if (lastInPointCallFired.isEmpty() && strokes != null && strokes.length() > 0) {
-                try {
-                    org.json.JSONObject lastStroke = strokes.getJSONObject(strokes.length() - 1);
-                    String lastCallStr = lastStroke.optString("call_str", "In").trim();
-                    SharedPreferences vPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-                    boolean playVoice = vPrefs.getBoolean(SettingsActivity.KEY_VOICE_CALLS, false);
-                    // Suppress voice for groundstroke net crash (Net Crash + Out) and winner
-                    // (Double Bounce); serve net crash has call_str=Fault and is NOT suppressed.
-                    // null terminal_reason + In means winner with no confirmed terminal event — also silent.
-                    boolean suppressVoice = "Double Bounce".equals(lastTerminalReason)
-                            || ("Net Crash".equals(lastTerminalReason)
-                                && "Out".equalsIgnoreCase(lastCallStr))
-                            || (lastTerminalReason.isEmpty() && "In".equalsIgnoreCase(lastCallStr));
-                    if (playVoice && !CommunicationService.nanoAudioActive && !suppressVoice) {
-                        if ("Out".equalsIgnoreCase(lastCallStr)) {
-                            lastInPointCallFired = lastCallStr;
-                            CommunicationService.lastEarlyAudioFiredMs = System.currentTimeMillis();
-                            playRawAudio(R.raw.out);
-                        } else if ("Fault".equalsIgnoreCase(lastCallStr)) {
-                            lastInPointCallFired = lastCallStr;
-                            CommunicationService.lastEarlyAudioFiredMs = System.currentTimeMillis();
-                            playRawAudio(R.raw.fault);
-                        } else if ("Let".equalsIgnoreCase(lastCallStr)) {
-                            lastInPointCallFired = lastCallStr;
-                            CommunicationService.lastEarlyAudioFiredMs = System.currentTimeMillis();
-                            playRawAudio(R.raw.let);
-                        }
-                    }
-                } catch (Exception ignored) {}
-            }
-
-            // In-Point Beep: single short beep when a new stroke is confirmed mid-rally
-            if (strokeCount > lastKnownStrokeCount) {
-                SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
-                boolean inCallsEnabled = prefs.getBoolean(SettingsActivity.KEY_IN_CALLS, false);
-                if (inCallsEnabled && !CommunicationService.nanoAudioActive && toneGenerator != null) {
-                    toneGenerator.startTone(ToneGenerator.TONE_PROP_BEEP, HAPPY_BEEP_DURATION_MS);
-                }
-            }
-            lastKnownStrokeCount = strokeCount;
-
-        } catch (Exception e) {
-            FileLogger.log(this, "processInPointUpdate parse error: " + e.getMessage());
-        }
-    }
-
-    private void playRawAudio(int resId) {
-        try {
-            android.media.MediaPlayer mp = android.media.MediaPlayer.create(this, resId);
-            if (mp == null) return;
-            mp.setOnCompletionListener(android.media.MediaPlayer::release);
-            mp.start();
-        } catch (Exception e) {
-            FileLogger.log(this, "playRawAudio error", e);
-        }
+    /** Prefixes the status line with "N: " once the session has a point number. */
+    private String withPointNumber(String text) {
+        int n = lastSnapshot.pointNumber;
+        return n > 0 ? n + ": " + text : text;
     }
 
     private void appendToTrackingLog(String text) {
@@ -1630,6 +1185,47 @@ public class MainActivity extends AppCompatActivity {
                 .show();
     }
 
+    /** End-of-session latency summary (LatencyReport); Export shares it as a text file. */
+    private void showLatencyReport(String report) {
+        TextView tv = new TextView(this);
+        tv.setText(report);
+        tv.setTypeface(android.graphics.Typeface.MONOSPACE);
+        tv.setTextSize(11);
+        tv.setHorizontallyScrolling(true);
+        int pad = (int) (16 * getResources().getDisplayMetrics().density);
+        tv.setPadding(pad, pad, pad, pad);
+        android.widget.HorizontalScrollView hsv = new android.widget.HorizontalScrollView(this);
+        hsv.addView(tv);
+        android.widget.ScrollView sv = new android.widget.ScrollView(this);
+        sv.addView(hsv);
+        new AlertDialog.Builder(this)
+                .setTitle("Session Latency")
+                .setView(sv)
+                .setPositiveButton("Close", null)
+                .setNeutralButton("Export", (dialog, which) -> exportLatencyReport(report))
+                .show();
+    }
+
+    private void exportLatencyReport(String report) {
+        java.io.File file = LatencyReport.export(this, report);
+        if (file == null) {
+            android.widget.Toast.makeText(this, "Failed to export latency report", android.widget.Toast.LENGTH_SHORT).show();
+            return;
+        }
+        try {
+            android.net.Uri contentUri = androidx.core.content.FileProvider.getUriForFile(
+                    this, "com.murveit.tgcontrol.fileprovider", file);
+            Intent intent = new Intent(Intent.ACTION_SEND);
+            intent.setType("text/plain");
+            intent.putExtra(Intent.EXTRA_SUBJECT, "TGControl Latency Report");
+            intent.putExtra(Intent.EXTRA_STREAM, contentUri);
+            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            startActivity(Intent.createChooser(intent, "Send latency report via..."));
+        } catch (Exception e) {
+            FileLogger.log(this, "Error sharing latency report", e);
+        }
+    }
+
     private void connectToServer() {
         Intent serviceIntent = new Intent(this, CommunicationService.class);
         serviceIntent.setAction(CommunicationService.ACTION_CONNECT);
@@ -1823,17 +1419,20 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         // Deregister early audio so the background thread doesn't play audio with no visible UI
-        CommunicationService.setEarlyAudioEngine(null);
+        AudioArbiter arbiter = AudioArbiter.get(this);
+        arbiter.setSpeechEngine(null);
+        arbiter.setTonesArmed(false);
+        arbiter.latencyMonitor().setListener(null);
+        CommunicationService.setSessionProcessor(null);
+        sessionProcessor.shutdown();
         if (textToSpeech != null) {
             textToSpeech.stop();
             textToSpeech.shutdown();
         }
-        if (toneGenerator != null) {
-            toneGenerator.release();
-        }
         if (fastSpeechEngine != null) {
             fastSpeechEngine.shutdown();
         }
+        FileLogger.flush();
         super.onDestroy();
     }    
 }
@@ -0,0 +1,96 @@
+package com.murveit.tgcontrol;
+
+/**
+ * MPH History - Algorithmic Overview
+ *
+ * Histogram of the serve speeds this player has actually had spoken, used by
+ * FastSpeechEngine to decide which phrases to synthesize first on a cold cache.
+ *
+ * 1. INITIALIZATION:
+ * - decode(String) from the engine's SharedPreferences entry (empty/garbled input
+ *   yields an empty history), or the no-arg constructor.
+ *
+ * 2. CALLING PROCEDURE:
+ * - record(mph) once per spoken speed; encode() to persist.
+ * - weight(mph) when ordering the synthesis queue; percentile(pct) for the hot
+ *   speed band FastSpeechEngine keeps resident.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - One int counter per speed 1..MAX_MPH. Out-of-range speeds are ignored.
+ * - weight() = observed count plus a small triangular prior centred on PRIOR_PEAK_MPH,
+ *   so a brand-new install still renders the 70-110 mph band (where most club serves
+ *   land) before 20 or 140 mph, and a few sessions of real data quickly dominate it.
+ * - Encoded as "mph:count,mph:count,..." for the non-zero bins only.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Pure data. Not thread-safe; FastSpeechEngine guards it.
+ */
+final class MphHistory {
+
+    static final int MAX_MPH = 199;
+    private static final int PRIOR_PEAK_MPH = 90;
+    private static final int PRIOR_HALF_WIDTH = 40;
+    private static final double PRIOR_PEAK_WEIGHT = 2.0;
+
+    private final int[] counts = new int[MAX_MPH + 1];
+    private int total;
+
+    void record(int mph) {
+        if (mph < 1 || mph > MAX_MPH) return;
+        counts[mph]++;
+        total++;
+    }
+
+    int total() {
+        return total;
+    }
+
+    /** Smallest speed at or below which `pct` percent of recorded speeds fall; 0 if empty. */
+    int percentile(int pct) {
+        if (total == 0) return 0;
+        long need = Math.max(1, ((long) total * pct + 99) / 100);
+        long seen = 0;
+        for (int mph = 1; mph <= MAX_MPH; mph++) {
+            seen += counts[mph];
+            if (seen >= need) return mph;
+        }
+        return MAX_MPH;
+    }
+
+    double weight(int mph) {
+        if (mph < 1 || mph > MAX_MPH) return 0;
+        int dist = Math.abs(mph - PRIOR_PEAK_MPH);
+        double prior = dist >= PRIOR_HALF_WIDTH ? 0
+                : PRIOR_PEAK_WEIGHT * (PRIOR_HALF_WIDTH - dist) / PRIOR_HALF_WIDTH;
+        return counts[mph] + prior;
+    }
+
+    String encode() {
+        StringBuilder sb = new StringBuilder();
+        for (int mph = 1; mph <= MAX_MPH; mph++) {
+            if (counts[mph] == 0) continue;
+            if (sb.length() > 0) sb.append(',');
+            sb.append(mph).append(':').append(counts[mph]);
+        }
+        return sb.toString();
+    }
+
+    static MphHistory decode(String encoded) {
+        MphHistory h = new MphHistory();
+        if (encoded == null || encoded.isEmpty()) return h;
+        for (String bin : encoded.split(",")) {
+            int colon = bin.indexOf(':');
+            if (colon <= 0) continue;
+            try {
+                int mph = Integer.parseInt(bin.substring(0, colon));
+                int count = Integer.parseInt(bin.substring(colon + 1));
+                if (mph < 1 || mph > MAX_MPH || count <= 0) continue;
+                h.counts[mph] += count;
+                h.total += count;
+            } catch (NumberFormatException ignored) {
+                // Skip the bin; a bad preference shouldn't cost the rest of the history.
+            }
+        }
+        return h;
+    }
+}
@@ -0,0 +1,233 @@
+package com.murveit.tgcontrol;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Phrase Bank - Algorithmic Overview
+ *
+ * One packed, indexed PCM file holding every phrase FastSpeechEngine has
+ * rendered, memory-mapped read-only at startup. Replaces one .wav file (and one
+ * SoundPool.load() native decode) per phrase with a single open + mmap; a phrase
+ * is played by handing its slice of the mapping straight to an AudioTrack.
+ *
+ * 1. INITIALIZATION:
+ * - write(file, sampleRate, entries) packs name -> mono PCM16 arrays (all at one
+ *   sample rate) into `file`, via a temp file and rename so a crash mid-write
+ *   never leaves a half bank in place.
+ * - open(file) maps it and parses the header table; IOException if the file is
+ *   missing, truncated, or not a bank.
+ *
+ * 2. CALLING PROCEDURE:
+ * - contains(name), slice(name) for a zero-copy ShortBuffer view of one phrase,
+ *   read(name) for a heap copy (stitched atoms), names(), sampleRate(), sizeBytes().
+ * - crc32(name) / crc32(pcm) checksum an entry's little-endian PCM bytes, for
+ *   PhraseManifest validation; both give the same value for the same samples.
+ * - Safe for concurrent readers: slice() hands out independent duplicates.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Layout, all little-endian:
+ *     "TGPB" | int version | int sampleRate | int entryCount
+ *     entryCount x ( u16 nameLength | UTF-8 name | int dataOffset | int sampleCount )
+ *     PCM16 data, each entry starting on a 2-byte boundary
+ * - open() bounds the entry count by what the file could hold, then validates every
+ *   offset/length against the file size before accepting the table, so a truncated
+ *   or damaged bank fails to open (IOException) instead of playing garbage.
+ * - The mapping is never explicitly unmapped (Java has no API for it); the GC
+ *   releases it once the last PhraseBank reference is dropped. Replacing the file
+ *   by rename leaves existing mappings valid.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - write() creates/replaces one file. open() maps it; pages fault in on first
+ *   playback and count as clean, evictable page cache rather than native heap.
+ */
+final class PhraseBank {
+
+    private static final int MAGIC = 0x42504754;   // "TGPB" little-endian
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int MIN_ENTRY_BYTES = 2 + 4 + 4;   // empty name, offset, count
+
+    private final MappedByteBuffer map;
+    private final int sampleRate;
+    private final Map<String, long[]> index;       // name -> {byte offset, sample count}
+
+    private PhraseBank(MappedByteBuffer map, int sampleRate, Map<String, long[]> index) {
+        this.map = map;
+        this.sampleRate = sampleRate;
+        this.index = index;
+    }
+
+    static PhraseBank open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) throw new IOException("Bad bank size " + size);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt(0) != MAGIC) throw new IOException("Not a phrase bank");
+            if (map.getInt(4) != VERSION) throw new IOException("Unsupported bank version " + map.getInt(4));
+            int sampleRate = map.getInt(8);
+            int count = map.getInt(12);
+            if (sampleRate <= 0 || count < 0 || count > (size - HEADER_BYTES) / MIN_ENTRY_BYTES) {
+                throw new IOException("Corrupt bank header");
+            }
+
+            Map<String, long[]> index = new HashMap<>(count * 2);
+            ByteBuffer header = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            header.position(HEADER_BYTES);
+            try {
+                for (int i = 0; i < count; i++) {
+                    int nameLen = header.getShort() & 0xFFFF;
+                    byte[] name = new byte[nameLen];
+                    header.get(name);
+                    long offset = header.getInt() & 0xFFFFFFFFL;
+                    long samples = header.getInt() & 0xFFFFFFFFL;
+                    if (offset < header.position() || offset + samples * 2 > size) {
+                        throw new IOException("Bank entry out of range");
+                    }
+                    index.put(new String(name, StandardCharsets.UTF_8), new long[]{offset, samples});
+                }
+            } catch (java.nio.BufferUnderflowException e) {
+                throw new IOException("Truncated bank header", e);
+            }
+            return new PhraseBank(map, sampleRate, index);
+        }
+    }
+
+    static void write(File file, int sampleRate, Map<String, short[]> entries) throws IOException {
+        int tableBytes = 0;
+        byte[][] names = new byte[entries.size()][];
+        int i = 0;
+        for (String name : entries.keySet()) {
+            names[i] = name.getBytes(StandardCharsets.UTF_8);
+            tableBytes += 2 + names[i].length + 8;
+            i++;
+        }
+        int dataStart = HEADER_BYTES + tableBytes;
+        dataStart += dataStart & 1;
+
+        ByteBuffer header = ByteBuffer.allocate(dataStart).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(sampleRate).putInt(entries.size());
+        long offset = dataStart;
+        i = 0;
+        for (short[] pcm : entries.values()) {
+            header.putShort((short) names[i].length).put(names[i]);
+            header.putInt((int) offset).putInt(pcm.length);
+            offset += pcm.length * 2L;
+            i++;
+        }
+        if (offset > Integer.MAX_VALUE) throw new IOException("Bank too large: " + offset);
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp);
+             FileChannel channel = out.getChannel()) {
+            header.rewind();
+            while (header.hasRemaining()) channel.write(header);
+            ByteBuffer data = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            for (short[] pcm : entries.values()) {
+                for (short s : pcm) {
+                    if (!data.hasRemaining()) {
+                        data.flip();
+                        while (data.hasRemaining()) channel.write(data);
+                        data.clear();
+                    }
+                    data.putShort(s);
+                }
+            }
+            data.flip();
+            while (data.hasRemaining()) channel.write(data);
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    int sampleRate() {
+        return sampleRate;
+    }
+
+    boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    Set<String> names() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    int sizeBytes() {
+        return map.capacity();
+    }
+
+    /** Zero-copy view of one phrase, positioned at its first sample; null if absent. */
+    ShortBuffer slice(String name) {
+        long[] e = index.get(name);
+        if (e == null) return null;
+        ByteBuffer b = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        b.position((int) e[0]);
+        b.limit((int) (e[0] + e[1] * 2));
+        return b.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    int sampleCount(String name) {
+        long[] e = index.get(name);
+        return e == null ? -1 : (int) e[1];
+    }
+
+    /** CRC32 of one entry's bytes, read straight from the mapping; -1 if absent. */
+    long crc32(String name) {
+        long[] e = index.get(name);
+        if (e == null) return -1;
+        ByteBuffer b = map.duplicate();
+        b.position((int) e[0]);
+        b.limit((int) (e[0] + e[1] * 2));
+        java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        byte[] chunk = new byte[8192];
+        while (b.hasRemaining()) {
+            int n = Math.min(chunk.length, b.remaining());
+            b.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        return crc.getValue();
+    }
+
+    /** CRC32 of `pcm` as it would be stored in a bank. */
+    static long crc32(short[] pcm) {
+        java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        byte[] chunk = new byte[8192];
+        int n = 0;
+        for (short s : pcm) {
+            chunk[n++] = (byte) s;
+            chunk[n++] = (byte) (s >> 8);
+            if (n == chunk.length) {
+                crc.update(chunk, 0, n);
+                n = 0;
+            }
+        }
+        crc.update(chunk, 0, n);
+        return crc.getValue();
+    }
+
+    /** Heap copy of one phrase; null if absent. */
+    short[] read(String name) {
+        ShortBuffer s = slice(name);
+        if (s == null) return null;
+        short[] pcm = new short[s.remaining()];
+        s.get(pcm);
+        return pcm;
+    }
+}
@@ -0,0 +1,160 @@
+package com.murveit.tgcontrol;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Phrase Manifest - Algorithmic Overview
+ *
+ * Versioned description of what is inside FastSpeechEngine's PhraseBank: for
+ * every phrase, which TTS voice rendered it and a checksum of its PCM. Lets the
+ * engine notice at startup that the user switched TTS engine/voice/language/rate
+ * (stale audio) or that a bank entry is damaged (corrupt audio), and re-render
+ * only those entries, instead of serving them forever.
+ *
+ * 1. INITIALIZATION:
+ * - read(file) parses manifest.json; null when missing, unparseable or written by a
+ *   different FORMAT_VERSION (the whole bank is then treated as unverified).
+ * - new PhraseManifest() for an empty one, filled by put() at pack time.
+ *
+ * 2. CALLING PROCEDURE:
+ * - get(phrase) -> Entry {profile, crc32, samples}; put(phrase, entry); write(file).
+ * - Profile describes one rendering setup: engine package, voice name, locale tag,
+ *   system speech rate and pitch. Profiles compare with equals().
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - JSON: {"version":N, "entries":{phrase:{"engine","voice","locale","rate",
+ *   "pitch","crc32","samples"}}}. The profile is stored per entry, because an
+ *   incremental re-render leaves a bank mixing old-voice and new-voice phrases
+ *   until every stale entry has been replaced.
+ * - Written via temp file + rename, after the bank itself. A crash between the two
+ *   leaves bank entries whose checksum no longer matches -- they fail validation
+ *   and are re-rendered, so the pair heals itself.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - write() creates/replaces one small JSON file. Not thread-safe; the engine's
+ *   init and pack threads each build their own instance.
+ */
+final class PhraseManifest {
+
+    // Bump when the bank's audio processing changes (trim, gain...) so every entry re-renders.
+    static final int FORMAT_VERSION = 1;
+
+    static final class Profile {
+        final String engine;
+        final String voice;
+        final String locale;
+        final int rate;
+        final int pitch;
+
+        Profile(String engine, String voice, String locale, int rate, int pitch) {
+            this.engine = engine == null ? "" : engine;
+            this.voice = voice == null ? "" : voice;
+            this.locale = locale == null ? "" : locale;
+            this.rate = rate;
+            this.pitch = pitch;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Profile)) return false;
+            Profile p = (Profile) o;
+            return rate == p.rate && pitch == p.pitch && engine.equals(p.engine)
+                    && voice.equals(p.voice) && locale.equals(p.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(engine, voice, locale, rate, pitch);
+        }
+
+        @Override
+        public String toString() {
+            return engine + "/" + voice + "/" + locale + " rate=" + rate + " pitch=" + pitch;
+        }
+    }
+
+    static final class Entry {
+        final Profile profile;
+        final long crc32;
+        final int samples;
+
+        Entry(Profile profile, long crc32, int samples) {
+            this.profile = profile;
+            this.crc32 = crc32;
+            this.samples = samples;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    Entry get(String phrase) {
+        return entries.get(phrase);
+    }
+
+    void put(String phrase, Entry entry) {
+        entries.put(phrase, entry);
+    }
+
+    static PhraseManifest read(File file) {
+        if (!file.exists()) return null;
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            try (java.io.DataInputStream in = new java.io.DataInputStream(new java.io.FileInputStream(file))) {
+                in.readFully(bytes);
+            }
+            org.json.JSONObject json = new org.json.JSONObject(new String(bytes, StandardCharsets.UTF_8));
+            if (json.optInt("version", -1) != FORMAT_VERSION) return null;
+            org.json.JSONObject list = json.getJSONObject("entries");
+            PhraseManifest m = new PhraseManifest();
+            java.util.Iterator<String> keys = list.keys();
+            while (keys.hasNext()) {
+                String phrase = keys.next();
+                org.json.JSONObject e = list.getJSONObject(phrase);
+                Profile p = new Profile(e.optString("engine"), e.optString("voice"), e.optString("locale"),
+                        e.optInt("rate"), e.optInt("pitch"));
+                m.entries.put(phrase, new Entry(p, e.getLong("crc32"), e.getInt("samples")));
+            }
+            return m;
+        } catch (IOException | org.json.JSONException e) {
+            return null;
+        }
+    }
+
+    void write(File file) throws IOException {
+        try {
+            org.json.JSONObject list = new org.json.JSONObject();
+            for (Map.Entry<String, Entry> me : entries.entrySet()) {
+                Entry e = me.getValue();
+                list.put(me.getKey(), new org.json.JSONObject()
+                        .put("engine", e.profile.engine)
+                        .put("voice", e.profile.voice)
+                        .put("locale", e.profile.locale)
+                        .put("rate", e.profile.rate)
+                        .put("pitch", e.profile.pitch)
+                        .put("crc32", e.crc32)
+                        .put("samples", e.samples));
+            }
+            String json = new org.json.JSONObject()
+                    .put("version", FORMAT_VERSION)
+                    .put("entries", list)
+                    .toString();
+            File tmp = new File(file.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("Could not replace " + file);
+            }
+        } catch (org.json.JSONException e) {
+            throw new IOException("Manifest encode failed", e);
+        }
+    }
+}
@@ -18,8 +18,9 @@ package com.murveit.tgcontrol;
  * 3. INTERNAL ALGORITHMIC LOGIC:
  * - Coordinate system: court meters, X=0 center, Y=0 net, north=positive, south=negative.
  *   VIEW_MIN_Y = -13f (south), VIEW_MAX_Y = 13f (north).  North baseline at screen top.
- * - Court lines drawn for both half-courts: baselines, singles/doubles sidelines,
- *   service lines, center service lines, net.  Doubles alleys rendered at half opacity.
+ * - Court lines for both half-courts (baselines, singles/doubles sidelines, service
+ *   lines, center service lines, net; alleys at half opacity) come from CourtLayer,
+ *   recorded once per view size and replayed, so each frame only draws the vectors.
  * - For each PointEvent with a confirmed bounce: a solid coloured line from
  *   (hitX, hitY) to (bounceX, bounceY), a dashed connector from the previous
  *   bounce to this hit, and circular dots at both positions.
@@ -72,12 +73,6 @@ public class PointVectorView extends View {
         }
     }
 
-    // --- Court Dimensions (meters) ---
-    private static final float COURT_HALF_SINGLES_WIDTH  = 4.115f;
-    private static final float COURT_HALF_DOUBLES_WIDTH  = 5.485f;
-    private static final float COURT_SERVICE_LINE_DEPTH  = 6.40f;
-    private static final float COURT_BASELINE_DEPTH      = 11.885f;
-
     // --- View coordinate bounds (meters): extra margin around the full court ---
     // ±16 m gives ~4 m behind the baseline (11.885 m) for behind-baseline hit positions.
     private static final float VIEW_MIN_X = -7.0f;
@@ -91,7 +86,6 @@ public class PointVectorView extends View {
     private static final float VECTOR_STROKE_W   =  6f;
     private static final float RECENT_STROKE_W   = 10f; // thicker for most-recent stroke
     private static final float HIGHLIGHT_RING_W  =  5f;
-    private static final float LINE_STROKE_W     =  4f;
     // Text height for hit labels (S/R/3/4/…).
     private static final float HIT_LABEL_TEXT_SIZE = 44f;
     // Gap between the label centre and the start/end of lines so they don't overdraw the letter.
@@ -100,11 +94,10 @@ public class PointVectorView extends View {
     // Bright yellow for the most-recent stroke so it stands out from call-colored prior strokes.
     private static final String RECENT_STROKE_COLOR = "#FFFF00";
 
+    // Static court (both halves, dimmed alleys), recorded once per view size
+    private final CourtLayer court = new CourtLayer(VIEW_MIN_X, VIEW_MAX_X, VIEW_MIN_Y, VIEW_MAX_Y, true);
+
     // --- Paints ---
-    private final Paint courtPaint      = new Paint();
-    private final Paint linePaint       = new Paint();
-    private final Paint alleyPaint      = new Paint(); // dimmer for doubles alleys
-    private final Paint netPaint        = new Paint();
     private final Paint inPaint         = new Paint();
     private final Paint outPaint        = new Paint();
     private final Paint letPaint        = new Paint();
@@ -124,26 +117,6 @@ public class PointVectorView extends View {
     }
 
     private void initPaints() {
-        courtPaint.setColor(Color.parseColor("#1B3329")); // deep green
-        courtPaint.setStyle(Paint.Style.FILL);
-
-        linePaint.setColor(Color.WHITE);
-        linePaint.setStyle(Paint.Style.STROKE);
-        linePaint.setStrokeWidth(LINE_STROKE_W);
-        linePaint.setAntiAlias(true);
-
-        // Doubles alleys shown at half opacity so they're visible but secondary
-        alleyPaint.setColor(Color.parseColor("#80FFFFFF"));
-        alleyPaint.setStyle(Paint.Style.STROKE);
-        alleyPaint.setStrokeWidth(LINE_STROKE_W);
-        alleyPaint.setAntiAlias(true);
-
-        netPaint.setColor(Color.parseColor("#90A4AE"));
-        netPaint.setStyle(Paint.Style.STROKE);
-        netPaint.setStrokeWidth(8f);
-        netPaint.setAntiAlias(true);
-        netPaint.setPathEffect(new DashPathEffect(new float[]{20f, 15f}, 0f));
-
         inPaint.setColor(Color.parseColor("#00E676")); // bright green
         inPaint.setStyle(Paint.Style.STROKE);
         inPaint.setStrokeWidth(VECTOR_STROKE_W);
@@ -210,14 +183,13 @@ public class PointVectorView extends View {
         invalidate();
     }
 
-    // Map court meters to screen pixels (X axis)
+    // Map court meters to screen pixels; north (positive) at top, south at bottom
     private float mapX(float x, int w) {
-        return (x - VIEW_MIN_X) / (VIEW_MAX_X - VIEW_MIN_X) * w;
+        return court.mapX(x, w);
     }
 
-    // Map court meters to screen pixels (Y axis); north (positive) at top, south at bottom
     private float mapY(float y, int h) {
-        return h - ((y - VIEW_MIN_Y) / (VIEW_MAX_Y - VIEW_MIN_Y) * h);
+        return court.mapY(y, h);
     }
 
     private Paint paintForCall(String call) {
@@ -261,50 +233,9 @@ public class PointVectorView extends View {
         int w = getWidth();
         int h = getHeight();
 
-        // 1. Court background
-        canvas.drawRect(0, 0, w, h, courtPaint);
-
-        // 2. Court lines — draw both north and south halves symmetrically
-
-        // Baselines (north: +Y, south: -Y)
-        canvas.drawLine(mapX(-COURT_HALF_DOUBLES_WIDTH, w), mapY(+COURT_BASELINE_DEPTH, h),
-                        mapX(+COURT_HALF_DOUBLES_WIDTH, w), mapY(+COURT_BASELINE_DEPTH, h), linePaint);
-        canvas.drawLine(mapX(-COURT_HALF_DOUBLES_WIDTH, w), mapY(-COURT_BASELINE_DEPTH, h),
-                        mapX(+COURT_HALF_DOUBLES_WIDTH, w), mapY(-COURT_BASELINE_DEPTH, h), linePaint);
-
-        // Singles sidelines (both sides, full length)
-        canvas.drawLine(mapX(-COURT_HALF_SINGLES_WIDTH, w), mapY(+COURT_BASELINE_DEPTH, h),
-                        mapX(-COURT_HALF_SINGLES_WIDTH, w), mapY(-COURT_BASELINE_DEPTH, h), linePaint);
-        canvas.drawLine(mapX(+COURT_HALF_SINGLES_WIDTH, w), mapY(+COURT_BASELINE_DEPTH, h),
-                        mapX(+COURT_HALF_SINGLES_WIDTH, w), mapY(-COURT_BASELINE_DEPTH, h), linePaint);
-
-        // Doubles sidelines (dimmed alleys)
-        canvas.drawLine(mapX(-COURT_HALF_DOUBLES_WIDTH, w), mapY(+COURT_BASELINE_DEPTH, h),
-                        mapX(-COURT_HALF_DOUBLES_WIDTH, w), mapY(-COURT_BASELINE_DEPTH, h), alleyPaint);
-        canvas.drawLine(mapX(+COURT_HALF_DOUBLES_WIDTH, w), mapY(+COURT_BASELINE_DEPTH, h),
-                        mapX(+COURT_HALF_DOUBLES_WIDTH, w), mapY(-COURT_BASELINE_DEPTH, h), alleyPaint);
-
-        // Service lines (north and south)
-        canvas.drawLine(mapX(-COURT_HALF_SINGLES_WIDTH, w), mapY(+COURT_SERVICE_LINE_DEPTH, h),
-                        mapX(+COURT_HALF_SINGLES_WIDTH, w), mapY(+COURT_SERVICE_LINE_DEPTH, h), linePaint);
-        canvas.drawLine(mapX(-COURT_HALF_SINGLES_WIDTH, w), mapY(-COURT_SERVICE_LINE_DEPTH, h),
-                        mapX(+COURT_HALF_SINGLES_WIDTH, w), mapY(-COURT_SERVICE_LINE_DEPTH, h), linePaint);
-
-        // Center service lines (net to service line, both halves)
-        canvas.drawLine(mapX(0, w), mapY(0, h),
-                        mapX(0, w), mapY(+COURT_SERVICE_LINE_DEPTH, h), linePaint);
-        canvas.drawLine(mapX(0, w), mapY(0, h),
-                        mapX(0, w), mapY(-COURT_SERVICE_LINE_DEPTH, h), linePaint);
-
-        // Center marks on baselines
-        canvas.drawLine(mapX(0, w), mapY(+COURT_BASELINE_DEPTH, h),
-                        mapX(0, w), mapY(+COURT_BASELINE_DEPTH - 0.2f, h), linePaint);
-        canvas.drawLine(mapX(0, w), mapY(-COURT_BASELINE_DEPTH, h),
-                        mapX(0, w), mapY(-COURT_BASELINE_DEPTH + 0.2f, h), linePaint);
-
-        // Net
-        canvas.drawLine(mapX(-COURT_HALF_DOUBLES_WIDTH - 0.5f, w), mapY(0, h),
-                        mapX(+COURT_HALF_DOUBLES_WIDTH + 0.5f, w), mapY(0, h), netPaint);
+        // 1-2. Court background and both halves' lines: a replayed Picture,
+        // re-recorded only on resize
+        court.draw(canvas, w, h);
 
         // 3. Tennis vectors and connectors
         if (events.isEmpty()) return;
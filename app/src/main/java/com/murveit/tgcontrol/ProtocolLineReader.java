@@ -0,0 +1,56 @@
+package com.murveit.tgcontrol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Protocol Line Reader - Algorithmic Overview
+ *
+ * Newline framing for the server's text protocol, split out of
+ * CommunicationService so it can be exercised on the JVM (see
+ * ProtocolParserFuzzTest / ProtocolParserBenchmarkTest) without a socket.
+ *
+ * 1. INITIALIZATION:
+ * - One instance per CommunicationService; reset() on every new connection so a
+ *   half-received line from a dropped socket never prefixes the first new one.
+ *
+ * 2. CALLING PROCEDURE:
+ * - readLine(is, running) from the communication thread only.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Reads one byte at a time (image frames that follow certain STATUS lines are
+ *   read straight off the same InputStream by readFullData(), so nothing may be
+ *   buffered past the '\n').
+ * - The partial line lives in a persistent buffer: a SocketTimeoutException
+ *   thrown mid-line propagates out and the bytes already read are kept for the
+ *   next call, so the 500 ms poll timeout never corrupts a fragmented message.
+ * - The buffer is wiped only once a complete line is returned (UTF-8, trimmed).
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Returns the trimmed line (possibly empty). Throws IOException at end of
+ *   stream. If `running` goes false mid-line, returns whatever was buffered.
+ */
+final class ProtocolLineReader {
+
+    private final ByteArrayOutputStream currentLineBuffer = new ByteArrayOutputStream();
+
+    String readLine(InputStream is, AtomicBoolean running) throws IOException {
+        int byteRead;
+        while (running.get()) {
+            byteRead = is.read(); // Can throw SocketTimeoutException
+            if (byteRead == -1) throw new IOException("End of stream");
+            if (byteRead == '\n') break;
+            currentLineBuffer.write(byteRead);
+        }
+        String completeLine = currentLineBuffer.toString(StandardCharsets.UTF_8.name()).trim();
+        currentLineBuffer.reset(); // Wipe buffer only upon confirming a complete newline payload
+        return completeLine;
+    }
+
+    void reset() {
+        currentLineBuffer.reset();
+    }
+}
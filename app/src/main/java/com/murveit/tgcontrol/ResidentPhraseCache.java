@@ -0,0 +1,133 @@
+package com.murveit.tgcontrol;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resident Phrase Cache - Algorithmic Overview
+ *
+ * Byte-budgeted LRU of the decoded PCM FastSpeechEngine keeps in memory, in front
+ * of the memory-mapped PhraseBank. Hot phrases (calls, "miles per hour", the
+ * player's usual speed band) are pinned resident; everything else is admitted on
+ * use and evicted least-recently-used once the budget is exceeded. An evicted
+ * phrase is not lost -- it is re-read from the bank mapping on its next use, or
+ * ahead of it by the engine's prefetcher.
+ *
+ * 1. INITIALIZATION:
+ * - new ResidentPhraseCache(budgetBytes). setBudget() may change it later; the
+ *   cache shrinks immediately if needed.
+ *
+ * 2. CALLING PROCEDURE:
+ * - get(name): resident PCM or null; counts a hit or a miss.
+ * - contains(name): residency check without touching stats or LRU order.
+ * - put(name, pcm): admit (or replace), then evict down to budget. A null pcm is ignored.
+ * - setPinned(names): replaces the pinned set. Pinned entries are never evicted,
+ *   even if they alone exceed the budget (a hot phrase must never need a reload).
+ * - remove(name), clear(), statsLine().
+ * - Thread-safe: every method synchronizes on the cache. Work under the lock is a
+ *   map operation or an eviction walk -- never I/O.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - LinkedHashMap in access order is the LRU list; eviction walks from the eldest
+ *   entry, skipping pinned ones, until residentBytes <= budget.
+ * - Sizes are PCM bytes (2 per sample). Counters: hits, misses, evictions,
+ *   admissions, plus current and peak resident bytes.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Pure data structure; statsLine() is what the engine logs.
+ */
+final class ResidentPhraseCache {
+
+    private final LinkedHashMap<String, short[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Set<String> pinned = new HashSet<>();
+    private long budgetBytes;
+    private long residentBytes;
+    private long peakBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long admissions;
+
+    ResidentPhraseCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    synchronized void setBudget(long bytes) {
+        budgetBytes = bytes;
+        evictToBudget();
+    }
+
+    synchronized long budget() {
+        return budgetBytes;
+    }
+
+    synchronized short[] get(String name) {
+        short[] pcm = entries.get(name);
+        if (pcm != null) hits++;
+        else misses++;
+        return pcm;
+    }
+
+    synchronized boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    synchronized void put(String name, short[] pcm) {
+        if (pcm == null) return;   // nothing to admit (e.g. a bank read that found no entry)
+        short[] prev = entries.put(name, pcm);
+        if (prev != null) residentBytes -= prev.length * 2L;
+        residentBytes += pcm.length * 2L;
+        admissions++;
+        evictToBudget();
+        if (residentBytes > peakBytes) peakBytes = residentBytes;
+    }
+
+    synchronized void remove(String name) {
+        short[] prev = entries.remove(name);
+        if (prev != null) residentBytes -= prev.length * 2L;
+    }
+
+    synchronized void setPinned(Collection<String> names) {
+        pinned.clear();
+        pinned.addAll(names);
+        evictToBudget();
+    }
+
+    synchronized boolean isPinned(String name) {
+        return pinned.contains(name);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        residentBytes = 0;
+    }
+
+    synchronized long residentBytes() {
+        return residentBytes;
+    }
+
+    synchronized String statsLine() {
+        long lookups = hits + misses;
+        return String.format(Locale.US,
+                "resident=%d entries %d KB (peak %d KB, budget %d KB, %d pinned) hits=%d misses=%d hit_rate=%.1f%% admissions=%d evictions=%d",
+                entries.size(), residentBytes / 1024, peakBytes / 1024, budgetBytes / 1024, pinned.size(),
+                hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, admissions, evictions);
+    }
+
+    private void evictToBudget() {
+        if (residentBytes <= budgetBytes) return;
+        Iterator<Map.Entry<String, short[]>> it = entries.entrySet().iterator();
+        while (residentBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, short[]> e = it.next();
+            if (pinned.contains(e.getKey())) continue;
+            residentBytes -= e.getValue().length * 2L;
+            it.remove();
+            evictions++;
+        }
+    }
+}
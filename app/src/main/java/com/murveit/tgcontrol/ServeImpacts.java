@@ -0,0 +1,124 @@
+package com.murveit.tgcontrol;
+
+import java.util.Arrays;
+
+/**
+ * Serve Impacts - Algorithmic Overview
+ *
+ * Columnar, append-only store of serve-practice impacts: parallel float x / y arrays (court
+ * meters) and a byte call code, instead of one object with a String per serve. Thousands of
+ * serves cost a few tens of KB and no per-serve allocation.
+ *
+ * 1. INITIALIZATION:
+ * - SessionState owns one ServeImpacts.Builder for the session.
+ *
+ * 2. CALLING PROCEDURE:
+ * - Builder.add(x, y, callStr) per serve, Builder.snapshot() for the SessionSnapshot,
+ *   Builder.clear() on a session reset.
+ * - Readers (ServeScatterView) use count, x(i), y(i), call(i), and continues(older) to tell
+ *   whether this snapshot only appended to one they already processed.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - A snapshot is (arrays, count). The builder only ever writes at index >= every published
+ *   count, and grows by copying into new arrays, so a published snapshot's prefix never
+ *   changes and snapshot() is O(1) -- no list copy per serve. Publication is the
+ *   happens-before edge SessionSnapshot already provides (LiveData / Handler post).
+ * - clear() starts fresh arrays and a new lineage, so old snapshots stay intact and
+ *   continues() is false across a reset.
+ * - Call codes: "In" -> CALL_IN, "Let" -> CALL_LET, anything else (Out, Fault) -> CALL_OUT,
+ *   the same classification the scatter plot always colored by.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - None. Pure data, no Android dependencies.
+ */
+public final class ServeImpacts {
+
+    public static final byte CALL_IN = 0;
+    public static final byte CALL_OUT = 1;
+    public static final byte CALL_LET = 2;
+    public static final int CALL_KINDS = 3;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    public static final ServeImpacts EMPTY = new ServeImpacts(new Object(), new float[0], new float[0], new byte[0], 0);
+
+    private final Object lineage;
+    private final float[] xs;
+    private final float[] ys;
+    private final byte[] calls;
+    public final int count;
+
+    private ServeImpacts(Object lineage, float[] xs, float[] ys, byte[] calls, int count) {
+        this.lineage = lineage;
+        this.xs = xs;
+        this.ys = ys;
+        this.calls = calls;
+        this.count = count;
+    }
+
+    public float x(int i) {
+        return xs[i];
+    }
+
+    public float y(int i) {
+        return ys[i];
+    }
+
+    public byte call(int i) {
+        return calls[i];
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** True if this snapshot is {@code older} plus zero or more appended serves. */
+    public boolean continues(ServeImpacts older) {
+        return older != null && older.lineage == lineage && older.count <= count;
+    }
+
+    public static byte callOf(String callStr) {
+        if ("In".equalsIgnoreCase(callStr)) return CALL_IN;
+        if ("Let".equalsIgnoreCase(callStr)) return CALL_LET;
+        return CALL_OUT; // Fault or Out
+    }
+
+    /** Single-writer builder; not thread-safe, snapshots are. */
+    public static final class Builder {
+        private Object lineage = new Object();
+        private float[] xs = new float[INITIAL_CAPACITY];
+        private float[] ys = new float[INITIAL_CAPACITY];
+        private byte[] calls = new byte[INITIAL_CAPACITY];
+        private int count;
+
+        public void add(float x, float y, String callStr) {
+            if (count == xs.length) {
+                int cap = count * 2;
+                xs = Arrays.copyOf(xs, cap);
+                ys = Arrays.copyOf(ys, cap);
+                calls = Arrays.copyOf(calls, cap);
+            }
+            xs[count] = x;
+            ys[count] = y;
+            calls[count] = callOf(callStr);
+            count++;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public ServeImpacts snapshot() {
+            return count == 0 ? EMPTY : new ServeImpacts(lineage, xs, ys, calls, count);
+        }
+
+        public void clear() {
+            if (count == 0) return;
+            lineage = new Object();
+            xs = new float[INITIAL_CAPACITY];
+            ys = new float[INITIAL_CAPACITY];
+            calls = new byte[INITIAL_CAPACITY];
+            count = 0;
+        }
+    }
+}
@@ -8,13 +8,14 @@ package com.murveit.tgcontrol;
  *
  * 1. INITIALIZATION:
  * - Parameterized by standard Android Context and AttributeSet for XML inflation.
- * - Instantiates distinct Paint objects (Lines, Net, In, Out, Let, Highlight) once to avoid
- * allocation overhead during the high-frequency onDraw loop.
+ * - Instantiates distinct Paint objects (In, Out, Let, Highlight) once to avoid
+ * allocation overhead during the high-frequency onDraw loop; court paints live in CourtLayer.
  *
  * 2. CALLING PROCEDURE:
  * - Hidden by default in XML, toggled via MainActivity.
- * - The controller passes a List of `ServeImpact` objects via `setServes()`.
- * - The `invalidate()` call flags the Android UI pipeline to asynchronously redraw the Canvas.
+ * - The controller passes the session's `ServeImpacts` snapshot via `setServes()`.
+ * - The `invalidate()` call flags the Android UI pipeline to asynchronously redraw the Canvas;
+ * the redraw only paints what changed (see Persistent Layer).
  *
  * 3. INTERNAL ALGORITHMIC LOGIC:
  * - Coordinate Mapping: Translates physical meters (where X=0 is the center line and Y=0 is the net)
@@ -28,93 +29,76 @@ package com.murveit.tgcontrol;
  * - Field of View (FOV) Clamping: Mathematically clamps physical impacts to the boundaries 
  * of the canvas. If a massive fault lands outside the mapped coordinate system, it is pinned 
  * to the extreme edge of the screen so it is never lost or drawn invisibly.
- * - Render Order: Draws the court background, then the physical white lines (including a custom 
- * dashed net), then iterates chronologically through the serve impacts. This guarantees that newer 
- * serves paint over older ones.
- * - Highlighting: The absolute last element in the chronological array receives a secondary 
- * stroked circle pass, explicitly highlighting the most recent serve.
+ * - Screen-Space Cache: Folded, mapped and clamped dot centers are kept in arrival order as
+ * one flat (x, y) float array. When a new snapshot only appends to the one already mapped
+ * (ServeImpacts.continues) and the size is unchanged, only the new serves are mapped; a
+ * reset or resize remaps everything once.
+ * - Persistent Layer: A view-sized bitmap holds the court and every serve plotted so far.
+ * An appended serve is painted into it once, in arrival order, so newer serves paint over
+ * older ones; serve 500 costs the same as serve 5. On a reset or resize the layer is
+ * rebuilt once: the court (CourtLayer: background, white lines, dashed net), then the
+ * dots in the same arrival order, one round-capped drawPoints() batch per run of
+ * consecutive same-color serves, so a rebuilt layer stacks exactly like the appended one.
+ * - Per Frame: the layer bitmap, then the most recent serve redrawn on top with a secondary
+ * stroked highlight ring, so it is never hidden inside a cluster. No per-serve work.
  *
  * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
  * - Pushes 2D vector shapes directly to the hardware-accelerated Android Canvas.
+ * - Holds one ARGB bitmap the size of the view while attached (released on detach).
  */
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.DashPathEffect;
 import android.graphics.Paint;
 import android.util.AttributeSet;
 import android.view.View;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class ServeScatterView extends View {
 
-    public static class ServeImpact {
-        public float x;
-        public float y;
-        public String call;
-
-        public ServeImpact(float x, float y, String call) {
-            this.x = x;
-            this.y = y;
-            this.call = call;
-        }
-    }
-
-    // --- Algorithmic Constants for Physical Court Mapping (Meters) ---
-    private static final float COURT_HALF_SINGLES_WIDTH = 4.115f;
-    private static final float COURT_HALF_DOUBLES_WIDTH = 5.485f;
-    private static final float COURT_SERVICE_LINE_DEPTH = 6.40f;
-    private static final float COURT_BASELINE_DEPTH = 11.885f;
-
     // Expanded bounds to capture very wide or deep faults
     private static final float VIEW_MIN_X = -7.5f;
     private static final float VIEW_MAX_X = 7.5f;
     private static final float VIEW_MIN_Y = -1.0f;
     private static final float VIEW_MAX_Y = 13.5f;
 
+    private static final float DOT_RADIUS = 12f;
+
+    // Static court, recorded once per view size (north half-court only)
+    private final CourtLayer court = new CourtLayer(VIEW_MIN_X, VIEW_MAX_X, VIEW_MIN_Y, VIEW_MAX_Y, false);
+
     // --- Hardware Rendering Paints ---
-    private final Paint courtPaint = new Paint();
-    private final Paint linePaint = new Paint();
-    private final Paint netPaint = new Paint();
     private final Paint inPaint = new Paint();
     private final Paint outPaint = new Paint();
     private final Paint letPaint = new Paint();
     private final Paint highlightPaint = new Paint();
+    private final Paint[] callPaints = new Paint[ServeImpacts.CALL_KINDS];
 
-    private List<ServeImpact> serveImpacts = new ArrayList<>();
-
-    public ServeScatterView(Context context, AttributeSet attrs) {
-        super(context, attrs);
-
-        courtPaint.setColor(Color.parseColor("#1B3329")); // Deep subdued green
-        courtPaint.setStyle(Paint.Style.FILL);
-
-        linePaint.setColor(Color.WHITE);
-        linePaint.setStyle(Paint.Style.STROKE);
-        linePaint.setStrokeWidth(4f);
-        linePaint.setAntiAlias(true);
+    private ServeImpacts serves = ServeImpacts.EMPTY;
 
-        // Distinctive net styling (thicker, distinctly colored, dashed)
-        netPaint.setColor(Color.parseColor("#90A4AE")); // Cool metallic grey
-        netPaint.setStyle(Paint.Style.STROKE);
-        netPaint.setStrokeWidth(8f);
-        netPaint.setAntiAlias(true);
-        netPaint.setPathEffect(new DashPathEffect(new float[]{20f, 15f}, 0f));
+    // --- Screen-space cache: flat (x, y) pairs in pixels, serve i at [2i, 2i+1] ---
+    private float[] points = new float[256];
+    private ServeImpacts mapped;
+    private int mappedW = -1;
+    private int mappedH = -1;
+    private float lastPx, lastPy;
 
-        inPaint.setColor(Color.parseColor("#00E676")); // Bright Green
-        inPaint.setStyle(Paint.Style.FILL);
-        inPaint.setAntiAlias(true);
+    // --- Persistent layer: court + every mapped serve, painted once each ---
+    private Bitmap layer;
+    private Canvas layerCanvas;
 
-        outPaint.setColor(Color.parseColor("#FF1744")); // Bright Red
-        outPaint.setStyle(Paint.Style.FILL);
-        outPaint.setAntiAlias(true);
+    public ServeScatterView(Context context, AttributeSet attrs) {
+        super(context, attrs);
 
-        letPaint.setColor(Color.parseColor("#FFEA00")); // Bright Yellow
-        letPaint.setStyle(Paint.Style.FILL);
-        letPaint.setAntiAlias(true);
+        initDotPaint(inPaint, "#00E676");  // Bright Green
+        initDotPaint(outPaint, "#FF1744"); // Bright Red
+        initDotPaint(letPaint, "#FFEA00"); // Bright Yellow
+        callPaints[ServeImpacts.CALL_IN] = inPaint;
+        callPaints[ServeImpacts.CALL_OUT] = outPaint; // Fault or Out
+        callPaints[ServeImpacts.CALL_LET] = letPaint;
 
         highlightPaint.setColor(Color.WHITE);
         highlightPaint.setStyle(Paint.Style.STROKE);
@@ -122,19 +106,18 @@ public class ServeScatterView extends View {
         highlightPaint.setAntiAlias(true);
     }
 
-    public void setServes(List<ServeImpact> impacts) {
-        this.serveImpacts = impacts;
-        invalidate(); // Trigger hardware redraw
-    }
-
-    // Mathematical translation from physical meters to screen pixels
-    private float mapX(float x, int width) {
-        return (x - VIEW_MIN_X) / (VIEW_MAX_X - VIEW_MIN_X) * width;
+    // Filled circles for drawCircle; the round cap and width make drawPoints draw the same dot
+    private static void initDotPaint(Paint paint, String color) {
+        paint.setColor(Color.parseColor(color));
+        paint.setStyle(Paint.Style.FILL);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setStrokeWidth(DOT_RADIUS * 2);
+        paint.setAntiAlias(true);
     }
 
-    private float mapY(float y, int height) {
-        // Invert Y so 0.0 (Net) is at the bottom of the screen
-        return height - ((y - VIEW_MIN_Y) / (VIEW_MAX_Y - VIEW_MIN_Y) * height);
+    public void setServes(ServeImpacts impacts) {
+        this.serves = impacts != null ? impacts : ServeImpacts.EMPTY;
+        invalidate(); // Trigger hardware redraw
     }
 
     @Override
@@ -144,53 +127,51 @@ public class ServeScatterView extends View {
         int w = getWidth();
         int h = getHeight();
 
-        // 1. Draw Court Background
-        canvas.drawRect(0, 0, w, h, courtPaint);
-
-        // 2. Draw Mathematical Court Lines
-        // Net (Extends slightly past doubles lines)
-        canvas.drawLine(mapX(-COURT_HALF_DOUBLES_WIDTH - 0.5f, w), mapY(0, h), 
-                        mapX(COURT_HALF_DOUBLES_WIDTH + 0.5f, w), mapY(0, h), netPaint);
-        
-        // Service Line
-        canvas.drawLine(mapX(-COURT_HALF_SINGLES_WIDTH, w), mapY(COURT_SERVICE_LINE_DEPTH, h), 
-                        mapX(COURT_HALF_SINGLES_WIDTH, w), mapY(COURT_SERVICE_LINE_DEPTH, h), linePaint);
-        
-        // Baseline
-        canvas.drawLine(mapX(-COURT_HALF_DOUBLES_WIDTH, w), mapY(COURT_BASELINE_DEPTH, h), 
-                        mapX(COURT_HALF_DOUBLES_WIDTH, w), mapY(COURT_BASELINE_DEPTH, h), linePaint);
-
-        // Center Service Line
-        canvas.drawLine(mapX(0, w), mapY(0, h), 
-                        mapX(0, w), mapY(COURT_SERVICE_LINE_DEPTH, h), linePaint);
-        
-        // Center Mark on Baseline
-        canvas.drawLine(mapX(0, w), mapY(COURT_BASELINE_DEPTH, h), 
-                        mapX(0, w), mapY(COURT_BASELINE_DEPTH - 0.2f, h), linePaint);
-                        
-        // Singles Lines
-        canvas.drawLine(mapX(-COURT_HALF_SINGLES_WIDTH, w), mapY(0, h), 
-                        mapX(-COURT_HALF_SINGLES_WIDTH, w), mapY(COURT_BASELINE_DEPTH, h), linePaint);
-        canvas.drawLine(mapX(COURT_HALF_SINGLES_WIDTH, w), mapY(0, h), 
-                        mapX(COURT_HALF_SINGLES_WIDTH, w), mapY(COURT_BASELINE_DEPTH, h), linePaint);
-
-        // Doubles Lines
-        canvas.drawLine(mapX(-COURT_HALF_DOUBLES_WIDTH, w), mapY(0, h), 
-                        mapX(-COURT_HALF_DOUBLES_WIDTH, w), mapY(COURT_BASELINE_DEPTH, h), linePaint);
-        canvas.drawLine(mapX(COURT_HALF_DOUBLES_WIDTH, w), mapY(0, h), 
-                        mapX(COURT_HALF_DOUBLES_WIDTH, w), mapY(COURT_BASELINE_DEPTH, h), linePaint);
-
-        // 3. Draw Scatter Plot Points (Chronological)
-        if (serveImpacts == null || serveImpacts.isEmpty()) {
+        if (w <= 0 || h <= 0) return;
+
+        // 1-3. Court and all serves so far: the persistent layer, brought up to date by
+        // painting only the serves appended since the last frame
+        ServeImpacts s = serves;
+        ensureLayer(s, w, h);
+        canvas.drawBitmap(layer, 0, 0, null);
+        if (s.isEmpty()) {
             return;
         }
 
-        float radius = 12f;
-        for (int i = 0; i < serveImpacts.size(); i++) {
-            ServeImpact impact = serveImpacts.get(i);
-            
-            float renderX = impact.x;
-            float renderY = impact.y;
+        // 4. Redraw and highlight the absolute most recent serve so it pops out of the cluster
+        canvas.drawCircle(lastPx, lastPy, DOT_RADIUS, callPaints[s.call(s.count - 1)]);
+        canvas.drawCircle(lastPx, lastPy, DOT_RADIUS + 4f, highlightPaint);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (layer != null) {
+            layer.recycle();
+            layer = null;
+            layerCanvas = null;
+        }
+        mapped = null;
+    }
+
+    // Brings the screen-space cache and the layer up to date with s: appended serves only,
+    // unless the session was reset or the view was resized.
+    private void ensureLayer(ServeImpacts s, int w, int h) {
+        int from;
+        boolean rebuild = layer == null || w != mappedW || h != mappedH || !s.continues(mapped);
+        if (!rebuild) {
+            from = mapped.count;
+        } else {
+            from = 0;
+            if (layer == null || layer.getWidth() != w || layer.getHeight() != h) {
+                if (layer != null) layer.recycle();
+                layer = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+                layerCanvas = new Canvas(layer);
+            }
+        }
+        for (int i = from; i < s.count; i++) {
+            float renderX = s.x(i);
+            float renderY = s.y(i);
 
             // --- CANONICAL HALF-COURT FOLDING ---
             // The tracking engine natively outputs unified global coordinates.
@@ -200,31 +181,38 @@ public class ServeScatterView extends View {
                 renderX = -renderX;
                 renderY = -renderY;
             }
-            
-            float px = mapX(renderX, w);
-            float py = mapY(renderY, h);
+
+            float px = court.mapX(renderX, w);
+            float py = court.mapY(renderY, h);
 
             // --- FOV CLAMPING ---
             // If a fault lands outside the mapped dimensions, pin it to the exact edge
             // of the Canvas (minus the dot radius) so the user always sees it.
-            px = Math.max(radius + 2, Math.min(w - radius - 2, px));
-            py = Math.max(radius + 2, Math.min(h - radius - 2, py));
-
-            Paint activePaint;
-            if ("In".equalsIgnoreCase(impact.call)) {
-                activePaint = inPaint;
-            } else if ("Let".equalsIgnoreCase(impact.call)) {
-                activePaint = letPaint;
-            } else {
-                activePaint = outPaint; // Fault or Out
-            }
-
-            canvas.drawCircle(px, py, radius, activePaint);
-
-            // 4. Highlight the absolute most recent serve so it pops out of the cluster
-            if (i == serveImpacts.size() - 1) {
-                canvas.drawCircle(px, py, radius + 4f, highlightPaint);
+            px = Math.max(DOT_RADIUS + 2, Math.min(w - DOT_RADIUS - 2, px));
+            py = Math.max(DOT_RADIUS + 2, Math.min(h - DOT_RADIUS - 2, py));
+
+            int n = i * 2;
+            if (n + 2 > points.length) points = Arrays.copyOf(points, Math.max(n + 2, points.length * 2));
+            points[n] = px;
+            points[n + 1] = py;
+            lastPx = px;
+            lastPy = py;
+            if (!rebuild) layerCanvas.drawCircle(px, py, DOT_RADIUS, callPaints[s.call(i)]);
+        }
+        if (rebuild) {
+            court.draw(layerCanvas, w, h);
+            // Arrival order, like the appended path; each same-color run is one batch
+            int run = 0;
+            while (run < s.count) {
+                byte call = s.call(run);
+                int end = run + 1;
+                while (end < s.count && s.call(end) == call) end++;
+                layerCanvas.drawPoints(points, run * 2, (end - run) * 2, callPaints[call]);
+                run = end;
             }
         }
+        mapped = s;
+        mappedW = w;
+        mappedH = h;
     }
 }
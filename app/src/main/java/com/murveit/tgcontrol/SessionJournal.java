@@ -0,0 +1,230 @@
+package com.murveit.tgcontrol;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Session Journal - Algorithmic Overview
+ *
+ * Append-only binary record of one recording/tracking session: typed, fixed-layout
+ * records stamped with System.nanoTime(), written into a memory-mapped file. Runs
+ * alongside FileLogger's text log; it exists so post-session analysis is a
+ * SessionJournalReader pass over a compact file instead of grepping [LATENCY],
+ * RECV: and processTrackEvent: lines out of megabytes of text. The reader is a desktop
+ * tool and lives under app/src/test, so the APK carries only the writer.
+ *
+ * 1. INITIALIZATION:
+ * - start(context, reason) when a session begins (CommunicationService, on
+ *   START_RECORDING / START_TRACKING): closes any open journal and opens
+ *   <external files>/journals/session_<yyyyMMdd-HHmmss>.tgj. stop(reason) when it ends.
+ *   Only the newest MAX_JOURNALS files are kept.
+ *
+ * 2. CALLING PROCEDURE:
+ * - record(type, arg, value, text) from any thread; a no-op with no open journal.
+ *   recordAt() when the event time was captured earlier (e.g. socket receipt). Guard any
+ *   text that costs an allocation with isActive().
+ * - Types and their fields:
+ *     MSG_RECEIVED   arg=line length      text=message tag ("TRACK_EVENT_JSON", ...)
+ *     COMMAND_SENT   text=command name
+ *     AUDIO_FIRED    arg=point id  value=receive->play ns     text=arbiter path
+ *     AUDIO_OUTPUT   arg=point id  value=play->speaker ns     text=output device
+ *     RENDER_DONE    value=receive->vsync ns                  text=view
+ *     WIFI_LOST / WIFI_RESTORED, SESSION_START / SESSION_END  text=reason
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - File layout, little-endian:
+ *     header (HEADER_BYTES): "TGSJ" | int version | long startEpochMs | long startMonoNs
+ *                            | int chunkBytes | int reserved
+ *     records: u16 type | u16 textLength | int arg | long monoNs | long value | UTF-8 text,
+ *              padded to a multiple of 8 bytes
+ * - Space is preallocated a chunk (CHUNK_BYTES) at a time by mapping it READ_WRITE; a
+ *   record never straddles chunks. Appending is a handful of absolute puts into the
+ *   mapping -- no syscall, no allocation beyond the text bytes -- under the journal's
+ *   monitor (uncontended in practice: socket reader, arbiter, main thread).
+ * - The type field is written last, so a record is either complete or reads as type 0.
+ *   Type 0 means "rest of this chunk unused": the reader skips to the next chunk
+ *   boundary and stops at end of file. After a crash the file simply ends in zeros.
+ * - close() forces the mapping and truncates the file to the bytes used.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - One .tgj file per session under <external files>/journals. Failures go to logcat
+ *   and disable the journal for that session; they never reach the caller.
+ */
+public final class SessionJournal {
+    private static final String TAG = "SessionJournal";
+
+    public static final int MSG_RECEIVED = 1;
+    public static final int COMMAND_SENT = 2;
+    public static final int AUDIO_FIRED = 3;
+    public static final int AUDIO_OUTPUT = 4;
+    public static final int RENDER_DONE = 5;
+    public static final int WIFI_LOST = 6;
+    public static final int WIFI_RESTORED = 7;
+    public static final int SESSION_START = 8;
+    public static final int SESSION_END = 9;
+
+    static final int MAGIC = 0x4A534754;     // "TGSJ" little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_HEADER_BYTES = 24;
+    static final int MAX_TEXT_BYTES = 255;
+    static final int CHUNK_BYTES = 4 * 1024 * 1024;
+    static final String DIR_NAME = "journals";
+    static final String SUFFIX = ".tgj";
+    private static final int MAX_JOURNALS = 30;
+
+    private static volatile SessionJournal current;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final int chunkBytes;
+    private MappedByteBuffer map;      // current chunk
+    private long chunkStart;
+    private long position;             // absolute file offset of the next record
+    private boolean closed;
+
+    private SessionJournal(File file, RandomAccessFile raf, int chunkBytes) {
+        this.file = file;
+        this.raf = raf;
+        this.channel = raf.getChannel();
+        this.chunkBytes = chunkBytes;
+    }
+
+    // --- Process-wide facade ---
+
+    public static void start(Context context, String reason) {
+        stop("superseded");
+        File base = context.getExternalFilesDir(null);
+        if (base == null) return;
+        File dir = new File(base, DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Cannot create " + dir);
+            return;
+        }
+        expireOld(dir);
+        String name = "session_" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + SUFFIX;
+        try {
+            SessionJournal j = open(new File(dir, name), System.currentTimeMillis(), System.nanoTime(), CHUNK_BYTES);
+            j.append(SESSION_START, 0, System.nanoTime(), 0, reason);
+            current = j;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open journal " + name, e);
+        }
+    }
+
+    public static void stop(String reason) {
+        SessionJournal j = current;
+        if (j == null) return;
+        current = null;
+        j.append(SESSION_END, 0, System.nanoTime(), 0, reason);
+        j.close();
+    }
+
+    /** True while a session is open; lets callers skip building a record's text. */
+    public static boolean isActive() {
+        return current != null;
+    }
+
+    public static void record(int type, int arg, long value, String text) {
+        SessionJournal j = current;
+        if (j != null) j.append(type, arg, System.nanoTime(), value, text);
+    }
+
+    public static void recordAt(int type, int arg, long monoNs, long value, String text) {
+        SessionJournal j = current;
+        if (j != null) j.append(type, arg, monoNs, value, text);
+    }
+
+    // --- Writer ---
+
+    static SessionJournal open(File file, long startEpochMs, long startMonoNs, int chunkBytes) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        SessionJournal j = new SessionJournal(file, raf, chunkBytes);
+        try {
+            raf.setLength(0);
+            j.mapChunk(0);
+            j.map.putInt(0, MAGIC);
+            j.map.putInt(4, VERSION);
+            j.map.putLong(8, startEpochMs);
+            j.map.putLong(16, startMonoNs);
+            j.map.putInt(24, chunkBytes);
+            j.map.putInt(28, 0);
+            j.position = HEADER_BYTES;
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        return j;
+    }
+
+    synchronized void append(int type, int arg, long monoNs, long value, String text) {
+        if (closed) return;
+        byte[] bytes = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+        int textLen = bytes == null ? 0 : Math.min(bytes.length, MAX_TEXT_BYTES);
+        int size = (RECORD_HEADER_BYTES + textLen + 7) & ~7;
+        try {
+            if (position + size > chunkStart + chunkBytes) {
+                // Leave the tail zeroed (type 0 = skip to next chunk) and preallocate the next.
+                mapChunk(chunkStart + chunkBytes);
+                position = chunkStart;
+            }
+            int at = (int) (position - chunkStart);
+            map.putShort(at + 2, (short) textLen);
+            map.putInt(at + 4, arg);
+            map.putLong(at + 8, monoNs);
+            map.putLong(at + 16, value);
+            for (int i = 0; i < textLen; i++) map.put(at + RECORD_HEADER_BYTES + i, bytes[i]);
+            map.putShort(at, (short) type);   // last: commits the record
+            position += size;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Journal write failed; closing " + file.getName(), e);
+            close();
+        }
+    }
+
+    synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            if (map != null) map.force();
+            map = null;
+            raf.setLength(position);
+            raf.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close " + file.getName(), e);
+        }
+    }
+
+    File file() {
+        return file;
+    }
+
+    private void mapChunk(long start) throws IOException {
+        if (map != null) map.force();
+        map = channel.map(FileChannel.MapMode.READ_WRITE, start, chunkBytes);
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        chunkStart = start;
+    }
+
+    private static void expireOld(File dir) {
+        File[] files = dir.listFiles((d, n) -> n.endsWith(SUFFIX));
+        if (files == null || files.length < MAX_JOURNALS) return;
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        for (int i = 0; i <= files.length - MAX_JOURNALS; i++) {
+            if (!files[i].delete()) Log.e(TAG, "Failed to expire " + files[i]);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.murveit.tgcontrol;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.preference.PreferenceManager;
+
+/**
+ * Session Processor - Algorithmic Overview
+ *
+ * Background stage between the socket reader and MainActivity. Consumes raw
+ * TRACK_EVENT_JSON / POINT_UPDATE_JSON / CALIBRATION_STATUS / SYSTEM_STATE
+ * payloads, runs them through SessionState (JSON parsing, SharedPreferences reads,
+ * derived point/serve state, audio decisions), forwards the resulting audio cues to
+ * AudioArbiter, performs the FileLogger writes here, and hands the main thread
+ * nothing but an immutable SessionSnapshot to bind.
+ *
+ * 1. INITIALIZATION:
+ * - Created in MainActivity.onCreate() with the main-thread Handler and a Listener;
+ *   starts one HandlerThread ("SessionProcessor", THREAD_PRIORITY_FOREGROUND) that
+ *   owns the SessionState instance -- nothing else ever touches that state.
+ * - MainActivity registers it with CommunicationService.setSessionProcessor() so
+ *   the socket reader can submit directly, skipping the LiveData hop.
+ *
+ * 2. CALLING PROCEDURE:
+ * - submit(tag, payload, pointId, receiveNs) from the socket reader, with the point
+ *   id AudioArbiter.stampPoint() gave the message; submit(tag, payload) from
+ *   elsewhere (debug button) uses AudioArbiter.SYNTHETIC_POINT. Returns false for tags
+ *   this stage doesn't own, so the caller can fall back to statusData.
+ * - resetSession()/clearPlot()/onServerActive()/resetPointState()/resetStrokeCount()
+ *   from the main thread for user-driven state changes; queued on the same thread
+ *   so they are ordered with respect to in-flight messages.
+ * - log(msg) for main-thread instrumentation that shouldn't do file I/O itself. Lines are
+ *   filed under FileLogger's LATENCY category if tagged [LATENCY], else UI (log()) or
+ *   PROTOCOL (SessionState's own lines).
+ * - shutdown() from MainActivity.onDestroy().
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - The receive timestamp is taken in submit(), on the socket thread, so the
+ *   [LATENCY] lines measure from the actual socket read rather than from whenever
+ *   the queue got to it.
+ * - Preferences and CommunicationService's volatile audio flags are sampled into a
+ *   SessionState.Settings per message; SessionState stays free of Android types.
+ * - Audio cues go to AudioArbiter tagged with the message's point id and socket
+ *   receive time; the arbiter decides whether they are duplicates and plays them on
+ *   its own URGENT_AUDIO thread, so nothing here waits on audio.
+ * - Snapshots go to the main thread with Handler.post, one per message, in order.
+ *   Unlike LiveData.postValue nothing is coalesced.
+ * - SYSTEM_STATE's isTracking/isRecording/nanoAudioActive flags are written here,
+ *   immediately on parse -- earlier than the old main-thread path, which already
+ *   had to parse synchronously to beat a queued Start/Stop click.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Submits AudioArbiter intents.
+ * - Writes FileLogger lines and updates CommunicationService's static session flags.
+ */
+public class SessionProcessor {
+
+    public interface Listener {
+        /** Called on the main thread, once per published snapshot, in order. */
+        void onSnapshot(SessionSnapshot snapshot);
+    }
+
+    private final Context appContext;
+    private final Handler mainHandler;
+    private final Listener listener;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final SessionState state = new SessionState();
+    private final AudioArbiter arbiter;
+
+    public SessionProcessor(Context context, Handler mainHandler, Listener listener) {
+        this.appContext = context.getApplicationContext();
+        this.mainHandler = mainHandler;
+        this.listener = listener;
+        this.arbiter = AudioArbiter.get(context);
+        thread = new HandlerThread("SessionProcessor", Process.THREAD_PRIORITY_FOREGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Queues one locally injected payload (the debug trigger). It gets SYNTHETIC_POINT rather
+     * than a stamped id, so it never advances the point sequence real messages follow.
+     */
+    public boolean submit(String tag, String payload) {
+        return submit(tag, payload, AudioArbiter.SYNTHETIC_POINT, System.nanoTime());
+    }
+
+    /** Queues one raw protocol payload. Returns false if `tag` isn't handled here. */
+    public boolean submit(String tag, String payload, int pointId, long receiveNs) {
+        final long receiveMs = System.currentTimeMillis();
+        if ("TRACK_EVENT_JSON".equals(tag)) {
+            handler.post(() -> apply(state.onTrackEventJson(payload, receiveMs, sampleSettings()), pointId, receiveNs));
+        } else if ("POINT_UPDATE_JSON".equals(tag)) {
+            handler.post(() -> apply(state.onPointUpdateJson(payload, sampleSettings()), pointId, receiveNs));
+        } else if ("CALIBRATION_STATUS".equals(tag)) {
+            handler.post(() -> apply(state.onCalibrationStatus(payload), pointId, receiveNs));
+        } else if ("SYSTEM_STATE".equals(tag)) {
+            handler.post(() -> apply(state.onSystemState(payload), pointId, receiveNs));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public void resetSession() {
+        handler.post(() -> apply(state.resetSession(), 0, 0));
+    }
+
+    public void clearPlot() {
+        final String mode = CommunicationService.activeTennisMode;
+        handler.post(() -> apply(state.clearPlot(mode), 0, 0));
+    }
+
+    public void onServerActive() {
+        handler.post(() -> apply(state.onServerActive(), 0, 0));
+    }
+
+    public void resetPointState() {
+        handler.post(() -> apply(state.resetPointState(), 0, 0));
+    }
+
+    public void resetStrokeCount() {
+        handler.post(state::resetStrokeCount);
+    }
+
+    /** FileLogger write from this thread, for main-thread callers. */
+    public void log(String message) {
+        handler.post(() -> FileLogger.log(appContext, categoryOf(message, FileLogger.Category.UI), FileLogger.INFO, message));
+    }
+
+    public void shutdown() {
+        handler.removeCallbacksAndMessages(null);
+        thread.quitSafely();
+    }
+
+    private SessionState.Settings sampleSettings() {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(appContext);
+        SessionState.Settings s = new SessionState.Settings();
+        s.mode = CommunicationService.activeTennisMode;
+        s.voiceCalls = prefs.getBoolean(SettingsActivity.KEY_VOICE_CALLS, false);
+        s.endOfPointBeeps = prefs.getBoolean(SettingsActivity.KEY_END_OF_POINT_BEEPS, false);
+        s.inCalls = prefs.getBoolean(SettingsActivity.KEY_IN_CALLS, false);
+        s.inServeAudio = prefs.getString(SettingsActivity.KEY_IN_SERVE_AUDIO, "mute");
+        s.nanoAudioActive = CommunicationService.nanoAudioActive;
+        s.speechAvailable = arbiter.isArmed();
+        s.nowMs = System.currentTimeMillis();
+        return s;
+    }
+
+    private void apply(SessionState.Update u, int pointId, long receiveNs) {
+        if (u == null) return;
+        // Audio first: it is the latency-critical output, the UI can wait a few ms.
+        for (SessionState.AudioCue cue : u.cues) {
+            arbiter.submit(cue.kind, pointId, cue.strokeIndex, cue.call, cue.mph, receiveNs);
+        }
+
+        if (u.snapshot != null) {
+            SessionSnapshot snap = u.snapshot;
+            if (snap.changed(SessionSnapshot.CHANGED_SYSTEM_STATE)) {
+                // Overwrite local state immediately so any button press handled after
+                // this point sees the server's truth, before the UI routing runs.
+                CommunicationService.isTracking = snap.serverTracking;
+                CommunicationService.isRecording = snap.serverRecording;
+                if (u.nanoAudio != null) CommunicationService.nanoAudioActive = u.nanoAudio;
+            }
+            mainHandler.post(() -> listener.onSnapshot(snap));
+        }
+
+        for (String line : u.logLines) {
+            FileLogger.log(appContext, categoryOf(line, FileLogger.Category.PROTOCOL), FileLogger.INFO, line);
+        }
+    }
+
+    private static FileLogger.Category categoryOf(String line, FileLogger.Category fallback) {
+        return line.startsWith("[LATENCY]") ? FileLogger.Category.LATENCY : fallback;
+    }
+}
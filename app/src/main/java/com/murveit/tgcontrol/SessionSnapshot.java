@@ -0,0 +1,106 @@
+package com.murveit.tgcontrol;
+
+/**
+ * Session Snapshot - Algorithmic Overview
+ *
+ * Immutable copy of everything MainActivity's tennis screens display that is
+ * derived from the server's message stream: point number/status lines, the
+ * current point's trajectory vectors, the serve scatter list and its summary
+ * text, calibration checkmarks, and the server's tracking/recording state.
+ *
+ * 1. INITIALIZATION:
+ * - Built only by SessionState.snapshot() on the SessionProcessor thread, copying
+ *   the state machine's fields at that instant. Never mutated afterwards.
+ *
+ * 2. CALLING PROCEDURE:
+ * - SessionProcessor posts each snapshot to the main thread via Handler.post (NOT
+ *   LiveData.postValue, which coalesces -- two POINT_UPDATE_JSONs arriving inside
+ *   one frame would otherwise silently drop the first one's tracking-log line).
+ * - MainActivity.bindSnapshot() checks `changes` and touches only the views whose
+ *   section changed; it never parses or derives anything itself.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - `changes` is a bitmask of CHANGED_* sections. Sections not flagged still hold
+ *   valid (carried-over) values, so updatePointStatus()'s 1 Hz spin-up tick can
+ *   read the latest snapshot at any time.
+ * - The list fields are shared, never copied: pointEvents is a fresh list per
+ *   POINT_UPDATE_JSON and serves is an append-only columnar snapshot (ServeImpacts)
+ *   whose published prefix never changes.
+ * - Nullable one-shot fields (trackingLogLine, servesSummaryText, lastServeText,
+ *   lastServeCall) are null when that event didn't set them -- "leave the view
+ *   as-is", so a session reset doesn't overwrite the "Spinning up..." text the
+ *   activity set directly.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Pure data holder. No Android dependencies beyond the view model classes it
+ *   carries (ServeImpacts, PointEvent), which are plain data classes.
+ */
+public final class SessionSnapshot {
+
+    public static final int CHANGED_POINT_STATUS = 1;
+    public static final int CHANGED_POINT_VECTORS = 1 << 1;
+    public static final int CHANGED_SERVES = 1 << 2;
+    public static final int CHANGED_CALIBRATION = 1 << 3;
+    public static final int CHANGED_SYSTEM_STATE = 1 << 4;
+    public static final int CHANGED_TRACKING_LOG = 1 << 5;
+
+    /** Initial value before the first message: nothing tracked, nothing calibrated. */
+    public static final SessionSnapshot EMPTY = new SessionSnapshot(new SessionState(), 0);
+
+    public final int changes;
+
+    // --- SINGLES/DOUBLES point status ---
+    public final int pointNumber;
+    public final boolean waitingForServe;
+    public final String pointSummaryLine;     // "Deuce serve + 2 hits, Out, Left wins"
+    public final String inPointStatusText;    // "Ad serve + 1 hit..."
+    public final java.util.List<PointVectorView.PointEvent> pointEvents; // empty = cleared
+
+    // --- SERVE_PRACTICE ---
+    public final ServeImpacts serves;
+    public final String servesSummaryText;    // tvAvgMph, or null = leave
+    public final String lastServeText;        // tvLastServe, or null = leave
+    public final String lastServeCall;        // call for the background flash, or null
+    public final long receiveMs;              // socket receive time of the triggering message
+    public final long transportMs;            // server send -> receive, or -1
+
+    public final String trackingLogLine;      // appended to tvTrackingLog, or null
+
+    // --- Calibration (CALIBRATION_STATUS) ---
+    public final boolean leftCalibrated;
+    public final boolean rightCalibrated;
+    public final String poseLeft;
+    public final String poseRight;
+
+    // --- Server state (SYSTEM_STATE) ---
+    public final boolean serverTracking;
+    public final boolean serverRecording;
+    public final String serverMode;
+
+    SessionSnapshot(SessionState s, int changes) {
+        this.changes = changes;
+        this.pointNumber = s.pointNumber;
+        this.waitingForServe = s.waitingForServe;
+        this.pointSummaryLine = s.lastPointSummaryLine;
+        this.inPointStatusText = s.buildInPointStatusText();
+        this.pointEvents = s.pointEvents;
+        this.serves = s.servesView;
+        this.servesSummaryText = s.pendingServesSummaryText;
+        this.lastServeText = s.pendingLastServeText;
+        this.lastServeCall = s.pendingLastServeCall;
+        this.receiveMs = s.pendingReceiveMs;
+        this.transportMs = s.pendingTransportMs;
+        this.trackingLogLine = s.pendingTrackingLogLine;
+        this.leftCalibrated = s.leftCalibrated;
+        this.rightCalibrated = s.rightCalibrated;
+        this.poseLeft = s.poseLeft;
+        this.poseRight = s.poseRight;
+        this.serverTracking = s.serverTracking;
+        this.serverRecording = s.serverRecording;
+        this.serverMode = s.serverMode;
+    }
+
+    public boolean changed(int section) {
+        return (changes & section) != 0;
+    }
+}
@@ -0,0 +1,606 @@
+package com.murveit.tgcontrol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Session State - Algorithmic Overview
+ *
+ * The tennis-session state machine that used to live in MainActivity's fields and
+ * run inside its LiveData observer: point counting, serve side, stroke count,
+ * point summary line, serve statistics, calibration flags, server state, and the
+ * app-side audio decisions (which call to voice, when to beep). Pure Java -- no
+ * Handler, no Context, no SharedPreferences -- so it runs on the SessionProcessor
+ * thread and is testable on a plain JVM.
+ *
+ * 1. INITIALIZATION:
+ * - new SessionState(); owned and only ever touched by SessionProcessor's thread.
+ *
+ * 2. CALLING PROCEDURE:
+ * - One on*() method per inbound message type (onTrackEventJson, onPointUpdateJson,
+ *   onCalibrationStatus, onSystemState) plus the user-driven control events
+ *   (resetSession, clearPlot, onServerActive, resetPointState, resetStrokeCount).
+ * - Each takes a Settings value (preference values + the cross-thread audio flags
+ *   read by the caller at that instant) and returns an Update: the snapshot to
+ *   publish (or null), the audio cues to execute, and log lines to write.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - TRACK_EVENT_JSON ends a point: in-point trackers reset, waitingForServe set,
+ *   then SINGLES/DOUBLES decides voice/double-beep (suppressed for winners and
+ *   groundstroke net crashes), and SERVE_PRACTICE appends the impact, recomputes the "N serves, N In
+ *   P%, M MPH avg" line and the "Last: ..." line, and decides MPH/Fault/Let/beep.
+ * - POINT_UPDATE_JSON (SINGLES/DOUBLES only) starts a new point on the first
+ *   update after a TRACK_EVENT_JSON, derives serve side from the first stroke,
+ *   rebuilds the PointEvent list, records terminal_reason, asks for the last
+ *   stroke's terminal Out/Fault/Let, and beeps when the stroke count grows. While a
+ *   stroke is pending (has_pending_hit) it adds a PREARM cue naming that stroke's type.
+ * - Cues say WHAT should sound and for which stroke (strokeIndex, or
+ *   AudioArbiter.STROKE_ANY for TRACK_EVENT_JSON's terminal call), never whether
+ *   another path already played it: AudioArbiter de-duplicates by (point id, stroke
+ *   index), so the same call requested here and by CommunicationService's early
+ *   path plays exactly once.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - None. Audio and logging are returned as data for SessionProcessor to act on.
+ */
+public class SessionState {
+
+    static final String MODE_SINGLES = "SINGLES";
+    static final String MODE_DOUBLES = "DOUBLES";
+    static final String MODE_SERVE_PRACTICE = "SERVE_PRACTICE";
+
+    private static final String SENSOR_ID_LEFT_STR = "0";
+    private static final String SENSOR_ID_RIGHT_STR = "1";
+
+    /** Everything outside this class that a decision depends on, sampled once per
+     *  message by SessionProcessor (preferences plus CommunicationService's
+     *  cross-thread audio flags). */
+    public static final class Settings {
+        public String mode = MODE_SINGLES;
+        public boolean voiceCalls;
+        public boolean endOfPointBeeps;
+        public boolean inCalls;
+        public String inServeAudio = "mute";
+        public boolean nanoAudioActive;
+        public boolean speechAvailable;       // FastSpeechEngine initialized
+        public long nowMs;
+    }
+
+    /** One sound to request from AudioArbiter (kind is AudioArbiter.CALL / MPH /
+     *  BEEP / DOUBLE_BEEP); SessionProcessor adds the message's point id. */
+    public static final class AudioCue {
+        public final int kind;
+        public final int strokeIndex;              // or AudioArbiter.STROKE_ANY
+        public final String call;                  // CALL: "Out" / "Fault" / "Let"; PREARM: stroke type
+        public final double mph;                   // MPH only
+
+        AudioCue(int kind, int strokeIndex, String call, double mph) {
+            this.kind = kind;
+            this.strokeIndex = strokeIndex;
+            this.call = call;
+            this.mph = mph;
+        }
+    }
+
+    /** Result of one on*() call. */
+    public static final class Update {
+        public SessionSnapshot snapshot;           // null = nothing to publish
+        public final List<AudioCue> cues = new ArrayList<>(2);
+        public final List<String> logLines = new ArrayList<>(2);
+        public Boolean nanoAudio;                  // SYSTEM_STATE NANO_AUDIO, if present
+    }
+
+    // --- Point state (SINGLES/DOUBLES) ---
+    int pointNumber = 0;
+    // True after TRACK_EVENT_JSON; cleared by the next POINT_UPDATE_JSON (new point).
+    boolean waitingForServe = false;
+    String lastPointSummaryLine = "";
+    String inPointServeSide = "";   // "Deuce" or "Ad" from first stroke
+    int inPointStrokeCount = 0;
+    // Stroke count from the last POINT_UPDATE_JSON; used to detect new bounces for beep.
+    int lastKnownStrokeCount = 0;
+    // terminal_reason from the last POINT_UPDATE_JSON; suppresses voice for winners
+    // ("Double Bounce") and groundstroke net crashes ("Net Crash").
+    String lastTerminalReason = "";
+    List<PointVectorView.PointEvent> pointEvents = Collections.emptyList();
+
+    // --- Serve practice ---
+    private final ServeImpacts.Builder serves = new ServeImpacts.Builder();
+    ServeImpacts servesView = ServeImpacts.EMPTY;
+    int totalServeCount = 0;
+    int inServeCount = 0;
+    double sumInMph = 0.0;
+
+    // --- Calibration / server state ---
+    boolean leftCalibrated = false;
+    boolean rightCalibrated = false;
+    String poseLeft = "";
+    String poseRight = "";
+    boolean serverTracking = false;
+    boolean serverRecording = false;
+    String serverMode = "";
+
+    // --- One-shot values for the next snapshot only (see SessionSnapshot) ---
+    String pendingServesSummaryText;
+    String pendingLastServeText;
+    String pendingLastServeCall;
+    long pendingReceiveMs;
+    long pendingTransportMs = -1;
+    String pendingTrackingLogLine;
+
+    private SessionSnapshot snapshot(int changes) {
+        SessionSnapshot s = new SessionSnapshot(this, changes);
+        pendingServesSummaryText = null;
+        pendingLastServeText = null;
+        pendingLastServeCall = null;
+        pendingReceiveMs = 0;
+        pendingTransportMs = -1;
+        pendingTrackingLogLine = null;
+        return s;
+    }
+
+    private static boolean isSinglesDoubles(String mode) {
+        return MODE_SINGLES.equals(mode) || MODE_DOUBLES.equals(mode);
+    }
+
+    // =====================================================================
+    // TRACK_EVENT_JSON
+    // =====================================================================
+
+    public Update onTrackEventJson(String message, long receiveMs, Settings cfg) {
+        Update u = new Update();
+        int changes = SessionSnapshot.CHANGED_POINT_STATUS;
+
+        // Point ended: reset in-point stroke counter so next point starts fresh.
+        lastTerminalReason = "";
+        lastKnownStrokeCount = 0;
+        // Do NOT clear the plot here -- keep the last point's trajectory visible until the next
+        // serve is detected (first POINT_UPDATE_JSON of the new point). Transition to "Waiting".
+        waitingForServe = true;
+        try {
+            org.json.JSONObject json = new org.json.JSONObject(message);
+            String wallClock = json.optString("wall_clock", "");
+            String strikeType = json.optString("strike_type", "Hit");
+
+            // Trim whitespace defensively so matching "In" is bulletproof
+            String callStr = json.optString("call_str", "Unknown").trim();
+
+            double mph = json.optDouble("speed_mph", 0.0);
+            double bX = json.optDouble("bounce_x", 0.0);
+            double bY = json.optDouble("bounce_y", 0.0);
+            String reason = json.optString("reason", "");
+            String sideStr = json.optString("side", "");
+
+            long serverSendMs = json.optLong("server_send_unix_ms", 0L);
+            long transportMs = (serverSendMs > 0) ? (receiveMs - serverSendMs) : -1L;
+            int bounceFrame = json.optInt("bounce_frame", -1);
+            u.logLines.add(String.format(Locale.US,
+                "[LATENCY] JSON_RECEIVED bounce_frame=%d server_send_ms=%d receive_ms=%d transport_ms=%d",
+                bounceFrame, serverSendMs, receiveMs, transportMs));
+            if (transportMs >= 0) {
+                LatencyReport.record(LatencyReport.Stage.TRANSPORT, transportMs * 1000, bounceFrame);
+            }
+
+            u.logLines.add(String.format(Locale.US, "processTrackEvent: Type=%s, Call=%s, bX=%.2f, bY=%.2f, MPH=%.1f reason=%s", strikeType, callStr, bX, bY, mph, reason));
+
+            if (strikeType.length() > 0) {
+                strikeType = strikeType.substring(0, 1).toUpperCase() + strikeType.substring(1);
+            }
+            String timePrefix = wallClock.isEmpty() ? "" : wallClock + " ";
+            pendingTrackingLogLine = String.format(Locale.US, "%s%s. %s. %.0fmph",
+                                                   timePrefix, strikeType, callStr, mph);
+            changes |= SessionSnapshot.CHANGED_TRACKING_LOG;
+
+            if (isSinglesDoubles(cfg.mode)) {
+                decideEndOfPointAudio(callStr, lastTerminalReason, cfg, u);
+            }
+
+            if (MODE_SERVE_PRACTICE.equals(cfg.mode)) {
+                if (bX != 0.0 || bY != 0.0) {
+                    u.logLines.add("PLOTTING DOT AT: X=" + bX + " Y=" + bY);
+                    addServe((float) bX, (float) bY, callStr, mph);
+
+                    String displaySideStr;
+                    if (!sideStr.isEmpty()) {
+                        displaySideStr = sideStr.endsWith("Court") ? sideStr : sideStr + " Court";
+                    } else {
+                        // Legacy fallback if the Jetson payload is missing the side attribute
+                        displaySideStr = bX > 0 ? "Ad Court" : "Deuce Court";
+                    }
+                    pendingLastServeText = String.format(Locale.US, "Last: %s, %s, %.0f mph", displaySideStr, callStr, mph);
+                    pendingLastServeCall = callStr;
+                    pendingReceiveMs = receiveMs;
+                    pendingTransportMs = transportMs;
+                    changes |= SessionSnapshot.CHANGED_SERVES;
+                }
+                decideServeAudio(callStr, strikeType, mph, cfg, u);
+            }
+        } catch (Exception e) {
+            u.logLines.add("JSON Parse Error: " + e);
+        }
+        u.snapshot = snapshot(changes);
+        return u;
+    }
+
+    /** SINGLES/DOUBLES terminal-call voice and end-of-point double beep. */
+    private void decideEndOfPointAudio(String callStr, String terminalReason, Settings cfg, Update u) {
+        // Groundstroke net crash (Net Crash + Out) and winners (Double Bounce) are
+        // silent in SINGLES/DOUBLES -- voice suppressed, double-beep only if enabled.
+        // Serve net crashes have call_str=Fault and are NOT suppressed.
+        // Empty terminal_reason + In call means winner with no confirmed terminal event
+        // (Double Bounce found only by finalize(), or unreturned ball) -- also silent.
+        boolean suppressVoice = isSilentTerminal(terminalReason, callStr);
+        boolean isVoicedCall = "Out".equalsIgnoreCase(callStr)
+                || "Fault".equalsIgnoreCase(callStr) || "Let".equalsIgnoreCase(callStr);
+
+        // Normally already played -- by onPointUpdateJson's in-point call or by
+        // tryPlayEarlyAudio on the network thread -- in which case AudioArbiter drops
+        // this STROKE_ANY request as a duplicate. It sounds on its own only for the
+        // debug button path, which bypasses both.
+        if (!suppressVoice && !cfg.nanoAudioActive && cfg.voiceCalls && isVoicedCall) {
+            u.cues.add(new AudioCue(AudioArbiter.CALL, AudioArbiter.STROKE_ANY, canonicalCall(callStr), 0));
+        }
+
+        // End of Point Beeps: double-beep when no voice call was spoken.
+        boolean voiceSpoken = cfg.voiceCalls && !suppressVoice && isVoicedCall;
+        if (!cfg.nanoAudioActive && cfg.endOfPointBeeps && !voiceSpoken) {
+            u.cues.add(new AudioCue(AudioArbiter.DOUBLE_BEEP, AudioArbiter.STROKE_ANY, null, 0));
+        }
+    }
+
+    /** SERVE_PRACTICE fallback speech and In-serve beep. Speech normally fires from
+     *  CommunicationService.tryPlayEarlyAudio() for the same point id (AudioArbiter
+     *  drops this copy); this covers the debug button. */
+    private void decideServeAudio(String callStr, String strikeType, double mph, Settings cfg, Update u) {
+        // Only serves use the In-serve radio setting; non-serve In calls are always muted.
+        boolean isServeCall = "Serve".equalsIgnoreCase(strikeType);
+        if (!cfg.nanoAudioActive && cfg.voiceCalls) {
+            if ("In".equalsIgnoreCase(callStr) && isServeCall && "mph".equals(cfg.inServeAudio)) {
+                if (cfg.speechAvailable) {
+                    u.cues.add(new AudioCue(AudioArbiter.MPH, AudioArbiter.STROKE_ANY, null, mph));
+                }
+            } else if ("Out".equalsIgnoreCase(callStr) || "Fault".equalsIgnoreCase(callStr)) {
+                u.cues.add(new AudioCue(AudioArbiter.CALL, AudioArbiter.STROKE_ANY, "Fault", 0));
+            } else if ("Let".equalsIgnoreCase(callStr)) {
+                u.cues.add(new AudioCue(AudioArbiter.CALL, AudioArbiter.STROKE_ANY, "Let", 0));
+            }
+        }
+        // Beep for In serves (mutually exclusive with speech via the in_serve setting)
+        if (!cfg.nanoAudioActive && "beep".equals(cfg.inServeAudio) && cfg.voiceCalls
+                && "In".equalsIgnoreCase(callStr) && isServeCall) {
+            u.cues.add(new AudioCue(AudioArbiter.BEEP, AudioArbiter.STROKE_ANY, null, 0));
+        }
+    }
+
+    private void addServe(float x, float y, String callStr, double mph) {
+        serves.add(x, y, callStr);
+        servesView = serves.snapshot();   // O(1): shares the columns, fixed count
+
+        // Exclude "Let" from mathematical counts completely.
+        if (!"Let".equalsIgnoreCase(callStr)) {
+            totalServeCount++;
+            // Explicitly isolate "In" averages from Let, Out, and Fault
+            if ("In".equalsIgnoreCase(callStr)) {
+                inServeCount++;
+                if (mph > 0) sumInMph += mph;
+            }
+        }
+        String avgStr = "--";
+        String pctStr = "";
+        if (inServeCount > 0) {
+            avgStr = String.format(Locale.US, "%.0f", (sumInMph / inServeCount));
+            // Relying on totalServeCount implicitly being > 0 since inServeCount > 0
+            pctStr = String.format(Locale.US, " %.0f%%", (inServeCount * 100.0 / totalServeCount));
+        }
+        pendingServesSummaryText = String.format(Locale.US, "%d serves, %d In%s, %s MPH avg",
+                totalServeCount, inServeCount, pctStr, avgStr);
+    }
+
+    // =====================================================================
+    // POINT_UPDATE_JSON
+    // =====================================================================
+
+    public Update onPointUpdateJson(String message, Settings cfg) {
+        if (!isSinglesDoubles(cfg.mode)) return null;
+        Update u = new Update();
+        int changes = SessionSnapshot.CHANGED_POINT_STATUS | SessionSnapshot.CHANGED_POINT_VECTORS;
+        try {
+            org.json.JSONObject json = new org.json.JSONObject(message);
+            int strokeCount = json.optInt("stroke_count", 0);
+            boolean hasPendingHit = json.optBoolean("has_pending_hit", false);
+            org.json.JSONArray strokes = json.optJSONArray("strokes");
+
+            // Always keep the summary line current; used for "Waiting for Serve" display.
+            // The final POINT_UPDATE_JSON (partial=false) from voice_ready has the complete picture.
+            lastPointSummaryLine = buildPointSummaryLine(json, strokes);
+
+            // On the first POINT_UPDATE_JSON after TRACK_EVENT_JSON, the new point has started:
+            // clear the previous point's trajectory and transition to "Point Active".
+            if (waitingForServe) {
+                waitingForServe = false;
+                inPointServeSide = "";
+                inPointStrokeCount = 0;
+                pointNumber++;
+            }
+
+            // Re-check serve side on every update while still unset, since pending serves
+            // lack serve_side until the first resolved update arrives.
+            if (inPointServeSide.isEmpty()) {
+                inPointServeSide = deriveServeSide(strokes);
+            }
+            // Include the pending hit in the count so the status matches the visual label shown.
+            inPointStrokeCount = strokeCount + (hasPendingHit ? 1 : 0);
+
+            List<PointVectorView.PointEvent> eventList = new ArrayList<>();
+            if (strokes != null) {
+                for (int i = 0; i < strokes.length(); i++) {
+                    org.json.JSONObject s = strokes.getJSONObject(i);
+                    float hx = (float) s.optDouble("x", 0.0);
+                    float hy = (float) s.optDouble("y", 0.0);
+                    boolean isPending = s.optBoolean("pending", false);
+                    float bx = 0f, by = 0f, b2x = 0f, b2y = 0f;
+                    if (!isPending) {
+                        org.json.JSONObject bounce = s.optJSONObject("bounce");
+                        bx = bounce != null ? (float) bounce.optDouble("x", 0.0) : 0f;
+                        by = bounce != null ? (float) bounce.optDouble("y", 0.0) : 0f;
+                        org.json.JSONObject bounce2 = s.optJSONObject("bounce2");
+                        if (bounce2 != null) {
+                            b2x = (float) bounce2.optDouble("x", 0.0);
+                            b2y = (float) bounce2.optDouble("y", 0.0);
+                        }
+                    }
+                    String call = s.optString("call_str", "In");
+                    String type = s.optString("type", "hit");
+                    PointVectorView.PointEvent pe = new PointVectorView.PointEvent(hx, hy, bx, by, call, type);
+                    pe.pending  = isPending;
+                    pe.bounce2X = b2x;
+                    pe.bounce2Y = b2y;
+                    eventList.add(pe);
+                }
+            }
+            pointEvents = eventList;
+
+            lastTerminalReason = json.optString("terminal_reason", "");
+
+            // Voice audio: fire as soon as the last stroke resolves to a terminal call,
+            // concurrent with the PointVectorView update, rather than waiting 0.5-1.0 s for
+            // TRACK_EVENT_JSON. Keyed by that stroke's index: the repeated final update
+            // (partial=false) and TRACK_EVENT_JSON's own request are dropped by AudioArbiter.
+            if (strokes != null && strokes.length() > 0) {
+                int lastIndex = strokes.length() - 1;
+                org.json.JSONObject lastStroke = strokes.optJSONObject(lastIndex);
+                String lastCallStr = lastStroke != null ? lastStroke.optString("call_str", "In").trim() : "In";
+                if (cfg.voiceCalls && !cfg.nanoAudioActive && !isSilentTerminal(lastTerminalReason, lastCallStr)) {
+                    String call = canonicalCall(lastCallStr);
+                    if (call != null) {
+                        u.cues.add(new AudioCue(AudioArbiter.CALL, lastIndex, call, 0));
+                    }
+                }
+            }
+
+            // In-Point Beep: single short beep when a new stroke is confirmed mid-rally
+            if (strokeCount > lastKnownStrokeCount && cfg.inCalls && !cfg.nanoAudioActive) {
+                u.cues.add(new AudioCue(AudioArbiter.BEEP, strokeCount, null, 0));
+            }
+            lastKnownStrokeCount = strokeCount;
+
+            // Speculative pre-arm: a stroke is in flight and the next update resolves it to
+            // In/Out/Fault/Let. Queued after the cues above so this update's own call or beep
+            // consumes the previous arm first.
+            if (hasPendingHit && (cfg.voiceCalls || cfg.inCalls) && !cfg.nanoAudioActive
+                    && strokes != null && strokes.length() > 0) {
+                int pendingIndex = strokes.length() - 1;
+                org.json.JSONObject pending = strokes.optJSONObject(pendingIndex);
+                if (pending != null && pending.optBoolean("pending", false)) {
+                    u.cues.add(new AudioCue(AudioArbiter.PREARM, pendingIndex, pending.optString("type", "hit"), 0));
+                }
+            }
+        } catch (Exception e) {
+            u.logLines.add("processInPointUpdate parse error: " + e.getMessage());
+        }
+        u.snapshot = snapshot(changes);
+        return u;
+    }
+
+    /** Serve side ("Deuce"/"Ad") from the first stroke if it is a serve, else "".
+     *  Falls back to the hit position when serve_side is absent, using the same
+     *  formula as engine_physics.calculate_metrics(). */
+    private static String deriveServeSide(org.json.JSONArray strokes) {
+        if (strokes == null || strokes.length() == 0) return "";
+        org.json.JSONObject first = strokes.optJSONObject(0);
+        if (first == null || !"serve".equals(first.optString("type", ""))) return "";
+        String side = first.optString("serve_side", "");
+        if (side.isEmpty()) {
+            double hx = first.optDouble("x", 0.0);
+            double hy = first.optDouble("y", 0.0);
+            if (hy > 0) side = hx < 0 ? "Deuce" : "Ad"; // North baseline
+            else        side = hx > 0 ? "Deuce" : "Ad"; // South baseline
+        }
+        return side;
+    }
+
+    /**
+     * Build "Deuce serve + N hits, Call, Left/Right wins" from a POINT_UPDATE_JSON.
+     * Special case: strokeCount==1 (serve only) -> "Deuce serve, Call" (no "1 hit").
+     * winner_side "north" -> "Left", "south" -> "Right".
+     */
+    String buildPointSummaryLine(org.json.JSONObject json, org.json.JSONArray strokes) {
+        int strokeCount = json.optInt("stroke_count", 0);
+        String finalCall = json.optString("final_call", "");
+        String winnerSide = json.optString("winner_side", "");
+        if (strokeCount == 0) return "";
+
+        String serveSide = deriveServeSide(strokes);
+        if (serveSide.isEmpty()) serveSide = inPointServeSide;
+
+        StringBuilder sb = new StringBuilder();
+        if (!serveSide.isEmpty()) {
+            sb.append(serveSide).append(" serve");
+            if (strokeCount > 1) {
+                int hits = strokeCount - 1;
+                sb.append(" + ").append(hits).append(hits == 1 ? " hit" : " hits");
+            }
+        } else {
+            sb.append(strokeCount).append(strokeCount == 1 ? " hit" : " hits");
+        }
+        if (!finalCall.isEmpty()) sb.append(", ").append(finalCall);
+        if ("north".equals(winnerSide)) sb.append(", Left wins");
+        else if ("south".equals(winnerSide)) sb.append(", Right wins");
+        return sb.toString();
+    }
+
+    /** Build "Ad serve + 2 hits..." or "3 hits..." for the active-point status line. */
+    String buildInPointStatusText() {
+        if (inPointStrokeCount == 0) return "";
+        StringBuilder sb = new StringBuilder();
+        if (!inPointServeSide.isEmpty()) {
+            sb.append(inPointServeSide).append(" serve");
+            int returns = inPointStrokeCount - 1;
+            if (returns == 1) sb.append(" + 1 hit");
+            else if (returns > 1) sb.append(" + ").append(returns).append(" hits");
+        } else {
+            sb.append(inPointStrokeCount).append(inPointStrokeCount == 1 ? " hit" : " hits");
+        }
+        sb.append("...");
+        return sb.toString();
+    }
+
+    /** Winners ("Double Bounce"), groundstroke net crashes ("Net Crash" + Out) and an
+     *  In call with no terminal reason end the point silently; a serve net crash
+     *  carries call_str=Fault and is still voiced. */
+    private static boolean isSilentTerminal(String terminalReason, String callStr) {
+        return "Double Bounce".equals(terminalReason)
+                || ("Net Crash".equals(terminalReason) && "Out".equalsIgnoreCase(callStr))
+                || (terminalReason.isEmpty() && "In".equalsIgnoreCase(callStr));
+    }
+
+    /** "Out"/"Fault"/"Let" in canonical case, or null for any other call. */
+    private static String canonicalCall(String callStr) {
+        if ("Out".equalsIgnoreCase(callStr)) return "Out";
+        if ("Fault".equalsIgnoreCase(callStr)) return "Fault";
+        if ("Let".equalsIgnoreCase(callStr)) return "Let";
+        return null;
+    }
+
+    // =====================================================================
+    // CALIBRATION_STATUS / SYSTEM_STATE
+    // =====================================================================
+
+    /** Expected format: "0=1|pose text,1=0". */
+    public Update onCalibrationStatus(String data) {
+        Update u = new Update();
+        if (data != null) {
+            for (String part : data.split(",")) {
+                String[] pair = part.split("=");
+                if (pair.length != 2) continue;
+                String[] valParts = pair[1].split("\\|");
+                // "0=|" splits to an empty array (trailing empties are dropped).
+                boolean active = valParts.length > 0 && "1".equals(valParts[0]);
+                String pose = (active && valParts.length > 1) ? valParts[1] : "";
+                if (SENSOR_ID_LEFT_STR.equals(pair[0])) {
+                    leftCalibrated = active;
+                    poseLeft = pose;
+                } else if (SENSOR_ID_RIGHT_STR.equals(pair[0])) {
+                    rightCalibrated = active;
+                    poseRight = pose;
+                }
+            }
+        }
+        u.snapshot = snapshot(SessionSnapshot.CHANGED_CALIBRATION);
+        return u;
+    }
+
+    /** Expected format: "TRACKING=1,RECORDING=0,MODE=SINGLES,NANO_AUDIO=on". */
+    public Update onSystemState(String data) {
+        Update u = new Update();
+        boolean tracking = false;
+        boolean recording = false;
+        String mode = "";
+        if (data != null) {
+            for (String part : data.split(",")) {
+                String[] pair = part.split("=");
+                if (pair.length != 2) continue;
+                if ("TRACKING".equals(pair[0])) tracking = "1".equals(pair[1]);
+                if ("RECORDING".equals(pair[0])) recording = "1".equals(pair[1]);
+                if ("MODE".equals(pair[0])) mode = pair[1];
+                if ("NANO_AUDIO".equals(pair[0])) u.nanoAudio = "on".equals(pair[1]);
+            }
+        }
+        serverTracking = tracking;
+        serverRecording = recording;
+        serverMode = mode;
+        u.snapshot = snapshot(SessionSnapshot.CHANGED_SYSTEM_STATE);
+        return u;
+    }
+
+    // =====================================================================
+    // User-driven control events (posted from MainActivity)
+    // =====================================================================
+
+    /** Start pressed: clear serve statistics and point state for the new session. */
+    public Update resetSession() {
+        clearServes();
+        clearPoint();
+        pointNumber = 0;
+        Update u = new Update();
+        u.snapshot = snapshot(SessionSnapshot.CHANGED_SERVES | SessionSnapshot.CHANGED_POINT_VECTORS
+                | SessionSnapshot.CHANGED_POINT_STATUS);
+        return u;
+    }
+
+    /** Clear button: SINGLES/DOUBLES clears the vectors, otherwise the serve plot. */
+    public Update clearPlot(String mode) {
+        Update u = new Update();
+        if (isSinglesDoubles(mode)) {
+            u.logLines.add("Clearing point vectors from plot");
+            pointEvents = Collections.emptyList();
+            lastKnownStrokeCount = 0;
+            u.snapshot = snapshot(SessionSnapshot.CHANGED_POINT_VECTORS);
+        } else {
+            u.logLines.add("Clearing serves from plot");
+            clearServes();
+            pendingServesSummaryText = "0 serves, 0 In, -- MPH avg";
+            pendingLastServeText = "Ready for serves";
+            u.snapshot = snapshot(SessionSnapshot.CHANGED_SERVES);
+        }
+        return u;
+    }
+
+    /** Server reported "... Active" in SINGLES/DOUBLES: wait for the first serve. */
+    public Update onServerActive() {
+        waitingForServe = true;
+        Update u = new Update();
+        u.snapshot = snapshot(SessionSnapshot.CHANGED_POINT_STATUS);
+        return u;
+    }
+
+    /** Entering a tennis mode while the server is idle: start from a clean court. */
+    public Update resetPointState() {
+        clearPoint();
+        Update u = new Update();
+        u.snapshot = snapshot(SessionSnapshot.CHANGED_POINT_VECTORS | SessionSnapshot.CHANGED_POINT_STATUS);
+        return u;
+    }
+
+    public void resetStrokeCount() {
+        lastKnownStrokeCount = 0;
+    }
+
+    private void clearServes() {
+        serves.clear();
+        servesView = ServeImpacts.EMPTY;
+        totalServeCount = 0;
+        inServeCount = 0;
+        sumInMph = 0.0;
+    }
+
+    private void clearPoint() {
+        pointEvents = Collections.emptyList();
+        waitingForServe = false;
+        lastPointSummaryLine = "";
+        inPointServeSide = "";
+        inPointStrokeCount = 0;
+    }
+}
@@ -37,7 +37,10 @@ package com.murveit.tgcontrol;
  *     nano_audio=0/1, voice_calls=0/1, in_serve=mph/beep/mute, end_of_point_beeps=0/1.
  * - Disk Persistence: onPause() asynchronously commits all UI states to SharedPreferences.
  * - Log Management: Provides utility functions to read, compress (GZIP), and share the app's
- *   debug text logs using Android's FileProvider system.
+ *   debug text logs using Android's FileProvider system. View Logs opens LogViewerActivity.
+ * - Log Levels: one Debug/Info/Warn/Off spinner per FileLogger.Category plus a "full payloads"
+ *   checkbox. Changes reach FileLogger immediately (setThreshold / setFullPayloads) and are
+ *   persisted in onPause() with everything else; FileLogger reads them back at start-up.
  *
  * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
  * - Writes configuration data to device storage, mutating the parameters used by `MainActivity`.
@@ -91,6 +94,9 @@ public class SettingsActivity extends AppCompatActivity {
     public static final String KEY_DEBUG_AUDIO = "debug_audio";
     public static final String KEY_DET_THRESH = "det_thresh";
     public static final String KEY_SERVE_THRESH = "serve_thresh";
+    // Per-category FileLogger threshold: KEY_LOG_LEVEL_PREFIX + category, int (FileLogger.DEBUG..OFF).
+    public static final String KEY_LOG_LEVEL_PREFIX = "log_level_";
+    public static final String KEY_LOG_FULL_PAYLOADS = "log_full_payloads";
     
     // Default algorithmic constant for serve pruning (90 = 0.90 threshold)
     private static final int DEFAULT_SERVE_THRESH = 90;
@@ -108,6 +114,8 @@ public class SettingsActivity extends AppCompatActivity {
     private CheckBox cbDebugCalibration;
     private CheckBox cbUseCannedCalibration;
     private CheckBox cbDebugAudio;
+    private CheckBox cbLogFullPayloads;
+    private final Spinner[] spnLogLevels = new Spinner[FileLogger.Category.values().length];
     private EditText etExposureLow;
     private EditText etExposureHigh;
     private EditText etGain;
@@ -140,6 +148,8 @@ public class SettingsActivity extends AppCompatActivity {
         cbDebugCalibration = findViewById(R.id.cbDebugCalibration);
         cbUseCannedCalibration = findViewById(R.id.cbUseCannedCalibration);
         cbDebugAudio = findViewById(R.id.cbDebugAudio);
+        cbLogFullPayloads = findViewById(R.id.cbLogFullPayloads);
+        buildLogLevelRows();
 
         etExposureLow = findViewById(R.id.etExposureLow);
         TextView tvExposureLowSeconds = findViewById(R.id.tvExposureLowSeconds);
@@ -215,6 +225,12 @@ public class SettingsActivity extends AppCompatActivity {
             btnShareLogs.setOnClickListener(v -> shareLogFile());
         }
 
+        Button btnViewLogs = findViewById(R.id.btnViewLogs);
+        if (btnViewLogs != null) {
+            btnViewLogs.setOnClickListener(v -> startActivity(
+                    new android.content.Intent(this, LogViewerActivity.class)));
+        }
+
         if (spnConnectionTarget != null) {
             ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(this,
                     R.array.connection_options, android.R.layout.simple_spinner_item);
@@ -225,6 +241,55 @@ public class SettingsActivity extends AppCompatActivity {
         loadSettings();
         setupSeekBarListeners();
         setupAudioListeners();
+        setupLogListeners();
+    }
+
+    /** One "Category: [level]" row per FileLogger.Category under llLogLevels. */
+    private void buildLogLevelRows() {
+        android.widget.LinearLayout container = findViewById(R.id.llLogLevels);
+        if (container == null) return;
+        for (FileLogger.Category c : FileLogger.Category.values()) {
+            android.widget.LinearLayout row = new android.widget.LinearLayout(this);
+            row.setOrientation(android.widget.LinearLayout.HORIZONTAL);
+            row.setGravity(android.view.Gravity.CENTER_VERTICAL);
+
+            TextView label = new TextView(this);
+            String name = c.name().toLowerCase(Locale.US);
+            label.setText(Character.toUpperCase(name.charAt(0)) + name.substring(1) + ":");
+            row.addView(label, new android.widget.LinearLayout.LayoutParams(0,
+                    android.view.ViewGroup.LayoutParams.WRAP_CONTENT, 1));
+
+            Spinner spn = new Spinner(this);
+            ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
+                    android.R.layout.simple_spinner_item, FileLogger.LEVEL_NAMES);
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            spn.setAdapter(adapter);
+            row.addView(spn, new android.widget.LinearLayout.LayoutParams(0,
+                    android.view.ViewGroup.LayoutParams.WRAP_CONTENT, 1));
+
+            spnLogLevels[c.ordinal()] = spn;
+            container.addView(row);
+        }
+    }
+
+    private void setupLogListeners() {
+        // Applied live so a level can be raised mid-session; persisted in onPause().
+        for (FileLogger.Category c : FileLogger.Category.values()) {
+            Spinner spn = spnLogLevels[c.ordinal()];
+            if (spn == null) continue;
+            spn.setOnItemSelectedListener(new android.widget.AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(android.widget.AdapterView<?> parent, android.view.View view, int position, long id) {
+                    FileLogger.setThreshold(c, position);
+                }
+
+                @Override
+                public void onNothingSelected(android.widget.AdapterView<?> parent) {}
+            });
+        }
+        if (cbLogFullPayloads != null) {
+            cbLogFullPayloads.setOnCheckedChangeListener((btn, isChecked) -> FileLogger.setFullPayloads(isChecked));
+        }
     }
 
     private void setupNanoToSecondsWatcher(EditText editText, TextView outputTextView) {
@@ -288,6 +353,11 @@ public class SettingsActivity extends AppCompatActivity {
         if (cbDebugCalibration != null) cbDebugCalibration.setChecked(prefs.getBoolean(KEY_DEBUG_CALIBRATION, false));
         if (cbUseCannedCalibration != null) cbUseCannedCalibration.setChecked(prefs.getBoolean(KEY_USE_CANNED_CALIBRATION, false));
         if (cbDebugAudio != null) cbDebugAudio.setChecked(prefs.getBoolean(KEY_DEBUG_AUDIO, false));
+        if (cbLogFullPayloads != null) cbLogFullPayloads.setChecked(prefs.getBoolean(KEY_LOG_FULL_PAYLOADS, false));
+        for (FileLogger.Category c : FileLogger.Category.values()) {
+            Spinner spn = spnLogLevels[c.ordinal()];
+            if (spn != null) spn.setSelection(prefs.getInt(FileLogger.thresholdKey(c), FileLogger.INFO));
+        }
 
         if (etExposureLow != null) etExposureLow.setText(String.valueOf(prefs.getLong(KEY_EXPOSURE_LOW, 10000L)));
         if (etExposureHigh != null) etExposureHigh.setText(String.valueOf(prefs.getLong(KEY_EXPOSURE_HIGH, 10000L)));
@@ -327,6 +397,11 @@ public class SettingsActivity extends AppCompatActivity {
         if (cbDebugCalibration != null) editor.putBoolean(KEY_DEBUG_CALIBRATION, cbDebugCalibration.isChecked());
         if (cbUseCannedCalibration != null) editor.putBoolean(KEY_USE_CANNED_CALIBRATION, cbUseCannedCalibration.isChecked());
         if (cbDebugAudio != null) editor.putBoolean(KEY_DEBUG_AUDIO, cbDebugAudio.isChecked());
+        if (cbLogFullPayloads != null) editor.putBoolean(KEY_LOG_FULL_PAYLOADS, cbLogFullPayloads.isChecked());
+        for (FileLogger.Category c : FileLogger.Category.values()) {
+            Spinner spn = spnLogLevels[c.ordinal()];
+            if (spn != null) editor.putInt(FileLogger.thresholdKey(c), spn.getSelectedItemPosition());
+        }
 
         if (etExposureLow != null) {
             try {
@@ -402,6 +477,7 @@ public class SettingsActivity extends AppCompatActivity {
     }
 
     private void shareLogFile() {
+        FileLogger.flush();   // the writer batches; get everything queued onto disk first
         java.io.File logFile = new java.io.File(getExternalFilesDir(null), "tgcontrol_logs.txt");
         if (!logFile.exists() || logFile.length() == 0) {
             android.widget.Toast.makeText(this, "Log file is empty or not found", android.widget.Toast.LENGTH_SHORT).show();
@@ -449,9 +525,8 @@ public class SettingsActivity extends AppCompatActivity {
 
     private void clearLogs() {
         try {
-            java.io.File logFile = new java.io.File(getExternalFilesDir(null), "tgcontrol_logs.txt");
             java.io.File gzipFile = new java.io.File(getExternalFilesDir(null), "tgcontrol_logs.txt.gz");
-            if (logFile.exists()) logFile.delete();
+            FileLogger.clear(this);   // through the logger: it holds the file open
             if (gzipFile.exists()) gzipFile.delete();
             android.widget.Toast.makeText(this, "Logs cleared", android.widget.Toast.LENGTH_SHORT).show();
             FileLogger.log(this, "--- Log cleared by user ---");
@@ -0,0 +1,111 @@
+package com.murveit.tgcontrol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Speech Atoms - Algorithmic Overview
+ *
+ * The vocabulary FastSpeechEngine's concatenative mode renders instead of one
+ * file per speed: 29 short clips ("one".."nineteen", "twenty".."ninety",
+ * "one hundred", "miles per hour") from which every readout from 1 to 199 mph is
+ * spelled at play time.
+ *
+ * 1. INITIALIZATION:
+ * - Static tables only.
+ *
+ * 2. CALLING PROCEDURE:
+ * - all() -> the atom texts to synthesize (each is also its cache key).
+ * - parseMph("73 miles per hour") -> 73, parseMph("105") -> 105, anything else -> -1;
+ *   hasUnits(phrase) tells the two forms apart.
+ * - atomsFor(mph, units, out) -> fills `out` with the atom sequence and returns
+ *   its length (0 when the number can't be spelled).
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - US-style readout without "and": 73 -> "seventy" "three"; 105 -> "one hundred"
+ *   "five"; 117 -> "one hundred" "seventeen"; 140 -> "one hundred" "forty".
+ * - parseMph accepts exactly the two strings AudioArbiter produces, so no other
+ *   phrase is ever mistaken for a number.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Pure Java, no allocation in atomsFor()/parseMph().
+ */
+final class SpeechAtoms {
+
+    static final String UNITS = "miles per hour";
+    static final String HUNDRED = "one hundred";
+    static final int MAX_ATOMS_PER_PHRASE = 4;   // "one hundred" "twenty" "three" "miles per hour"
+
+    private static final String[] ONES = {
+            "one", "two", "three", "four", "five", "six", "seven", "eight", "nine"};
+    private static final String[] TEENS = {
+            "ten", "eleven", "twelve", "thirteen", "fourteen", "fifteen", "sixteen",
+            "seventeen", "eighteen", "nineteen"};
+    private static final String[] TENS = {
+            "twenty", "thirty", "forty", "fifty", "sixty", "seventy", "eighty", "ninety"};
+
+    private static final List<String> ALL;
+    static {
+        List<String> all = new ArrayList<>(29);
+        Collections.addAll(all, ONES);
+        Collections.addAll(all, TEENS);
+        Collections.addAll(all, TENS);
+        all.add(HUNDRED);
+        all.add(UNITS);
+        ALL = Collections.unmodifiableList(all);
+    }
+
+    private SpeechAtoms() {}
+
+    static List<String> all() {
+        return ALL;
+    }
+
+    /** The MPH value of "N" or "N miles per hour", else -1. */
+    static int parseMph(String phrase) {
+        if (phrase == null) return -1;
+        int len = phrase.length();
+        int digitsEnd = 0;
+        int value = 0;
+        while (digitsEnd < len && digitsEnd < 4) {
+            char c = phrase.charAt(digitsEnd);
+            if (c < '0' || c > '9') break;
+            value = value * 10 + (c - '0');
+            digitsEnd++;
+        }
+        if (digitsEnd == 0) return -1;
+        if (digitsEnd == len) return value;
+        if (len == digitsEnd + 1 + UNITS.length() && phrase.charAt(digitsEnd) == ' '
+                && phrase.startsWith(UNITS, digitsEnd + 1)) {
+            return value;
+        }
+        return -1;
+    }
+
+    static boolean hasUnits(String phrase) {
+        return phrase.endsWith(UNITS);
+    }
+
+    /** Fills `out` (length >= MAX_ATOMS_PER_PHRASE) with the atoms for `mph`. */
+    static int atomsFor(int mph, boolean units, String[] out) {
+        if (mph <= 0 || mph >= 200) return 0;
+        int n = 0;
+        int rest = mph;
+        if (rest >= 100) {
+            out[n++] = HUNDRED;
+            rest -= 100;
+        }
+        if (rest >= 20) {
+            out[n++] = TENS[rest / 10 - 2];
+            rest %= 10;
+            if (rest > 0) out[n++] = ONES[rest - 1];
+        } else if (rest >= 10) {
+            out[n++] = TEENS[rest - 10];
+        } else if (rest > 0) {
+            out[n++] = ONES[rest - 1];
+        }
+        if (units) out[n++] = UNITS;
+        return n;
+    }
+}
@@ -0,0 +1,72 @@
+package com.murveit.tgcontrol;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Build;
+
+/**
+ * Static Tracks - Algorithmic Overview
+ *
+ * The one place that builds a MODE_STATIC AudioTrack holding a whole 16-bit PCM sound,
+ * shared by CallClipBank (call clips), ToneBank (beeps) and AudioPrearm (keep-alive).
+ *
+ * 1. INITIALIZATION:
+ * - None; static helpers.
+ *
+ * 2. CALLING PROCEDURE:
+ * - staticTrack(pcm, rate, channels, contentType, lowLatency) for PCM held as shorts,
+ *   staticTrack(bytes, offset, length, ...) for a WAV file's data chunk.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - USAGE_MEDIA attributes with the caller's content type, a buffer exactly the size of
+ *   the sound, and PERFORMANCE_MODE_LOW_LATENCY (API 26+) when asked for. The whole
+ *   sound is written up front; a short write releases the track and throws
+ *   IllegalStateException, so a caller never holds a half-filled track.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - A new AudioTrack the caller owns and releases.
+ */
+final class StaticTracks {
+
+    private StaticTracks() {}
+
+    static AudioTrack staticTrack(short[] pcm, int rate, int channels, int contentType, boolean lowLatency) {
+        AudioTrack track = builder(pcm.length * 2, rate, channels, contentType, lowLatency).build();
+        checkWritten(track, track.write(pcm, 0, pcm.length), pcm.length);
+        return track;
+    }
+
+    static AudioTrack staticTrack(byte[] data, int offset, int length, int rate, int channels,
+                                  int contentType, boolean lowLatency) {
+        AudioTrack track = builder(length, rate, channels, contentType, lowLatency).build();
+        checkWritten(track, track.write(data, offset, length), length);
+        return track;
+    }
+
+    private static AudioTrack.Builder builder(int bytes, int rate, int channels, int contentType, boolean lowLatency) {
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(contentType)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .setSampleRate(rate)
+                        .setChannelMask(channels == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO)
+                        .build())
+                .setTransferMode(AudioTrack.MODE_STATIC)
+                .setBufferSizeInBytes(bytes);
+        if (lowLatency && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        return builder;
+    }
+
+    private static void checkWritten(AudioTrack track, int written, int expected) {
+        if (written != expected) {
+            track.release();
+            throw new IllegalStateException("Static write returned " + written + " of " + expected);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.murveit.tgcontrol;
+
+import java.util.Locale;
+
+/**
+ * Status Frames - Algorithmic Overview
+ *
+ * Formats the recording progress line from a STATUS_FRAMES payload:
+ * "processed,written,freeMb[,elapsedSeconds]" ->
+ * "Frames:   120   118 | Time 01:02 | Free Disk 12.3 Gb".
+ *
+ * 1. INITIALIZATION:
+ * - Stateless; static helper only.
+ *
+ * 2. CALLING PROCEDURE:
+ * - CommunicationService's reader loop calls formatStatusLine() for every
+ *   STATUS_FRAMES message (roughly 1 Hz while recording).
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - The server is the definitive source of truth for recording time (4th field);
+ *   fallbackElapsedSeconds (phone-side clock since Start) covers older servers.
+ * - The client-side MIN_FREE_DISK_GB logic was removed: the Orin Nano server
+ *   autonomously monitors its own hardware limits; this is display-only.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Returns null when fewer than three fields are present (message ignored, as
+ *   before). Throws NumberFormatException for a non-numeric field; the caller
+ *   logs it and shows "Error parsing frame data". Pure Java, no I/O.
+ */
+final class StatusFrames {
+
+    private StatusFrames() {}
+
+    static String formatStatusLine(String data, long fallbackElapsedSeconds) {
+        String[] parts = data.split(",");
+        if (parts.length < 3) return null;
+
+        int framesProcessed = Integer.parseInt(parts[0].trim());
+        int framesWritten = Integer.parseInt(parts[1].trim());
+        float freeSpaceGb = Float.parseFloat(parts[2].trim()) / 1000.0f;
+
+        long elapsedSeconds = parts.length >= 4
+                ? Long.parseLong(parts[3].trim())
+                : fallbackElapsedSeconds;
+
+        long seconds = elapsedSeconds % 60;
+        long minutes = (elapsedSeconds / 60) % 60;
+        long hours = elapsedSeconds / 3600;
+
+        String elapsedTime;
+        if (hours > 0) {
+            elapsedTime = String.format(Locale.US, "%d:%02d:%02d", hours, minutes, seconds);
+        } else {
+            elapsedTime = String.format(Locale.US, "%02d:%02d", minutes, seconds);
+        }
+
+        return String.format(Locale.US, "Frames: %5d %5d | Time %s | Free Disk %.1f Gb",
+                framesProcessed, framesWritten, elapsedTime, freeSpaceGb);
+    }
+}
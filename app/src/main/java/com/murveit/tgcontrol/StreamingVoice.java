@@ -0,0 +1,170 @@
+package com.murveit.tgcontrol;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Streaming Voice - Algorithmic Overview
+ *
+ * One long-lived MODE_STREAM AudioTrack plus a feeder thread that plays
+ * utterances FastSpeechEngine stitches at speakIfReady() time (concatenative MPH
+ * readouts) and whole phrases straight out of the memory-mapped PhraseBank.
+ * Lets the engine keep its audio as plain PCM instead of one decoded SoundPool
+ * sample per possible phrase.
+ *
+ * 1. INITIALIZATION:
+ * - new StreamingVoice(sampleRate) once the first atom's rate is known; the track
+ *   and the "StreamingVoice" thread (THREAD_PRIORITY_AUDIO) are created here.
+ *
+ * 2. CALLING PROCEDURE:
+ * - play(pcm) or play(slice) from any thread; returns immediately. A slice may be
+ *   a direct view of an mmapped file: it is read chunk by chunk as it is written,
+ *   never copied whole.
+ * - track() exposes the AudioTrack for timestamp queries (AudioLatencyMonitor) only.
+ * - release() from FastSpeechEngine.shutdown(), or on the engine's prefetch thread for a
+ *   voice replaced at a new sample rate. A play() after release() is silently dropped.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Single pending slot, latest wins: a new utterance arriving while one is still
+ *   being written cuts it off (pause + flush), like TTS QUEUE_FLUSH -- a stale
+ *   speed readout is worse than none.
+ * - The feeder writes in ~10 ms chunks so a newer utterance is noticed quickly,
+ *   then calls stop(), which lets the already-queued tail play out.
+ * - PERFORMANCE_MODE_LOW_LATENCY on API 26+; the buffer is twice the device
+ *   minimum so the first write already covers one mixer period.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Audio output. One small native track buffer for the engine's lifetime.
+ */
+final class StreamingVoice {
+    private static final String TAG = "StreamingVoice";
+
+    final int sampleRate;
+    private final AudioTrack track;
+    private final Thread feeder;
+    private final int chunkSamples;
+
+    private final Object lock = new Object();
+    private final short[] scratch;    // feeder thread only: staging for non-array slices
+    private ShortBuffer pending;      // guarded by lock
+    private volatile boolean running = true;
+
+    StreamingVoice(int sampleRate) {
+        this.sampleRate = sampleRate;
+        int minBytes = AudioTrack.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_OUT_MONO,
+                AudioFormat.ENCODING_PCM_16BIT);
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_GAME)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .setSampleRate(sampleRate)
+                        .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                        .build())
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .setBufferSizeInBytes(Math.max(minBytes, 1024) * 2);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        track = builder.build();
+        chunkSamples = Math.max(64, sampleRate / 100);
+        scratch = new short[chunkSamples];
+        feeder = new Thread(this::feedLoop, "StreamingVoice");
+        feeder.start();
+    }
+
+    void play(short[] pcm) {
+        play(ShortBuffer.wrap(pcm));
+    }
+
+    /** Plays remaining() samples from the slice's position; the caller must not reuse it. */
+    void play(ShortBuffer slice) {
+        synchronized (lock) {
+            pending = slice;
+            lock.notifyAll();
+        }
+    }
+
+    AudioTrack track() {
+        return track;
+    }
+
+    void release() {
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        try {
+            feeder.join(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        track.release();
+    }
+
+    private void feedLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        ShortBuffer current = null;
+        while (running) {
+            if (current == null) {
+                synchronized (lock) {
+                    while (running && pending == null) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    current = pending;
+                    pending = null;
+                }
+                if (!running) break;
+            }
+            try {
+                track.pause();
+                track.flush();
+                track.play();
+                ShortBuffer next = null;
+                while (current.hasRemaining() && running) {
+                    int len = Math.min(chunkSamples, current.remaining());
+                    int n;
+                    if (current.hasArray()) {
+                        n = track.write(current.array(), current.arrayOffset() + current.position(), len);
+                        if (n > 0) current.position(current.position() + n);
+                    } else {
+                        // Mapped slice: copy one chunk out, never the whole phrase.
+                        current.mark();
+                        current.get(scratch, 0, len);
+                        n = track.write(scratch, 0, len);
+                        current.reset();
+                        if (n > 0) current.position(current.position() + n);
+                    }
+                    if (n < 0) {
+                        Log.e(TAG, "AudioTrack.write failed: " + n);
+                        break;
+                    }
+                    synchronized (lock) {
+                        if (pending != null) {
+                            next = pending;
+                            pending = null;
+                            break;
+                        }
+                    }
+                }
+                if (next == null) track.stop(); // drains the queued tail, then stops
+                current = next;
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Streaming playback failed", e);
+                current = null;
+            }
+        }
+    }
+}
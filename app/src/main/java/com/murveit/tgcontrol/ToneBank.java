@@ -0,0 +1,171 @@
+package com.murveit.tgcontrol;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+
+/**
+ * Tone Bank - Algorithmic Overview
+ *
+ * Process-wide bank of the session beeps, synthesized once as PCM and held in
+ * static-mode AudioTracks. Replaces ToneGenerator.startTone(), whose start latency
+ * varies with the tone service, and the double beep's second startTone() scheduled
+ * 250 ms later through a Handler -- a gap that stretched whenever that thread was
+ * busy. The double beep is now one buffer: both tones and the silence between them
+ * are laid down sample-accurately, so its spacing cannot drift.
+ *
+ * 1. INITIALIZATION:
+ * - preload(context) from MainActivity.onCreate() and CommunicationService.onCreate();
+ *   the first call starts one background thread that renders the tones and builds
+ *   their tracks. Later calls are no-ops. A few KB of PCM for the process lifetime,
+ *   so there is no release path.
+ *
+ * 2. CALLING PROCEDURE:
+ * - play(TONE_BEEP / TONE_DOUBLE_BEEP), from AudioArbiter's URGENT_AUDIO thread.
+ * - prime(tone) ahead of a likely beep (AudioPrearm): the stop/rewind happens now and
+ *   the next play() of that tone is a bare track.play(), as in CallClipBank.prime().
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Rendered at the device's native output rate (AudioTrack.getNativeOutputSampleRate),
+ *   so the fast mixer path needs no resampler.
+ * - Each tone is 400 Hz + 1200 Hz (the pair ToneGenerator's TONE_PROP_* beeps use),
+ *   TONE_MS long, with FADE_MS raised-cosine edges so starts and stops don't click.
+ *   The double beep is tone, DOUBLE_GAP_MS of silence, tone: onsets 250 ms apart,
+ *   exactly as the old postDelayed(HAPPY_BEEP_DURATION_MS + 100) intended.
+ * - MODE_STATIC + PERFORMANCE_MODE_LOW_LATENCY (API 26+); replay is stop() ->
+ *   reloadStaticData() -> play() under the track's lock, as in CallClipBank.
+ * - A tone whose track isn't built yet (first beep raced the preload) is built on the
+ *   calling thread -- a couple of ms, still far below ToneGenerator's start latency.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Audio output. Logs build time and failures via FileLogger.
+ */
+public final class ToneBank {
+
+    public static final int TONE_BEEP = 0;
+    public static final int TONE_DOUBLE_BEEP = 1;
+    private static final int TONE_COUNT = 2;
+
+    static final int TONE_MS = 150;
+    static final int DOUBLE_GAP_MS = 100;
+    private static final int FADE_MS = 5;
+    private static final double LOW_HZ = 400;
+    private static final double HIGH_HZ = 1200;
+    private static final double AMPLITUDE = 0.45;   // per partial; the sum stays below full scale
+
+    private static ToneBank instance;
+
+    private final Context appContext;
+    private final AudioTrack[] tracks = new AudioTrack[TONE_COUNT];
+    private final boolean[] primed = new boolean[TONE_COUNT];   // guarded by the tone's track
+
+    private ToneBank(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    /** Starts the one-time background render. Safe to call repeatedly, from any thread. */
+    public static synchronized ToneBank preload(Context context) {
+        if (instance == null) {
+            instance = new ToneBank(context);
+            ToneBank bank = instance;
+            new Thread(bank::buildAll, "ToneBank").start();
+        }
+        return instance;
+    }
+
+    /** Returns the track the tone started on, or null if it could not play. */
+    public AudioTrack play(int tone) {
+        if (tone < 0 || tone >= TONE_COUNT) return null;
+        AudioTrack track = trackFor(tone);
+        if (track == null) return null;
+        try {
+            synchronized (track) {
+                if (!primed[tone]) {
+                    if (track.getPlayState() != AudioTrack.PLAYSTATE_STOPPED) track.stop();
+                    track.reloadStaticData();
+                }
+                primed[tone] = false;
+                track.play();
+            }
+            return track;
+        } catch (IllegalStateException e) {
+            FileLogger.log(appContext, "ToneBank replay failed for tone " + tone, e);
+            return null;
+        }
+    }
+
+    /** Stops and rewinds an idle tone so its next play() starts at once; false if not possible now. */
+    public boolean prime(int tone) {
+        if (tone < 0 || tone >= TONE_COUNT) return false;
+        AudioTrack track = trackFor(tone);
+        if (track == null) return false;
+        try {
+            synchronized (track) {
+                if (primed[tone]) return true;
+                if (track.getPlayState() == AudioTrack.PLAYSTATE_PLAYING
+                        && track.getPlaybackHeadPosition() < track.getBufferSizeInFrames()) {
+                    return false;   // still sounding; leave it be
+                }
+                if (track.getPlayState() != AudioTrack.PLAYSTATE_STOPPED) track.stop();
+                track.reloadStaticData();
+                primed[tone] = true;
+                return true;
+            }
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    private void buildAll() {
+        long startNs = System.nanoTime();
+        for (int i = 0; i < TONE_COUNT; i++) trackFor(i);
+        FileLogger.log(appContext, "ToneBank: built in " + (System.nanoTime() - startNs) / 1_000_000 + " ms");
+    }
+
+    private AudioTrack trackFor(int tone) {
+        synchronized (tracks) {
+            if (tracks[tone] == null) {
+                try {
+                    int rate = AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_MUSIC);
+                    if (rate <= 0) rate = 48000;
+                    short[] pcm = tone == TONE_DOUBLE_BEEP ? renderDoubleBeep(rate) : renderTone(rate);
+                    tracks[tone] = buildTrack(pcm, rate);
+                } catch (RuntimeException e) {
+                    FileLogger.log(appContext, "ToneBank: failed to build tone " + tone, e);
+                }
+            }
+            return tracks[tone];
+        }
+    }
+
+    static short[] renderTone(int rate) {
+        short[] pcm = new short[rate * TONE_MS / 1000];
+        writeTone(pcm, 0, pcm.length, rate);
+        return pcm;
+    }
+
+    static short[] renderDoubleBeep(int rate) {
+        int tone = rate * TONE_MS / 1000;
+        int gap = rate * DOUBLE_GAP_MS / 1000;
+        short[] pcm = new short[tone * 2 + gap];
+        writeTone(pcm, 0, tone, rate);
+        writeTone(pcm, tone + gap, tone, rate);
+        return pcm;
+    }
+
+    private static void writeTone(short[] out, int start, int length, int rate) {
+        int fade = Math.max(1, rate * FADE_MS / 1000);
+        for (int i = 0; i < length; i++) {
+            double t = (double) i / rate;
+            double v = AMPLITUDE * (Math.sin(2 * Math.PI * LOW_HZ * t) + Math.sin(2 * Math.PI * HIGH_HZ * t));
+            int edge = Math.min(i, length - 1 - i);
+            if (edge < fade) v *= 0.5 - 0.5 * Math.cos(Math.PI * edge / fade);
+            out[start + i] = (short) Math.round(v * Short.MAX_VALUE);
+        }
+    }
+
+    private static AudioTrack buildTrack(short[] pcm, int rate) {
+        return StaticTracks.staticTrack(pcm, rate, 1, AudioAttributes.CONTENT_TYPE_SONIFICATION, true);
+    }
+}
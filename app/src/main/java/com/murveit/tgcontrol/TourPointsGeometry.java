@@ -0,0 +1,349 @@
+package com.murveit.tgcontrol;
+
+/**
+ * Tour Points Geometry - Algorithmic Overview
+ *
+ * Immutable, packed-array model of one GET_TOUR_POINTS response: everything
+ * CalibrationOverlayView draws (green wireframe, blue fitted lines, anchor/strap
+ * dots, handle markers) plus the locked-line bookkeeping that colors it. Replaces
+ * the List<float[]> / HashSet-per-response representation CalibrationActivity
+ * used to build, which allocated one float[] per wireframe segment and anchor and
+ * ran String.split + Float.parseFloat per coordinate -- and ran again after every
+ * single ADJUST_COMPLETE round trip in Adjust/Tour mode.
+ *
+ * 1. INITIALIZATION:
+ * - Built only via parse(payload); EMPTY is the shared "no geometry" instance
+ *   (fresh START_CALIBRATION, before the first response arrives). parse() fills a
+ *   private Builder, and the instance takes its arrays and counts into final fields.
+ *
+ * 2. CALLING PROCEDURE:
+ * - CalibrationActivity.handleTourPointsResponse() calls parse() once per
+ *   response and hands the result straight to CalibrationOverlayView.setGeometry().
+ * - The overlay reads the packed arrays directly in onDraw (wireframe goes to a
+ *   single mapPoints + drawLines call); the activity reads handleCount()/
+ *   handleLineName(i)/... to build its HandlePoint list for Tour navigation.
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Wire format (see handle_get_tour_points's docstring on the server): entries
+ *   separated by ';', each one of "WF:x1,y1,x2,y2", "LK:name", "LKM:name",
+ *   "AN:x,y", "ST:x,y", or "name:type=x,y".
+ * - One pass counts ';' to get an upper bound on entries, sizing every packed
+ *   array once up front -- no growth, no per-entry float[].
+ * - A second pass walks the payload with indexOf() bounds only (no split(), no
+ *   substring for numbers); coordinates go through parseFloatRange(), a plain
+ *   decimal scanner that falls back to Float.parseFloat only for the rare
+ *   exponent/NaN form. The only per-entry allocations left are the line-name and
+ *   point-type Strings, which the handle markers need anyway.
+ * - A malformed entry is skipped on its own (same policy as the old split()-based
+ *   parser): its slot in the packed array is simply not committed.
+ * - Blue-line segments are derived here, once per response, instead of in
+ *   CalibrationActivity: each line's e1/e2 pair becomes one segment, or two
+ *   (e1-mid, mid-e2) when its midpoint has been individually locked. Lookups are
+ *   linear scans -- a few dozen handles at most, cheaper than any HashMap.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Pure Java, no Android dependencies, no I/O. Instances are never mutated after
+ *   parse() returns, so the overlay can hold one across frames without copying.
+ */
+public final class TourPointsGeometry {
+
+    public static final TourPointsGeometry EMPTY = new TourPointsGeometry(new Builder(0));
+
+    // {x1,y1,x2,y2} per segment, bitmap-space.
+    final float[] wireframe;
+    private final int wireframeCount;
+
+    // {x,y} per anchor click, bitmap-space.
+    final float[] anchors;
+    private final int anchorCount;
+
+    // {x,y}, or null if the calibration used no net strap.
+    private final float[] strap;
+
+    private final String[] handleLineNames;
+    private final String[] handlePointTypes;   // "e1", "e2", or "mid"
+    private final float[] handleXY;            // {x,y} per handle
+    private final int handleCount;
+
+    private final String[] lockedMidpointNames; // "LKM:name" entries
+    private final int lockedMidpointCount;
+
+    // Derived blue lines: {x1,y1,x2,y2} per segment plus per-segment name/locked.
+    final float[] blueSegments;
+    final String[] blueLineNames;
+    final boolean[] blueLocked;
+    private final int blueCount;
+
+    private TourPointsGeometry(Builder b) {
+        wireframe = b.wireframe;
+        wireframeCount = b.wireframeCount;
+        anchors = b.anchors;
+        anchorCount = b.anchorCount;
+        strap = b.strap;
+        handleLineNames = b.handleLineNames;
+        handlePointTypes = b.handlePointTypes;
+        handleXY = b.handleXY;
+        handleCount = b.handleCount;
+        lockedMidpointNames = b.lockedMidpointNames;
+        lockedMidpointCount = b.lockedMidpointCount;
+        blueSegments = b.blueSegments;
+        blueLineNames = b.blueLineNames;
+        blueLocked = b.blueLocked;
+        blueCount = b.blueCount;
+    }
+
+    /** Parses a GET_TOUR_POINTS payload (may be null/empty -> EMPTY). */
+    public static TourPointsGeometry parse(String payload) {
+        if (payload == null || payload.isEmpty()) return EMPTY;
+
+        int maxEntries = 1;
+        for (int i = 0; i < payload.length(); i++) {
+            if (payload.charAt(i) == ';') maxEntries++;
+        }
+        Builder b = new Builder(maxEntries);
+        float[] xy = new float[4];
+
+        int start = 0;
+        int len = payload.length();
+        while (start <= len) {
+            int end = payload.indexOf(';', start);
+            if (end < 0) end = len;
+            if (end > start) b.parseEntry(payload, start, end, xy);
+            start = end + 1;
+        }
+        b.deriveBlueLines();
+        return new TourPointsGeometry(b);
+    }
+
+    /** Parse-time state: the packed arrays, sized once, and their fill counts. */
+    private static final class Builder {
+        final float[] wireframe;
+        int wireframeCount;
+        final float[] anchors;
+        int anchorCount;
+        float[] strap;
+        final String[] handleLineNames;
+        final String[] handlePointTypes;
+        final float[] handleXY;
+        int handleCount;
+        final String[] lockedLineNames;
+        int lockedLineCount;
+        final String[] lockedMidpointNames;
+        int lockedMidpointCount;
+        final float[] blueSegments;
+        final String[] blueLineNames;
+        final boolean[] blueLocked;
+        int blueCount;
+
+        Builder(int maxEntries) {
+            wireframe = new float[maxEntries * 4];
+            anchors = new float[maxEntries * 2];
+            handleLineNames = new String[maxEntries];
+            handlePointTypes = new String[maxEntries];
+            handleXY = new float[maxEntries * 2];
+            lockedLineNames = new String[maxEntries];
+            lockedMidpointNames = new String[maxEntries];
+            // Worst case every handle is a locked midpoint's e1 -> two segments each.
+            blueSegments = new float[maxEntries * 8];
+            blueLineNames = new String[maxEntries * 2];
+            blueLocked = new boolean[maxEntries * 2];
+        }
+
+        private void parseEntry(String s, int start, int end, float[] xy) {
+            if (s.startsWith("WF:", start)) {
+                if (parseFloats(s, start + 3, end, xy, 4)) {
+                    System.arraycopy(xy, 0, wireframe, wireframeCount * 4, 4);
+                    wireframeCount++;
+                }
+                return;
+            }
+            if (s.startsWith("LKM:", start)) {
+                lockedMidpointNames[lockedMidpointCount++] = s.substring(start + 4, end);
+                return;
+            }
+            if (s.startsWith("LK:", start)) {
+                lockedLineNames[lockedLineCount++] = s.substring(start + 3, end);
+                return;
+            }
+            if (s.startsWith("AN:", start)) {
+                if (parseFloats(s, start + 3, end, xy, 2)) {
+                    anchors[anchorCount * 2] = xy[0];
+                    anchors[anchorCount * 2 + 1] = xy[1];
+                    anchorCount++;
+                }
+                return;
+            }
+            if (s.startsWith("ST:", start)) {
+                if (parseFloats(s, start + 3, end, xy, 2)) {
+                    strap = new float[]{xy[0], xy[1]};
+                }
+                return;
+            }
+            int colonIdx = s.indexOf(':', start);
+            if (colonIdx < 0 || colonIdx >= end) return;
+            int eqIdx = s.indexOf('=', colonIdx);
+            if (eqIdx < 0 || eqIdx >= end) return;
+            if (!parseFloats(s, eqIdx + 1, end, xy, 2)) return;
+            handleLineNames[handleCount] = s.substring(start, colonIdx);
+            handlePointTypes[handleCount] = s.substring(colonIdx + 1, eqIdx);
+            handleXY[handleCount * 2] = xy[0];
+            handleXY[handleCount * 2 + 1] = xy[1];
+            handleCount++;
+        }
+
+        /** Groups handles' e1/e2 pairs by line name into drawable blue segments. A
+         *  line missing either endpoint (only possible if handle_get_tour_points
+         *  dropped it as fully out-of-bounds) is simply not drawn. */
+        private void deriveBlueLines() {
+            for (int i = 0; i < handleCount; i++) {
+                if (!"e1".equals(handlePointTypes[i])) continue;
+                String lineName = handleLineNames[i];
+                int e2 = findHandle(lineName, "e2");
+                if (e2 < 0) continue;
+                // Deliberate departure from court_recognition.py (endpoint-only):
+                // the line itself draws pink if EITHER an endpoint OR its own
+                // center point has been edited, since editing either one affects
+                // the whole line.
+                boolean midLocked = contains(lockedMidpointNames, lockedMidpointCount, lineName);
+                boolean locked = midLocked || contains(lockedLineNames, lockedLineCount, lineName);
+                // A locked midpoint draws as two segments through its exact (possibly
+                // off-straight-line) position, matching court_recognition.py, rather
+                // than a straight line that would visibly miss the center marker.
+                int mid = midLocked ? findHandle(lineName, "mid") : -1;
+                if (mid >= 0) {
+                    addBlue(lineName, locked, i, mid);
+                    addBlue(lineName, locked, mid, e2);
+                } else {
+                    addBlue(lineName, locked, i, e2);
+                }
+            }
+        }
+
+        private void addBlue(String lineName, boolean locked, int fromHandle, int toHandle) {
+            int o = blueCount * 4;
+            blueSegments[o] = handleXY[fromHandle * 2];
+            blueSegments[o + 1] = handleXY[fromHandle * 2 + 1];
+            blueSegments[o + 2] = handleXY[toHandle * 2];
+            blueSegments[o + 3] = handleXY[toHandle * 2 + 1];
+            blueLineNames[blueCount] = lineName;
+            blueLocked[blueCount] = locked;
+            blueCount++;
+        }
+
+        private int findHandle(String lineName, String pointType) {
+            for (int i = 0; i < handleCount; i++) {
+                if (handleLineNames[i].equals(lineName) && handlePointTypes[i].equals(pointType)) return i;
+            }
+            return -1;
+        }
+    }
+
+    /** Parses exactly `count` comma-separated floats from s[start,end) into out.
+     *  Returns false (leaving out partially written) on any malformed field --
+     *  the caller then just doesn't commit the entry. Extra trailing fields are
+     *  ignored, matching the old split()-and-index behavior. */
+    static boolean parseFloats(String s, int start, int end, float[] out, int count) {
+        int pos = start;
+        for (int n = 0; n < count; n++) {
+            if (pos > end) return false;
+            int comma = s.indexOf(',', pos);
+            int fieldEnd = (comma < 0 || comma > end) ? end : comma;
+            float v = parseFloatRange(s, pos, fieldEnd);
+            if (Float.isNaN(v) && !isLiteralNaN(s, pos, fieldEnd)) return false;
+            out[n] = v;
+            pos = fieldEnd + 1;
+        }
+        return true;
+    }
+
+    /** Allocation-free decimal parse of s[start,end): optional sign, digits,
+     *  optional '.' and fraction. Anything else (exponent, "inf", stray chars)
+     *  falls back to Float.parseFloat on the substring; returns NaN if that also
+     *  fails, so a bad coordinate can never throw out of the parser. */
+    static float parseFloatRange(String s, int start, int end) {
+        int i = start;
+        while (i < end && s.charAt(i) == ' ') i++;
+        while (end > i && s.charAt(end - 1) == ' ') end--;
+        if (i >= end) return Float.NaN;
+        boolean negative = false;
+        char c = s.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = (c == '-');
+            i++;
+        }
+        long mantissa = 0;
+        int fractionDigits = 0;
+        int digits = 0;
+        boolean seenDot = false;
+        for (; i < end; i++) {
+            c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                // 18 significant digits fit a long; beyond that, fall back.
+                if (digits >= 18) return parseFloatFallback(s, start, end);
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (seenDot) fractionDigits++;
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                return parseFloatFallback(s, start, end);
+            }
+        }
+        if (digits == 0) return Float.NaN;
+        double value = mantissa;
+        if (fractionDigits > 0) value /= POW10[fractionDigits];
+        return (float) (negative ? -value : value);
+    }
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private static float parseFloatFallback(String s, int start, int end) {
+        try {
+            return Float.parseFloat(s.substring(start, end).trim());
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    private static boolean isLiteralNaN(String s, int start, int end) {
+        return s.substring(start, end).trim().equals("NaN");
+    }
+
+    private static boolean contains(String[] names, int count, String name) {
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(name)) return true;
+        }
+        return false;
+    }
+
+    // --- Read accessors (the overlay reads the packed arrays directly; these are
+    // for CalibrationActivity and anything else outside the draw loop). ---
+
+    public int wireframeCount() { return wireframeCount; }
+    public int anchorCount() { return anchorCount; }
+    public int handleCount() { return handleCount; }
+    public int blueSegmentCount() { return blueCount; }
+    public String handleLineName(int i) { return handleLineNames[i]; }
+    public String handlePointType(int i) { return handlePointTypes[i]; }
+    public float handleX(int i) { return handleXY[i * 2]; }
+    public float handleY(int i) { return handleXY[i * 2 + 1]; }
+    public boolean hasStrap() { return strap != null; }
+    public float strapX() { return strap[0]; }
+    public float strapY() { return strap[1]; }
+
+    /** True if this line's drawn blue segment(s) are pink -- an endpoint or its
+     *  midpoint has been manually locked. False for lines with no blue segment. */
+    public boolean isBlueLineLocked(String lineName) {
+        for (int i = 0; i < blueCount; i++) {
+            if (blueLineNames[i].equals(lineName)) return blueLocked[i];
+        }
+        return false;
+    }
+
+    public boolean isMidpointLocked(String lineName) {
+        return contains(lockedMidpointNames, lockedMidpointCount, lineName);
+    }
+}
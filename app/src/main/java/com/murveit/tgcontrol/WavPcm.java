@@ -0,0 +1,138 @@
+package com.murveit.tgcontrol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * WAV PCM - Algorithmic Overview
+ *
+ * Minimal RIFF/WAVE reader for the 16-bit PCM files this app plays itself: the
+ * res/raw line-call clips (CallClipBank) and the TTS-rendered phrase/atom files
+ * (FastSpeechEngine's cache, written by TextToSpeech.synthesizeToFile).
+ *
+ * 1. INITIALIZATION:
+ * - parse(bytes) / read(file) / read(stream). Immutable afterwards.
+ *
+ * 2. CALLING PROCEDURE:
+ * - Use sampleRate/channels plus either the raw little-endian slice
+ *   (bytes, dataOffset, dataLength -- handed straight to AudioTrack.write) or
+ *   toMonoSamples() when the samples themselves are needed (trimming, stitching).
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Walks the RIFF chunk list for "fmt " and "data" instead of assuming the
+ *   canonical 44-byte header (TTS engines add LIST/fact chunks). Odd-length chunks
+ *   are padded to word alignment per the RIFF spec.
+ * - A data chunk whose declared length runs past the end of the file (a
+ *   synthesis cut short, or an engine that never patches the size field) is
+ *   clamped to what is actually there, then rounded down to whole frames.
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Pure Java, no Android dependencies. Throws IOException for anything that is
+ *   not 16-bit PCM mono/stereo.
+ */
+final class WavPcm {
+
+    final int sampleRate;
+    final int channels;
+    final byte[] bytes;
+    final int dataOffset;
+    final int dataLength;   // bytes, whole frames
+
+    private WavPcm(int sampleRate, int channels, byte[] bytes, int dataOffset, int dataLength) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bytes = bytes;
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength;
+    }
+
+    static WavPcm read(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return parse(readAll(in, (int) Math.min(file.length(), Integer.MAX_VALUE)));
+        }
+    }
+
+    static WavPcm read(InputStream in) throws IOException {
+        return parse(readAll(in, 64 * 1024));
+    }
+
+    static WavPcm parse(byte[] wav) throws IOException {
+        if (wav.length < 12 || !tagEquals(wav, 0, "RIFF") || !tagEquals(wav, 8, "WAVE")) {
+            throw new IOException("Not a RIFF/WAVE file");
+        }
+        int channels = 0, sampleRate = 0, bits = 0, format = 0;
+        int dataOffset = -1, dataLength = 0;
+        int pos = 12;
+        while (pos + 8 <= wav.length) {
+            int chunkLen = readIntLE(wav, pos + 4);
+            int body = pos + 8;
+            if (chunkLen < 0 || body + chunkLen > wav.length) chunkLen = wav.length - body; // truncated tail
+            if (tagEquals(wav, pos, "fmt ") && chunkLen >= 16) {
+                format = readShortLE(wav, body);
+                channels = readShortLE(wav, body + 2);
+                sampleRate = readIntLE(wav, body + 4);
+                bits = readShortLE(wav, body + 14);
+            } else if (tagEquals(wav, pos, "data")) {
+                dataOffset = body;
+                dataLength = chunkLen;
+                break;
+            }
+            pos = body + chunkLen + (chunkLen & 1); // chunks are word-aligned
+        }
+        if (format != 1 || bits != 16 || (channels != 1 && channels != 2) || sampleRate <= 0 || dataOffset < 0) {
+            throw new IOException("Unsupported WAV: format=" + format + " bits=" + bits
+                    + " channels=" + channels + " rate=" + sampleRate);
+        }
+        dataLength -= dataLength % (channels * 2); // whole frames only
+        return new WavPcm(sampleRate, channels, wav, dataOffset, dataLength);
+    }
+
+    int frameCount() {
+        return dataLength / (channels * 2);
+    }
+
+    /** Samples as 16-bit mono (stereo is averaged). */
+    short[] toMonoSamples() {
+        int frames = frameCount();
+        short[] out = new short[frames];
+        int p = dataOffset;
+        for (int i = 0; i < frames; i++) {
+            if (channels == 1) {
+                out[i] = (short) readShortLE(bytes, p);
+                p += 2;
+            } else {
+                int l = (short) readShortLE(bytes, p);
+                int r = (short) readShortLE(bytes, p + 2);
+                out[i] = (short) ((l + r) >> 1);
+                p += 4;
+            }
+        }
+        return out;
+    }
+
+    private static byte[] readAll(InputStream in, int sizeHint) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(sizeHint, 1024));
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+
+    private static boolean tagEquals(byte[] b, int off, String tag) {
+        for (int i = 0; i < 4; i++) {
+            if (b[off + i] != tag.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int readShortLE(byte[] b, int off) {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8;
+    }
+
+    private static int readIntLE(byte[] b, int off) {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+    }
+}
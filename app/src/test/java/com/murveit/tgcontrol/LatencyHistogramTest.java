@@ -0,0 +1,47 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * LatencyHistogram bucket math and percentile accuracy against exact sorted percentiles.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsAreContiguousAndBoundValues() {
+        for (int i = 1; i < LatencyHistogram.BUCKETS; i++) {
+            assertTrue(LatencyHistogram.lowerBound(i) > LatencyHistogram.lowerBound(i - 1));
+            long lo = LatencyHistogram.lowerBound(i);
+            assertEquals(i, LatencyHistogram.index(lo));
+            assertEquals(i - 1, LatencyHistogram.index(lo - 1));
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesWithinBucketError() {
+        LatencyHistogram h = new LatencyHistogram();
+        Random rnd = new Random(7);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal-ish: mostly a few ms, a long tail to seconds.
+            values[i] = (long) Math.exp(8 + 1.5 * rnd.nextGaussian());
+            h.record(values[i]);
+        }
+        h.record(-1);
+        Arrays.sort(values);
+        assertEquals(values.length, h.count());
+        assertEquals(values[values.length - 1], h.maxUs());
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long est = h.percentileUs(p);
+            assertEquals("p" + p, exact, est, Math.max(1, exact * 0.04));
+        }
+        assertEquals(0, new LatencyHistogram().percentileUs(50));
+    }
+}
@@ -0,0 +1,133 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * LogIndex over FileLogger-format text: line boundaries, time-range binary search,
+ * and the in-place search LogViewerActivity relies on.
+ */
+public class LogIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File write(String text) throws IOException {
+        File f = tmp.newFile();
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return f;
+    }
+
+    private static LogIndex built(File f) throws IOException {
+        LogIndex idx = new LogIndex(f);
+        assertTrue(idx.build(() -> false));
+        return idx;
+    }
+
+    @Test
+    public void indexesLinesIncludingUnterminatedTail() throws IOException {
+        LogIndex idx = built(write("a\r\n\nthird line\nno newline"));
+        assertEquals(4, idx.lineCount());
+        assertEquals("a", idx.line(0));
+        assertEquals("", idx.line(1));
+        assertEquals("third line", idx.line(2));
+        assertEquals("no newline", idx.line(3));
+
+        assertEquals(0, built(write("")).lineCount());
+        assertEquals(1, built(write("x\n")).lineCount());
+    }
+
+    @Test
+    public void indexesAcrossScanChunks() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int n = 50_000;   // ~1.3 MB: several scan chunks
+        for (int i = 0; i < n; i++) sb.append(String.format("%06d padding padding padding\n", i));
+        LogIndex idx = built(write(sb.toString()));
+        assertEquals(n, idx.lineCount());
+        assertEquals("012345 padding padding padding", idx.line(12345));
+        assertEquals(String.format("%06d padding padding padding", n - 1), idx.line(n - 1));
+    }
+
+    @Test
+    public void timeRangeUsesBinarySearchOverTimestamps() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int m = 0; m < 60; m++) {
+            sb.append(String.format("2026-10-19 14:%02d:00.000 : minute %d\n", m, m));
+            sb.append("  continuation without a timestamp\n");
+        }
+        LogIndex idx = built(write(sb.toString()));
+        long first = idx.timeKey(0);
+        assertEquals(20261019140000000L, first);
+        // A continuation line takes the time of the line above it.
+        assertEquals(first, idx.timeKey(1));
+
+        long from = LogIndex.parseTimeInput("14:10", first, false);
+        long to = LogIndex.parseTimeInput("14:12", first, true);
+        assertEquals(20, idx.firstAtOrAfter(from));
+        assertEquals(26, idx.firstAtOrAfter(to + 1));
+        assertEquals(idx.lineCount(), idx.firstAtOrAfter(LogIndex.parseTimeInput("2026-10-20 00:00", first, false)));
+        assertEquals(-1, LogIndex.parseTimeInput(" ", first, false));
+        assertEquals(-2, LogIndex.parseTimeInput("25:00", first, false));
+    }
+
+    @Test
+    public void longStackTraceInheritsTheTimestampAboveIt() throws IOException {
+        StringBuilder sb = new StringBuilder("untimestamped header\n");
+        sb.append("2026-10-19 14:00:00.000 : before\n");
+        sb.append("2026-10-19 14:01:00.000 : crash\n");
+        int trace = 200;   // well past any fixed lookback
+        for (int i = 0; i < trace; i++) sb.append("\tat com.example.Frame").append(i).append("(Frame.java:1)\n");
+        sb.append("2026-10-19 14:02:00.000 : after\n");
+        sb.append("2026-10-19 14:03:00.000 : later\n");
+        LogIndex idx = built(write(sb.toString()));
+        int crash = 2;
+        int after = crash + trace + 1;
+        assertEquals(after + 2, idx.lineCount());
+
+        assertEquals(-1, idx.timeKey(0));
+        assertEquals(20261019140100000L, idx.timeKey(crash));
+        assertEquals(20261019140100000L, idx.timeKey(crash + 1));
+        assertEquals(20261019140100000L, idx.timeKey(crash + trace));
+        assertEquals(20261019140200000L, idx.timeKey(after));
+        for (int i = 1; i < idx.lineCount(); i++) assertTrue(idx.timeKey(i) >= idx.timeKey(i - 1));
+
+        assertEquals(crash, idx.firstAtOrAfter(20261019140100000L));
+        assertEquals(after, idx.firstAtOrAfter(20261019140100001L));
+        assertEquals(after + 1, idx.firstAtOrAfter(20261019140300000L));
+    }
+
+    @Test
+    public void searchIsCaseInsensitiveAndBatched() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) sb.append(i % 10 == 0 ? "RECV: TRACK_EVENT_JSON {}\n" : "other\n");
+        LogIndex idx = built(write(sb.toString()));
+        List<Integer> hits = new ArrayList<>();
+        final boolean[] done = {false};
+        idx.search("track_event", 0, idx.lineCount(), 7, () -> false, (lines, count, last) -> {
+            for (int i = 0; i < count; i++) hits.add(lines[i]);
+            done[0] = last;
+        });
+        assertTrue(done[0]);
+        assertEquals(100, hits.size());
+        assertEquals(Integer.valueOf(990), hits.get(99));
+
+        hits.clear();
+        idx.search("TRACK", 100, 200, 64, () -> false, (lines, count, last) -> {
+            for (int i = 0; i < count; i++) hits.add(lines[i]);
+        });
+        assertEquals(10, hits.size());
+        assertEquals(Integer.valueOf(100), hits.get(0));
+    }
+}
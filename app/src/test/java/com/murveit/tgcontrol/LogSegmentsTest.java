@@ -0,0 +1,129 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * LogSegments on a temporary files dir: rotation naming, compression, age retention
+ * and the index.tsv it leaves behind.
+ */
+public class LogSegmentsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final long DAY_MS = 24L * 3600 * 1000;
+
+    private static File write(File f, String text) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return f;
+    }
+
+    private static String gunzip(File f) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new FileInputStream(f))) {
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String stamp(long ms) {
+        return new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date(ms));
+    }
+
+    private static List<String> index(File filesDir) throws IOException {
+        return Files.readAllLines(new File(new File(filesDir, LogSegments.DIR_NAME), LogSegments.INDEX_NAME).toPath());
+    }
+
+    @Test
+    public void closeRotatesCompressesAndIndexes() throws IOException {
+        File filesDir = tmp.newFolder();
+        long start = (System.currentTimeMillis() - 3600_000) / 1000 * 1000;
+        long end = start + 60_000;
+        File active = write(new File(filesDir, "tgcontrol_logs.txt"), "first line\nsecond line\n");
+
+        LogSegments.close(active, filesDir, start, end);
+        LogSegments.tidy(filesDir);
+
+        assertFalse(active.exists());
+        String name = "tgcontrol_" + stamp(start) + "_" + stamp(end) + ".txt.gz";
+        File gz = new File(LogSegments.dir(filesDir), name);
+        assertTrue(gz.exists());
+        assertFalse(new File(LogSegments.dir(filesDir), name.replace(".gz", "")).exists());
+        assertEquals("first line\nsecond line\n", gunzip(gz));
+
+        List<String> lines = index(filesDir);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("#"));
+        assertEquals(start + "\t" + (end + 999) + "\t" + name + "\t" + gz.length(), lines.get(1));
+    }
+
+    @Test
+    public void sameSecondRotationsKeepBothOldestFirst() throws IOException {
+        File filesDir = tmp.newFolder();
+        long start = (System.currentTimeMillis() - 3600_000) / 1000 * 1000;
+        File active = new File(filesDir, "tgcontrol_logs.txt");
+
+        LogSegments.close(write(active, "one\n"), filesDir, start, start);
+        LogSegments.close(write(active, "two\n"), filesDir, start, start);
+        LogSegments.tidy(filesDir);
+
+        String base = "tgcontrol_" + stamp(start) + "_" + stamp(start);
+        File dir = LogSegments.dir(filesDir);
+        assertEquals("one\n", gunzip(new File(dir, base + ".txt.gz")));
+        assertEquals("two\n", gunzip(new File(dir, base + "-1.txt.gz")));
+        List<String> lines = index(filesDir);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(1).contains("\t" + base + ".txt.gz\t"));
+        assertTrue(lines.get(2).contains("\t" + base + "-1.txt.gz\t"));
+    }
+
+    @Test
+    public void retentionExpiresSegmentsPastMaxAge() throws IOException {
+        File filesDir = tmp.newFolder();
+        File dir = LogSegments.dir(filesDir);
+        long now = System.currentTimeMillis();
+        long old = now - (LogSegments.RETAIN_MAX_DAYS + 1) * DAY_MS;
+        long recent = now - DAY_MS;
+        String oldName = "tgcontrol_" + stamp(old) + "_" + stamp(old + 60_000) + ".txt";
+        String recentName = "tgcontrol_" + stamp(recent) + "_" + stamp(recent + 60_000) + ".txt";
+        write(new File(dir, oldName), "old\n");
+        write(new File(dir, recentName), "recent\n");
+        write(new File(dir, "notes.txt"), "not a segment\n");
+
+        LogSegments.tidy(filesDir);
+
+        assertFalse(new File(dir, oldName + ".gz").exists());
+        assertTrue(new File(dir, recentName + ".gz").exists());
+        assertTrue(new File(dir, "notes.txt").exists());
+        List<String> lines = index(filesDir);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).contains("\t" + recentName + ".gz\t"));
+
+        LogSegments.deleteAll(filesDir);
+        String[] left = dir.list();
+        assertNotNull(left);
+        assertEquals(0, left.length);
+    }
+}
@@ -0,0 +1,69 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * MphHistory ranking: the prior on a fresh install, recorded speeds overtaking it,
+ * percentiles, and the encode/decode round trip.
+ */
+public class MphHistoryTest {
+
+    @Test
+    public void priorRanksTheClubBandFirst() {
+        MphHistory h = new MphHistory();
+        assertEquals(0, h.total());
+        assertTrue(h.weight(90) > h.weight(75));
+        assertTrue(h.weight(75) > h.weight(55));
+        assertEquals(h.weight(80), h.weight(100), 1e-9);   // symmetric about the peak
+        assertEquals(0, h.weight(20), 0);
+        assertEquals(0, h.weight(140), 0);
+        assertEquals(0, h.weight(0), 0);
+        assertEquals(0, h.weight(200), 0);
+    }
+
+    @Test
+    public void recordedSpeedsOvertakeThePrior() {
+        MphHistory h = new MphHistory();
+        for (int i = 0; i < 3; i++) h.record(120);
+        h.record(0);
+        h.record(250);
+        assertEquals(3, h.total());
+        assertTrue(h.weight(120) > h.weight(90));
+        assertEquals(3.5, h.weight(120), 1e-9);   // 3 recorded + prior 0.5 at 30 mph off peak
+    }
+
+    @Test
+    public void percentilesFollowTheRecordedSpeeds() {
+        MphHistory h = new MphHistory();
+        assertEquals(0, h.percentile(50));
+        for (int mph = 61; mph <= 160; mph++) h.record(mph);   // 100 speeds, one each
+        assertEquals(61, h.percentile(0));
+        assertEquals(70, h.percentile(10));
+        assertEquals(110, h.percentile(50));
+        assertEquals(150, h.percentile(90));
+        assertEquals(160, h.percentile(100));
+    }
+
+    @Test
+    public void encodeDecodeRoundTripsAndSkipsBadBins() {
+        MphHistory h = new MphHistory();
+        h.record(85);
+        h.record(85);
+        h.record(102);
+        String encoded = h.encode();
+        assertEquals("85:2,102:1", encoded);
+
+        MphHistory back = MphHistory.decode(encoded);
+        assertEquals(3, back.total());
+        assertEquals(h.weight(85), back.weight(85), 0);
+        assertEquals(encoded, back.encode());
+
+        MphHistory garbled = MphHistory.decode("85:2,x:1,300:4,90:-1,:3,95:zz,100:1");
+        assertEquals(3, garbled.total());
+        assertEquals("85:2,100:1", garbled.encode());
+        assertEquals(0, MphHistory.decode(null).total());
+        assertEquals(0, MphHistory.decode("").total());
+    }
+}
@@ -0,0 +1,80 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * PcmStitcher trim bounds, stitched length, the zero gap and the seam fades.
+ */
+public class PcmStitcherTest {
+
+    private static final int RATE = 16000;
+
+    private static short[] tone(int silenceBefore, int loud, int silenceAfter, short level) {
+        short[] pcm = new short[silenceBefore + loud + silenceAfter];
+        Arrays.fill(pcm, silenceBefore, silenceBefore + loud, level);
+        return pcm;
+    }
+
+    @Test
+    public void trimKeepsThePadAroundTheSound() {
+        int pad = RATE * PcmStitcher.TRIM_PAD_MS / 1000;
+        short[] trimmed = PcmStitcher.trim(tone(4000, 1000, 3000, (short) 10000), RATE);
+        assertEquals(1000 + 2 * pad, trimmed.length);
+        assertEquals(0, trimmed[0]);
+        assertEquals(10000, trimmed[pad]);
+        assertEquals(10000, trimmed[pad + 999]);
+        assertEquals(0, trimmed[trimmed.length - 1]);
+
+        // Pad is clipped at the buffer edges.
+        assertEquals(1000 + pad, PcmStitcher.trim(tone(0, 1000, 3000, (short) 10000), RATE).length);
+        // Below the threshold counts as silence.
+        assertEquals(0, PcmStitcher.trim(tone(100, 100, 100, (short) PcmStitcher.SILENCE_THRESHOLD), RATE).length);
+        assertEquals(0, PcmStitcher.trim(new short[0], RATE).length);
+    }
+
+    @Test
+    public void stitchLengthIsPartsPlusGaps() {
+        short[][] parts = {tone(0, 800, 0, (short) 1000), tone(0, 500, 0, (short) 1000), tone(0, 300, 0, (short) 1000)};
+        int gap = RATE * 40 / 1000;
+        short[] out = PcmStitcher.stitch(parts, 3, RATE, 40);
+        assertEquals(800 + 500 + 300 + 2 * gap, out.length);
+        for (int i = 0; i < gap; i++) {
+            assertEquals(0, out[800 + i]);
+            assertEquals(0, out[800 + gap + 500 + i]);
+        }
+        // count limits the parts used; one part has no gap.
+        assertEquals(800, PcmStitcher.stitch(parts, 1, RATE, 40).length);
+        assertEquals(0, PcmStitcher.stitch(parts, 0, RATE, 40).length);
+    }
+
+    @Test
+    public void stitchFadesEachSeam() {
+        int fade = RATE * PcmStitcher.FADE_MS / 1000;
+        short[] part = tone(0, 1000, 0, (short) 8000);
+        short[] out = PcmStitcher.stitch(new short[][]{part, part}, 2, RATE, 0);
+
+        // Each part ramps up from zero and back down to zero...
+        assertEquals(0, out[0]);
+        assertEquals(0, out[999]);
+        assertEquals(0, out[1000]);
+        assertEquals(0, out[1999]);
+        for (int k = 1; k < fade; k++) {
+            assertTrue(out[k] >= out[k - 1]);
+            assertTrue(out[k] < 8000);
+        }
+        // ...and is untouched in the middle.
+        assertEquals(8000, out[fade]);
+        assertEquals(8000, out[999 - fade]);
+        assertEquals(8000, out[1500]);
+        // The input is not modified.
+        assertEquals(8000, part[0]);
+
+        // A part shorter than two fades fades over half its length.
+        short[] shortOut = PcmStitcher.stitch(new short[][]{tone(0, 4, 0, (short) 8000)}, 1, RATE, 0);
+        assertArrayEquals(new short[]{0, 4000, 4000, 0}, shortOut);
+    }
+}
@@ -0,0 +1,133 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * PhraseBank write/open round trip, rejection of damaged files, and the two crc32
+ * forms PhraseManifest compares.
+ */
+public class PhraseBankTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static short[] ramp(int n, int seed) {
+        short[] pcm = new short[n];
+        for (int i = 0; i < n; i++) pcm[i] = (short) (i * 37 + seed * 1001 - 16000);
+        return pcm;
+    }
+
+    private static Map<String, short[]> entries() {
+        Map<String, short[]> e = new LinkedHashMap<>();
+        e.put("In", ramp(500, 1));
+        e.put("seventy three", ramp(20_000, 2));    // more than one 8 KB crc chunk
+        e.put("empty", new short[0]);
+        e.put("héllo", ramp(3, 3));                  // odd-length UTF-8 name
+        return e;
+    }
+
+    private static void assertNotOpenable(File f) {
+        try {
+            PhraseBank.open(f);
+            fail("opened " + f.length() + " bytes");
+        } catch (IOException expected) {
+            // Rejected as it should be.
+        }
+    }
+
+    @Test
+    public void writeThenOpenRoundTrips() throws IOException {
+        File f = new File(tmp.getRoot(), "bank.pcm");
+        Map<String, short[]> in = entries();
+        PhraseBank.write(f, 22050, in);
+        assertFalse(new File(f.getPath() + ".tmp").exists());
+
+        PhraseBank bank = PhraseBank.open(f);
+        assertEquals(22050, bank.sampleRate());
+        assertEquals(in.keySet(), bank.names());
+        assertEquals((int) f.length(), bank.sizeBytes());
+        for (Map.Entry<String, short[]> e : in.entrySet()) {
+            assertTrue(bank.contains(e.getKey()));
+            assertEquals(e.getValue().length, bank.sampleCount(e.getKey()));
+            assertArrayEquals(e.getKey(), e.getValue(), bank.read(e.getKey()));
+            ShortBuffer s = bank.slice(e.getKey());
+            assertEquals(e.getValue().length, s.remaining());
+            if (s.remaining() > 0) assertEquals(e.getValue()[0], s.get(0));
+        }
+        assertFalse(bank.contains("missing"));
+        assertNull(bank.slice("missing"));
+        assertNull(bank.read("missing"));
+        assertEquals(-1, bank.sampleCount("missing"));
+
+        // Rewriting replaces the file; the old mapping stays readable.
+        Map<String, short[]> next = new LinkedHashMap<>();
+        next.put("Out", ramp(10, 4));
+        PhraseBank.write(f, 16000, next);
+        assertEquals(next.keySet(), PhraseBank.open(f).names());
+        assertArrayEquals(in.get("In"), bank.read("In"));
+    }
+
+    @Test
+    public void damagedFilesAreRejected() throws IOException {
+        File f = new File(tmp.getRoot(), "bank.pcm");
+        PhraseBank.write(f, 22050, entries());
+        long full = f.length();
+
+        for (long cut : new long[]{full - 1, full / 2, 40, 17, 8, 0}) {
+            File t = new File(tmp.getRoot(), "cut" + cut + ".pcm");
+            Files.copy(f.toPath(), t.toPath());
+            try (RandomAccessFile raf = new RandomAccessFile(t, "rw")) {
+                raf.setLength(cut);
+            }
+            assertNotOpenable(t);
+        }
+
+        // An entry count no file this size could hold, small and overflowing.
+        for (int count : new int[]{1000, 1 << 30, Integer.MAX_VALUE}) {
+            File t = new File(tmp.getRoot(), "count" + count + ".pcm");
+            Files.copy(f.toPath(), t.toPath());
+            try (RandomAccessFile raf = new RandomAccessFile(t, "rw")) {
+                raf.seek(12);
+                raf.writeInt(Integer.reverseBytes(count));   // little-endian
+            }
+            assertNotOpenable(t);
+        }
+
+        File junk = tmp.newFile("junk.pcm");
+        try (FileOutputStream out = new FileOutputStream(junk)) {
+            out.write("RIFF....WAVEfmt not a bank at all".getBytes(StandardCharsets.US_ASCII));
+        }
+        assertNotOpenable(junk);
+        assertNotOpenable(new File(tmp.getRoot(), "absent.pcm"));
+    }
+
+    @Test
+    public void entryCrcMatchesSourceCrc() throws IOException {
+        File f = new File(tmp.getRoot(), "bank.pcm");
+        Map<String, short[]> in = entries();
+        PhraseBank.write(f, 22050, in);
+        PhraseBank bank = PhraseBank.open(f);
+        for (Map.Entry<String, short[]> e : in.entrySet()) {
+            assertEquals(e.getKey(), PhraseBank.crc32(e.getValue()), bank.crc32(e.getKey()));
+        }
+        assertEquals(-1, bank.crc32("missing"));
+
+        short[] changed = in.get("In").clone();
+        changed[250] ^= 1;
+        assertNotEquals(bank.crc32("In"), PhraseBank.crc32(changed));
+    }
+}
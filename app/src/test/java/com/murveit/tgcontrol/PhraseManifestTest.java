@@ -0,0 +1,92 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * PhraseManifest profile comparison (what marks a bank entry stale), the JSON
+ * round trip, and the cases read() must treat as "no manifest".
+ */
+public class PhraseManifestTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static PhraseManifest.Profile profile() {
+        return new PhraseManifest.Profile("com.google.android.tts", "en-us-x-sfg-local", "en-US", 100, 100);
+    }
+
+    @Test
+    public void profilesMismatchOnAnyRenderingSetting() {
+        PhraseManifest.Profile p = profile();
+        assertEquals(p, profile());
+        assertEquals(p.hashCode(), profile().hashCode());
+
+        assertNotEquals(p, new PhraseManifest.Profile("com.samsung.SMT", "en-us-x-sfg-local", "en-US", 100, 100));
+        assertNotEquals(p, new PhraseManifest.Profile("com.google.android.tts", "en-us-x-iol-local", "en-US", 100, 100));
+        assertNotEquals(p, new PhraseManifest.Profile("com.google.android.tts", "en-us-x-sfg-local", "en-GB", 100, 100));
+        assertNotEquals(p, new PhraseManifest.Profile("com.google.android.tts", "en-us-x-sfg-local", "en-US", 150, 100));
+        assertNotEquals(p, new PhraseManifest.Profile("com.google.android.tts", "en-us-x-sfg-local", "en-US", 100, 90));
+        assertNotEquals(p, null);
+
+        // A missing voice name reads back as "": null and "" are the same setup.
+        PhraseManifest.Profile unnamed = new PhraseManifest.Profile(null, null, null, 100, 100);
+        assertEquals(unnamed, new PhraseManifest.Profile("", "", "", 100, 100));
+        assertNotEquals(p, unnamed);
+    }
+
+    @Test
+    public void writeThenReadRoundTrips() throws IOException {
+        File f = new File(tmp.getRoot(), "manifest.json");
+        PhraseManifest m = new PhraseManifest();
+        PhraseManifest.Profile old = new PhraseManifest.Profile("com.google.android.tts", null, "en-US", 100, 100);
+        m.put("In", new PhraseManifest.Entry(profile(), 0xFFFFFFFFL, 500));
+        m.put("seventy three", new PhraseManifest.Entry(old, 12345L, 20_000));
+        m.write(f);
+        assertFalse(new File(f.getPath() + ".tmp").exists());
+
+        PhraseManifest back = PhraseManifest.read(f);
+        assertNotNull(back);
+        PhraseManifest.Entry in = back.get("In");
+        assertEquals(profile(), in.profile);
+        assertEquals(0xFFFFFFFFL, in.crc32);
+        assertEquals(500, in.samples);
+        PhraseManifest.Entry mixed = back.get("seventy three");
+        assertEquals(old, mixed.profile);
+        assertNotEquals(profile(), mixed.profile);
+        assertEquals(12345L, mixed.crc32);
+        assertNull(back.get("missing"));
+    }
+
+    @Test
+    public void unusableFilesReadAsNull() throws IOException {
+        assertNull(PhraseManifest.read(new File(tmp.getRoot(), "absent.json")));
+
+        File garbage = tmp.newFile("garbage.json");
+        write(garbage, "{\"version\":1,\"entries\":");
+        assertNull(PhraseManifest.read(garbage));
+
+        File otherVersion = tmp.newFile("v0.json");
+        write(otherVersion, "{\"version\":" + (PhraseManifest.FORMAT_VERSION + 1) + ",\"entries\":{}}");
+        assertNull(PhraseManifest.read(otherVersion));
+
+        File badEntry = tmp.newFile("bad.json");
+        write(badEntry, "{\"version\":" + PhraseManifest.FORMAT_VERSION
+                + ",\"entries\":{\"In\":{\"engine\":\"x\",\"samples\":5}}}");
+        assertNull(PhraseManifest.read(badEntry));
+    }
+
+    private static void write(File f, String text) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.murveit.tgcontrol;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Realistic server messages (shaped like what the Orin Nano actually sends during a
+ * match, serve practice, recording or calibration session) plus a byte-level mutator
+ * for the fuzz tests. Shared by ProtocolParserFuzzTest and ProtocolParserBenchmarkTest.
+ *
+ * Everything is generated from a caller-supplied Random, so a failing fuzz seed
+ * reproduces exactly.
+ */
+final class ProtocolCorpus {
+
+    private static final String[] CALLS = {"In", "In", "In", "Out", "Fault", "Let"};
+    private static final String[] LINE_NAMES = {
+            "baseline_n", "baseline_s", "service_n", "service_s", "center_service",
+            "singles_left", "singles_right", "doubles_left", "doubles_right", "net"};
+    private static final String[] TERMINAL_REASONS = {"", "", "Double Bounce", "Net Crash", "Out"};
+
+    private ProtocolCorpus() {}
+
+    // --- TOUR_POINTS (payload after "STATUS: TOUR_POINTS;") ---
+
+    static String tourPoints(Random r) {
+        StringBuilder sb = new StringBuilder(2048);
+        int wireframe = 18 + r.nextInt(8);
+        for (int i = 0; i < wireframe; i++) {
+            sb.append(String.format(Locale.US, "WF:%.1f,%.1f,%.1f,%.1f;",
+                    px(r), py(r), px(r), py(r)));
+        }
+        for (String name : LINE_NAMES) {
+            sb.append(String.format(Locale.US, "%s:e1=%.1f,%.1f;", name, px(r), py(r)));
+            sb.append(String.format(Locale.US, "%s:e2=%.1f,%.1f;", name, px(r), py(r)));
+            sb.append(String.format(Locale.US, "%s:mid=%.1f,%.1f;", name, px(r), py(r)));
+        }
+        sb.append("LK:").append(LINE_NAMES[r.nextInt(LINE_NAMES.length)]).append(';');
+        sb.append("LK:").append(LINE_NAMES[r.nextInt(LINE_NAMES.length)]).append(';');
+        sb.append("LKM:").append(LINE_NAMES[r.nextInt(LINE_NAMES.length)]).append(';');
+        for (int i = 0; i < 4; i++) {
+            sb.append(String.format(Locale.US, "AN:%.1f,%.1f;", px(r), py(r)));
+        }
+        sb.append(String.format(Locale.US, "ST:%.1f,%.1f", px(r), py(r)));
+        return sb.toString();
+    }
+
+    // --- TRACK_EVENT_JSON (end of point / serve practice serve) ---
+
+    static String trackEventJson(Random r) {
+        String call = CALLS[r.nextInt(CALLS.length)];
+        boolean serve = r.nextBoolean();
+        return String.format(Locale.US,
+                "{\"wall_clock\": \"14:%02d:%02d\", \"strike_type\": \"%s\", \"call_str\": \"%s\", "
+                        + "\"speed_mph\": %.1f, \"bounce_x\": %.3f, \"bounce_y\": %.3f, \"reason\": \"%s\", "
+                        + "\"side\": \"%s\", \"bounce_frame\": %d, \"server_send_unix_ms\": %d}",
+                r.nextInt(60), r.nextInt(60), serve ? "serve" : "hit", call,
+                60 + r.nextDouble() * 60, cx(r), cy(r), "In".equals(call) ? "" : "Long",
+                r.nextBoolean() ? "Deuce" : "Ad", r.nextInt(200000),
+                1760000000000L + r.nextInt(1000000));
+    }
+
+    // --- POINT_UPDATE_JSON (mid-point trajectory) ---
+
+    static String pointUpdateJson(Random r) {
+        int strokes = 1 + r.nextInt(8);
+        boolean pending = r.nextInt(4) == 0;
+        StringBuilder sb = new StringBuilder(256 + strokes * 160);
+        sb.append("{\"partial\": ").append(r.nextBoolean())
+                .append(", \"stroke_count\": ").append(strokes)
+                .append(", \"has_pending_hit\": ").append(pending)
+                .append(", \"final_call\": \"").append(CALLS[r.nextInt(CALLS.length)])
+                .append("\", \"winner_side\": \"").append(r.nextBoolean() ? "north" : "south")
+                .append("\", \"terminal_reason\": \"").append(TERMINAL_REASONS[r.nextInt(TERMINAL_REASONS.length)])
+                .append("\", \"strokes\": [");
+        for (int i = 0; i < strokes; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(String.format(Locale.US,
+                    "{\"type\": \"%s\", %s\"x\": %.3f, \"y\": %.3f, \"call_str\": \"%s\", "
+                            + "\"bounce\": {\"x\": %.3f, \"y\": %.3f}%s}",
+                    i == 0 ? "serve" : "hit",
+                    i == 0 ? "\"serve_side\": \"" + (r.nextBoolean() ? "Deuce" : "Ad") + "\", " : "",
+                    cx(r), cy(r), CALLS[r.nextInt(CALLS.length)], cx(r), cy(r),
+                    r.nextInt(6) == 0 ? String.format(Locale.US, ", \"bounce2\": {\"x\": %.3f, \"y\": %.3f}", cx(r), cy(r)) : ""));
+        }
+        if (pending) {
+            sb.append(String.format(Locale.US, ", {\"type\": \"hit\", \"pending\": true, \"x\": %.3f, \"y\": %.3f}", cx(r), cy(r)));
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    // --- Small key=value messages ---
+
+    static String calibrationStatus(Random r) {
+        return "0=" + (r.nextBoolean() ? "1|Yaw 12.3 Pitch -4.1" : "0")
+                + ",1=" + (r.nextBoolean() ? "1|Yaw -11.8 Pitch -3.9" : "0");
+    }
+
+    static String systemState(Random r) {
+        return "TRACKING=" + r.nextInt(2) + ",RECORDING=" + r.nextInt(2)
+                + ",MODE=" + (r.nextBoolean() ? "SINGLES" : "SERVE_PRACTICE")
+                + ",NANO_AUDIO=" + (r.nextBoolean() ? "on" : "off");
+    }
+
+    static String statusFrames(Random r) {
+        int processed = r.nextInt(400000);
+        return processed + "," + (processed - r.nextInt(50)) + "," + (1000 + r.nextInt(200000))
+                + (r.nextInt(10) == 0 ? "" : "," + r.nextInt(20000));
+    }
+
+    /** A full newline-framed session stream as the socket delivers it. */
+    static String wireLine(Random r) {
+        switch (r.nextInt(8)) {
+            case 0: return "TRACK_EVENT_JSON: " + trackEventJson(r);
+            case 1:
+            case 2:
+            case 3: return "POINT_UPDATE_JSON: " + pointUpdateJson(r);
+            case 4: return "STATUS_FRAMES: " + statusFrames(r);
+            case 5: return "SYSTEM_STATE: " + systemState(r);
+            case 6: return "CALIBRATION_STATUS: " + calibrationStatus(r);
+            default: return "STATUS: TOUR_POINTS; " + tourPoints(r);
+        }
+    }
+
+    // --- Fuzzing ---
+
+    private static final String INTERESTING =
+            ";,:=|{}[]\"\\ \t-.eE+0123456789NaNInfinityé中";
+    private static final String[] INTERESTING_TOKENS = {
+            "NaN", "-Infinity", "1e39", "-0", "9999999999999999999", "", "null",
+            "WF:", "LK:", "LKM:", "AN:", "ST:", ":e1=", "=1|", "0=|", "\"strokes\": null",
+            "\"bounce\": 5", "{", "}", "[", "]", ",,,,", ";;;;", "\u0000"};
+
+    /** Applies 1..4 random edits: char flips, deletions, duplicated spans,
+     *  truncation, delimiter/token insertions. */
+    static String mutate(String s, Random r) {
+        StringBuilder sb = new StringBuilder(s);
+        int edits = 1 + r.nextInt(4);
+        for (int e = 0; e < edits; e++) {
+            int len = sb.length();
+            int pos = len == 0 ? 0 : r.nextInt(len + 1);
+            switch (r.nextInt(6)) {
+                case 0:
+                    if (pos < len) sb.setCharAt(pos, INTERESTING.charAt(r.nextInt(INTERESTING.length())));
+                    break;
+                case 1:
+                    if (len > 0) sb.delete(pos, Math.min(len, pos + 1 + r.nextInt(8)));
+                    break;
+                case 2:
+                    if (len > 0) {
+                        int from = r.nextInt(len);
+                        int to = Math.min(len, from + 1 + r.nextInt(32));
+                        sb.insert(pos, sb.substring(from, to));
+                    }
+                    break;
+                case 3:
+                    sb.setLength(pos);
+                    break;
+                case 4:
+                    sb.insert(pos, INTERESTING.charAt(r.nextInt(INTERESTING.length())));
+                    break;
+                default:
+                    sb.insert(pos, INTERESTING_TOKENS[r.nextInt(INTERESTING_TOKENS.length)]);
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Fully random printable garbage, occasionally seeded with delimiters. */
+    static String garbage(Random r) {
+        int len = r.nextInt(64);
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) {
+            sb.append(r.nextInt(3) == 0
+                    ? INTERESTING.charAt(r.nextInt(INTERESTING.length()))
+                    : (char) (0x20 + r.nextInt(0x5f)));
+        }
+        return sb.toString();
+    }
+
+    // Bitmap-space calibration coordinates and court-space meters.
+    private static float px(Random r) { return r.nextFloat() * 1920f; }
+    private static float py(Random r) { return r.nextFloat() * 1080f; }
+    private static double cx(Random r) { return (r.nextDouble() - 0.5) * 11.0; }
+    private static double cy(Random r) { return (r.nextDouble() - 0.5) * 24.0; }
+}
@@ -0,0 +1,182 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Throughput benchmark for the protocol parsers, run as part of the normal
+ * `./gradlew test` so a regression fails the build.
+ *
+ * For each parser: a pre-generated realistic corpus (ProtocolCorpus, fixed seed) is
+ * run once untimed to warm up the JIT, then repeatedly for at least MEASURE_NS.
+ * Reported per parser: messages/sec and bytes allocated per message (via
+ * com.sun.management.ThreadMXBean, when the JVM provides it).
+ *
+ * The floors below are deliberately ~10x under what a development laptop measures,
+ * so a slow CI box passes and only a real algorithmic regression (an accidental
+ * O(n^2), a split()/regex back in a hot loop) trips them. Tuning:
+ *   -Dtgcontrol.bench.scale=0.5   halve every floor (0 = report only, never fail)
+ *   -Dtgcontrol.bench.measureMs=N  measurement window per parser (default 300)
+ */
+public class ProtocolParserBenchmarkTest {
+
+    private static final double SCALE = Double.parseDouble(System.getProperty("tgcontrol.bench.scale", "1.0"));
+    private static final long MEASURE_NS = Long.getLong("tgcontrol.bench.measureMs", 300L) * 1_000_000L;
+    private static final int CORPUS_SIZE = 512;
+
+    // Minimum messages/sec per parser before SCALE.
+    private static final double MIN_TOUR_POINTS_PER_SEC = 1_000;
+    private static final double MIN_TRACK_EVENT_PER_SEC = 1_500;
+    private static final double MIN_POINT_UPDATE_PER_SEC = 1_000;
+    private static final double MIN_CALIBRATION_STATUS_PER_SEC = 15_000;
+    private static final double MIN_SYSTEM_STATE_PER_SEC = 8_000;
+    private static final double MIN_STATUS_FRAMES_PER_SEC = 10_000;
+    private static final double MIN_LINE_READER_PER_SEC = 2_000;
+
+    private interface Parser {
+        void parse(String message) throws Exception;
+    }
+
+    private static final class Result {
+        final String name;
+        final double perSec;
+        final double bytesPerMsg; // < 0 = not measurable on this JVM
+        final double floor;
+
+        Result(String name, double perSec, double bytesPerMsg, double floor) {
+            this.name = name;
+            this.perSec = perSec;
+            this.bytesPerMsg = bytesPerMsg;
+            this.floor = floor;
+        }
+    }
+
+    private interface Generator {
+        String next(Random r);
+    }
+
+    private static List<String> corpus(Generator g, long seed) {
+        Random r = new Random(seed);
+        List<String> out = new ArrayList<>(CORPUS_SIZE);
+        for (int i = 0; i < CORPUS_SIZE; i++) out.add(g.next(r));
+        return out;
+    }
+
+    @Test
+    public void parsersMeetThroughputFloors() throws Exception {
+        List<Result> results = new ArrayList<>();
+
+        results.add(run("TourPointsGeometry.parse", corpus(ProtocolCorpus::tourPoints, 1),
+                TourPointsGeometry::parse, MIN_TOUR_POINTS_PER_SEC));
+
+        results.add(run("StatusFrames.formatStatusLine", corpus(ProtocolCorpus::statusFrames, 2),
+                m -> StatusFrames.formatStatusLine(m, 0), MIN_STATUS_FRAMES_PER_SEC));
+
+        // SessionState is stateful; reset every 200 serves like a real Start/Stop cycle so
+        // the serve list stays session-sized rather than growing for the whole run.
+        SessionState serveState = new SessionState();
+        SessionState.Settings serveCfg = ProtocolParserFuzzTest.settings(SessionState.MODE_SERVE_PRACTICE);
+        int[] serveCount = {0};
+        results.add(run("SessionState.onTrackEventJson", corpus(ProtocolCorpus::trackEventJson, 3), m -> {
+            serveState.onTrackEventJson(m, serveCfg.nowMs, serveCfg);
+            if (++serveCount[0] % 200 == 0) serveState.resetSession();
+        }, MIN_TRACK_EVENT_PER_SEC));
+
+        SessionState pointState = new SessionState();
+        SessionState.Settings pointCfg = ProtocolParserFuzzTest.settings(SessionState.MODE_SINGLES);
+        results.add(run("SessionState.onPointUpdateJson", corpus(ProtocolCorpus::pointUpdateJson, 4),
+                m -> pointState.onPointUpdateJson(m, pointCfg), MIN_POINT_UPDATE_PER_SEC));
+
+        SessionState smallState = new SessionState();
+        results.add(run("SessionState.onCalibrationStatus", corpus(ProtocolCorpus::calibrationStatus, 5),
+                smallState::onCalibrationStatus, MIN_CALIBRATION_STATUS_PER_SEC));
+        results.add(run("SessionState.onSystemState", corpus(ProtocolCorpus::systemState, 6),
+                smallState::onSystemState, MIN_SYSTEM_STATE_PER_SEC));
+
+        results.add(runLineReader());
+
+        StringBuilder report = new StringBuilder("\nProtocol parser benchmark (scale=" + SCALE + ")\n");
+        report.append(String.format(Locale.US, "%-34s %14s %14s %14s%n", "parser", "msgs/sec", "bytes/msg", "floor"));
+        StringBuilder failures = new StringBuilder();
+        for (Result res : results) {
+            double floor = res.floor * SCALE;
+            report.append(String.format(Locale.US, "%-34s %14.0f %14s %14.0f%n", res.name, res.perSec,
+                    res.bytesPerMsg < 0 ? "n/a" : String.format(Locale.US, "%.0f", res.bytesPerMsg), floor));
+            if (res.perSec < floor) {
+                failures.append(String.format(Locale.US, "%s: %.0f msgs/sec < floor %.0f%n",
+                        res.name, res.perSec, floor));
+            }
+        }
+        System.out.println(report);
+        if (failures.length() > 0) {
+            fail("Parser throughput regressed:\n" + failures + report);
+        }
+    }
+
+    /** Full newline-framed session stream through ProtocolLineReader; one "message" = one line. */
+    private Result runLineReader() throws Exception {
+        List<String> lines = corpus(ProtocolCorpus::wireLine, 7);
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) sb.append(line).append('\n');
+        byte[] wire = sb.toString().getBytes(StandardCharsets.UTF_8);
+        ProtocolLineReader reader = new ProtocolLineReader();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        Parser pass = ignored -> {
+            ByteArrayInputStream in = new ByteArrayInputStream(wire);
+            for (int i = 0; i < lines.size(); i++) reader.readLine(in, running);
+        };
+        // One "message" handed to run() = one pass over the whole stream.
+        List<String> onePass = new ArrayList<>();
+        onePass.add("");
+        Result perPass = run("ProtocolLineReader.readLine", onePass, pass, 0);
+        return new Result(perPass.name, perPass.perSec * lines.size(),
+                perPass.bytesPerMsg < 0 ? -1 : perPass.bytesPerMsg / lines.size(), MIN_LINE_READER_PER_SEC);
+    }
+
+    private static Result run(String name, List<String> corpus, Parser parser, double floor) throws Exception {
+        // Warm-up: a few passes untimed so the JIT has compiled the hot path.
+        long warmEnd = System.nanoTime() + MEASURE_NS / 2;
+        do {
+            for (String m : corpus) parser.parse(m);
+        } while (System.nanoTime() < warmEnd);
+
+        long allocBefore = allocatedBytes();
+        long messages = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (String m : corpus) parser.parse(m);
+            messages += corpus.size();
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASURE_NS);
+        long allocAfter = allocatedBytes();
+
+        double perSec = messages * 1e9 / elapsed;
+        double bytesPerMsg = (allocBefore < 0 || allocAfter < 0) ? -1 : (double) (allocAfter - allocBefore) / messages;
+        return new Result(name, perSec, bytesPerMsg, floor);
+    }
+
+    /** Bytes allocated so far by this thread, or -1 where the JVM doesn't expose it. */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+            if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+                return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,307 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robustness tests for every hand-rolled protocol parser on the socket -> UI path:
+ * ProtocolLineReader framing, StatusFrames, TourPointsGeometry, and SessionState's
+ * TRACK_EVENT_JSON / POINT_UPDATE_JSON / CALIBRATION_STATUS / SYSTEM_STATE handlers.
+ *
+ * Each parser gets realistic messages from ProtocolCorpus, mutated copies of them, and
+ * pure garbage. The contract checked is the one the app relies on: nothing throws
+ * (anything escaping SessionState would kill the SessionProcessor thread), and
+ * StatusFrames fails only with the NumberFormatException CommunicationService catches.
+ *
+ * Seeded and deterministic. Override with -Dtgcontrol.fuzz.seed=N and
+ * -Dtgcontrol.fuzz.iterations=N; the failing seed/input is in the assertion message.
+ */
+public class ProtocolParserFuzzTest {
+
+    private static final long SEED = Long.getLong("tgcontrol.fuzz.seed", 0x7E11150L);
+    private static final int ITERATIONS = Integer.getInteger("tgcontrol.fuzz.iterations", 20000);
+
+    /** Realistic message, mutated realistic message, or garbage -- 1:2:1. */
+    private interface Source {
+        String next(Random r);
+    }
+
+    private static String fuzzInput(Source source, Random r) {
+        switch (r.nextInt(4)) {
+            case 0: return source.next(r);
+            case 3: return ProtocolCorpus.garbage(r);
+            default: return ProtocolCorpus.mutate(source.next(r), r);
+        }
+    }
+
+    static SessionState.Settings settings(String mode) {
+        SessionState.Settings s = new SessionState.Settings();
+        s.mode = mode;
+        s.voiceCalls = true;
+        s.endOfPointBeeps = true;
+        s.inCalls = true;
+        s.inServeAudio = "speed";
+        s.speechAvailable = true;
+        s.nowMs = 1760000000000L;
+        return s;
+    }
+
+    // =====================================================================
+    // Correctness on realistic input
+    // =====================================================================
+
+    @Test
+    public void tourPoints_parsesRealisticPayload() {
+        TourPointsGeometry g = TourPointsGeometry.parse(
+                "WF:1,2,3,4;WF:5.5,6.25,-7,8e1;baseline_n:e1=10,20;baseline_n:e2=30,40;"
+                        + "baseline_n:mid=20,30;LK:baseline_n;LKM:baseline_n;AN:1.5,2.5;ST:9,8");
+        assertEquals(2, g.wireframeCount());
+        assertEquals(80f, g.wireframe[7], 0f);
+        assertEquals(1, g.anchorCount());
+        assertTrue(g.hasStrap());
+        assertEquals(3, g.handleCount());
+        assertEquals("mid", g.handlePointType(2));
+        assertTrue(g.isBlueLineLocked("baseline_n"));
+        assertTrue(g.isMidpointLocked("baseline_n"));
+        // Locked midpoint splits the blue line into e1-mid and mid-e2.
+        assertEquals(2, g.blueSegmentCount());
+    }
+
+    @Test
+    public void tourPoints_skipsMalformedEntriesIndividually() {
+        TourPointsGeometry g = TourPointsGeometry.parse("WF:1,2,3;WF:1,2,3,4;AN:x,y;AN:1,2;;;");
+        assertEquals(1, g.wireframeCount());
+        assertEquals(1, g.anchorCount());
+        assertSame(TourPointsGeometry.EMPTY, TourPointsGeometry.parse(""));
+        assertSame(TourPointsGeometry.EMPTY, TourPointsGeometry.parse(null));
+    }
+
+    @Test
+    public void statusFrames_formatsServerAndFallbackTime() {
+        assertEquals("Frames:   120   118 | Time 1:01:02 | Free Disk 12.3 Gb",
+                StatusFrames.formatStatusLine("120, 118, 12345, 3662", 0));
+        assertEquals("Frames:     1     1 | Time 00:42 | Free Disk 1.0 Gb",
+                StatusFrames.formatStatusLine("1,1,1000", 42));
+        assertNull(StatusFrames.formatStatusLine("1,2", 0));
+    }
+
+    @Test
+    public void calibrationAndSystemState_parseFields() {
+        SessionState state = new SessionState();
+        SessionSnapshot cal = state.onCalibrationStatus("0=1|Yaw 12,1=0").snapshot;
+        assertTrue(cal.leftCalibrated);
+        assertEquals("Yaw 12", cal.poseLeft);
+        assertFalse(cal.rightCalibrated);
+        // Empty value after '=' used to index an empty split() result.
+        assertFalse(state.onCalibrationStatus("0=|,1=|x").snapshot.leftCalibrated);
+
+        SessionState.Update sys = state.onSystemState("TRACKING=1,RECORDING=0,MODE=SINGLES,NANO_AUDIO=on");
+        assertTrue(sys.snapshot.serverTracking);
+        assertFalse(sys.snapshot.serverRecording);
+        assertEquals("SINGLES", sys.snapshot.serverMode);
+        assertEquals(Boolean.TRUE, sys.nanoAudio);
+    }
+
+    @Test
+    public void pointUpdate_thenTrackEvent_derivesPointState() {
+        SessionState state = new SessionState();
+        SessionState.Settings cfg = settings(SessionState.MODE_SINGLES);
+        state.onServerActive();
+        SessionSnapshot s = state.onPointUpdateJson(
+                "{\"stroke_count\": 2, \"strokes\": ["
+                        + "{\"type\": \"serve\", \"serve_side\": \"Ad\", \"x\": 1, \"y\": 12, \"bounce\": {\"x\": 1, \"y\": -3}},"
+                        + "{\"type\": \"hit\", \"x\": 0, \"y\": -12, \"call_str\": \"Out\", \"bounce\": {\"x\": 0, \"y\": 13}}]}",
+                cfg).snapshot;
+        assertEquals(1, s.pointNumber);
+        assertFalse(s.waitingForServe);
+        assertEquals(2, s.pointEvents.size());
+        assertEquals("Ad serve + 1 hit...", s.inPointStatusText);
+
+        SessionState.Update end = state.onTrackEventJson(
+                "{\"strike_type\": \"hit\", \"call_str\": \"Out\", \"speed_mph\": 55}", 1000L, cfg);
+        assertTrue(end.snapshot.waitingForServe);
+        assertNotNull(end.snapshot.trackingLogLine);
+        assertNull("not SINGLES/DOUBLES", state.onPointUpdateJson("{}", settings(SessionState.MODE_SERVE_PRACTICE)));
+    }
+
+    @Test
+    public void lineReader_keepsPartialLineAcrossTimeouts() throws IOException {
+        ProtocolLineReader reader = new ProtocolLineReader();
+        AtomicBoolean running = new AtomicBoolean(true);
+        TimeoutInjectingStream in = new TimeoutInjectingStream(
+                "STATUS: hel".getBytes(StandardCharsets.UTF_8), null, 0);
+        try {
+            reader.readLine(in, running);
+            fail("expected timeout at end of partial data");
+        } catch (SocketTimeoutException expected) {
+            // Partial line stays buffered.
+        }
+        in.append(" lo \nNEXT\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals("STATUS: hel lo", reader.readLine(in, running));
+        assertEquals("NEXT", reader.readLine(in, running));
+    }
+
+    // =====================================================================
+    // Fuzz
+    // =====================================================================
+
+    @Test
+    public void fuzz_tourPointsGeometry_neverThrows() {
+        Random r = new Random(SEED);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String input = fuzzInput(ProtocolCorpus::tourPoints, r);
+            try {
+                TourPointsGeometry g = TourPointsGeometry.parse(input);
+                assertTrue(g.blueSegmentCount() <= 2 * g.handleCount());
+            } catch (RuntimeException e) {
+                throw failure("TourPointsGeometry.parse", i, input, e);
+            }
+        }
+    }
+
+    @Test
+    public void fuzz_statusFrames_onlyNumberFormatException() {
+        Random r = new Random(SEED + 1);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String input = fuzzInput(ProtocolCorpus::statusFrames, r);
+            try {
+                StatusFrames.formatStatusLine(input, 5);
+            } catch (NumberFormatException expected) {
+                // Caught and shown as "Error parsing frame data".
+            } catch (RuntimeException e) {
+                throw failure("StatusFrames.formatStatusLine", i, input, e);
+            }
+        }
+    }
+
+    @Test
+    public void fuzz_sessionStateHandlers_neverThrow() {
+        Random r = new Random(SEED + 2);
+        SessionState state = new SessionState();
+        String[] modes = {SessionState.MODE_SINGLES, SessionState.MODE_DOUBLES, SessionState.MODE_SERVE_PRACTICE};
+        for (int i = 0; i < ITERATIONS; i++) {
+            SessionState.Settings cfg = settings(modes[r.nextInt(modes.length)]);
+            cfg.nanoAudioActive = r.nextInt(4) == 0;
+            int kind = r.nextInt(4);
+            String input;
+            switch (kind) {
+                case 0: input = fuzzInput(ProtocolCorpus::trackEventJson, r); break;
+                case 1: input = fuzzInput(ProtocolCorpus::pointUpdateJson, r); break;
+                case 2: input = fuzzInput(ProtocolCorpus::calibrationStatus, r); break;
+                default: input = fuzzInput(ProtocolCorpus::systemState, r); break;
+            }
+            try {
+                SessionState.Update u;
+                switch (kind) {
+                    case 0: u = state.onTrackEventJson(input, cfg.nowMs, cfg); break;
+                    case 1: u = state.onPointUpdateJson(input, cfg); break;
+                    case 2: u = state.onCalibrationStatus(input); break;
+                    default: u = state.onSystemState(input); break;
+                }
+                if (u != null) {
+                    assertNotNull(u.snapshot);
+                    assertNotNull(u.snapshot.inPointStatusText);
+                    assertNotNull(u.snapshot.pointEvents);
+                }
+            } catch (RuntimeException | AssertionError e) {
+                throw failure("SessionState handler " + kind, i, input, e);
+            }
+            // Keep the serve list session-sized, as a real Start/Stop cycle would.
+            if (i % 500 == 499) state.resetSession();
+        }
+    }
+
+    @Test
+    public void fuzz_lineReader_reassemblesAcrossRandomTimeouts() throws IOException {
+        Random r = new Random(SEED + 3);
+        for (int round = 0; round < 50; round++) {
+            StringBuilder wire = new StringBuilder();
+            List<String> expected = new ArrayList<>();
+            int lines = 1 + r.nextInt(40);
+            for (int i = 0; i < lines; i++) {
+                String line = r.nextInt(5) == 0
+                        ? ProtocolCorpus.mutate(ProtocolCorpus.wireLine(r), r).replace('\n', ' ')
+                        : ProtocolCorpus.wireLine(r);
+                wire.append(line).append('\n');
+                expected.add(line.trim());
+            }
+            TimeoutInjectingStream in = new TimeoutInjectingStream(
+                    wire.toString().getBytes(StandardCharsets.UTF_8), r, 0.01);
+            ProtocolLineReader reader = new ProtocolLineReader();
+            AtomicBoolean running = new AtomicBoolean(true);
+            List<String> actual = new ArrayList<>();
+            while (actual.size() < expected.size()) {
+                try {
+                    actual.add(reader.readLine(in, running));
+                } catch (SocketTimeoutException e) {
+                    // The reader loop's `continue`: poll again.
+                }
+            }
+            assertEquals("seed=" + SEED + " round=" + round, expected, actual);
+            try {
+                reader.readLine(in, running);
+                fail("expected end of stream");
+            } catch (SocketTimeoutException e) {
+                fail("timeout injected after the last byte");
+            } catch (IOException expectedEnd) {
+                assertEquals("End of stream", expectedEnd.getMessage());
+            }
+        }
+    }
+
+    private static AssertionError failure(String parser, int iteration, String input, Throwable cause) {
+        AssertionError err = new AssertionError(parser + " failed at seed=" + SEED
+                + " iteration=" + iteration + " input=<" + input + ">: " + cause);
+        err.initCause(cause);
+        return err;
+    }
+
+    /** Serves a byte array, throwing SocketTimeoutException before a read with
+     *  probability `timeoutChance` (and whenever data runs out but more may be
+     *  appended), like the 500 ms SO_TIMEOUT socket in CommunicationService. */
+    static final class TimeoutInjectingStream extends InputStream {
+        private byte[] data;
+        private int pos;
+        private final Random random;
+        private final double timeoutChance;
+        private boolean open = true;
+
+        TimeoutInjectingStream(byte[] data, Random random, double timeoutChance) {
+            this.data = data;
+            this.random = random;
+            this.timeoutChance = timeoutChance;
+            // With no Random, running out of data means "no more bytes yet".
+            this.open = random == null;
+        }
+
+        void append(byte[] more) {
+            byte[] merged = new byte[data.length - pos + more.length];
+            System.arraycopy(data, pos, merged, 0, data.length - pos);
+            System.arraycopy(more, 0, merged, data.length - pos, more.length);
+            data = merged;
+            pos = 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= data.length) {
+                if (open) throw new SocketTimeoutException("Read timed out");
+                return -1;
+            }
+            if (random != null && pos > 0 && random.nextDouble() < timeoutChance) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            return data[pos++] & 0xff;
+        }
+    }
+}
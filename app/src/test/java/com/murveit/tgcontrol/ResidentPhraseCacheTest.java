@@ -0,0 +1,102 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * ResidentPhraseCache: LRU order under a byte budget, pinning, replacement
+ * accounting, and the null-put guard.
+ */
+public class ResidentPhraseCacheTest {
+
+    /** n samples = 2n bytes. */
+    private static short[] pcm(int samples) {
+        return new short[samples];
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverBudget() {
+        ResidentPhraseCache cache = new ResidentPhraseCache(600);
+        cache.put("a", pcm(100));
+        cache.put("b", pcm(100));
+        cache.put("c", pcm(100));
+        assertEquals(600, cache.residentBytes());
+
+        assertNotNull(cache.get("a"));   // a is now most recent; b is eldest
+        cache.put("d", pcm(100));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("a"));
+        assertTrue(cache.contains("c"));
+        assertTrue(cache.contains("d"));
+        assertEquals(600, cache.residentBytes());
+
+        // contains() does not refresh order: c is still the eldest.
+        assertTrue(cache.contains("c"));
+        cache.put("e", pcm(100));
+        assertFalse(cache.contains("c"));
+    }
+
+    @Test
+    public void budgetChangesAndReplacementsKeepTheByteCount() {
+        ResidentPhraseCache cache = new ResidentPhraseCache(1000);
+        cache.put("a", pcm(200));
+        cache.put("b", pcm(200));
+        cache.put("a", pcm(50));   // replace: 400 + 400 -> 100 + 400
+        assertEquals(500, cache.residentBytes());
+
+        cache.setBudget(450);
+        assertEquals(450, cache.budget());
+        assertFalse(cache.contains("b"));   // eldest after a's replacement
+        assertEquals(100, cache.residentBytes());
+
+        cache.remove("a");
+        cache.remove("missing");
+        assertEquals(0, cache.residentBytes());
+
+        // A single entry over budget is admitted, then evicted at once.
+        cache.put("huge", pcm(1000));
+        assertFalse(cache.contains("huge"));
+        assertEquals(0, cache.residentBytes());
+    }
+
+    @Test
+    public void pinnedEntriesSurviveEvenOverBudget() {
+        ResidentPhraseCache cache = new ResidentPhraseCache(400);
+        cache.setPinned(Arrays.asList("hot", "also_hot"));
+        cache.put("hot", pcm(150));
+        cache.put("cold", pcm(50));
+        cache.put("also_hot", pcm(150));
+        assertTrue(cache.isPinned("hot"));
+        assertFalse(cache.contains("cold"));
+        assertEquals(600, cache.residentBytes());   // pins alone exceed the budget
+
+        cache.setPinned(Collections.singleton("also_hot"));
+        assertFalse(cache.contains("hot"));
+        assertTrue(cache.contains("also_hot"));
+        assertEquals(300, cache.residentBytes());
+    }
+
+    @Test
+    public void nullPutIsIgnoredAndStatsCount() {
+        ResidentPhraseCache cache = new ResidentPhraseCache(1000);
+        cache.put("a", pcm(10));
+        cache.put("a", null);
+        cache.put("b", null);
+        assertNotNull(cache.get("a"));
+        assertFalse(cache.contains("b"));
+        assertNull(cache.get("b"));
+        assertEquals(20, cache.residentBytes());
+
+        String stats = cache.statsLine();
+        assertTrue(stats, stats.contains("hits=1 misses=1"));
+        assertTrue(stats, stats.contains("admissions=1"));
+
+        cache.clear();
+        assertEquals(0, cache.residentBytes());
+        assertFalse(cache.contains("a"));
+    }
+}
@@ -0,0 +1,50 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ServeImpacts snapshots: published prefixes survive growth and resets, and continues()
+ * tells ServeScatterView when it may map only the appended serves.
+ */
+public class ServeImpactsTest {
+
+    @Test
+    public void snapshotsKeepTheirPrefixAcrossGrowth() {
+        ServeImpacts.Builder b = new ServeImpacts.Builder();
+        b.add(1f, 2f, "In");
+        ServeImpacts first = b.snapshot();
+        for (int i = 0; i < 1000; i++) b.add(i, -i, i % 3 == 0 ? "let" : "Fault");
+        ServeImpacts all = b.snapshot();
+
+        assertEquals(1, first.count);
+        assertEquals(1f, first.x(0), 0f);
+        assertEquals(ServeImpacts.CALL_IN, first.call(0));
+        assertEquals(1001, all.count);
+        assertEquals(ServeImpacts.CALL_LET, all.call(1));
+        assertEquals(ServeImpacts.CALL_OUT, all.call(2));
+        assertEquals(-999f, all.y(1000), 0f);
+
+        assertTrue(all.continues(first));
+        assertTrue(all.continues(all));
+        assertFalse(first.continues(all));
+        assertFalse(all.continues(null));
+    }
+
+    @Test
+    public void clearStartsANewLineage() {
+        ServeImpacts.Builder b = new ServeImpacts.Builder();
+        b.add(3f, 4f, "Out");
+        ServeImpacts before = b.snapshot();
+        b.clear();
+        assertSame(ServeImpacts.EMPTY, b.snapshot());
+        b.add(5f, 6f, "In");
+        ServeImpacts after = b.snapshot();
+
+        assertEquals(3f, before.x(0), 0f);
+        assertEquals(ServeImpacts.CALL_OUT, before.call(0));
+        assertFalse(after.continues(before));
+        assertEquals(5f, after.x(0), 0f);
+    }
+}
@@ -0,0 +1,284 @@
+package com.murveit.tgcontrol;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Session Journal Reader - Algorithmic Overview
+ *
+ * Plain-JVM reader for SessionJournal (.tgj) files. It is a desktop analysis tool, not part
+ * of the app, so it lives in the unit-test source set and never ships in the APK. Run it
+ * from the unit-test classpath after pulling the journal off the phone:
+ *
+ *   ./gradlew :app:compileDebugUnitTestJavaWithJavac
+ *   java -cp <app classes>:<unit test classes> com.murveit.tgcontrol.SessionJournalReader session_X.tgj
+ *   java -cp ... com.murveit.tgcontrol.SessionJournalReader session_X.tgj --timeline [fromSec toSec]
+ *
+ * 1. INITIALIZATION:
+ * - open(file) maps the file read-only and validates the header; IOException if it
+ *   is not a journal.
+ *
+ * 2. CALLING PROCEDURE:
+ * - forEach(visitor) streams every record in file order.
+ * - summarize(out) prints record counts, latency histograms and WiFi outages;
+ *   timeline(out, fromSec, toSec) prints records with session-relative times.
+ * - Histogram is usable on its own: add(ns), percentileNs(p), print().
+ *
+ * 3. INTERNAL ALGORITHMIC LOGIC:
+ * - Records are decoded straight from the mapping (see SessionJournal for the
+ *   layout); a type-0 slot skips to the next chunk boundary, and the walk ends at end
+ *   of file -- which is also how a journal cut short by a crash ends.
+ * - Latency series: AUDIO_FIRED per arbiter path, AUDIO_OUTPUT per device, and
+ *   RENDER_DONE per view. Each Histogram keeps every value (a multi-hour session
+ *   is ~10^5 records, a few MB of longs) and sorts once on first query, so
+ *   percentiles are exact. The printed bars use power-of-two millisecond buckets.
+ * - WiFi outages pair each WIFI_LOST with the next WIFI_RESTORED (or the session end).
+ *
+ * 4. EXPECTED OUTPUTS / SIDE EFFECTS:
+ * - Text on the given PrintStream. Read-only on the journal.
+ */
+public final class SessionJournalReader {
+
+    public interface Visitor {
+        void onRecord(int type, int arg, long monoNs, long value, String text);
+    }
+
+    private final MappedByteBuffer map;
+    private final long startEpochMs;
+    private final long startMonoNs;
+    private final int chunkBytes;
+
+    private SessionJournalReader(MappedByteBuffer map, long startEpochMs, long startMonoNs, int chunkBytes) {
+        this.map = map;
+        this.startEpochMs = startEpochMs;
+        this.startMonoNs = startMonoNs;
+        this.chunkBytes = chunkBytes;
+    }
+
+    public static SessionJournalReader open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < SessionJournal.HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Bad journal size " + size);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt(0) != SessionJournal.MAGIC) throw new IOException("Not a session journal");
+            if (map.getInt(4) != SessionJournal.VERSION) throw new IOException("Unsupported journal version " + map.getInt(4));
+            int chunk = map.getInt(24);
+            if (chunk < SessionJournal.HEADER_BYTES) throw new IOException("Corrupt journal header");
+            return new SessionJournalReader(map, map.getLong(8), map.getLong(16), chunk);
+        }
+    }
+
+    public long startEpochMs() {
+        return startEpochMs;
+    }
+
+    public long startMonoNs() {
+        return startMonoNs;
+    }
+
+    public void forEach(Visitor visitor) {
+        int size = map.capacity();
+        long pos = SessionJournal.HEADER_BYTES;
+        byte[] text = new byte[SessionJournal.MAX_TEXT_BYTES];
+        while (pos + SessionJournal.RECORD_HEADER_BYTES <= size) {
+            int at = (int) pos;
+            int type = map.getShort(at) & 0xFFFF;
+            long chunkEnd = (pos / chunkBytes + 1) * chunkBytes;
+            if (type == 0) {
+                pos = chunkEnd;
+                continue;
+            }
+            int textLen = map.getShort(at + 2) & 0xFFFF;
+            if (textLen > SessionJournal.MAX_TEXT_BYTES || pos + SessionJournal.RECORD_HEADER_BYTES + textLen > size) break;
+            int arg = map.getInt(at + 4);
+            long monoNs = map.getLong(at + 8);
+            long value = map.getLong(at + 16);
+            for (int i = 0; i < textLen; i++) text[i] = map.get(at + SessionJournal.RECORD_HEADER_BYTES + i);
+            visitor.onRecord(type, arg, monoNs, value,
+                    textLen == 0 ? "" : new String(text, 0, textLen, StandardCharsets.UTF_8));
+            pos += (SessionJournal.RECORD_HEADER_BYTES + textLen + 7) & ~7;
+        }
+    }
+
+    public static String typeName(int type) {
+        switch (type) {
+            case SessionJournal.MSG_RECEIVED: return "MSG_RECEIVED";
+            case SessionJournal.COMMAND_SENT: return "COMMAND_SENT";
+            case SessionJournal.AUDIO_FIRED: return "AUDIO_FIRED";
+            case SessionJournal.AUDIO_OUTPUT: return "AUDIO_OUTPUT";
+            case SessionJournal.RENDER_DONE: return "RENDER_DONE";
+            case SessionJournal.WIFI_LOST: return "WIFI_LOST";
+            case SessionJournal.WIFI_RESTORED: return "WIFI_RESTORED";
+            case SessionJournal.SESSION_START: return "SESSION_START";
+            case SessionJournal.SESSION_END: return "SESSION_END";
+            default: return "TYPE_" + type;
+        }
+    }
+
+    /** Exact percentiles over every added value (nanoseconds). */
+    public static final class Histogram {
+        private long[] values = new long[64];
+        private int count;
+        private boolean sorted = true;
+
+        public void add(long ns) {
+            if (count == values.length) values = Arrays.copyOf(values, count * 2);
+            values[count++] = ns;
+            sorted = false;
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public long percentileNs(double pct) {
+            if (count == 0) return 0;
+            sort();
+            int i = (int) Math.ceil(pct / 100.0 * count) - 1;
+            return values[Math.max(0, Math.min(count - 1, i))];
+        }
+
+        public long meanNs() {
+            if (count == 0) return 0;
+            long sum = 0;
+            for (int i = 0; i < count; i++) sum += values[i];
+            return sum / count;
+        }
+
+        public void print(PrintStream out, String label) {
+            out.printf(Locale.US, "%-32s n=%-6d p50=%8.1f p90=%8.1f p99=%8.1f max=%8.1f mean=%8.1f ms%n",
+                    label, count, ms(percentileNs(50)), ms(percentileNs(90)), ms(percentileNs(99)),
+                    ms(percentileNs(100)), ms(meanNs()));
+            // Power-of-two millisecond buckets: [0,1) [1,2) [2,4) ... ms.
+            int[] buckets = new int[24];
+            for (int i = 0; i < count; i++) {
+                long msVal = Math.max(0, values[i] / 1_000_000);
+                int b = msVal == 0 ? 0 : Math.min(buckets.length - 1, 64 - Long.numberOfLeadingZeros(msVal));
+                buckets[b]++;
+            }
+            int peak = 1;
+            for (int b : buckets) peak = Math.max(peak, b);
+            for (int b = 0; b < buckets.length; b++) {
+                if (buckets[b] == 0) continue;
+                long lo = b == 0 ? 0 : 1L << (b - 1);
+                long hi = 1L << b;
+                char[] bar = new char[Math.max(1, buckets[b] * 40 / peak)];
+                Arrays.fill(bar, '#');
+                out.printf(Locale.US, "    %6d-%-6d ms %7d %s%n", lo, hi, buckets[b], new String(bar));
+            }
+        }
+
+        private void sort() {
+            if (sorted) return;
+            Arrays.sort(values, 0, count);
+            sorted = true;
+        }
+
+        private static double ms(long ns) {
+            return ns / 1_000_000.0;
+        }
+    }
+
+    public void summarize(PrintStream out) {
+        final int[] counts = new int[16];
+        final Map<String, Histogram> series = new TreeMap<>();
+        final Map<String, Integer> tags = new TreeMap<>();
+        final long[] lastNs = {startMonoNs};
+        final long[] lostAt = {-1};
+        final StringBuilder outages = new StringBuilder();
+        forEach((type, arg, monoNs, value, text) -> {
+            if (type < counts.length) counts[type]++;
+            lastNs[0] = Math.max(lastNs[0], monoNs);
+            switch (type) {
+                case SessionJournal.MSG_RECEIVED:
+                    tags.merge(text, 1, Integer::sum);
+                    break;
+                case SessionJournal.AUDIO_FIRED:
+                    series.computeIfAbsent("audio receive->play " + text, k -> new Histogram()).add(value);
+                    break;
+                case SessionJournal.AUDIO_OUTPUT:
+                    series.computeIfAbsent("audio play->speaker " + text, k -> new Histogram()).add(value);
+                    break;
+                case SessionJournal.RENDER_DONE:
+                    series.computeIfAbsent("render receive->vsync " + text, k -> new Histogram()).add(value);
+                    break;
+                case SessionJournal.WIFI_LOST:
+                    if (lostAt[0] < 0) lostAt[0] = monoNs;
+                    break;
+                case SessionJournal.WIFI_RESTORED:
+                    if (lostAt[0] >= 0) {
+                        outages.append(String.format(Locale.US, "  at +%.1fs for %.1fs%n",
+                                (lostAt[0] - startMonoNs) / 1e9, (monoNs - lostAt[0]) / 1e9));
+                        lostAt[0] = -1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        });
+        if (lostAt[0] >= 0) {
+            outages.append(String.format(Locale.US, "  at +%.1fs, not restored%n", (lostAt[0] - startMonoNs) / 1e9));
+        }
+
+        out.printf(Locale.US, "Session %s, %.1f min%n",
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date(startEpochMs)),
+                (lastNs[0] - startMonoNs) / 60e9);
+        for (int t = 1; t < counts.length; t++) {
+            if (counts[t] > 0) out.printf(Locale.US, "  %-14s %d%n", typeName(t), counts[t]);
+        }
+        if (!tags.isEmpty()) {
+            out.println("Messages received:");
+            for (Map.Entry<String, Integer> e : tags.entrySet()) {
+                out.printf(Locale.US, "  %-24s %d%n", e.getKey(), e.getValue());
+            }
+        }
+        if (!series.isEmpty()) {
+            out.println("Latency:");
+            for (Map.Entry<String, Histogram> e : series.entrySet()) e.getValue().print(out, e.getKey());
+        }
+        if (outages.length() > 0) {
+            out.println("WiFi outages:");
+            out.print(outages);
+        }
+    }
+
+    public void timeline(PrintStream out, double fromSec, double toSec) {
+        forEach((type, arg, monoNs, value, text) -> {
+            double t = (monoNs - startMonoNs) / 1e9;
+            if (t < fromSec || t > toSec) return;
+            out.printf(Locale.US, "+%10.3fs %-14s arg=%-6d value_ms=%-9.2f %s%n",
+                    t, typeName(type), arg, value / 1e6, text);
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: SessionJournalReader <file.tgj> [--timeline [fromSec toSec]]");
+            System.exit(2);
+        }
+        SessionJournalReader r = open(new File(args[0]));
+        if (args.length >= 2 && "--timeline".equals(args[1])) {
+            double from = args.length >= 4 ? Double.parseDouble(args[2]) : 0;
+            double to = args.length >= 4 ? Double.parseDouble(args[3]) : Double.MAX_VALUE;
+            r.timeline(System.out, from, to);
+        } else {
+            r.summarize(System.out);
+        }
+    }
+}
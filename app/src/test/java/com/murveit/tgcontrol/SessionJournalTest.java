@@ -0,0 +1,177 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trip tests for the binary session journal: what SessionJournal writes,
+ * SessionJournalReader reads back -- across chunk boundaries, after a clean close, and
+ * from a file that was never closed (the app was killed mid-session).
+ */
+public class SessionJournalTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final class Rec {
+        final int type, arg;
+        final long monoNs, value;
+        final String text;
+
+        Rec(int type, int arg, long monoNs, long value, String text) {
+            this.type = type;
+            this.arg = arg;
+            this.monoNs = monoNs;
+            this.value = value;
+            this.text = text;
+        }
+    }
+
+    private static List<Rec> readAll(File f) throws IOException {
+        List<Rec> out = new ArrayList<>();
+        SessionJournalReader.open(f).forEach((type, arg, monoNs, value, text) ->
+                out.add(new Rec(type, arg, monoNs, value, text)));
+        return out;
+    }
+
+    @Test
+    public void roundTripsRecordsAndHeader() throws IOException {
+        File f = tmp.newFile("a.tgj");
+        SessionJournal j = SessionJournal.open(f, 1_700_000_000_000L, 5_000L, SessionJournal.CHUNK_BYTES);
+        j.append(SessionJournal.MSG_RECEIVED, 42, 6_000L, 0, "TRACK_EVENT_JSON");
+        j.append(SessionJournal.AUDIO_FIRED, 7, 7_000L, 3_500_000L, "clip_prearmed");
+        j.append(SessionJournal.WIFI_LOST, 0, 8_000L, 0, null);
+        j.append(SessionJournal.COMMAND_SENT, -1, 9_000L, Long.MAX_VALUE, "héllo");
+        j.close();
+
+        SessionJournalReader r = SessionJournalReader.open(f);
+        assertEquals(1_700_000_000_000L, r.startEpochMs());
+        assertEquals(5_000L, r.startMonoNs());
+
+        List<Rec> recs = readAll(f);
+        assertEquals(4, recs.size());
+        assertEquals(SessionJournal.MSG_RECEIVED, recs.get(0).type);
+        assertEquals(42, recs.get(0).arg);
+        assertEquals("TRACK_EVENT_JSON", recs.get(0).text);
+        assertEquals(3_500_000L, recs.get(1).value);
+        assertEquals(7_000L, recs.get(1).monoNs);
+        assertEquals("", recs.get(2).text);
+        assertEquals(-1, recs.get(3).arg);
+        assertEquals(Long.MAX_VALUE, recs.get(3).value);
+        assertEquals("héllo", recs.get(3).text);
+        // close() truncates the preallocated chunk.
+        assertTrue(f.length() < 256);
+    }
+
+    @Test
+    public void recordsSpanManyChunks() throws IOException {
+        File f = tmp.newFile("b.tgj");
+        SessionJournal j = SessionJournal.open(f, 0, 0, 4096);
+        int n = 2000;
+        for (int i = 0; i < n; i++) {
+            // Varying text lengths so records land at every alignment near the chunk ends.
+            j.append(SessionJournal.RENDER_DONE, i, i, i * 1000L, "serves".substring(0, i % 7));
+        }
+        j.close();
+        assertTrue(f.length() > 4 * 4096);
+
+        List<Rec> recs = readAll(f);
+        assertEquals(n, recs.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, recs.get(i).arg);
+            assertEquals(i * 1000L, recs.get(i).value);
+            assertEquals("serves".substring(0, i % 7), recs.get(i).text);
+        }
+    }
+
+    @Test
+    public void truncatesLongText() throws IOException {
+        File f = tmp.newFile("c.tgj");
+        SessionJournal j = SessionJournal.open(f, 0, 0, 4096);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) sb.append('x');
+        j.append(SessionJournal.COMMAND_SENT, 0, 1, 0, sb.toString());
+        j.append(SessionJournal.COMMAND_SENT, 1, 2, 0, "next");
+        j.close();
+
+        List<Rec> recs = readAll(f);
+        assertEquals(2, recs.size());
+        assertEquals(SessionJournal.MAX_TEXT_BYTES, recs.get(0).text.length());
+        assertEquals("next", recs.get(1).text);
+    }
+
+    @Test
+    public void readsJournalThatWasNeverClosed() throws IOException {
+        File f = tmp.newFile("d.tgj");
+        SessionJournal j = SessionJournal.open(f, 0, 0, 4096);
+        for (int i = 0; i < 300; i++) j.append(SessionJournal.MSG_RECEIVED, i, i, 0, "POINT_UPDATE_JSON");
+        // No close(): the file is still chunk-sized and ends in zeros, as after a crash.
+        // A copy stands in for the file the next process would find.
+        File copy = tmp.newFile("d_copy.tgj");
+        try (RandomAccessFile in = new RandomAccessFile(f, "r");
+             RandomAccessFile out = new RandomAccessFile(copy, "rw")) {
+            byte[] all = new byte[(int) in.length()];
+            in.readFully(all);
+            out.write(all);
+        }
+        assertEquals(0, copy.length() % 4096);
+        assertEquals(300, readAll(copy).size());
+        j.close();
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        File f = tmp.newFile("e.tgj");
+        try (RandomAccessFile out = new RandomAccessFile(f, "rw")) {
+            out.write("not a journal, just some text padding it out".getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            SessionJournalReader.open(f);
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void histogramPercentilesAreExact() {
+        SessionJournalReader.Histogram h = new SessionJournalReader.Histogram();
+        for (int i = 100; i >= 1; i--) h.add(i * 1_000_000L);
+        assertEquals(100, h.count());
+        assertEquals(50_000_000L, h.percentileNs(50));
+        assertEquals(90_000_000L, h.percentileNs(90));
+        assertEquals(99_000_000L, h.percentileNs(99));
+        assertEquals(100_000_000L, h.percentileNs(100));
+        assertEquals(1_000_000L, h.percentileNs(0));
+    }
+
+    @Test
+    public void summaryGroupsLatencyAndOutages() throws IOException {
+        File f = tmp.newFile("g.tgj");
+        SessionJournal j = SessionJournal.open(f, 0, 0, SessionJournal.CHUNK_BYTES);
+        j.append(SessionJournal.AUDIO_FIRED, 1, 1_000_000_000L, 4_000_000L, "clip");
+        j.append(SessionJournal.AUDIO_FIRED, 2, 2_000_000_000L, 2_000_000L, "clip_prearmed");
+        j.append(SessionJournal.WIFI_LOST, 0, 3_000_000_000L, 0, null);
+        j.append(SessionJournal.WIFI_RESTORED, 0, 5_500_000_000L, 0, null);
+        j.close();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SessionJournalReader.open(f).summarize(new PrintStream(bytes, true, "UTF-8"));
+        String out = bytes.toString("UTF-8");
+        assertTrue(out, out.contains("audio receive->play clip "));
+        assertTrue(out, out.contains("audio receive->play clip_prearmed"));
+        assertTrue(out, out.contains("at +3.0s for 2.5s"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.murveit.tgcontrol;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * SpeechAtoms readouts at every spelling boundary, and parseMph's accept/reject edges.
+ */
+public class SpeechAtomsTest {
+
+    private static String[] atoms(int mph, boolean units) {
+        String[] out = new String[SpeechAtoms.MAX_ATOMS_PER_PHRASE];
+        return Arrays.copyOf(out, SpeechAtoms.atomsFor(mph, units, out));
+    }
+
+    private static void assertAtoms(int mph, String... expected) {
+        assertArrayEquals("mph " + mph, expected, atoms(mph, false));
+    }
+
+    @Test
+    public void spellsEveryBoundary() {
+        assertAtoms(1, "one");
+        assertAtoms(10, "ten");
+        assertAtoms(13, "thirteen");
+        assertAtoms(20, "twenty");
+        assertAtoms(21, "twenty", "one");
+        assertAtoms(100, "one hundred");
+        assertAtoms(105, "one hundred", "five");
+        assertAtoms(117, "one hundred", "seventeen");
+        assertAtoms(140, "one hundred", "forty");
+        assertAtoms(199, "one hundred", "ninety", "nine");
+        assertAtoms(200);
+        assertAtoms(0);
+        assertAtoms(-5);
+    }
+
+    @Test
+    public void unitsFitTheLongestReadout() {
+        assertArrayEquals(new String[]{"one hundred", "twenty", "three", "miles per hour"}, atoms(123, true));
+        assertArrayEquals(new String[]{"seventy", "three", "miles per hour"}, atoms(73, true));
+        assertEquals(0, atoms(200, true).length);
+        for (int mph = 1; mph < 200; mph++) {
+            for (String a : atoms(mph, true)) assertTrue(a, SpeechAtoms.all().contains(a));
+        }
+        assertEquals(29, SpeechAtoms.all().size());
+    }
+
+    @Test
+    public void parseMphAcceptsOnlyTheArbiterForms() {
+        assertEquals(73, SpeechAtoms.parseMph("73 miles per hour"));
+        assertEquals(105, SpeechAtoms.parseMph("105"));
+        assertEquals(0, SpeechAtoms.parseMph("0"));
+        assertEquals(199, SpeechAtoms.parseMph("199 miles per hour"));
+
+        assertEquals(-1, SpeechAtoms.parseMph(null));
+        assertEquals(-1, SpeechAtoms.parseMph(""));
+        assertEquals(-1, SpeechAtoms.parseMph("miles per hour"));
+        assertEquals(-1, SpeechAtoms.parseMph("73 "));
+        assertEquals(-1, SpeechAtoms.parseMph("73 miles per hour!"));
+        assertEquals(-1, SpeechAtoms.parseMph("73  miles per hour"));
+        assertEquals(-1, SpeechAtoms.parseMph("73 kilometers per hour"));
+        assertEquals(-1, SpeechAtoms.parseMph("7.3"));
+        assertEquals(-1, SpeechAtoms.parseMph("12345"));
+        assertEquals(-1, SpeechAtoms.parseMph("In"));
+
+        assertTrue(SpeechAtoms.hasUnits("73 miles per hour"));
+        assertFalse(SpeechAtoms.hasUnits("73"));
+    }
+}